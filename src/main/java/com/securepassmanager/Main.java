@@ -1,17 +1,54 @@
 package com.securepassmanager;
 
+import com.mongodb.ConnectionString;
+import com.securepassmanager.importer.ImportPipeline;
+import com.securepassmanager.importer.ImportReport;
+import com.securepassmanager.importer.RecordReader;
+import com.securepassmanager.loadtest.LoadGenerator;
+import com.securepassmanager.loadtest.LoadTestConfig;
+import com.securepassmanager.loadtest.LoadTestReport;
+import com.securepassmanager.loadtest.StubBreachServer;
+import com.securepassmanager.loadtest.VaultScenario;
+import com.securepassmanager.metrics.MetricsFileReporter;
+import com.securepassmanager.metrics.MetricsRegistry;
 import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.security.BreachFilter;
 import com.securepassmanager.security.EncryptionService;
 import com.securepassmanager.security.TwoFactorAuth;
+import com.securepassmanager.security.VaultSession;
 import com.securepassmanager.security.PasswordBreachChecker;
+import com.securepassmanager.security.PasswordStrengthEstimator;
+import com.securepassmanager.server.VaultHttpServer;
+import com.securepassmanager.service.BackendLimiter;
 import com.securepassmanager.service.MongoDBService;
+import com.securepassmanager.service.MongoUserRepository;
 import com.securepassmanager.model.User;
 import com.securepassmanager.service.UserService;
+import com.securepassmanager.service.SyncScheduler;
 import com.securepassmanager.service.SyncService;
+import com.securepassmanager.service.VaultBackupService;
+import com.securepassmanager.service.VaultSearchIndex;
+import com.securepassmanager.storage.CompactEntryStore;
+import com.securepassmanager.storage.EmbeddedUserRepository;
+import com.securepassmanager.storage.EmbeddedVaultRepository;
+import com.securepassmanager.storage.ShardedVaultRepository;
+import com.securepassmanager.storage.UserRepository;
+import com.securepassmanager.storage.VaultRepository;
+import com.securepassmanager.util.AppConfig;
+import com.securepassmanager.util.InputValidator;
+import com.securepassmanager.util.VirtualThreads;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.regex.Pattern;
-import java.text.Normalizer;
 
 /**
  * Classe principal do aplicativo SecurePassManager.
@@ -26,14 +63,19 @@ public class Main {
     private static EncryptionService encryptionService;
     private static TwoFactorAuth twoFactorAuth;
     private static PasswordBreachChecker breachChecker;
-    private static MongoDBService mongoDBService;
+    private static VaultRepository vaultRepository;
     private static MongoDBService mongoDBServiceLocal;
     private static MongoDBService mongoDBServiceCloud;
     private static SyncService syncService;
+    private static SyncScheduler syncScheduler;
     private static UserService userService;
     private static Scanner scanner;
     private static String masterPassword;
     private static User loggedUser;
+    private static VaultSession vaultSession;
+    private static volatile VaultSearchIndex searchIndex = new VaultSearchIndex();
+    private static VaultHttpServer httpServer;
+    private static MetricsFileReporter metricsReporter;
 
     public static void main(String[] args) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -42,8 +84,38 @@ public class Main {
         }));
 
         try {
+            if (Arrays.asList(args).contains("--loadtest")) {
+                // Antes de initializeServices: o teste de carga não abre o cofre nem a nuvem
+                runLoadTest();
+                return;
+            }
+            String breachCorpus = argumentAfter(args, "--build-breach-filter");
+            if (breachCorpus != null) {
+                // Só gera o arquivo: não precisa do banco nem mapeia o filtro atual
+                runBuildBreachFilter(Paths.get(breachCorpus));
+                return;
+            }
             initializeServices();
+            if (Arrays.asList(args).contains("--server")) {
+                runServer();
+                return;
+            }
+            if (Arrays.asList(args).contains("--rebalance")) {
+                runRebalance();
+                return;
+            }
             scanner = new Scanner(System.in);
+            String importFile = argumentAfter(args, "--import");
+            if (importFile != null) {
+                runImport(Paths.get(importFile));
+                return;
+            }
+            String exportFile = argumentAfter(args, "--export");
+            String restoreFile = argumentAfter(args, "--restore");
+            if (exportFile != null || restoreFile != null) {
+                runBackup(exportFile, restoreFile);
+                return;
+            }
 
             // Fluxo de cadastro/login de usuário
             while (loggedUser == null) {
@@ -93,6 +165,12 @@ public class Main {
                         changeMasterPassword();
                         break;
                     case 6:
+                        rotateEncryptionKey();
+                        break;
+                    case 7:
+                        auditPasswordStrength();
+                        break;
+                    case 8:
                         System.out.println("\n👋 Encerrando programa...");
                         cleanup();
                         System.exit(0);
@@ -110,20 +188,270 @@ public class Main {
     }
 
     private static void initializeServices() throws Exception {
+        if (AppConfig.getBoolean("metrics.file.enabled", true)) {
+            metricsReporter = new MetricsFileReporter(MetricsRegistry.global(),
+                Paths.get(AppConfig.getString("metrics.file", "metrics.log")),
+                AppConfig.getLong("metrics.file.max.bytes", 5 * 1024 * 1024),
+                AppConfig.getInt("metrics.file.max.files", 3));
+            metricsReporter.start(AppConfig.getLong("metrics.report.interval.s", 60));
+        }
         encryptionService = new EncryptionService();
-        breachChecker = new PasswordBreachChecker();
-        mongoDBService = new MongoDBService();
-        userService = new UserService();
-        // Inicializa serviços local e nuvem para sincronização
-        mongoDBServiceLocal = new MongoDBService() {
-            @Override
-            public boolean isCloudConnection() { return false; }
-        };
-        mongoDBServiceCloud = new MongoDBService() {
-            @Override
-            public boolean isCloudConnection() { return true; }
-        };
-        syncService = new SyncService(mongoDBServiceLocal, mongoDBServiceCloud);
+        breachChecker = new PasswordBreachChecker(openBreachFilter());
+        vaultRepository = openVaultRepository();
+        userService = new UserService(openUserRepository());
+        if (vaultRepository instanceof MongoDBService) {
+            // Inicializa serviços local e nuvem para sincronização
+            mongoDBServiceLocal = new MongoDBService() {
+                @Override
+                public boolean isCloudConnection() { return false; }
+            };
+            mongoDBServiceCloud = new MongoDBService() {
+                @Override
+                public boolean isCloudConnection() { return true; }
+            };
+            syncService = new SyncService(mongoDBServiceLocal, mongoDBServiceCloud);
+            if (vaultRepository.isCloudConnection()) {
+                int parallelism = AppConfig.getInt("sync.scheduler.parallelism", 4);
+                syncScheduler = new SyncScheduler(
+                    Main::syncVault,
+                    syncService::isCloudReachable,
+                    parallelism,
+                    AppConfig.getInt("sync.scheduler.local.limit", parallelism),
+                    AppConfig.getInt("sync.scheduler.cloud.limit", Math.max(1, parallelism / 2)),
+                    AppConfig.getLong("sync.scheduler.interval.s", 300));
+                syncScheduler.start(AppConfig.getLong("sync.scheduler.tick.ms", 1000));
+            }
+        }
+    }
+
+    /**
+     * Backend do cofre conforme vault.backend: "mongodb" (padrão), "embedded" (arquivo
+     * local, sem servidor de banco), "memory" (volátil, para testes) ou "sharded".
+     */
+    private static VaultRepository openVaultRepository() throws Exception {
+        String backend = AppConfig.getString("vault.backend", "mongodb");
+        switch (backend) {
+            case "mongodb":
+                MongoDBService mongo = new MongoDBService();
+                mongo.startSchemaMigration();
+                return mongo;
+            case "embedded":
+                return EmbeddedVaultRepository.open(Paths.get(AppConfig.getString("vault.embedded.file", "vault.db")),
+                    AppConfig.getBoolean("vault.embedded.fsync", true));
+            case "memory":
+                return new CompactEntryStore();
+            case "sharded":
+                return openShardedRepository();
+            default:
+                throw new IllegalArgumentException("vault.backend desconhecido: " + backend);
+        }
+    }
+
+    /**
+     * Usuários no mesmo tipo de armazenamento do cofre: com vault.backend=embedded, um
+     * arquivo local (vault.embedded.users.file), para que o backend embutido dispense o
+     * MongoDB; nos demais backends, a coleção de usuários do MongoDB.
+     */
+    private static UserRepository openUserRepository() throws Exception {
+        if (AppConfig.getString("vault.backend", "mongodb").equals("embedded")) {
+            return EmbeddedUserRepository.open(Paths.get(AppConfig.getString("vault.embedded.users.file", "users.db")));
+        }
+        return new MongoUserRepository();
+    }
+
+    /**
+     * Shards listados em vault.shards ({@code nome=uri,nome=uri}), roteados por hash
+     * consistente do usuário. A tabela de roteamento fica no banco do shard indicado em
+     * vault.shards.routing (por padrão, o primeiro da lista), compartilhada por todos os
+     * processos; vault.shards.route.ttl.ms define por quanto tempo uma rota fica em cache.
+     */
+    private static VaultRepository openShardedRepository() {
+        Map<String, MongoDBService> shards = new LinkedHashMap<>();
+        try {
+            for (String item : AppConfig.getString("vault.shards", "").split(",")) {
+                String[] pair = item.trim().split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Item inválido em vault.shards: " + item);
+                }
+                shards.put(pair[0].trim(), MongoDBService.forShard(pair[0].trim(), pair[1].trim()));
+            }
+            String routingShard = AppConfig.getString("vault.shards.routing", shards.keySet().iterator().next());
+            if (!shards.containsKey(routingShard)) {
+                throw new IllegalArgumentException("vault.shards.routing não está em vault.shards: " + routingShard);
+            }
+            return new ShardedVaultRepository(shards, AppConfig.getInt("vault.shards.vnodes", 160),
+                shards.get(routingShard).routingTable(), AppConfig.getLong("vault.shards.route.ttl.ms", 5000));
+        } catch (RuntimeException e) {
+            shards.values().forEach(MongoDBService::close);
+            throw e;
+        }
+    }
+
+    /**
+     * Abre o pré-filtro de vazamentos configurado em breach.filter.path, se existir.
+     */
+    private static BreachFilter openBreachFilter() {
+        String path = AppConfig.getString("breach.filter.path", "breach-filter.bin");
+        if (path.isEmpty() || !Files.exists(Paths.get(path))) {
+            return null;
+        }
+        try {
+            return BreachFilter.open(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("Aviso: pré-filtro de vazamentos ignorado: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Geração do pré-filtro (--build-breach-filter corpus.txt): lê o corpus de hashes SHA-1
+     * vazados e grava o filtro em breach.filter.path, com a taxa de falsos positivos de
+     * breach.filter.fpr.
+     */
+    private static void runBuildBreachFilter(Path corpus) {
+        Path output = Paths.get(AppConfig.getString("breach.filter.path", "breach-filter.bin"));
+        double falsePositiveRate = Double.parseDouble(AppConfig.getString("breach.filter.fpr", "0.01"));
+        try {
+            System.out.println("\n⏳ Gerando pré-filtro de vazamentos a partir de " + corpus + "...");
+            long start = System.nanoTime();
+            BreachFilter filter = BreachFilter.build(corpus, output, falsePositiveRate);
+            System.out.printf("✅ %d hashes em %s (%d MB) em %d s.%n", filter.entries(), output,
+                filter.sizeBytes() / (1024 * 1024), (System.nanoTime() - start) / 1_000_000_000L);
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro ao gerar o pré-filtro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Redistribuição (--rebalance): move para o shard correto os usuários que ficaram
+     * fora do lugar depois que shards foram acrescentados em vault.shards. Pode rodar com o
+     * servidor no ar: a tabela de roteamento é compartilhada, e cada usuário fica só
+     * de leitura enquanto é movido.
+     */
+    private static void runRebalance() {
+        if (!(vaultRepository instanceof ShardedVaultRepository)) {
+            System.out.println("\n❌ A redistribuição exige vault.backend=sharded.");
+            return;
+        }
+        ShardedVaultRepository sharded = (ShardedVaultRepository) vaultRepository;
+        System.out.println("\n🔀 Redistribuindo usuários entre os shards...");
+        int moved = sharded.rebalance(AppConfig.getInt("vault.rebalance.batch.size", 500),
+            (userId, from, to, entries) -> System.out.println("   " + userId + ": " + from + " → " + to + " (" + entries + " entradas)"));
+        System.out.println("✅ " + moved + " usuários movidos.");
+    }
+
+    /**
+     * Modo servidor (--server): atende clientes por HTTP até o processo ser encerrado.
+     */
+    private static void runServer() throws Exception {
+        String host = AppConfig.getString("server.host", "127.0.0.1");
+        int port = AppConfig.getInt("server.port", 8787);
+        httpServer = new VaultHttpServer(encryptionService, userService, vaultRepository, syncScheduler);
+        httpServer.start(host, port);
+        System.out.println("\n🌐 Servidor do cofre em http://" + host + ":" + httpServer.getPort() + "/api/");
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Teste de carga (--loadtest): cria os usuários simulados e gera carga nos serviços
+     * reais conforme as chaves loadtest.*, com a API de vazamentos substituída por um
+     * servidor local. Tudo fica no banco de loadtest.mongodb.uri (e numa cópia
+     * {@code <banco>_sync}, destino da sincronização), nunca no cofre, e os usuários e
+     * entradas criados são apagados ao final.
+     */
+    private static void runLoadTest() throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromConfig();
+        String uri = LoadTestConfig.isolatedDatabaseUri();
+        String database = new ConnectionString(uri).getDatabase();
+        MongoDBService local = MongoDBService.forDatabase(uri, database);
+        MongoDBService copy = null;
+        MongoUserRepository users = null;
+        try (StubBreachServer breachServer = new StubBreachServer(
+                AppConfig.getInt("loadtest.breach.lines", 800),
+                AppConfig.getLong("loadtest.breach.latency.ms", 20))) {
+            copy = MongoDBService.forDatabase(uri, database + "_sync");
+            users = MongoUserRepository.forDatabase(uri);
+            breachServer.start(0);
+            VaultScenario scenario = new VaultScenario(new EncryptionService(), new UserService(users), local,
+                new SyncService(local, copy), new PasswordBreachChecker(breachServer.getBaseUrl()), config.getUsers());
+            try {
+                System.out.println("\n⏳ Preparando " + config.getUsers() + " usuários simulados em " + database + "...");
+                scenario.prepare();
+                System.out.println("🚀 Gerando " + config.getRatePerSecond() + " operações/s por "
+                    + config.getDurationSeconds() + "s" + (VirtualThreads.available() ? " (threads virtuais)" : "") + "...");
+                LoadTestReport report = new LoadGenerator(config, scenario).run();
+                System.out.println("\n" + report);
+            } finally {
+                System.out.println("🧹 Removendo usuários e entradas do teste de carga...");
+                System.out.println("Usuários removidos: " + scenario.cleanup(copy));
+            }
+        } finally {
+            local.close();
+            if (copy != null) {
+                copy.close();
+            }
+            if (users != null) {
+                users.close();
+            }
+        }
+    }
+
+    /**
+     * Importação em lote (--import arquivo.csv|arquivo.json): autentica o usuário e grava
+     * todas as entradas do arquivo sem passar pelo menu.
+     */
+    private static void runImport(Path file) {
+        loginUser();
+        if (loggedUser == null) {
+            return;
+        }
+        System.out.println("\n📥 Importando " + file + "...");
+        ImportPipeline pipeline = new ImportPipeline(
+            vaultSession.encryption()::encryptPassword,
+            vaultRepository::upsertPasswordEntries,
+            loggedUser.getId(),
+            Runtime.getRuntime().availableProcessors(),
+            AppConfig.getInt("import.queue.size", 1024),
+            AppConfig.getInt("import.batch.size", 500));
+        try (RecordReader reader = RecordReader.open(file)) {
+            ImportReport report = pipeline.run(reader);
+            System.out.println("\n" + report);
+            System.out.println("✅ " + report.getImported() + " entradas importadas, " + report.getErrors() + " erros.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("\n❌ Importação interrompida.");
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro ao importar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exportação (--export arquivo) ou restauração (--restore arquivo) do cofre em arquivo
+     * criptografado por blocos.
+     */
+    private static void runBackup(String exportFile, String restoreFile) {
+        loginUser();
+        if (loggedUser == null) {
+            return;
+        }
+        VaultBackupService backupService = new VaultBackupService(vaultRepository, vaultSession.encryption());
+        try {
+            if (exportFile != null) {
+                long count = backupService.export(loggedUser.getId(), Paths.get(exportFile));
+                System.out.println("\n✅ " + count + " entradas exportadas para " + exportFile);
+            } else {
+                long count = backupService.restore(loggedUser.getId(), Paths.get(restoreFile));
+                rebuildSearchIndex();
+                System.out.println("\n✅ " + count + " entradas restauradas de " + restoreFile);
+            }
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro no backup do cofre: " + e.getMessage());
+        }
+    }
+
+    private static String argumentAfter(String[] args, String flag) {
+        int index = Arrays.asList(args).indexOf(flag);
+        return index >= 0 && index + 1 < args.length ? args[index + 1] : null;
     }
 
     private static void registerUser() {
@@ -145,7 +473,7 @@ public class Main {
                 return;
             }
 
-            if (userService.findByEmail(email) != null) {
+            if (userService.isRegistered(email)) {
                 System.out.println("\n❌ Já existe um usuário com esse email!");
                 return;
             }
@@ -168,6 +496,8 @@ public class Main {
 
             User user = new User(email, passwordHash, totpSecret);
             user.setBackupCodes(new java.util.ArrayList<>(temp2fa.getBackupCodes()));
+            // Protege as chaves do cofre com a senha mestra (calibra o custo do KDF)
+            encryptionService.openVaultSession(user, password).lock();
             userService.registerUser(user);
             System.out.println("\n✅ Usuário cadastrado com sucesso!");
         } catch (Exception e) {
@@ -256,24 +586,26 @@ public class Main {
             }
             String password = getPasswordInput("Senha mestra: ");
             
-            User user = userService.findByEmail(email);
-            if (user == null) {
+            User found = userService.findByEmail(email);
+            if (found == null) {
                 System.out.println("\n❌ Usuário não encontrado!");
                 return;
             }
+            // O registro em cache não é alterado antes de ser salvo
+            User user = new User(found);
 
-            if (!encryptionService.verifyPassword(password, user.getPasswordHash())) {
+            if (!encryptionService.verifyPassword(UserService.normalizeEmail(email), password, user.getPasswordHash())) {
                 System.out.println("\n❌ Senha incorreta!");
                 return;
             }
 
             // Inicializa 2FA com segredo e códigos de backup do usuário
-            twoFactorAuth = new TwoFactorAuth(user.getTotpSecret(), user.getBackupCodes());
+            twoFactorAuth = new TwoFactorAuth(user.getId(), user.getTotpSecret(), user.getBackupCodes());
             
-            // Sincronização automática após login
-            if (mongoDBService.isCloudConnection()) {
-                System.out.println("\n🔄 Sincronizando dados entre local e nuvem...");
-                syncService.syncBidirectional(user.getId());
+            // Sincronização automática após login, em segundo plano (não atrasa o login)
+            if (syncScheduler != null) {
+                System.out.println("\n🔄 Sincronização entre local e nuvem agendada.");
+                syncScheduler.requestSync(user.getId());
             }
 
             System.out.println("\n╔════════════════════════════════════╗");
@@ -313,7 +645,16 @@ public class Main {
                 return;
             }
 
+            vaultSession = userService.unlockVault(user, password, encryptionService);
+            // Só depois do 2FA, e numa cópia que já tem as chaves do cofre gravadas
+            encryptionService.rehashIfNeeded(password, user.getPasswordHash(), newHash -> {
+                User rehashed = new User(user);
+                rehashed.setPasswordHash(newHash);
+                userService.updateUser(rehashed);
+            });
+
             loggedUser = user;
+            rebuildSearchIndex();
             System.out.println("\n✅ Login realizado com sucesso!");
         } catch (SecurityException e) {
             System.out.println("\n❌ " + e.getMessage());
@@ -331,12 +672,15 @@ public class Main {
         System.out.println("║ 3. Gerar senha forte              ║");
         System.out.println("║ 4. Verificar vazamento de senha   ║");
         System.out.println("║ 5. Alterar senha mestra           ║");
-        System.out.println("║ 6. Sair                           ║");
+        System.out.println("║ 6. Rotacionar chave do cofre      ║");
+        System.out.println("║ 7. Auditar força das senhas       ║");
+        System.out.println("║ 8. Sair                           ║");
         System.out.println("╚════════════════════════════════════╝");
     }
 
     private static void registerNewPassword() {
         try {
+            if (!ensureVaultUnlocked()) return;
             System.out.println("\n╔════════════════════════════════════╗");
             System.out.println("║        Nova Senha                  ║");
             System.out.println("╚════════════════════════════════════╝");
@@ -355,6 +699,13 @@ public class Main {
             }
             String password = getPasswordInput("Senha: ");
 
+            PasswordStrengthEstimator.Result strength = PasswordStrengthEstimator.getDefault().estimate(password);
+            printStrength(strength);
+            if (strength.score() < 3
+                    && !getStringInput("Deseja usar esta senha mesmo assim? (s/n): ").equalsIgnoreCase("s")) {
+                return;
+            }
+
             if (breachChecker.isPasswordBreached(password)) {
                 System.out.println("\n⚠️  ATENÇÃO: Esta senha já foi vazada em algum vazamento de dados!");
                 if (!getStringInput("Deseja continuar mesmo assim? (s/n): ").equalsIgnoreCase("s")) {
@@ -362,9 +713,11 @@ public class Main {
                 }
             }
 
-            String encryptedPassword = encryptionService.encryptPassword(password);
+            String encryptedPassword = vaultSession.encryption().encryptPassword(password);
             PasswordEntry entry = new PasswordEntry(service, username, encryptedPassword, loggedUser.getId());
-            mongoDBService.insertPasswordEntry(entry);
+            vaultRepository.insertPasswordEntry(entry);
+            searchIndex.index(entry);
+            markDirty(entry.getUserId());
 
             System.out.println("\n✅ Senha registrada com sucesso!");
         } catch (Exception e) {
@@ -374,6 +727,7 @@ public class Main {
 
     private static void retrievePassword() {
         try {
+            if (!ensureVaultUnlocked()) return;
             System.out.println("\n╔════════════════════════════════════╗");
             System.out.println("║        Recuperar Senha             ║");
             System.out.println("╚════════════════════════════════════╝");
@@ -384,10 +738,11 @@ public class Main {
                 System.out.println("\n❌ Nome de serviço inválido! Use apenas letras, números, ponto, traço e sublinhado (2-64 caracteres).");
                 return;
             }
-            PasswordEntry entry = mongoDBService.findByService(service, loggedUser.getId());
+            PasswordEntry entry = vaultRepository.findByService(service, loggedUser.getId());
 
             if (entry == null) {
                 System.out.println("\n❌ Serviço não encontrado!");
+                printSuggestions(service);
                 return;
             }
 
@@ -417,7 +772,8 @@ public class Main {
                 return;
             }
 
-            String decryptedPassword = encryptionService.decryptPassword(entry.getPassword());
+            String decryptedPassword = vaultSession.encryption().decryptPassword(entry.getPassword());
+            reEncryptIfNeeded(entry);
             System.out.println("\n╔════════════════════════════════════╗");
             System.out.println("║        Detalhes da Senha           ║");
             System.out.println("╠════════════════════════════════════╣");
@@ -430,6 +786,167 @@ public class Main {
         }
     }
 
+    private static void printStrength(PasswordStrengthEstimator.Result strength) {
+        String[] labels = {"muito fraca", "fraca", "razoável", "forte", "muito forte"};
+        System.out.printf("%nForça: %s (%d/4, ~10^%.0f tentativas)%n",
+            labels[strength.score()], strength.score(), strength.guessesLog10());
+        if (!strength.warning().isEmpty()) {
+            System.out.println("⚠️  " + strength.warning());
+        }
+        for (String suggestion : strength.suggestions()) {
+            System.out.println("  • " + suggestion);
+        }
+    }
+
+    /**
+     * Estima a força de todas as senhas do cofre e lista as fracas, da mais fraca para a
+     * mais forte. Cada senha é descriptografada para um char[] apagado logo após a análise.
+     */
+    private static void auditPasswordStrength() {
+        try {
+            if (!ensureVaultUnlocked()) return;
+            System.out.println("\n╔════════════════════════════════════╗");
+            System.out.println("║     Auditoria de Força das Senhas  ║");
+            System.out.println("╚════════════════════════════════════╝");
+
+            PasswordStrengthEstimator estimator = PasswordStrengthEstimator.getDefault();
+            List<PasswordEntry> entries = vaultRepository.getAllPasswordEntries(loggedUser.getId());
+            List<Map.Entry<PasswordEntry, PasswordStrengthEstimator.Result>> weak = new ArrayList<>();
+            long start = System.nanoTime();
+            for (PasswordEntry entry : entries) {
+                char[] password = vaultSession.encryption().decryptPasswordToChars(entry.getPassword());
+                try {
+                    PasswordStrengthEstimator.Result strength = estimator.estimate(password);
+                    if (strength.score() < 3) {
+                        weak.add(Map.entry(entry, strength));
+                    }
+                } finally {
+                    Arrays.fill(password, '\0');
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            weak.sort(Comparator.comparingDouble(w -> w.getValue().guessesLog10()));
+
+            System.out.println("\n" + entries.size() + " senha(s) analisada(s) em " + elapsedMillis + " ms; "
+                + weak.size() + " fraca(s).");
+            for (Map.Entry<PasswordEntry, PasswordStrengthEstimator.Result> w : weak) {
+                PasswordStrengthEstimator.Result strength = w.getValue();
+                String warning = strength.warning().isEmpty() ? "" : " — " + strength.warning();
+                System.out.println("  • " + w.getKey().getService() + " (" + w.getKey().getUsername() + "): "
+                    + strength.score() + "/4" + warning);
+            }
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro ao auditar senhas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstrói o índice de busca a partir dos metadados das entradas do usuário logado.
+     */
+    private static void rebuildSearchIndex() {
+        try {
+            searchIndex = VaultSearchIndex.of(vaultRepository.getAllPasswordEntries(loggedUser.getId()));
+        } catch (Exception e) {
+            searchIndex = new VaultSearchIndex();
+            System.err.println("Aviso: não foi possível montar o índice de busca: " + e.getMessage());
+        }
+    }
+
+    private static void printSuggestions(String query) {
+        List<VaultSearchIndex.Hit> hits = searchIndex.search(query, 5);
+        if (hits.isEmpty()) {
+            return;
+        }
+        System.out.println("\nVocê quis dizer:");
+        for (VaultSearchIndex.Hit hit : hits) {
+            System.out.println("  • " + hit.getService() + " (" + hit.getUsername() + ")");
+        }
+    }
+
+    /**
+     * Rotação preguiçosa: entradas criptografadas com uma chave antiga são gravadas
+     * novamente com a chave atual quando são lidas.
+     */
+    private static void reEncryptIfNeeded(PasswordEntry entry) {
+        try {
+            EncryptionService encryption = vaultSession.encryption();
+            if (encryption.needsReEncryption(entry.getPassword())) {
+                entry.setPassword(encryption.reEncrypt(entry.getPassword()));
+                vaultRepository.insertOrUpdatePasswordEntry(entry);
+                searchIndex.index(entry);
+                markDirty(entry.getUserId());
+            }
+        } catch (Exception e) {
+            System.err.println("Aviso: não foi possível atualizar a chave da senha: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sincronização agendada de um usuário. A sincronização grava no cofre local por fora do
+     * repositório da sessão, então os índices de busca do usuário são remontados em seguida.
+     */
+    private static void syncVault(String userId, BackendLimiter local, BackendLimiter cloud) {
+        syncService.syncBidirectional(userId, local, cloud);
+        User user = loggedUser;
+        if (user != null && userId.equals(user.getId())) {
+            rebuildSearchIndex();
+        }
+        VaultHttpServer server = httpServer;
+        if (server != null) {
+            server.vaultChanged(userId);
+        }
+    }
+
+    private static void markDirty(String userId) {
+        if (syncScheduler != null) {
+            syncScheduler.markDirty(userId);
+        }
+    }
+
+    private static void rotateEncryptionKey() {
+        try {
+            if (!ensureVaultUnlocked()) return;
+            System.out.println("\n╔════════════════════════════════════╗");
+            System.out.println("║     Rotacionar Chave do Cofre      ║");
+            System.out.println("╚════════════════════════════════════╝");
+            System.out.println("As senhas existentes serão migradas para a nova chave à medida que forem acessadas.");
+            if (!getStringInput("Deseja gerar uma nova chave? (s/n): ").equalsIgnoreCase("s")) {
+                return;
+            }
+            int keyId = vaultSession.rotateKey(loggedUser);
+            userService.updateUser(loggedUser);
+            System.out.println("\n✅ Nova chave gerada (id " + keyId + ").");
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro ao rotacionar chave: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Garante que a sessão do cofre está desbloqueada; após o tempo de inatividade a
+     * chave derivada da senha mestra é apagada e a senha precisa ser informada de novo.
+     */
+    private static boolean ensureVaultUnlocked() {
+        if (vaultSession != null && vaultSession.isUnlocked()) {
+            vaultSession.touch();
+            return true;
+        }
+        System.out.println("\n🔒 Sessão do cofre bloqueada por inatividade.");
+        String password = getPasswordInput("Senha mestra: ");
+        try {
+            if (!encryptionService.verifyPassword(UserService.normalizeEmail(loggedUser.getEmail()), password, loggedUser.getPasswordHash())) {
+                System.out.println("\n❌ Senha incorreta!");
+                return false;
+            }
+            vaultSession = userService.unlockVault(loggedUser, password, encryptionService);
+            return true;
+        } catch (SecurityException e) {
+            System.out.println("\n❌ " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro ao desbloquear o cofre: " + e.getMessage());
+        }
+        return false;
+    }
+
     private static String padRight(String s, int n) {
         return String.format("%-" + n + "s", s);
     }
@@ -471,11 +988,12 @@ public class Main {
 
     private static void changeMasterPassword() {
         try {
+            if (!ensureVaultUnlocked()) return;
             System.out.println("\n╔════════════════════════════════════╗");
             System.out.println("║      Alterar Senha Mestra          ║");
             System.out.println("╚════════════════════════════════════╝");
             String currentPassword = getPasswordInput("Senha mestra atual: ");
-            if (!encryptionService.verifyPassword(currentPassword, loggedUser.getPasswordHash())) {
+            if (!encryptionService.verifyPassword(UserService.normalizeEmail(loggedUser.getEmail()), currentPassword, loggedUser.getPasswordHash())) {
                 System.out.println("\n❌ Senha mestra atual incorreta!");
                 return;
             }
@@ -512,6 +1030,7 @@ public class Main {
             // Atualiza o hash da senha mestra
             String newHash = encryptionService.hashPassword(newPassword);
             loggedUser.setPasswordHash(newHash);
+            vaultSession.changeMasterPassword(loggedUser, newPassword, EncryptionService.unlockTargetMillis());
             userService.updateUser(loggedUser);
             System.out.println("\n✅ Senha mestra alterada com sucesso!");
         } catch (Exception e) {
@@ -520,36 +1039,19 @@ public class Main {
     }
 
     private static String sanitizeInput(String input) {
-        if (input == null) return null;
-        // Remove espaços extras e caracteres de controle
-        String sanitized = input.trim().replaceAll("[\n\r\t]", "");
-        // Remove caracteres potencialmente perigosos
-        sanitized = sanitized.replaceAll("[<>;]", "");
-        // Remove emojis e caracteres não ASCII
-        sanitized = sanitized.replaceAll("[^\\p{ASCII}]", "");
-        // Remove acentuação
-        sanitized = Normalizer.normalize(sanitized, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", "");
-        // Limita tamanho máximo (ex: 64 caracteres)
-        if (sanitized.length() > 64) sanitized = sanitized.substring(0, 64);
-        return sanitized;
+        return InputValidator.sanitize(input);
     }
 
     private static boolean isValidEmail(String email) {
-        if (email == null) return false;
-        String emailRegex = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
-        return Pattern.matches(emailRegex, email);
+        return InputValidator.isValidEmail(email);
     }
 
     private static boolean isValidServiceOrUsername(String value) {
-        if (value == null || value.isEmpty()) return false;
-        // Apenas letras, números, pontos, traços e sublinhados
-        return value.matches("^[A-Za-z0-9._-]{2,64}$");
+        return InputValidator.isValidServiceOrUsername(value);
     }
 
     private static boolean isValidBackupCode(String code) {
-        if (code == null) return false;
-        // Exemplo: backup codes de 8 dígitos/letras
-        return code.matches("^[A-Za-z0-9]{6,12}$");
+        return InputValidator.isValidBackupCode(code);
     }
 
     private static String getStringInput(String prompt) {
@@ -606,6 +1108,25 @@ public class Main {
                 }
             }
 
+            if (vaultSession != null) {
+                vaultSession.lock();
+            }
+
+            if (httpServer != null) {
+                httpServer.stop();
+                httpServer = null;
+            }
+
+            if (syncScheduler != null) {
+                syncScheduler.stop();
+                syncScheduler = null;
+            }
+
+            if (metricsReporter != null) {
+                metricsReporter.stop();
+                metricsReporter = null;
+            }
+
             // Fecha os serviços em ordem
             if (userService != null) {
                 try {
@@ -615,11 +1136,11 @@ public class Main {
                 }
             }
 
-            if (mongoDBService != null) {
+            if (vaultRepository != null) {
                 try {
-                    mongoDBService.close();
+                    vaultRepository.close();
                 } catch (Exception e) {
-                    System.err.println("\n❌ Erro ao fechar MongoDBService: " + e.getMessage());
+                    System.err.println("\n❌ Erro ao fechar o repositório do cofre: " + e.getMessage());
                 }
             }
 
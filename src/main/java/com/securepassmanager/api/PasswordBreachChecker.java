@@ -1,5 +1,8 @@
 package com.securepassmanager.api;
 
+import com.securepassmanager.jfr.BreachLookupEvent;
+import com.securepassmanager.metrics.LatencyHistogram;
+import com.securepassmanager.metrics.MetricsRegistry;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -13,10 +16,22 @@ import java.security.NoSuchAlgorithmException;
  */
 public class PasswordBreachChecker {
     private static final String API_URL = "https://api.pwnedpasswords.com/range/";
+    private static final LatencyHistogram CHECK_LATENCY =
+        MetricsRegistry.global().histogram("breach.check", "client", "okhttp");
     private final OkHttpClient client;
+    private final String apiUrl;
 
     public PasswordBreachChecker() {
+        this(API_URL);
+    }
+
+    /**
+     * @param apiUrl URL base da consulta por prefixo (terminada em "/"), por exemplo um
+     *               servidor local que substitui a API durante testes de carga
+     */
+    public PasswordBreachChecker(String apiUrl) {
         this.client = new OkHttpClient();
+        this.apiUrl = apiUrl;
     }
 
     /**
@@ -25,22 +40,40 @@ public class PasswordBreachChecker {
      * @return O número de vezes que a senha foi vazada, ou 0 se não foi encontrada
      */
     public int checkPassword(String password) throws Exception {
+        return CHECK_LATENCY.time(() -> queryRange(password));
+    }
+
+    private int queryRange(String password) throws Exception {
         String sha1Hash = getSHA1Hash(password);
         String prefix = sha1Hash.substring(0, 5);
         String suffix = sha1Hash.substring(5).toUpperCase();
 
         Request request = new Request.Builder()
-                .url(API_URL + prefix)
+                .url(apiUrl + prefix)
                 .addHeader("User-Agent", "SecurePassManager")
                 .build();
 
+        BreachLookupEvent event = new BreachLookupEvent();
+        event.begin();
+        int status = 0;
+        int count = 0;
         try (Response response = client.newCall(request).execute()) {
+            status = response.code();
             if (!response.isSuccessful()) {
                 throw new Exception("Erro ao verificar a senha: " + response.code());
             }
 
             String responseBody = response.body().string();
-            return findHashInResponse(responseBody, suffix);
+            count = findHashInResponse(responseBody, suffix);
+            return count;
+        } finally {
+            if (event.shouldCommit()) {
+                event.client = "okhttp";
+                event.cacheOutcome = "none";
+                event.breached = count > 0;
+                event.status = status;
+                event.commit();
+            }
         }
     }
 
@@ -48,9 +81,9 @@ public class PasswordBreachChecker {
      * Gera o hash SHA-1 de uma senha.
      */
     private String getSHA1Hash(String password) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-512");
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
         byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-        return bytesToHex(hash);
+        return bytesToHex(hash).toUpperCase();
     }
 
     /**
@@ -72,7 +105,7 @@ public class PasswordBreachChecker {
      * Procura o hash na resposta da API e retorna o número de vazamentos.
      */
     private int findHashInResponse(String response, String hashSuffix) {
-        String[] lines = response.split("\n");
+        String[] lines = response.split("\r?\n");
         for (String line : lines) {
             String[] parts = line.split(":");
             if (parts[0].equals(hashSuffix)) {
@@ -0,0 +1,118 @@
+package com.securepassmanager.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Leitor de CSV (RFC 4180) com cabeçalho na primeira linha. Aceita campos entre aspas
+ * com vírgulas, aspas duplicadas e quebras de linha.
+ */
+public class CsvRecordReader implements RecordReader {
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private String[] header;
+    private long row;
+    private int pushedBack = -2;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (header == null) {
+            List<String> columns = readRow();
+            if (columns == null) {
+                return null;
+            }
+            header = new String[columns.size()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = columns.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            }
+        }
+
+        List<String> values;
+        do {
+            values = readRow();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty()); // Linhas em branco
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            fields.putIfAbsent(header[i], values.get(i));
+        }
+        return ImportRecord.fromFields(row, fields);
+    }
+
+    private List<String> readRow() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        row++;
+        List<String> values = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Aspas não fechadas na linha " + row);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                }
+                values.add(field.toString());
+                return values;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,215 @@
+package com.securepassmanager.importer;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.util.InputValidator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importação em lote: leitura → validação → criptografia em paralelo → gravação em lotes.
+ * As etapas são ligadas por filas limitadas, então uma etapa lenta (normalmente a
+ * gravação) segura as anteriores e a memória usada não depende do tamanho do arquivo.
+ */
+public class ImportPipeline {
+    private static final Object END = new Object();
+
+    /**
+     * Criptografa a senha de um registro.
+     */
+    public interface Encryptor {
+        String encrypt(String plaintext) throws Exception;
+    }
+
+    /**
+     * Grava um lote de entradas já criptografadas.
+     */
+    public interface BatchWriter {
+        void write(List<PasswordEntry> batch) throws Exception;
+    }
+
+    private final Encryptor encryptor;
+    private final BatchWriter writer;
+    private final String userId;
+    private final int encryptThreads;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    public ImportPipeline(Encryptor encryptor, BatchWriter writer, String userId,
+                          int encryptThreads, int queueCapacity, int batchSize) {
+        if (encryptThreads <= 0 || queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parâmetros do pipeline devem ser positivos");
+        }
+        this.encryptor = encryptor;
+        this.writer = writer;
+        this.userId = userId;
+        this.encryptThreads = encryptThreads;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Executa a importação até o fim do arquivo e retorna as estatísticas de cada etapa.
+     * A leitura acontece na thread chamadora.
+     */
+    public ImportReport run(RecordReader reader) throws InterruptedException {
+        StageStats parse = new StageStats("leitura");
+        StageStats validate = new StageStats("validação");
+        StageStats encrypt = new StageStats("criptografia");
+        StageStats write = new StageStats("gravação");
+
+        BlockingQueue<Object> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> validated = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> encrypted = new ArrayBlockingQueue<>(queueCapacity);
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startThread("import-validate", () -> validateStage(parsed, validated, validate)));
+        AtomicInteger activeEncryptors = new AtomicInteger(encryptThreads);
+        for (int i = 0; i < encryptThreads; i++) {
+            threads.add(startThread("import-encrypt-" + i, () -> encryptStage(validated, encrypted, encrypt, activeEncryptors)));
+        }
+        threads.add(startThread("import-write", () -> writeStage(encrypted, write)));
+
+        try {
+            parseStage(reader, parsed, parse);
+        } finally {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        return new ImportReport(List.of(parse, validate, encrypt, write));
+    }
+
+    private void parseStage(RecordReader reader, BlockingQueue<Object> out, StageStats stats) throws InterruptedException {
+        stats.started();
+        try {
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                stats.success(1);
+                out.put(record);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Um arquivo malformado não permite retomar a leitura com segurança
+            stats.error(1, "Leitura interrompida: " + e.getMessage());
+        } finally {
+            stats.finished();
+            out.put(END);
+        }
+    }
+
+    private void validateStage(BlockingQueue<Object> in, BlockingQueue<Object> out, StageStats stats) throws InterruptedException {
+        stats.started();
+        try {
+            Object item;
+            while ((item = in.take()) != END) {
+                ImportRecord record = (ImportRecord) item;
+                String problem = validate(record);
+                if (problem != null) {
+                    stats.error(1, "Registro " + record.getPosition() + ": " + problem);
+                } else {
+                    stats.success(1);
+                    out.put(record);
+                }
+            }
+        } finally {
+            stats.finished();
+            for (int i = 0; i < encryptThreads; i++) {
+                out.put(END);
+            }
+        }
+    }
+
+    /**
+     * Mesmas regras do cadastro interativo; retorna o motivo da rejeição ou null.
+     */
+    static String validate(ImportRecord record) {
+        if (!InputValidator.isValidServiceOrUsername(InputValidator.sanitize(record.getService()))) {
+            return "nome de serviço inválido";
+        }
+        if (!InputValidator.isValidServiceOrUsername(InputValidator.sanitize(record.getUsername()))) {
+            return "nome de usuário inválido";
+        }
+        if (record.getPassword() == null || record.getPassword().isEmpty()) {
+            return "senha ausente";
+        }
+        return null;
+    }
+
+    private void encryptStage(BlockingQueue<Object> in, BlockingQueue<Object> out, StageStats stats,
+                              AtomicInteger activeEncryptors) throws InterruptedException {
+        stats.started();
+        try {
+            Object item;
+            while ((item = in.take()) != END) {
+                ImportRecord record = (ImportRecord) item;
+                try {
+                    PasswordEntry entry = new PasswordEntry(InputValidator.sanitize(record.getService()),
+                        InputValidator.sanitize(record.getUsername()), encryptor.encrypt(record.getPassword()), userId);
+                    entry.setTitle(record.getTitle());
+                    stats.success(1);
+                    out.put(entry);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    stats.error(1, "Registro " + record.getPosition() + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            stats.finished();
+            if (activeEncryptors.decrementAndGet() == 0) {
+                out.put(END);
+            }
+        }
+    }
+
+    private void writeStage(BlockingQueue<Object> in, StageStats stats) throws InterruptedException {
+        stats.started();
+        List<PasswordEntry> batch = new ArrayList<>(batchSize);
+        try {
+            Object item;
+            while ((item = in.take()) != END) {
+                batch.add((PasswordEntry) item);
+                if (batch.size() >= batchSize) {
+                    flush(batch, stats);
+                }
+            }
+            flush(batch, stats);
+        } finally {
+            stats.finished();
+        }
+    }
+
+    private void flush(List<PasswordEntry> batch, StageStats stats) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.write(batch);
+            stats.success(batch.size());
+        } catch (Exception e) {
+            stats.error(batch.size(), "Lote de " + batch.size() + " entradas: " + e.getMessage());
+        }
+        batch.clear();
+    }
+
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    private static Thread startThread(String name, StageBody body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,97 @@
+package com.securepassmanager.importer;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registro lido de um arquivo exportado, ainda com a senha em texto claro.
+ * Existe apenas enquanto atravessa o pipeline de importação.
+ */
+public final class ImportRecord {
+    private final long position;
+    private final String service;
+    private final String title;
+    private final String username;
+    private final String password;
+
+    public ImportRecord(long position, String service, String title, String username, String password) {
+        this.position = position;
+        this.service = service;
+        this.title = title;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Monta o registro a partir das colunas usadas pelos gerenciadores mais comuns
+     * (Bitwarden, LastPass, 1Password, Chrome/Firefox). Sem coluna de serviço, o nome do
+     * serviço vem do domínio da URL ou, na falta dela, do título.
+     */
+    static ImportRecord fromFields(long position, Map<String, String> fields) {
+        String title = first(fields, "name", "title");
+        String url = first(fields, "url", "login_uri", "uri", "website");
+        String service = first(fields, "service");
+        if (service == null) {
+            service = hostOf(url);
+        }
+        if (service == null && title != null) {
+            service = title.trim().replaceAll("\\s+", "-");
+        }
+        return new ImportRecord(position, service, title,
+            first(fields, "username", "login_username", "login", "user", "email"),
+            first(fields, "password", "login_password"));
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    private static String first(Map<String, String> fields, String... names) {
+        for (String name : names) {
+            String value = fields.get(name);
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    static String hostOf(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String host = url.trim().toLowerCase(Locale.ROOT);
+        int scheme = host.indexOf("://");
+        if (scheme >= 0) {
+            host = host.substring(scheme + 3);
+        }
+        int end = host.length();
+        for (char c : new char[] {'/', '?', '#', ':'}) {
+            int index = host.indexOf(c);
+            if (index >= 0) {
+                end = Math.min(end, index);
+            }
+        }
+        host = host.substring(0, end);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.isEmpty() ? null : host;
+    }
+}
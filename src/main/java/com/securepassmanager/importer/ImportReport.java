@@ -0,0 +1,41 @@
+package com.securepassmanager.importer;
+
+import java.util.List;
+
+/**
+ * Resultado de uma importação, com as estatísticas de cada etapa na ordem do pipeline.
+ */
+public final class ImportReport {
+    private final List<StageStats> stages;
+
+    ImportReport(List<StageStats> stages) {
+        this.stages = stages;
+    }
+
+    public List<StageStats> getStages() {
+        return stages;
+    }
+
+    /**
+     * Entradas efetivamente gravadas.
+     */
+    public long getImported() {
+        return stages.get(stages.size() - 1).getProcessed();
+    }
+
+    public long getErrors() {
+        return stages.stream().mapToLong(StageStats::getErrors).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (StageStats stage : stages) {
+            sb.append(stage).append('\n');
+            for (String message : stage.getErrorMessages()) {
+                sb.append("    - ").append(message).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
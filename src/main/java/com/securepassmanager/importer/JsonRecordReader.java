@@ -0,0 +1,97 @@
+package com.securepassmanager.importer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Leitor em fluxo de exportações JSON. Aceita uma lista de objetos planos
+ * ({@code [{"service", "username", "password"}]}) ou o formato do Bitwarden
+ * ({@code {"items": [{"name", "login": {"username", "password", "uris"}}]}}).
+ * Apenas um item por vez fica em memória.
+ */
+public class JsonRecordReader implements RecordReader {
+    private final JsonReader reader;
+    private boolean started;
+    private long position;
+
+    public JsonRecordReader(Reader reader) {
+        this.reader = new JsonReader(reader);
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        if (!started) {
+            started = true;
+            if (!positionAtItems()) {
+                return null;
+            }
+        }
+        if (!reader.hasNext()) {
+            return null;
+        }
+        JsonElement item = JsonParser.parseReader(reader);
+        position++;
+        if (!item.isJsonObject()) {
+            return new ImportRecord(position, null, null, null, null);
+        }
+        return ImportRecord.fromFields(position, flatten(item.getAsJsonObject()));
+    }
+
+    /**
+     * Avança até o primeiro elemento da lista de itens; retorna false se não houver lista.
+     */
+    private boolean positionAtItems() throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            return true;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("items") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static Map<String, String> flatten(JsonObject item) {
+        Map<String, String> fields = new HashMap<>();
+        copyPrimitives(item, fields);
+        if (item.has("login") && item.get("login").isJsonObject()) {
+            JsonObject login = item.getAsJsonObject("login");
+            copyPrimitives(login, fields);
+            if (login.has("uris") && login.get("uris").isJsonArray()) {
+                JsonArray uris = login.getAsJsonArray("uris");
+                if (uris.size() > 0 && uris.get(0).isJsonObject() && uris.get(0).getAsJsonObject().has("uri")) {
+                    fields.putIfAbsent("uri", uris.get(0).getAsJsonObject().get("uri").getAsString());
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static void copyPrimitives(JsonObject source, Map<String, String> fields) {
+        for (Map.Entry<String, JsonElement> entry : source.entrySet()) {
+            if (entry.getValue().isJsonPrimitive()) {
+                fields.putIfAbsent(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue().getAsString());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
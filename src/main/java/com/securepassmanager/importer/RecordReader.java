@@ -0,0 +1,32 @@
+package com.securepassmanager.importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Leitura em fluxo de um arquivo exportado: um registro por chamada, sem carregar o
+ * arquivo inteiro em memória.
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * Retorna o próximo registro, ou null no fim do arquivo.
+     */
+    ImportRecord next() throws IOException;
+
+    /**
+     * Abre o leitor adequado pela extensão do arquivo (.json ou .csv).
+     */
+    static RecordReader open(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+            return new JsonRecordReader(reader);
+        }
+        return new CsvRecordReader(reader);
+    }
+}
@@ -0,0 +1,79 @@
+package com.securepassmanager.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de uma etapa do pipeline de importação: registros processados, erros
+ * (com as primeiras mensagens) e o intervalo em que a etapa esteve ativa.
+ */
+public final class StageStats {
+    private static final int MAX_ERROR_MESSAGES = 20;
+
+    private final String name;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final List<String> errorMessages = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong startNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong endNanos = new AtomicLong(Long.MIN_VALUE);
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    void started() {
+        startNanos.accumulateAndGet(System.nanoTime(), Math::min);
+    }
+
+    void finished() {
+        endNanos.accumulateAndGet(System.nanoTime(), Math::max);
+    }
+
+    void success(long count) {
+        processed.add(count);
+    }
+
+    void error(long count, String message) {
+        errors.add(count);
+        if (errorMessages.size() < MAX_ERROR_MESSAGES) {
+            errorMessages.add(message);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public List<String> getErrorMessages() {
+        synchronized (errorMessages) {
+            return new ArrayList<>(errorMessages);
+        }
+    }
+
+    /**
+     * Registros por segundo durante o período em que a etapa esteve ativa.
+     */
+    public double getThroughput() {
+        long elapsed = endNanos.get() - startNanos.get();
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (getProcessed() + getErrors()) * 1_000_000_000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-12s %8d ok %6d erros %10.0f registros/s", name, getProcessed(), getErrors(), getThroughput());
+    }
+}
@@ -0,0 +1,27 @@
+package com.securepassmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Geração ou verificação de um hash bcrypt.
+ */
+@Name("com.securepassmanager.Bcrypt")
+@Label("Bcrypt")
+@Category({"SecurePassManager", "Crypto"})
+@Description("Hash ou verificação da senha mestra com bcrypt")
+@StackTrace(false)
+public class BcryptEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Cost Factor")
+    public int cost;
+
+    @Label("Matched")
+    public boolean matched;
+}
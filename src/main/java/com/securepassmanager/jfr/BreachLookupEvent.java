@@ -0,0 +1,31 @@
+package com.securepassmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Consulta de senha vazada (HaveIBeenPwned).
+ */
+@Name("com.securepassmanager.BreachLookup")
+@Label("Breach Lookup")
+@Category({"SecurePassManager", "Network"})
+@Description("Consulta por prefixo de hash à API de senhas vazadas")
+@StackTrace(false)
+public class BreachLookupEvent extends Event {
+    @Label("Client")
+    public String client;
+
+    @Label("Cache Outcome")
+    @Description("none (consultou a API) ou filter (descartada pelo pré-filtro)")
+    public String cacheOutcome;
+
+    @Label("Breached")
+    public boolean breached;
+
+    @Label("HTTP Status")
+    public int status;
+}
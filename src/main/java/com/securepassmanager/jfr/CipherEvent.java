@@ -0,0 +1,33 @@
+package com.securepassmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Operação AES-GCM do {@code EncryptionService}.
+ */
+@Name("com.securepassmanager.Cipher")
+@Label("Cipher Operation")
+@Category({"SecurePassManager", "Crypto"})
+@Description("Criptografia ou descriptografia de um valor do cofre")
+@StackTrace(false)
+public class CipherEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Key ID")
+    public int keyId;
+
+    @Label("Input Size")
+    @DataAmount
+    public long inputBytes;
+
+    @Label("Output Size")
+    @DataAmount
+    public long outputBytes;
+}
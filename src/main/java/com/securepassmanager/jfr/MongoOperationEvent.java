@@ -0,0 +1,33 @@
+package com.securepassmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Comando enviado ao MongoDB, do envio até a resposta.
+ */
+@Name("com.securepassmanager.MongoOperation")
+@Label("Mongo Operation")
+@Category({"SecurePassManager", "Storage"})
+@Description("Comando do MongoDB com coleção, backend e quantidade de documentos")
+@StackTrace(false)
+public class MongoOperationEvent extends Event {
+    @Label("Command")
+    public String command;
+
+    @Label("Collection")
+    public String collection;
+
+    @Label("Backend")
+    public String backend;
+
+    @Label("Documents")
+    public int documents;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
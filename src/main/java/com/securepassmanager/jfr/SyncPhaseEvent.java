@@ -0,0 +1,24 @@
+package com.securepassmanager.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma fase da sincronização bidirecional (leitura, merge ou gravação).
+ */
+@Name("com.securepassmanager.SyncPhase")
+@Label("Sync Phase")
+@Category({"SecurePassManager", "Sync"})
+@Description("Fase da sincronização entre o banco local e a nuvem")
+@StackTrace(false)
+public class SyncPhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Entries")
+    public int entries;
+}
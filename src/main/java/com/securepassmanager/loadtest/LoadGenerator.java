@@ -0,0 +1,124 @@
+package com.securepassmanager.loadtest;
+
+import com.securepassmanager.metrics.Counter;
+import com.securepassmanager.metrics.LatencyHistogram;
+import com.securepassmanager.metrics.MetricsRegistry;
+import com.securepassmanager.util.VirtualThreads;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga em modelo aberto: as operações chegam a uma taxa fixa, independente de
+ * quanto o sistema demora para responder, e cada uma roda em sua própria thread virtual.
+ * A latência é medida a partir do instante em que a operação deveria ter começado, de modo
+ * que atrasos do próprio gerador (omissão coordenada) aparecem nos percentis em vez de
+ * serem escondidos. Quando o limite de operações simultâneas é atingido, a chegada é
+ * descartada e contada no relatório.
+ */
+public class LoadGenerator {
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+
+    private final LoadTestConfig config;
+    private final Scenario scenario;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public LoadGenerator(LoadTestConfig config, Scenario scenario) {
+        this.config = config;
+        this.scenario = scenario;
+        Map<Operation, Integer> mix = config.getMix();
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Gera carga durante a duração configurada e espera as operações em andamento terminarem.
+     */
+    public LoadTestReport run() throws InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry();
+        Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Counter> rejected = new EnumMap<>(Operation.class);
+        for (Operation operation : operations) {
+            latencies.put(operation, registry.histogram("loadtest." + operation.key()));
+            rejected.put(operation, registry.counter("loadtest.rejected", "op", operation.key()));
+        }
+
+        SplittableRandom random = new SplittableRandom();
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        ExecutorService clients = VirtualThreads.newPerTaskExecutor("loadtest-client",
+            Math.min(config.getMaxInFlight(), Runtime.getRuntime().availableProcessors() * 16));
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRatePerSecond());
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        long scheduled = 0;
+        long dropped = 0;
+        try {
+            for (long intended = start; intended < end; intended = start + ++scheduled * interval) {
+                sleepUntil(intended);
+                Operation operation = pick(random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]));
+                int user = random.nextInt(config.getUsers());
+                if (!inFlight.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+                long intendedStart = intended;
+                clients.execute(() -> {
+                    try {
+                        execute(operation, user, intendedStart, latencies.get(operation), rejected.get(operation));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            clients.shutdown();
+            if (!clients.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                clients.shutdownNow();
+            }
+        }
+        return new LoadTestReport(latencies, rejected, scheduled, dropped, System.nanoTime() - start);
+    }
+
+    private void execute(Operation operation, int user, long intendedStart,
+                         LatencyHistogram latency, Counter rejected) {
+        try {
+            if (!scenario.run(operation, user)) {
+                rejected.increment();
+            }
+        } catch (Exception e) {
+            latency.recordError();
+        } finally {
+            latency.record(System.nanoTime() - intendedStart);
+        }
+    }
+
+    private Operation pick(int value) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
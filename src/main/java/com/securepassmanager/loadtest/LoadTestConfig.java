@@ -0,0 +1,126 @@
+package com.securepassmanager.loadtest;
+
+import com.mongodb.ConnectionString;
+import com.securepassmanager.util.AppConfig;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Parâmetros do teste de carga: número de usuários simulados, taxa de chegada (modelo
+ * aberto, em operações por segundo), duração, limite de operações simultâneas e a mistura
+ * de operações ({@code login=30,insert=20,find=40,sync=5,breach=5}).
+ */
+public final class LoadTestConfig {
+    static final String DEFAULT_MIX = "login=30,insert=20,find=40,sync=5,breach=5";
+    // Banco do cofre e dos usuários reais, que o teste de carga nunca usa
+    static final String VAULT_DATABASE = "SecurePassManager";
+
+    private final int users;
+    private final double ratePerSecond;
+    private final long durationSeconds;
+    private final int maxInFlight;
+    private final Map<Operation, Integer> mix;
+
+    public LoadTestConfig(int users, double ratePerSecond, long durationSeconds, int maxInFlight,
+                          Map<Operation, Integer> mix) {
+        if (users <= 0 || ratePerSecond <= 0 || durationSeconds <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Parâmetros do teste de carga devem ser positivos");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("A mistura de operações deve ter ao menos um peso positivo");
+        }
+        this.users = users;
+        this.ratePerSecond = ratePerSecond;
+        this.durationSeconds = durationSeconds;
+        this.maxInFlight = maxInFlight;
+        this.mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+    }
+
+    /**
+     * Lê as chaves {@code loadtest.*} de application.properties (ou propriedades do sistema).
+     */
+    public static LoadTestConfig fromConfig() {
+        return new LoadTestConfig(
+            AppConfig.getInt("loadtest.users", 1000),
+            AppConfig.getLong("loadtest.rate", 500),
+            AppConfig.getLong("loadtest.duration.s", 60),
+            AppConfig.getInt("loadtest.max.inflight", 10_000),
+            parseMix(AppConfig.getString("loadtest.mix", DEFAULT_MIX)));
+    }
+
+    /**
+     * URI do banco exclusivo do teste de carga (chave {@code loadtest.mongodb.uri}, ex.:
+     * {@code mongodb://localhost:27017/spm_loadtest}). O teste cria e apaga usuários e
+     * entradas, por isso não roda sem essa chave nem com a nuvem configurada.
+     */
+    public static String isolatedDatabaseUri() {
+        return checkIsolated(AppConfig.getString("loadtest.mongodb.uri", null),
+            AppConfig.getString("mongodb.uri.cloud", null));
+    }
+
+    /**
+     * @throws IllegalStateException se a sincronização com a nuvem estiver configurada ou
+     *         a URI não for informada
+     * @throws IllegalArgumentException se a URI não indicar um banco próprio
+     */
+    static String checkIsolated(String uri, String cloudUri) {
+        if (cloudUri != null && !cloudUri.contains("<usuario>")) {
+            throw new IllegalStateException(
+                "O teste de carga não roda com a sincronização com a nuvem configurada (mongodb.uri.cloud)");
+        }
+        if (uri == null) {
+            throw new IllegalStateException("Informe loadtest.mongodb.uri com um banco só para o teste de carga, "
+                + "ex.: mongodb://localhost:27017/spm_loadtest");
+        }
+        String database = new ConnectionString(uri).getDatabase();
+        if (database == null || database.equalsIgnoreCase(VAULT_DATABASE)) {
+            throw new IllegalArgumentException(
+                "loadtest.mongodb.uri deve indicar um banco diferente do cofre (" + VAULT_DATABASE + "): " + uri);
+        }
+        return uri;
+    }
+
+    /**
+     * Converte {@code operação=peso,...} em pesos por operação; operações ausentes têm peso zero.
+     */
+    public static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Item inválido na mistura: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Peso negativo na mistura: " + part);
+            }
+            mix.put(Operation.fromKey(pair[0]), weight);
+        }
+        return mix;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+}
@@ -0,0 +1,85 @@
+package com.securepassmanager.loadtest;
+
+import com.securepassmanager.metrics.Counter;
+import com.securepassmanager.metrics.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * Resultado de um teste de carga: vazão e percentis de latência por operação.
+ */
+public final class LoadTestReport {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<Operation, LatencyHistogram> latencies;
+    private final Map<Operation, Counter> rejected;
+    private final long scheduled;
+    private final long dropped;
+    private final long elapsedNanos;
+
+    LoadTestReport(Map<Operation, LatencyHistogram> latencies, Map<Operation, Counter> rejected,
+                   long scheduled, long dropped, long elapsedNanos) {
+        this.latencies = latencies;
+        this.rejected = rejected;
+        this.scheduled = scheduled;
+        this.dropped = dropped;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getRejected(Operation operation) {
+        Counter counter = rejected.get(operation);
+        return counter != null ? counter.getCount() : 0;
+    }
+
+    /**
+     * Operações concluídas por segundo (com sucesso ou não).
+     */
+    public double getThroughput(Operation operation) {
+        LatencyHistogram histogram = latencies.get(operation);
+        return histogram != null ? histogram.getCount() * 1e9 / elapsedNanos : 0;
+    }
+
+    public long getCompleted() {
+        return latencies.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+    }
+
+    /**
+     * Chegadas geradas pelo gerador, incluindo as descartadas.
+     */
+    public long getScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * Chegadas descartadas porque o limite de operações simultâneas foi atingido.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %9s %7s %9s %10s %10s %10s %10s%n",
+            "operação", "total", "erros", "recusadas", "ops/s", "p50 ms", "p99 ms", "p999 ms"));
+        for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            sb.append(String.format("%-8s %9d %7d %9d %10.1f %10.3f %10.3f %10.3f%n",
+                entry.getKey().key(), h.getCount(), h.getErrorCount(), getRejected(entry.getKey()),
+                getThroughput(entry.getKey()),
+                h.valueAtPercentile(50) / NANOS_PER_MILLI,
+                h.valueAtPercentile(99) / NANOS_PER_MILLI,
+                h.valueAtPercentile(99.9) / NANOS_PER_MILLI));
+        }
+        sb.append(String.format("%d chegadas em %.1fs, %d concluídas, %d descartadas (limite de simultaneidade)",
+            scheduled, getElapsedSeconds(), getCompleted(), dropped));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.securepassmanager.loadtest;
+
+import java.util.Locale;
+
+/**
+ * Operações geradas pelo teste de carga; o nome em minúsculas é usado na configuração
+ * da mistura ({@code loadtest.mix}) e no relatório.
+ */
+public enum Operation {
+    LOGIN,
+    INSERT,
+    FIND,
+    SYNC,
+    BREACH;
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Operation fromKey(String key) {
+        return valueOf(key.trim().toUpperCase(Locale.ROOT));
+    }
+}
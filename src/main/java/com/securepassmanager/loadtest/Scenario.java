@@ -0,0 +1,13 @@
+package com.securepassmanager.loadtest;
+
+/**
+ * Executa uma operação do teste de carga em nome de um dos usuários simulados.
+ */
+public interface Scenario {
+    /**
+     * @param user índice do usuário simulado, entre 0 e {@code users - 1}
+     * @return false quando o sistema recusou a operação de forma legítima (código TOTP já
+     *         usado, login limitado pelo controle de admissão); exceções contam como erro
+     */
+    boolean run(Operation operation, int user) throws Exception;
+}
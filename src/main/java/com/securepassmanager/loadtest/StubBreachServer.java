@@ -0,0 +1,113 @@
+package com.securepassmanager.loadtest;
+
+import com.securepassmanager.util.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor HTTP local que imita a consulta por prefixo da API de senhas vazadas
+ * ({@code GET /range/{prefixo}}), para que o teste de carga não dependa da rede nem
+ * sobrecarregue o serviço real. Cada prefixo recebe sempre a mesma lista sintética de
+ * sufixos, do tamanho típico das respostas reais, e um atraso opcional simula a rede.
+ */
+public class StubBreachServer implements AutoCloseable {
+    private static final String RANGE_PATH = "/range/";
+    private static final int HASH_SUFFIX_LENGTH = 35;
+
+    private final int linesPerPrefix;
+    private final long latencyMillis;
+    private final LongAdder requests = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubBreachServer(int linesPerPrefix, long latencyMillis) {
+        this.linesPerPrefix = linesPerPrefix;
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Inicia o servidor em 127.0.0.1; a porta 0 escolhe uma porta livre.
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = VirtualThreads.newPerTaskExecutor("stub-breach", Runtime.getRuntime().availableProcessors() * 8);
+        server.setExecutor(executor);
+        server.createContext(RANGE_PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * URL base a ser passada para {@code PasswordBreachChecker(String)}.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + RANGE_PATH;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            String prefix = exchange.getRequestURI().getPath().substring(RANGE_PATH.length());
+            if (!prefix.matches("[0-9A-Fa-f]{5}")) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+            }
+            byte[] body = rangeFor(prefix.toUpperCase()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String rangeFor(String prefix) {
+        SplittableRandom random = new SplittableRandom(prefix.hashCode());
+        StringBuilder sb = new StringBuilder(linesPerPrefix * (HASH_SUFFIX_LENGTH + 8));
+        for (int i = 0; i < linesPerPrefix; i++) {
+            if (i > 0) {
+                sb.append("\r\n");
+            }
+            for (int j = 0; j < HASH_SUFFIX_LENGTH; j++) {
+                sb.append(Character.toUpperCase(Character.forDigit(random.nextInt(16), 16)));
+            }
+            sb.append(':').append(1 + random.nextInt(10_000));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.securepassmanager.loadtest;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.model.User;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.KeyRing;
+import com.securepassmanager.security.PasswordBreachChecker;
+import com.securepassmanager.security.TotpVerifier;
+import com.securepassmanager.security.TwoFactorAuth;
+import com.securepassmanager.service.SyncService;
+import com.securepassmanager.service.UserService;
+import com.securepassmanager.storage.VaultRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cenário do teste de carga sobre os serviços reais: login (busca do usuário, bcrypt e
+ * TOTP), gravação e leitura de entradas, sincronização e consulta de vazamento. Os
+ * usuários simulados ({@code loadtest-N@loadtest.local}) são criados em {@link #prepare()}
+ * com a mesma senha mestra, para que o bcrypt seja calculado uma única vez, e apagados
+ * com as suas entradas em {@link #cleanup}.
+ */
+public class VaultScenario implements Scenario {
+    static final String EMAIL_DOMAIN = "@loadtest.local";
+    static final String SERVICE_PREFIX = "loadtest-";
+    private static final String MASTER_PASSWORD = "LoadTest#Master2024";
+    private static final String SEED_SERVICE = SERVICE_PREFIX + "seed";
+    private static final int TOTP_PERIOD_SECONDS = 30;
+
+    private final EncryptionService encryptionService;
+    // Chaveiro próprio do teste: as chaves dos usuários reais só existem em sessões do cofre
+    private final EncryptionService vaultEncryption;
+    private final UserService userService;
+    private final VaultRepository vaultRepository;
+    private final SyncService syncService;
+    private final PasswordBreachChecker breachChecker;
+    private final User[] users;
+    private final AtomicLong insertSequence = new AtomicLong();
+
+    public VaultScenario(EncryptionService encryptionService, UserService userService, VaultRepository vaultRepository,
+                         SyncService syncService, PasswordBreachChecker breachChecker, int users) throws Exception {
+        this.encryptionService = encryptionService;
+        this.vaultEncryption = EncryptionService.forKeyRing(KeyRing.inMemory());
+        this.userService = userService;
+        this.vaultRepository = vaultRepository;
+        this.syncService = syncService;
+        this.breachChecker = breachChecker;
+        this.users = new User[users];
+    }
+
+    /**
+     * Cria (ou reaproveita de execuções anteriores) os usuários simulados e grava uma
+     * entrada conhecida de cada um, cifrada com o chaveiro desta execução, usada pelas leituras.
+     */
+    public void prepare() throws Exception {
+        String passwordHash = null;
+        for (int i = 0; i < users.length; i++) {
+            String email = emailOf(i);
+            User user = userService.findByEmail(email);
+            if (user == null) {
+                if (passwordHash == null) {
+                    passwordHash = encryptionService.hashPassword(MASTER_PASSWORD);
+                }
+                TwoFactorAuth twoFactorAuth = new TwoFactorAuth();
+                user = new User(email, passwordHash, twoFactorAuth.getSecret());
+                user.setBackupCodes(List.copyOf(twoFactorAuth.getBackupCodes()));
+                userService.registerUser(user);
+            }
+            vaultRepository.insertOrUpdatePasswordEntry(new PasswordEntry(SEED_SERVICE, email,
+                vaultEncryption.encryptPassword(MASTER_PASSWORD), user.getId()));
+            users[i] = user;
+        }
+    }
+
+    /**
+     * Apaga os usuários simulados e as entradas {@code loadtest-*} gravadas por eles no
+     * repositório do cenário e nas cópias informadas (o destino da sincronização). Pode
+     * ser chamado depois de um {@link #prepare()} interrompido.
+     *
+     * @return quantidade de usuários apagados
+     */
+    public int cleanup(VaultRepository... copies) {
+        int deleted = 0;
+        for (int i = 0; i < users.length; i++) {
+            User user = users[i] != null ? users[i] : userService.findByEmail(emailOf(i));
+            if (user == null) {
+                continue;
+            }
+            removeLoadTestEntries(vaultRepository, user.getId());
+            for (VaultRepository copy : copies) {
+                removeLoadTestEntries(copy, user.getId());
+            }
+            if (userService.deleteUser(user.getEmail())) {
+                deleted++;
+            }
+            users[i] = null;
+        }
+        return deleted;
+    }
+
+    private static void removeLoadTestEntries(VaultRepository repository, String userId) {
+        List<PasswordEntry> kept = new ArrayList<>();
+        boolean[] found = {false};
+        repository.forEachPasswordEntry(userId, 500, entry -> {
+            if (entry.getService() != null && entry.getService().startsWith(SERVICE_PREFIX)) {
+                found[0] = true;
+            } else {
+                kept.add(entry);
+            }
+        });
+        if (found[0]) {
+            repository.replaceAllPasswordEntries(userId, kept);
+        }
+    }
+
+    static String emailOf(int user) {
+        return "loadtest-" + user + EMAIL_DOMAIN;
+    }
+
+    @Override
+    public boolean run(Operation operation, int user) throws Exception {
+        switch (operation) {
+            case LOGIN:
+                return login(user);
+            case INSERT:
+                User owner = users[user];
+                String service = SERVICE_PREFIX + insertSequence.incrementAndGet();
+                vaultRepository.insertPasswordEntry(new PasswordEntry(service, owner.getEmail(),
+                    vaultEncryption.encryptPassword(randomPassword()), owner.getId()));
+                return true;
+            case FIND:
+                PasswordEntry entry = vaultRepository.findByService(SEED_SERVICE, users[user].getId());
+                if (entry == null) {
+                    throw new IllegalStateException("Entrada de referência ausente para " + emailOf(user));
+                }
+                vaultEncryption.decryptPassword(entry.getPassword());
+                return true;
+            case SYNC:
+                if (syncService == null) {
+                    // Backend sem cópia na nuvem: não há o que sincronizar
+                    return false;
+                }
+                syncService.syncBidirectional(users[user].getId());
+                return true;
+            case BREACH:
+                breachChecker.isPasswordBreached(randomPassword());
+                return true;
+            default:
+                throw new IllegalArgumentException("Operação desconhecida: " + operation);
+        }
+    }
+
+    /**
+     * Mesmo caminho do login interativo; o código TOTP é gerado para o intervalo atual.
+     * Um código já usado no mesmo intervalo é recusado pelo cache anti-replay, e tentativas
+     * acima do limite do controle de admissão também contam como recusadas.
+     */
+    private boolean login(int index) {
+        String email = emailOf(index);
+        User user = userService.findByEmail(email);
+        if (user == null) {
+            throw new IllegalStateException("Usuário simulado não encontrado: " + email);
+        }
+        try {
+            if (!encryptionService.verifyPassword(UserService.normalizeEmail(email), MASTER_PASSWORD, user.getPasswordHash())) {
+                return false;
+            }
+        } catch (SecurityException e) {
+            return false;
+        }
+        long step = System.currentTimeMillis() / 1000 / TOTP_PERIOD_SECONDS;
+        int code = TotpVerifier.shared().generate(user.getId(), user.getTotpSecret(), step);
+        TwoFactorAuth twoFactorAuth = new TwoFactorAuth(user.getId(), user.getTotpSecret(), List.of());
+        return twoFactorAuth.verifyCode(String.format("%06d", code));
+    }
+
+    private static String randomPassword() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong()) + "!Aa";
+    }
+}
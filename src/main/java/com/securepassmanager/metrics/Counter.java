@@ -0,0 +1,37 @@
+package com.securepassmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador monotônico sem contenção entre threads.
+ */
+public class Counter implements CounterMXBean {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    @Override
+    public long getCount() {
+        return value.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + " count=" + getCount();
+    }
+}
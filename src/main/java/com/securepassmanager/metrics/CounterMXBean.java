@@ -0,0 +1,8 @@
+package com.securepassmanager.metrics;
+
+/**
+ * Atributos JMX de um {@link Counter}.
+ */
+public interface CounterMXBean {
+    long getCount();
+}
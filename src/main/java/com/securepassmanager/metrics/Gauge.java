@@ -0,0 +1,30 @@
+package com.securepassmanager.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Valor instantâneo lido sob demanda (idade de uma sincronização, tamanho de uma fila...).
+ */
+public class Gauge implements GaugeMXBean {
+    private final String name;
+    private final LongSupplier value;
+
+    Gauge(String name, LongSupplier value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getValue() {
+        return value.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return name + " value=" + getValue();
+    }
+}
@@ -0,0 +1,20 @@
+package com.securepassmanager.metrics;
+
+/**
+ * Atributos JMX de um {@link LatencyHistogram}.
+ */
+public interface HistogramMXBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,96 @@
+package com.securepassmanager.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava periodicamente um retrato das métricas num arquivo local com rotação por tamanho
+ * ({@code metrics.log}, {@code metrics.log.1}, ...), sem depender de serviço externo.
+ */
+public class MetricsFileReporter {
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsFileReporter(MetricsRegistry registry, Path file, long maxBytes, int maxFiles) {
+        this.registry = registry;
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::reportQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Interrompe o agendamento e grava um último relatório.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            reportQuietly();
+        }
+    }
+
+    public synchronized void report() throws IOException {
+        StringBuilder sb = new StringBuilder("# ").append(LocalDateTime.now()).append('\n');
+        for (Counter counter : registry.counters().values()) {
+            sb.append(counter).append('\n');
+        }
+        for (Gauge gauge : registry.gauges().values()) {
+            sb.append(gauge).append('\n');
+        }
+        for (LatencyHistogram histogram : registry.histograms().values()) {
+            if (histogram.getCount() > 0 || histogram.getErrorCount() > 0) {
+                sb.append(histogram).append('\n');
+            }
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(file) && Files.size(file) + bytes.length > maxBytes) {
+            rotate();
+        }
+        Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() throws IOException {
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rotated(i);
+            if (Files.exists(older)) {
+                Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void reportQuietly() {
+        try {
+            report();
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível gravar as métricas: " + e.getMessage());
+        }
+    }
+}
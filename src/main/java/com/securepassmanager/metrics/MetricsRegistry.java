@@ -0,0 +1,150 @@
+package com.securepassmanager.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de métricas do processo. Cada métrica é identificada pelo nome e por tags
+ * opcionais ({@code mongodb.find{backend=cloud}}) e, no registro global, é publicada
+ * via JMX em {@code com.securepassmanager:type=...,name=...} assim que criada.
+ */
+public final class MetricsRegistry {
+    private static final String JMX_DOMAIN = "com.securepassmanager";
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry(true);
+
+    private final boolean publishJmx;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Registro isolado, sem publicação via JMX.
+     */
+    public MetricsRegistry() {
+        this(false);
+    }
+
+    private MetricsRegistry(boolean publishJmx) {
+        this.publishJmx = publishJmx;
+    }
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Retorna o contador com o nome e as tags informadas (pares chave, valor), criando-o se preciso.
+     */
+    public Counter counter(String name, String... tags) {
+        String key = key(name, tags);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        return counters.computeIfAbsent(key, k -> publish("Counter", k, new Counter(k)));
+    }
+
+    /**
+     * Retorna o histograma de latência com o nome e as tags informadas, criando-o se preciso.
+     */
+    public LatencyHistogram histogram(String name, String... tags) {
+        String key = key(name, tags);
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return histograms.computeIfAbsent(key, k -> publish("Histogram", k, new LatencyHistogram(k)));
+    }
+
+    /**
+     * Registra (ou substitui) o medidor com o nome e as tags informadas.
+     */
+    public Gauge gauge(String name, LongSupplier value, String... tags) {
+        String key = key(name, tags);
+        Gauge gauge = new Gauge(key, value);
+        if (gauges.put(key, gauge) != null) {
+            unpublish("Gauge", key);
+        }
+        return publish("Gauge", key, gauge);
+    }
+
+    /**
+     * Remove o medidor, por exemplo quando o usuário a que ele se refere sai de cena.
+     */
+    public void removeGauge(String name, String... tags) {
+        String key = key(name, tags);
+        if (gauges.remove(key) != null) {
+            unpublish("Gauge", key);
+        }
+    }
+
+    public Map<String, Counter> counters() {
+        return new TreeMap<>(counters);
+    }
+
+    public Map<String, LatencyHistogram> histograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public Map<String, Gauge> gauges() {
+        return new TreeMap<>(gauges);
+    }
+
+    static String key(String name, String... tags) {
+        if (tags.length == 0) {
+            return name;
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags devem ser pares chave/valor");
+        }
+        StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i < tags.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    private <T> T publish(String type, String key, T metric) {
+        if (!publishJmx) {
+            return metric;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, key);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metric, objectName);
+            }
+        } catch (Exception e) {
+            // A métrica continua disponível no registro e no relatório em arquivo
+            System.err.println("Aviso: não foi possível publicar a métrica " + key + " via JMX: " + e.getMessage());
+        }
+        return metric;
+    }
+
+    private void unpublish(String type, String key) {
+        if (!publishJmx) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(type, key);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            System.err.println("Aviso: não foi possível remover a métrica " + key + " do JMX: " + e.getMessage());
+        }
+    }
+
+    private static ObjectName objectName(String type, String key) throws Exception {
+        return new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(key));
+    }
+}
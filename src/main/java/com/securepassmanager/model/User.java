@@ -1,5 +1,6 @@
 package com.securepassmanager.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class User {
@@ -8,6 +9,9 @@ public class User {
     private String passwordHash;
     private String totpSecret;
     private List<String> backupCodes;
+    private String kdfSalt;
+    private int kdfIterations;
+    private String wrappedVaultKey;
 
     public User() {}
 
@@ -17,6 +21,21 @@ public class User {
         this.totpSecret = totpSecret;
     }
 
+    /**
+     * Cópia independente do registro, para alterações que não devem aparecer em quem
+     * compartilha o original (por exemplo, o cache de usuários) antes de serem salvas.
+     */
+    public User(User other) {
+        this.id = other.id;
+        this.email = other.email;
+        this.passwordHash = other.passwordHash;
+        this.totpSecret = other.totpSecret;
+        this.backupCodes = other.backupCodes != null ? new ArrayList<>(other.backupCodes) : null;
+        this.kdfSalt = other.kdfSalt;
+        this.kdfIterations = other.kdfIterations;
+        this.wrappedVaultKey = other.wrappedVaultKey;
+    }
+
     public String getId() {
         return id;
     }
@@ -56,4 +75,28 @@ public class User {
     public void setBackupCodes(List<String> backupCodes) {
         this.backupCodes = backupCodes;
     }
+
+    public String getKdfSalt() {
+        return kdfSalt;
+    }
+
+    public void setKdfSalt(String kdfSalt) {
+        this.kdfSalt = kdfSalt;
+    }
+
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+
+    public void setKdfIterations(int kdfIterations) {
+        this.kdfIterations = kdfIterations;
+    }
+
+    public String getWrappedVaultKey() {
+        return wrappedVaultKey;
+    }
+
+    public void setWrappedVaultKey(String wrappedVaultKey) {
+        this.wrappedVaultKey = wrappedVaultKey;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.securepassmanager.security;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Escolhe o fator de custo do bcrypt medindo o tempo de hash neste hardware.
+ * Cada incremento do custo dobra o tempo, então basta medir o custo mínimo uma vez.
+ */
+public final class BcryptCostCalibrator {
+    public static final int MIN_COST = 12;
+    public static final int MAX_COST = 16;
+    private static final int BENCHMARK_ROUNDS = 3;
+
+    private BcryptCostCalibrator() {
+    }
+
+    /**
+     * Retorna o maior custo cujo hash leva no máximo {@code targetMillis} milissegundos.
+     */
+    public static int calibrate(long targetMillis) {
+        String salt = BCrypt.gensalt(MIN_COST);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibracao-bcrypt", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double baseMillis = Math.max(0.001, best / 1_000_000.0);
+        int extra = (int) Math.floor(Math.log(targetMillis / baseMillis) / Math.log(2));
+        return Math.max(MIN_COST, Math.min(MAX_COST, MIN_COST + extra));
+    }
+
+    /**
+     * Lê o fator de custo de um hash bcrypt ("$2a$12$..."); retorna -1 se o formato for desconhecido.
+     */
+    public static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') {
+            return -1;
+        }
+        int separator = hash.indexOf('$', 1);
+        if (separator < 0 || hash.length() < separator + 3) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(separator + 1, separator + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.securepassmanager.security;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pré-filtro probabilístico do corpus de senhas vazadas: um filtro de Bloom em blocos
+ * de 64 bytes (uma linha de cache) sobre os hashes SHA-1 do corpus, gerado uma vez por
+ * {@link #build} e mapeado em memória na inicialização.
+ *
+ * <p>Se {@link #mightContain} retorna false, a senha certamente não está no corpus e a
+ * consulta exata (rede ou disco) é dispensada; um true é só provável e precisa ser
+ * confirmado. Como o SHA-1 já é uniforme, os próprios bytes do hash escolhem o bloco e os
+ * bits dentro dele, sem outro hash: cada consulta toca uma única linha de cache.
+ *
+ * <p>Formato: cabeçalho de {@value #BLOCK_BYTES} bytes ({@code "SPBF"}, versão, bits por
+ * chave dentro do bloco, quantidade de blocos, de hashes e a taxa de falsos positivos
+ * pedida) seguido dos blocos. Arquivos maiores que 1 GiB são mapeados em segmentos.
+ */
+public final class BreachFilter {
+    public static final int BLOCK_BYTES = 64;
+    private static final int BLOCK_BITS = BLOCK_BYTES * 8;
+    private static final int SHA1_BYTES = 20;
+    private static final byte[] MAGIC = {'S', 'P', 'B', 'F'};
+    private static final int VERSION = 1;
+    private static final int MAX_HASHES = 16;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final long BLOCKS_PER_SEGMENT = SEGMENT_BYTES / BLOCK_BYTES;
+    // Blocos de 512 bits concentram colisões; alguns bits a mais por chave compensam
+    private static final double BLOCKING_OVERHEAD = 1.1;
+
+    private final ByteBuffer[] segments;
+    private final long blocks;
+    private final long entries;
+    private final int hashes;
+    private final double falsePositiveRate;
+
+    private BreachFilter(ByteBuffer[] segments, long blocks, long entries, int hashes, double falsePositiveRate) {
+        this.segments = segments;
+        this.blocks = blocks;
+        this.entries = entries;
+        this.hashes = hashes;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Mapeia um filtro gerado por {@link #build}.
+     */
+    public static BreachFilter open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), BLOCK_BYTES));
+            if (header.limit() < BLOCK_BYTES) {
+                throw new IOException("Filtro de vazamentos inválido: " + path);
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("Filtro de vazamentos inválido: " + path);
+                }
+            }
+            if ((header.get(4) & 0xff) != VERSION) {
+                throw new IOException("Versão de filtro de vazamentos não suportada: " + (header.get(4) & 0xff));
+            }
+            int hashes = header.get(5) & 0xff;
+            long blocks = header.getLong(8);
+            long entries = header.getLong(16);
+            double falsePositiveRate = header.getDouble(24);
+            if (blocks <= 0 || channel.size() != BLOCK_BYTES + blocks * BLOCK_BYTES) {
+                throw new IOException("Filtro de vazamentos truncado: " + path);
+            }
+            return new BreachFilter(map(channel, FileChannel.MapMode.READ_ONLY, blocks), blocks, entries, hashes,
+                falsePositiveRate);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long blocks) throws IOException {
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((blocks + BLOCKS_PER_SEGMENT - 1) / BLOCKS_PER_SEGMENT)];
+        for (int s = 0; s < segments.length; s++) {
+            long first = s * BLOCKS_PER_SEGMENT;
+            long size = Math.min(BLOCKS_PER_SEGMENT, blocks - first) * BLOCK_BYTES;
+            segments[s] = channel.map(mode, BLOCK_BYTES + first * BLOCK_BYTES, size);
+        }
+        return segments;
+    }
+
+    /**
+     * Gera o filtro a partir do corpus no formato da API ({@code SHA1:contagem} ou apenas o
+     * SHA-1 em hexadecimal, um por linha), com a taxa de falsos positivos pedida. Lê o corpus
+     * duas vezes: uma para contar os hashes e dimensionar o filtro, outra para preenchê-lo
+     * direto no arquivo mapeado. O filtro é gerado num temporário ao lado de {@code output}
+     * e só então movido de forma atômica para o lugar, para que um processo que tenha o
+     * filtro anterior mapeado nunca veja um arquivo truncado ou pela metade. Retorna o
+     * filtro já aberto.
+     */
+    public static BreachFilter build(Path corpus, Path output, double falsePositiveRate) throws IOException {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Taxa de falsos positivos deve estar entre 0 e 1");
+        }
+        long entries = 0;
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries++;
+                }
+            }
+        }
+        double bitsPerEntry = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) * BLOCKING_OVERHEAD;
+        long blocks = Math.max(1, (long) Math.ceil(Math.max(1, entries) * bitsPerEntry / BLOCK_BITS));
+        int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(-Math.log(falsePositiveRate) / Math.log(2))));
+
+        Path absolute = output.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            fill(corpus, temp, blocks, entries, hashes, falsePositiveRate);
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return open(output);
+    }
+
+    private static void fill(Path corpus, Path file, long blocks, long entries, int hashes, double falsePositiveRate)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_BYTES);
+            header.put(MAGIC).put((byte) VERSION).put((byte) hashes).putShort((short) 0)
+                .putLong(blocks).putLong(entries).putDouble(falsePositiveRate);
+            header.clear();
+            channel.write(header, 0);
+            // Estende o arquivo até o tamanho final; as regiões não escritas ficam zeradas
+            channel.write(ByteBuffer.allocate(1), BLOCK_BYTES + blocks * BLOCK_BYTES - 1);
+
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, blocks);
+            BreachFilter filter = new BreachFilter(segments, blocks, entries, hashes, falsePositiveRate);
+            byte[] sha1 = new byte[SHA1_BYTES];
+            try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.US_ASCII)) {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (!parseSha1(line, sha1)) {
+                        throw new IOException("Linha " + lineNumber + " do corpus não começa com um SHA-1: " + line);
+                    }
+                    filter.put(sha1);
+                }
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            channel.force(true);
+        }
+    }
+
+    private static boolean parseSha1(String line, byte[] sha1) {
+        if (line.length() < SHA1_BYTES * 2 || (line.length() > SHA1_BYTES * 2 && line.charAt(SHA1_BYTES * 2) != ':')) {
+            return false;
+        }
+        for (int i = 0; i < SHA1_BYTES; i++) {
+            int high = Character.digit(line.charAt(2 * i), 16);
+            int low = Character.digit(line.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            sha1[i] = (byte) (high << 4 | low);
+        }
+        return true;
+    }
+
+    private void put(byte[] sha1) {
+        ByteBuffer segment = segmentOf(sha1);
+        int base = blockOffset(sha1);
+        int a = (int) readLong(sha1, 8);
+        int b = (int) (readLong(sha1, 8) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (a + i * b) & (BLOCK_BITS - 1);
+            int index = base + (bit >>> 3);
+            segment.put(index, (byte) (segment.get(index) | 1 << (bit & 7)));
+        }
+    }
+
+    /**
+     * Indica se o SHA-1 (20 bytes) pode estar no corpus. False é definitivo.
+     */
+    public boolean mightContain(byte[] sha1) {
+        if (sha1.length != SHA1_BYTES) {
+            throw new IllegalArgumentException("Hash SHA-1 deve ter 20 bytes");
+        }
+        ByteBuffer segment = segmentOf(sha1);
+        int base = blockOffset(sha1);
+        int a = (int) readLong(sha1, 8);
+        int b = (int) (readLong(sha1, 8) >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (a + i * b) & (BLOCK_BITS - 1);
+            if ((segment.get(base + (bit >>> 3)) & 1 << (bit & 7)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long block(byte[] sha1) {
+        return Long.remainderUnsigned(readLong(sha1, 0), blocks);
+    }
+
+    private ByteBuffer segmentOf(byte[] sha1) {
+        return segments[(int) (block(sha1) / BLOCKS_PER_SEGMENT)];
+    }
+
+    private int blockOffset(byte[] sha1) {
+        return (int) (block(sha1) % BLOCKS_PER_SEGMENT) * BLOCK_BYTES;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = value << 8 | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    public long entries() {
+        return entries;
+    }
+
+    public long sizeBytes() {
+        return BLOCK_BYTES + blocks * BLOCK_BYTES;
+    }
+
+    public double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+}
@@ -0,0 +1,72 @@
+package com.securepassmanager.security;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Fonte de aleatoriedade que preenche um buffer grande de uma só vez a partir de um único
+ * DRBG e sorteia índices por amostragem com rejeição, evitando o viés do módulo.
+ * Não é thread-safe; quem a utiliza deve sincronizar o acesso.
+ */
+class BufferedRandom {
+    private static final long INT_RANGE = 1L << 31;
+
+    private final SecureRandom random;
+    private final byte[] buffer;
+    private int position;
+
+    BufferedRandom(int bufferSize) {
+        this.random = createDrbg();
+        this.buffer = new byte[bufferSize];
+        this.position = bufferSize;
+    }
+
+    private static SecureRandom createDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Retorna um inteiro uniforme em [0, bound).
+     */
+    int nextIndex(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Limite deve ser positivo");
+        }
+        if (bound <= 256) {
+            int limit = 256 - (256 % bound);
+            while (true) {
+                int value = nextByte();
+                if (value < limit) {
+                    return value % bound;
+                }
+            }
+        }
+        long limit = INT_RANGE - (INT_RANGE % bound);
+        while (true) {
+            int value = ((nextByte() & 0x7f) << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte();
+            if (value < limit) {
+                return value % bound;
+            }
+        }
+    }
+
+    private int nextByte() {
+        if (position == buffer.length) {
+            random.nextBytes(buffer);
+            position = 0;
+        }
+        int value = buffer[position] & 0xff;
+        buffer[position++] = 0;
+        return value;
+    }
+
+    void wipe() {
+        Arrays.fill(buffer, (byte) 0);
+        position = buffer.length;
+    }
+}
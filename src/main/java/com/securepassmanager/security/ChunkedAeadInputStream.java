@@ -0,0 +1,142 @@
+package com.securepassmanager.security;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Leitura de arquivos gravados por {@link ChunkedAeadOutputStream}. Cada bloco é
+ * autenticado antes de ser entregue; arquivos truncados, com blocos reordenados ou
+ * alterados geram {@link IOException}.
+ */
+public class ChunkedAeadInputStream extends InputStream {
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+
+    private final PushbackInputStream in;
+    private final Cipher cipher;
+    private final SecretKey key;
+    private final byte[] header = new byte[ChunkedAeadOutputStream.HEADER_LENGTH];
+    private final byte[] encrypted;
+    private final byte[] plain;
+    private int plainLength;
+    private int position;
+    private long chunkIndex;
+    private boolean finished;
+
+    /**
+     * @param keyLookup retorna a chave pelo identificador gravado no cabeçalho, ou null
+     */
+    public ChunkedAeadInputStream(InputStream in, IntFunction<SecretKey> keyLookup) throws IOException {
+        this.in = new PushbackInputStream(in, 1);
+        if (this.in.readNBytes(header, 0, header.length) != header.length) {
+            throw new IOException("Arquivo de exportação incompleto");
+        }
+        ByteBuffer fields = ByteBuffer.wrap(header);
+        byte[] magic = new byte[ChunkedAeadOutputStream.MAGIC.length];
+        fields.get(magic);
+        if (!Arrays.equals(magic, ChunkedAeadOutputStream.MAGIC) || fields.get() != ChunkedAeadOutputStream.VERSION) {
+            throw new IOException("Formato de arquivo não reconhecido");
+        }
+        int keyId = fields.getShort() & 0xFFFF;
+        int chunkSize = fields.getInt();
+        if (chunkSize <= 0 || chunkSize > ChunkedAeadOutputStream.MAX_CHUNK_SIZE) {
+            throw new IOException("Tamanho de bloco inválido: " + chunkSize);
+        }
+        this.key = keyLookup.apply(keyId);
+        if (key == null) {
+            throw new IOException("Chave " + keyId + " não encontrada no chaveiro");
+        }
+        try {
+            this.cipher = Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM indisponível", e);
+        }
+        this.encrypted = new byte[chunkSize + ChunkedAeadOutputStream.TAG_LENGTH];
+        this.plain = new byte[chunkSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return plain[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, plainLength - position);
+        System.arraycopy(plain, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return plainLength - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(plain, (byte) 0);
+        in.close();
+    }
+
+    /**
+     * Garante dados disponíveis; retorna false somente após o bloco final autenticado.
+     */
+    private boolean fill() throws IOException {
+        while (position == plainLength) {
+            if (finished) {
+                return false;
+            }
+            readChunk();
+        }
+        return true;
+    }
+
+    private void readChunk() throws IOException {
+        int length = in.readNBytes(encrypted, 0, encrypted.length);
+        boolean last;
+        if (length < encrypted.length) {
+            last = true;
+        } else {
+            int next = in.read();
+            last = next < 0;
+            if (!last) {
+                in.unread(next);
+            }
+        }
+        if (length < ChunkedAeadOutputStream.TAG_LENGTH) {
+            throw new IOException("Arquivo truncado no bloco " + chunkIndex);
+        }
+
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(ChunkedAeadOutputStream.TAG_LENGTH * 8,
+                ChunkedAeadOutputStream.nonce(header, chunkIndex, last)));
+            cipher.updateAAD(header);
+            plainLength = cipher.doFinal(encrypted, 0, length, plain, 0);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Bloco " + chunkIndex + " inválido: arquivo alterado, truncado ou reordenado");
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Erro ao descriptografar bloco " + chunkIndex, e);
+        }
+        position = 0;
+        chunkIndex++;
+        finished = last;
+    }
+}
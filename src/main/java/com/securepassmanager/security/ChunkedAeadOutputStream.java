@@ -0,0 +1,149 @@
+package com.securepassmanager.security;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Criptografia em fluxo por blocos autenticados (construção STREAM sobre AES-GCM).
+ * Cada bloco é cifrado separadamente com o nonce {@code prefixo || contador || último},
+ * de modo que a memória usada é de um bloco, qualquer que seja o tamanho do arquivo.
+ * O contador impede a reordenação de blocos e a marca de último bloco impede o truncamento.
+ *
+ * <pre>
+ * cabeçalho: "SPMX" | versão (1) | id da chave (2) | tamanho do bloco (4) | prefixo do nonce (7)
+ * blocos:    AES-GCM(bloco, nonce, AAD = cabeçalho), cada um com tamanho do bloco + 16 bytes
+ * </pre>
+ */
+public class ChunkedAeadOutputStream extends FilterOutputStream {
+    static final byte[] MAGIC = {'S', 'P', 'M', 'X'};
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 18;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    static final int TAG_LENGTH = 16;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Cipher cipher;
+    private final SecretKey key;
+    private final byte[] header;
+    private final byte[] buffer;
+    private final byte[] encrypted;
+    private int buffered;
+    private long chunkIndex;
+    private boolean closed;
+
+    public ChunkedAeadOutputStream(OutputStream out, SecretKey key, int keyId, int chunkSize) throws IOException {
+        super(out);
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Tamanho de bloco inválido: " + chunkSize);
+        }
+        try {
+            this.cipher = Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM indisponível", e);
+        }
+        this.key = key;
+        this.buffer = new byte[chunkSize];
+        this.encrypted = new byte[chunkSize + TAG_LENGTH];
+
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(noncePrefix);
+        this.header = ByteBuffer.allocate(HEADER_LENGTH)
+            .put(MAGIC)
+            .put(VERSION)
+            .putShort((short) keyId)
+            .putInt(chunkSize)
+            .put(noncePrefix)
+            .array();
+        out.write(header);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            // Um bloco cheio só é gravado quando chegam mais dados: até lá ele pode ser o último
+            if (buffered == buffer.length) {
+                writeChunk(false);
+            }
+            int n = Math.min(len, buffer.length - buffered);
+            System.arraycopy(b, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        out.flush();
+    }
+
+    /**
+     * Grava o último bloco (com a marca de final) e fecha o fluxo de destino.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeChunk(true);
+            out.flush();
+        } finally {
+            closed = true;
+            Arrays.fill(buffer, (byte) 0);
+            out.close();
+        }
+    }
+
+    private void writeChunk(boolean last) throws IOException {
+        if (chunkIndex > 0xFFFFFFFFL) {
+            throw new IOException("Arquivo excede o número máximo de blocos");
+        }
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(header, chunkIndex, last)));
+            cipher.updateAAD(header);
+            int length = cipher.doFinal(buffer, 0, buffered, encrypted, 0);
+            out.write(encrypted, 0, length);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Erro ao criptografar bloco " + chunkIndex, e);
+        }
+        Arrays.fill(buffer, 0, buffered, (byte) 0);
+        buffered = 0;
+        chunkIndex++;
+    }
+
+    /**
+     * Nonce de 12 bytes: prefixo aleatório do arquivo, índice do bloco e marca de último bloco.
+     */
+    static byte[] nonce(byte[] header, long chunkIndex, boolean last) {
+        return ByteBuffer.allocate(12)
+            .put(header, HEADER_LENGTH - NONCE_PREFIX_LENGTH, NONCE_PREFIX_LENGTH)
+            .putInt((int) chunkIndex)
+            .put((byte) (last ? 1 : 0))
+            .array();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Fluxo fechado");
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.securepassmanager.security;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trie compactada e somente leitura com os dicionários do estimador de força de senha.
+ * O arquivo é lido direto do buffer (mapeado em memória quando o recurso está em disco),
+ * sem materializar nenhuma palavra no heap.
+ *
+ * <p>Formato: cabeçalho {@code "SPMT"}, versão, nomes e tamanhos dos dicionários e o
+ * deslocamento da raiz. Cada nó ocupa {@code 5 + 4 * filhos} bytes: quantidade de filhos
+ * (u8), dicionário em que a palavra termina ali (u8, 0 = não terminal), posição da palavra
+ * no dicionário (u24) e os filhos ordenados por caractere, como pares caractere (u8) e
+ * deslocamento (u24). Palavras são ASCII imprimível em minúsculas; quando a mesma palavra
+ * aparece em mais de um dicionário, vale a posição mais baixa.
+ *
+ * <p>O arquivo versionado em {@code strength/dictionaries.trie} é gerado por {@link #main}
+ * a partir das listas de texto do mesmo diretório.
+ */
+public final class CompactTrie {
+    private static final byte[] MAGIC = {'S', 'P', 'M', 'T'};
+    private static final int VERSION = 1;
+    private static final int NODE_HEADER_BYTES = 5;
+    private static final int CHILD_BYTES = 4;
+    private static final int MAX_U24 = (1 << 24) - 1;
+
+    /**
+     * Recebe cada palavra do dicionário encontrada a partir da posição inicial.
+     * {@code end} é exclusivo; {@code dictionary} começa em 1.
+     */
+    public interface MatchConsumer {
+        void accept(int end, int dictionary, int rank);
+    }
+
+    private final ByteBuffer data;
+    private final String[] dictionaryNames;
+    private final int[] dictionarySizes;
+    private final int root;
+
+    CompactTrie(ByteBuffer data) {
+        this.data = data;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data.limit() <= i || data.get(i) != MAGIC[i]) {
+                throw new IllegalArgumentException("Arquivo de dicionários inválido");
+            }
+        }
+        int position = MAGIC.length;
+        int version = data.get(position++) & 0xff;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versão de dicionários não suportada: " + version);
+        }
+        int count = data.get(position++) & 0xff;
+        this.dictionaryNames = new String[count];
+        this.dictionarySizes = new int[count];
+        for (int d = 0; d < count; d++) {
+            int nameLength = data.get(position++) & 0xff;
+            byte[] name = new byte[nameLength];
+            data.get(position, name);
+            position += nameLength;
+            dictionaryNames[d] = new String(name, StandardCharsets.US_ASCII);
+            dictionarySizes[d] = data.getInt(position);
+            position += Integer.BYTES;
+        }
+        this.root = data.getInt(position);
+    }
+
+    /**
+     * Abre a trie mapeando o arquivo em memória.
+     */
+    public static CompactTrie open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CompactTrie(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Abre a trie de um recurso do classpath. Recursos em disco são mapeados em memória;
+     * dentro de um JAR o conteúdo é copiado uma vez para um buffer direto.
+     */
+    public static CompactTrie fromResource(String name) throws IOException {
+        URL url = CompactTrie.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IOException("Recurso não encontrado: " + name);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Path.of(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Caminho inválido para o recurso: " + url, e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            byte[] bytes = in.readAllBytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return new CompactTrie(buffer);
+        }
+    }
+
+    public int dictionaryCount() {
+        return dictionaryNames.length;
+    }
+
+    /**
+     * Nome do dicionário; os identificadores começam em 1.
+     */
+    public String dictionaryName(int dictionary) {
+        return dictionaryNames[dictionary - 1];
+    }
+
+    public int dictionarySize(int dictionary) {
+        return dictionarySizes[dictionary - 1];
+    }
+
+    /**
+     * Posição da palavra no dicionário em que ela é mais comum, ou 0 se não está na trie.
+     */
+    public int rank(CharSequence word) {
+        int node = root;
+        for (int i = 0; i < word.length() && node >= 0; i++) {
+            node = child(node, word.charAt(i));
+        }
+        return node >= 0 && dictionaryAt(node) != 0 ? rankAt(node) : 0;
+    }
+
+    /**
+     * Percorre a trie uma única vez a partir de {@code text[start]} e informa todas as
+     * palavras que começam ali e terminam até {@code end}.
+     */
+    public void matchPrefixes(char[] text, int start, int end, MatchConsumer consumer) {
+        int node = root;
+        for (int i = start; i < end; i++) {
+            node = child(node, text[i]);
+            if (node < 0) {
+                return;
+            }
+            int dictionary = dictionaryAt(node);
+            if (dictionary != 0) {
+                consumer.accept(i + 1, dictionary, rankAt(node));
+            }
+        }
+    }
+
+    private int dictionaryAt(int node) {
+        return data.get(node + 1) & 0xff;
+    }
+
+    private int rankAt(int node) {
+        return u24(node + 2);
+    }
+
+    private int child(int node, char c) {
+        if (c > 0xff) {
+            return -1;
+        }
+        int low = 0;
+        int high = (data.get(node) & 0xff) - 1;
+        int children = node + NODE_HEADER_BYTES;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = children + middle * CHILD_BYTES;
+            int key = data.get(entry) & 0xff;
+            if (key < c) {
+                low = middle + 1;
+            } else if (key > c) {
+                high = middle - 1;
+            } else {
+                return u24(entry + 1);
+            }
+        }
+        return -1;
+    }
+
+    private int u24(int index) {
+        return (data.get(index) & 0xff) << 16 | (data.get(index + 1) & 0xff) << 8 | (data.get(index + 2) & 0xff);
+    }
+
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int dictionary;
+        int rank;
+        int offset;
+    }
+
+    /**
+     * Empacota os dicionários (na ordem do mapa) no formato binário da trie. A posição de
+     * cada palavra é a da sua primeira ocorrência na lista.
+     */
+    public static byte[] pack(Map<String, List<String>> dictionaries) {
+        if (dictionaries.size() > 0xff) {
+            throw new IllegalArgumentException("Dicionários demais: " + dictionaries.size());
+        }
+        Node rootNode = new Node();
+        List<byte[]> names = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        int dictionary = 0;
+        for (Map.Entry<String, List<String>> list : dictionaries.entrySet()) {
+            dictionary++;
+            names.add(list.getKey().getBytes(StandardCharsets.US_ASCII));
+            Set<String> seen = new HashSet<>();
+            int rank = 0;
+            for (String word : list.getValue()) {
+                if (word.isEmpty() || !seen.add(word)) {
+                    continue;
+                }
+                Node node = rootNode;
+                for (int i = 0; i < word.length(); i++) {
+                    char c = word.charAt(i);
+                    if (c < 0x20 || c > 0x7e || Character.isUpperCase(c)) {
+                        throw new IllegalArgumentException("Palavra fora do formato (ASCII minúsculo): " + word);
+                    }
+                    node = node.children.computeIfAbsent(c, k -> new Node());
+                }
+                rank++;
+                if (node.dictionary == 0 || rank < node.rank) {
+                    node.dictionary = dictionary;
+                    node.rank = rank;
+                }
+            }
+            if (rank > MAX_U24) {
+                throw new IllegalArgumentException("Dicionário grande demais: " + list.getKey());
+            }
+            sizes.add(rank);
+        }
+
+        int headerBytes = MAGIC.length + 2 + Integer.BYTES;
+        for (byte[] name : names) {
+            headerBytes += 1 + name.length + Integer.BYTES;
+        }
+        // Nós em ordem de largura: os primeiros níveis, os mais visitados, ficam juntos
+        List<Node> order = new ArrayList<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(rootNode);
+        int offset = headerBytes;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            node.offset = offset;
+            offset += NODE_HEADER_BYTES + CHILD_BYTES * node.children.size();
+            order.add(node);
+            queue.addAll(node.children.values());
+        }
+        if (offset > MAX_U24) {
+            throw new IllegalArgumentException("Dicionários grandes demais para a trie: " + offset + " bytes");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(offset);
+        out.put(MAGIC).put((byte) VERSION).put((byte) names.size());
+        for (int d = 0; d < names.size(); d++) {
+            out.put((byte) names.get(d).length).put(names.get(d)).putInt(sizes.get(d));
+        }
+        out.putInt(rootNode.offset);
+        for (Node node : order) {
+            out.put((byte) node.children.size()).put((byte) node.dictionary);
+            putU24(out, node.rank);
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                out.put((byte) child.getKey().charValue());
+                putU24(out, child.getValue().offset);
+            }
+        }
+        return out.array();
+    }
+
+    private static void putU24(ByteBuffer out, int value) {
+        out.put((byte) (value >>> 16)).put((byte) (value >>> 8)).put((byte) value);
+    }
+
+    /**
+     * Lê uma lista com uma palavra por linha, ignorando linhas vazias e comentários (#).
+     */
+    public static List<String> readWordList(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        in.transferTo(bytes);
+        List<String> words = new ArrayList<>();
+        for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+            String word = line.trim().toLowerCase();
+            if (!word.isEmpty() && !word.startsWith("#")) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gera o arquivo da trie: {@code CompactTrie <saída> <lista.txt>...}. O nome de cada
+     * dicionário é o nome do arquivo sem a extensão.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompactTrie <saída.trie> <lista.txt>...");
+            System.exit(1);
+        }
+        Map<String, List<String>> dictionaries = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            Path list = Path.of(args[i]);
+            String name = list.getFileName().toString().replaceFirst("\\.txt$", "");
+            try (InputStream in = Files.newInputStream(list)) {
+                dictionaries.put(name, readWordList(in));
+            }
+        }
+        byte[] packed = pack(dictionaries);
+        Files.write(Path.of(args[0]), packed);
+        System.out.println("Trie gerada: " + packed.length + " bytes");
+    }
+}
@@ -1,12 +1,37 @@
 package com.securepassmanager.security;
 
+import com.securepassmanager.jfr.BcryptEvent;
+import com.securepassmanager.jfr.CipherEvent;
+import com.securepassmanager.metrics.LatencyHistogram;
+import com.securepassmanager.metrics.MetricsRegistry;
+import com.securepassmanager.model.User;
+import com.securepassmanager.util.AppConfig;
 import org.mindrot.jbcrypt.BCrypt;
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Serviço responsável pela criptografia e descriptografia de senhas.
@@ -16,17 +41,104 @@ public class EncryptionService {
     private static final String AES_ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 128;
-    private static final int BCRYPT_ROUNDS = 12;
+    // Cabeçalho do texto cifrado: magic, versão do formato e identificador da chave (2 bytes)
+    private static final int HEADER_LENGTH = 4;
+    private static final byte HEADER_MAGIC = 0x4B;
+    private static final byte HEADER_VERSION = 0x01;
+    private static final long DEFAULT_BCRYPT_TARGET = 250; // milissegundos
     private static final int MIN_PASSWORD_LENGTH = 12;
+    private static final int MIN_PASSWORD_SCORE = 3;
     private static final int MAX_LOGIN_ATTEMPTS = 5;
     private static final long LOCKOUT_DURATION = 15 * 60 * 1000; // 15 minutos
+    private static final int MAX_TRACKED_ACCOUNTS = 10_000;
+    private static final long DEFAULT_UNLOCK_TARGET = 500; // milissegundos
+    private static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000; // 5 minutos
+    private static final int REHASH_QUEUE_SIZE = 64;
+    // Fila limitada: cada tarefa guarda uma senha em texto claro. Com a fila cheia a tarefa
+    // é descartada e o hash é recalculado num próximo login
+    private static final ExecutorService REHASH_EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(REHASH_QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "bcrypt-rehash");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    private static final PasswordGenerator PASSWORD_GENERATOR = PasswordGenerator.defaultGenerator(MIN_PASSWORD_LENGTH);
 
-    private final SecretKey secretKey;
-    private int loginAttempts = 0;
-    private long lastFailedAttempt = 0;
+    private static final float UTF8_MAX_BYTES_PER_CHAR = 3.0f;
+    private static final int SCRATCH_BUFFER_SIZE = 256;
 
-    public EncryptionService() throws Exception {
-        this.secretKey = KeyManager.getOrCreateKey();
+    // Cipher.getInstance é caro; cada thread reutiliza sua própria instância
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(AES_ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException("AES/GCM indisponível", e);
+        }
+    });
+    private static final LatencyHistogram ENCRYPT_LATENCY = MetricsRegistry.global().histogram("crypto.encrypt");
+    private static final LatencyHistogram DECRYPT_LATENCY = MetricsRegistry.global().histogram("crypto.decrypt");
+    private static final LatencyHistogram HASH_LATENCY = MetricsRegistry.global().histogram("crypto.hash");
+    private static final LatencyHistogram VERIFY_LATENCY = MetricsRegistry.global().histogram("crypto.verify");
+
+    private static final ThreadLocal<byte[]> IV_BUFFER = ThreadLocal.withInitial(() -> new byte[GCM_IV_LENGTH]);
+    private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocal.withInitial(() -> new byte[HEADER_LENGTH]);
+    private static final ThreadLocal<ByteBuffer> PLAINTEXT_BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(SCRATCH_BUFFER_SIZE));
+
+    private static final class BcryptCost {
+        static final int ROUNDS = AppConfig.getString("bcrypt.cost", null) != null
+            ? configuredCost(AppConfig.getInt("bcrypt.cost", BcryptCostCalibrator.MIN_COST))
+            : BcryptCostCalibrator.calibrate(AppConfig.getLong("bcrypt.target.ms", DEFAULT_BCRYPT_TARGET));
+    }
+
+    // Hash de uma senha aleatória descartada, com o custo atual; gerado no primeiro uso
+    private static final class UnknownAccountHash {
+        static final String HASH = BCrypt.hashpw(UUID.randomUUID().toString(), BCrypt.gensalt(bcryptRounds()));
+    }
+
+    private final Supplier<KeyRing> keyRing;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final LoginAdmissionController admissionController;
+    // Falhas de login por conta, para que o bloqueio de uma conta não afete as demais
+    private final Map<String, FailedLogins> failedLogins = new ConcurrentHashMap<>();
+
+    private static final class FailedLogins {
+        int count;
+        long lastFailure;
+
+        boolean isLocked(long now) {
+            return count >= MAX_LOGIN_ATTEMPTS && now - lastFailure < LOCKOUT_DURATION;
+        }
+    }
+
+    /**
+     * Serviço sem chaves: hashes, login e geração de senhas. Criptografar ou descriptografar
+     * exige o serviço de uma sessão desbloqueada ({@link VaultSession#encryption()}).
+     */
+    public EncryptionService() {
+        this(() -> {
+            throw new IllegalStateException("Cofre bloqueado. Desbloqueie-o com a senha mestra para acessar as senhas.");
+        }, LoginAdmissionController.shared());
+    }
+
+    EncryptionService(KeyRing keyRing) {
+        this(keyRing, LoginAdmissionController.shared());
+    }
+
+    EncryptionService(KeyRing keyRing, LoginAdmissionController admissionController) {
+        this(() -> keyRing, admissionController);
+    }
+
+    EncryptionService(Supplier<KeyRing> keyRing, LoginAdmissionController admissionController) {
+        this.keyRing = keyRing;
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Serviço preso a um chaveiro mantido pelo chamador (testes e cenários de carga).
+     */
+    public static EncryptionService forKeyRing(KeyRing keyRing) {
+        return new EncryptionService(keyRing);
     }
 
     /**
@@ -37,39 +149,370 @@ public class EncryptionService {
             throw new IllegalArgumentException("Senha não pode ser nula ou vazia");
         }
 
+        byte[] plaintext = password.getBytes(StandardCharsets.UTF_8);
+        try {
+            return encryptToBase64(ByteBuffer.wrap(plaintext));
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /**
+     * Criptografa uma senha recebida como char[]. A codificação UTF-8 é feita em um buffer
+     * temporário que é apagado antes do retorno; o array do chamador não é alterado.
+     */
+    public String encryptPassword(char[] password) throws Exception {
+        if (password == null || password.length == 0) {
+            throw new IllegalArgumentException("Senha não pode ser nula ou vazia");
+        }
+
+        ByteBuffer plaintext = ByteBuffer.allocate((int) (password.length * UTF8_MAX_BYTES_PER_CHAR));
+        try {
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+            CoderResult result = encoder.encode(CharBuffer.wrap(password), plaintext, true);
+            if (result.isError()) {
+                throw new IllegalArgumentException("Senha contém caracteres inválidos");
+            }
+            encoder.flush(plaintext);
+            plaintext.flip();
+            return encryptToBase64(plaintext);
+        } finally {
+            Arrays.fill(plaintext.array(), (byte) 0);
+        }
+    }
+
+    /**
+     * Criptografa o conteúdo restante de {@code plaintext} com a chave atual do chaveiro e
+     * grava cabeçalho || IV || dados || tag em {@code output}, que pode ser um buffer direto.
+     * O cabeçalho identifica a chave usada. Retorna a quantidade de bytes gravados.
+     */
+    public int encrypt(ByteBuffer plaintext, ByteBuffer output) throws Exception {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        int inputBytes = plaintext.remaining();
+        int written = ENCRYPT_LATENCY.time(() -> encryptUnmetered(plaintext, output));
+        commitCipherEvent(event, "encrypt", keyRing.get().currentKeyId(), inputBytes, written);
+        return written;
+    }
+
+    private int encryptUnmetered(ByteBuffer plaintext, ByteBuffer output) throws Exception {
+        int required = encryptedLength(plaintext.remaining());
+        if (output.remaining() < required) {
+            throw new IllegalArgumentException("Buffer de saída insuficiente: necessário " + required + " bytes");
+        }
+
+        KeyRing keys = keyRing.get();
+        int keyId = keys.currentKeyId();
+        SecretKey key = keys.getKey(keyId);
+        byte[] header = HEADER_BUFFER.get();
+        writeHeader(header, keyId);
+
         byte[] iv = new byte[GCM_IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
-        
-        Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
-        
-        byte[] encryptedBytes = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
-        byte[] combined = new byte[iv.length + encryptedBytes.length];
-        System.arraycopy(iv, 0, combined, 0, iv.length);
-        System.arraycopy(encryptedBytes, 0, combined, iv.length, encryptedBytes.length);
-        
-        return Base64.getEncoder().encodeToString(combined);
+        secureRandom.nextBytes(iv);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        cipher.updateAAD(header);
+        output.put(header);
+        output.put(iv);
+        return HEADER_LENGTH + GCM_IV_LENGTH + cipher.doFinal(plaintext, output);
+    }
+
+    /**
+     * Descriptografa o conteúdo restante de {@code ciphertext} diretamente em {@code output},
+     * que pode ser um buffer direto. A chave é escolhida pelo identificador do cabeçalho;
+     * textos no formato antigo (IV || dados || tag) usam a chave legada.
+     * Retorna a quantidade de bytes gravados.
+     */
+    public int decrypt(ByteBuffer ciphertext, ByteBuffer output) throws Exception {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        int inputBytes = ciphertext.remaining();
+        int keyId = readKeyId(ciphertext);
+        int written = DECRYPT_LATENCY.time(() -> decryptUnmetered(ciphertext, output));
+        commitCipherEvent(event, "decrypt", keyId >= 0 ? keyId : KeyRing.LEGACY_KEY_ID, inputBytes, written);
+        return written;
+    }
+
+    private static void commitCipherEvent(CipherEvent event, String operation, int keyId, int inputBytes, int outputBytes) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.keyId = keyId;
+            event.inputBytes = inputBytes;
+            event.outputBytes = outputBytes;
+            event.commit();
+        }
+    }
+
+    private int decryptUnmetered(ByteBuffer ciphertext, ByteBuffer output) throws Exception {
+        if (ciphertext.remaining() < GCM_IV_LENGTH + GCM_TAG_LENGTH / 8) {
+            throw new IllegalArgumentException("Dados criptografados inválidos");
+        }
+        int start = ciphertext.position();
+        int keyId = readKeyId(ciphertext);
+        int required = decryptedLength(ciphertext.remaining()) - (keyId >= 0 ? HEADER_LENGTH : 0);
+        if (output.remaining() < required) {
+            throw new IllegalArgumentException("Buffer de saída insuficiente: necessário " + required + " bytes");
+        }
+
+        KeyRing keys = keyRing.get();
+        SecretKey legacyKey = keys.getKey(KeyRing.LEGACY_KEY_ID);
+        if (keyId >= 0) {
+            SecretKey key = keys.getKey(keyId);
+            if (key != null) {
+                try {
+                    byte[] header = HEADER_BUFFER.get();
+                    ciphertext.get(header);
+                    return decryptWith(key, header, ciphertext, output);
+                } catch (AEADBadTagException e) {
+                    // Um texto antigo pode começar, por acaso, com bytes iguais ao cabeçalho
+                    if (legacyKey == null) {
+                        throw e;
+                    }
+                    ciphertext.position(start);
+                }
+            }
+        }
+        if (legacyKey == null) {
+            throw new IllegalStateException("Chave de criptografia não encontrada no chaveiro");
+        }
+        return decryptWith(legacyKey, null, ciphertext, output);
+    }
+
+    private int decryptWith(SecretKey key, byte[] aad, ByteBuffer ciphertext, ByteBuffer output) throws Exception {
+        byte[] iv = IV_BUFFER.get();
+        ciphertext.get(iv);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        return cipher.doFinal(ciphertext, output);
+    }
+
+    private static void writeHeader(byte[] header, int keyId) {
+        header[0] = HEADER_MAGIC;
+        header[1] = HEADER_VERSION;
+        header[2] = (byte) (keyId >>> 8);
+        header[3] = (byte) keyId;
+    }
+
+    /**
+     * Lê, sem consumir, o identificador de chave do cabeçalho; retorna -1 se o texto
+     * cifrado não tiver cabeçalho (formato antigo).
+     */
+    private static int readKeyId(ByteBuffer ciphertext) {
+        int start = ciphertext.position();
+        if (ciphertext.remaining() < HEADER_LENGTH + GCM_IV_LENGTH + GCM_TAG_LENGTH / 8
+                || ciphertext.get(start) != HEADER_MAGIC
+                || ciphertext.get(start + 1) != HEADER_VERSION) {
+            return -1;
+        }
+        return ((ciphertext.get(start + 2) & 0xff) << 8) | (ciphertext.get(start + 3) & 0xff);
+    }
+
+    /**
+     * Indica se a senha criptografada usa uma chave diferente da atual (ou o formato
+     * antigo) e deve ser criptografada novamente na próxima gravação.
+     */
+    public boolean needsReEncryption(String encryptedPassword) {
+        if (encryptedPassword == null || encryptedPassword.isEmpty()) {
+            return false;
+        }
+        byte[] decoded = Base64.getDecoder().decode(encryptedPassword);
+        return readKeyId(ByteBuffer.wrap(decoded)) != keyRing.get().currentKeyId();
+    }
+
+    /**
+     * Mesmo que {@link #needsReEncryption(String)} para o texto cifrado já decodificado
+     * (por exemplo, lido do cache fora do heap). Não altera a posição do buffer.
+     */
+    public boolean needsReEncryption(ByteBuffer ciphertext) {
+        return ciphertext.hasRemaining() && readKeyId(ciphertext) != keyRing.get().currentKeyId();
+    }
+
+    /**
+     * Criptografa novamente uma senha com a chave atual, se necessário. Retorna o
+     * próprio valor recebido quando ele já usa a chave atual.
+     */
+    public String reEncrypt(String encryptedPassword) throws Exception {
+        if (!needsReEncryption(encryptedPassword)) {
+            return encryptedPassword;
+        }
+        ByteBuffer plaintext = decryptToScratch(encryptedPassword);
+        try {
+            return encryptToBase64(plaintext);
+        } finally {
+            wipe(plaintext);
+        }
+    }
+
+    /**
+     * Desbloqueia o cofre do usuário com a senha mestra, derivando a chave que protege o
+     * chaveiro. O tempo alvo do desbloqueio e o tempo de inatividade até o bloqueio vêm de
+     * vault.unlock.target.ms e vault.idle.timeout.ms em application.properties.
+     */
+    public VaultSession openVaultSession(User user, String masterPassword) throws Exception {
+        return VaultSession.open(user, masterPassword, KeyManager.loadLegacyKeyRing(), unlockTargetMillis(),
+            AppConfig.getLong("vault.idle.timeout.ms", DEFAULT_IDLE_TIMEOUT));
+    }
+
+    public static long unlockTargetMillis() {
+        return AppConfig.getLong("vault.unlock.target.ms", DEFAULT_UNLOCK_TARGET);
+    }
+
+    /**
+     * Gera uma nova chave no chaveiro; as próximas criptografias passam a usá-la. Em uma
+     * sessão do cofre, use {@link VaultSession#rotateKey(User)}, que também salva a chave
+     * no registro do usuário.
+     */
+    public int rotateKey() throws Exception {
+        return keyRing.get().rotate();
+    }
+
+    /**
+     * Tamanho do resultado de {@link #encrypt(ByteBuffer, ByteBuffer)} para um texto claro.
+     */
+    public static int encryptedLength(int plaintextLength) {
+        return HEADER_LENGTH + GCM_IV_LENGTH + plaintextLength + GCM_TAG_LENGTH / 8;
+    }
+
+    /**
+     * Limite superior do tamanho do texto claro correspondente a um texto cifrado.
+     */
+    public static int decryptedLength(int ciphertextLength) {
+        return Math.max(0, ciphertextLength - GCM_IV_LENGTH - GCM_TAG_LENGTH / 8);
+    }
+
+    /**
+     * Abre um fluxo que criptografa em blocos autenticados com a chave atual do chaveiro,
+     * para arquivos grandes demais para um único doFinal (exportações do cofre).
+     */
+    public OutputStream encryptingStream(OutputStream out) throws IOException {
+        KeyRing keys = keyRing.get();
+        return new ChunkedAeadOutputStream(out, keys.currentKey(), keys.currentKeyId(),
+            ChunkedAeadOutputStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Abre para leitura um arquivo gravado por {@link #encryptingStream(OutputStream)}.
+     */
+    public InputStream decryptingStream(InputStream in) throws IOException {
+        return new ChunkedAeadInputStream(in, keyRing.get()::getKey);
     }
 
     /**
      * Descriptografa uma senha usando AES.
      */
     public String decryptPassword(String encryptedPassword) throws Exception {
+        ByteBuffer plaintext = decryptToScratch(encryptedPassword);
+        try {
+            return StandardCharsets.UTF_8.decode(plaintext).toString();
+        } finally {
+            wipe(plaintext);
+        }
+    }
+
+    /**
+     * Descriptografa uma senha a partir do texto cifrado binário (sem Base64), que pode
+     * estar num buffer direto, como os do cache fora do heap; nada é copiado para o heap
+     * além do texto claro.
+     */
+    public String decryptPassword(ByteBuffer ciphertext) throws Exception {
+        ByteBuffer plaintext = decryptToScratch(ciphertext);
+        try {
+            return StandardCharsets.UTF_8.decode(plaintext).toString();
+        } finally {
+            wipe(plaintext);
+        }
+    }
+
+    /**
+     * Descriptografa uma senha diretamente em um char[] fornecido pelo chamador.
+     * Retorna a quantidade de caracteres gravados; os buffers intermediários são apagados.
+     */
+    public int decryptPassword(String encryptedPassword, char[] destination) throws Exception {
+        ByteBuffer plaintext = decryptToScratch(encryptedPassword);
+        try {
+            CharBuffer out = CharBuffer.wrap(destination);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+            CoderResult result = decoder.decode(plaintext, out, true);
+            if (result.isOverflow()) {
+                Arrays.fill(destination, '\0');
+                throw new IllegalArgumentException("Array de destino insuficiente para a senha");
+            }
+            if (result.isError()) {
+                Arrays.fill(destination, '\0');
+                throw new IllegalStateException("Senha descriptografada não é UTF-8 válido");
+            }
+            decoder.flush(out);
+            return out.position();
+        } finally {
+            wipe(plaintext);
+        }
+    }
+
+    /**
+     * Descriptografa uma senha para um novo char[], que deve ser apagado pelo chamador.
+     */
+    public char[] decryptPasswordToChars(String encryptedPassword) throws Exception {
+        char[] buffer = new char[decryptedLength(encryptedBase64Length(encryptedPassword))];
+        try {
+            int length = decryptPassword(encryptedPassword, buffer);
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            Arrays.fill(buffer, '\0');
+        }
+    }
+
+    private String encryptToBase64(ByteBuffer plaintext) throws Exception {
+        byte[] combined = new byte[encryptedLength(plaintext.remaining())];
+        encrypt(plaintext, ByteBuffer.wrap(combined));
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    /**
+     * Descriptografa para o buffer temporário da thread atual, que é reutilizado entre
+     * chamadas e deve ser apagado com {@link #wipe(ByteBuffer)} após o uso.
+     */
+    private ByteBuffer decryptToScratch(String encryptedPassword) throws Exception {
         if (encryptedPassword == null || encryptedPassword.isEmpty()) {
             throw new IllegalArgumentException("Senha criptografada não pode ser nula ou vazia");
         }
 
-        byte[] decoded = Base64.getDecoder().decode(encryptedPassword);
-        byte[] iv = new byte[GCM_IV_LENGTH];
-        System.arraycopy(decoded, 0, iv, 0, iv.length);
-        
-        Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
-        
-        byte[] decryptedBytes = cipher.doFinal(decoded, iv.length, decoded.length - iv.length);
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
+        return decryptToScratch(ByteBuffer.wrap(Base64.getDecoder().decode(encryptedPassword)));
+    }
+
+    private ByteBuffer decryptToScratch(ByteBuffer ciphertext) throws Exception {
+        ByteBuffer plaintext = scratchBuffer(decryptedLength(ciphertext.remaining()));
+        decrypt(ciphertext, plaintext);
+        plaintext.flip();
+        return plaintext;
+    }
+
+    private static int encryptedBase64Length(String encryptedPassword) {
+        if (encryptedPassword == null) {
+            return 0;
+        }
+        int padding = encryptedPassword.endsWith("==") ? 2 : encryptedPassword.endsWith("=") ? 1 : 0;
+        return encryptedPassword.length() / 4 * 3 - padding;
+    }
+
+    private static ByteBuffer scratchBuffer(int capacity) {
+        ByteBuffer buffer = PLAINTEXT_BUFFER.get();
+        if (buffer.capacity() < capacity) {
+            wipe(buffer);
+            buffer = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+            PLAINTEXT_BUFFER.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void wipe(ByteBuffer buffer) {
+        Arrays.fill(buffer.array(), (byte) 0);
+        buffer.clear();
     }
 
     /**
@@ -77,41 +520,131 @@ public class EncryptionService {
      */
     public String hashPassword(String password) {
         validatePasswordStrength(password);
-        return BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_ROUNDS));
+        BcryptEvent event = new BcryptEvent();
+        event.begin();
+        String hash = HASH_LATENCY.time(() -> BCrypt.hashpw(password, BCrypt.gensalt(bcryptRounds())));
+        if (event.shouldCommit()) {
+            event.operation = "hash";
+            event.cost = bcryptRounds();
+            event.matched = true;
+            event.commit();
+        }
+        return hash;
+    }
+
+    private static boolean verifyBcrypt(String password, String hashedPassword) {
+        BcryptEvent event = new BcryptEvent();
+        event.begin();
+        boolean matched = VERIFY_LATENCY.time(() -> BCrypt.checkpw(password, hashedPassword));
+        if (event.shouldCommit()) {
+            event.operation = "verify";
+            event.cost = BcryptCostCalibrator.costOf(hashedPassword);
+            event.matched = matched;
+            event.commit();
+        }
+        return matched;
     }
 
     /**
-     * Verifica se uma senha corresponde a um hash bcrypt.
+     * Custo configurado em bcrypt.cost, limitado a [MIN_COST, MAX_COST]: abaixo do mínimo o
+     * hash cai rápido demais num ataque offline, acima do máximo cada login leva segundos.
      */
-    public boolean verifyPassword(String password, String hashedPassword) {
-        if (isAccountLocked()) {
-            throw new SecurityException("Conta bloqueada temporariamente. Tente novamente mais tarde.");
+    static int configuredCost(int cost) {
+        int clamped = Math.max(BcryptCostCalibrator.MIN_COST, Math.min(BcryptCostCalibrator.MAX_COST, cost));
+        if (clamped != cost) {
+            System.err.println("Aviso: bcrypt.cost=" + cost + " fora do intervalo [" + BcryptCostCalibrator.MIN_COST
+                + ", " + BcryptCostCalibrator.MAX_COST + "]; usando " + clamped);
         }
+        return clamped;
+    }
 
-        boolean isValid = BCrypt.checkpw(password, hashedPassword);
-        if (!isValid) {
-            loginAttempts++;
-            lastFailedAttempt = System.currentTimeMillis();
-            if (loginAttempts >= MAX_LOGIN_ATTEMPTS) {
-                throw new SecurityException("Muitas tentativas falhas. Conta bloqueada temporariamente.");
-            }
-        } else {
-            loginAttempts = 0;
+    /**
+     * Fator de custo do bcrypt usado em novos hashes: bcrypt.cost, se configurado, ou o
+     * maior custo que cabe em bcrypt.target.ms neste hardware (medido uma vez por processo).
+     */
+    public static int bcryptRounds() {
+        return BcryptCost.ROUNDS;
+    }
+
+    /**
+     * Indica se o hash foi gerado com um custo menor que o atual. Um hash mais forte (de
+     * uma máquina mais rápida, por exemplo) é mantido.
+     */
+    public boolean needsRehash(String hashedPassword) {
+        return BcryptCostCalibrator.costOf(hashedPassword) < bcryptRounds();
+    }
+
+    /**
+     * Após um login bem-sucedido, incluindo o segundo fator, recalcula o hash com o custo
+     * atual fora do fluxo da requisição, caso o custo armazenado seja menor. O novo hash é
+     * entregue a {@code onRehash}, que deve persisti-lo numa cópia do usuário. Se a fila de
+     * recálculos estiver cheia, o recálculo fica para um próximo login.
+     */
+    public void rehashIfNeeded(String password, String hashedPassword, Consumer<String> onRehash) {
+        if (!needsRehash(hashedPassword)) {
+            return;
         }
-        return isValid;
+        REHASH_EXECUTOR.execute(() -> {
+            try {
+                onRehash.accept(BCrypt.hashpw(password, BCrypt.gensalt(bcryptRounds())));
+            } catch (Exception e) {
+                System.err.println("Erro ao atualizar o hash da senha mestra: " + e.getMessage());
+            }
+        });
     }
 
-    private boolean isAccountLocked() {
-        if (loginAttempts >= MAX_LOGIN_ATTEMPTS) {
-            long timeSinceLastAttempt = System.currentTimeMillis() - lastFailedAttempt;
-            if (timeSinceLastAttempt < LOCKOUT_DURATION) {
-                return true;
+    /**
+     * Verifica a senha de login de uma conta, passando antes pelo controle de admissão.
+     * Tentativas descartadas não chegam ao bcrypt. O bloqueio por falhas é contado por conta.
+     */
+    public boolean verifyPassword(String accountId, String password, String hashedPassword) {
+        FailedLogins failures = failedLogins.get(accountId);
+        if (failures != null) {
+            synchronized (failures) {
+                if (failures.isLocked(System.currentTimeMillis())) {
+                    throw new LoginThrottledException("Conta bloqueada temporariamente. Tente novamente mais tarde.");
+                }
+            }
+        }
+        if (!admissionController.tryAdmit(accountId)) {
+            throw new LoginThrottledException("Muitas tentativas de login no momento. Tente novamente em instantes.");
+        }
+
+        if (verifyBcrypt(password, hashedPassword)) {
+            failedLogins.remove(accountId);
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (failedLogins.size() >= MAX_TRACKED_ACCOUNTS) {
+            failedLogins.values().removeIf(f -> now - f.lastFailure >= LOCKOUT_DURATION);
+        }
+        failures = failedLogins.computeIfAbsent(accountId, id -> new FailedLogins());
+        synchronized (failures) {
+            if (now - failures.lastFailure >= LOCKOUT_DURATION) {
+                failures.count = 0;
+            }
+            failures.count++;
+            failures.lastFailure = now;
+            if (failures.count >= MAX_LOGIN_ATTEMPTS) {
+                throw new LoginThrottledException("Muitas tentativas falhas. Conta bloqueada temporariamente.");
             }
-            loginAttempts = 0;
         }
         return false;
     }
 
+    /**
+     * Login de um e-mail sem conta: passa pelo mesmo controle de admissão e pelo mesmo
+     * custo de bcrypt de uma conta existente, para que o tempo da resposta não revele quais
+     * e-mails estão cadastrados. Sempre retorna false.
+     */
+    public boolean verifyUnknownAccount(String accountId, String password) {
+        if (!admissionController.tryAdmit(accountId)) {
+            throw new LoginThrottledException("Muitas tentativas de login no momento. Tente novamente em instantes.");
+        }
+        verifyBcrypt(password, UnknownAccountHash.HASH);
+        return false;
+    }
+
     private void validatePasswordStrength(String password) {
         if (password == null || password.length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException("A senha deve ter pelo menos " + MIN_PASSWORD_LENGTH + " caracteres");
@@ -134,45 +667,32 @@ public class EncryptionService {
                 "A senha deve conter letras maiúsculas, minúsculas, números e caracteres especiais"
             );
         }
+
+        // Classes de caracteres não bastam: "Password1234!" passa nelas e cai em segundos
+        PasswordStrengthEstimator.Result strength = PasswordStrengthEstimator.getDefault().estimate(password);
+        if (strength.score() < MIN_PASSWORD_SCORE) {
+            String warning = strength.warning().isEmpty() ? "" : " (" + strength.warning() + ")";
+            throw new IllegalArgumentException("A senha é fácil de adivinhar" + warning
+                + "; evite palavras comuns, datas, sequências e padrões do teclado");
+        }
     }
 
     /**
      * Gera uma senha forte aleatória.
      */
     public String generateStrongPassword(int length) {
-        if (length < MIN_PASSWORD_LENGTH) {
-            length = MIN_PASSWORD_LENGTH;
-        }
-
-        String upperChars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        String lowerChars = "abcdefghijklmnopqrstuvwxyz";
-        String numbers = "0123456789";
-        String specialChars = "!@#$%^&*()_+-=[]{}|;:,.<>?";
-        String allChars = upperChars + lowerChars + numbers + specialChars;
-
-        StringBuilder password = new StringBuilder();
-        SecureRandom random = new SecureRandom();
-
-        // Garante pelo menos um caractere de cada tipo
-        password.append(upperChars.charAt(random.nextInt(upperChars.length())));
-        password.append(lowerChars.charAt(random.nextInt(lowerChars.length())));
-        password.append(numbers.charAt(random.nextInt(numbers.length())));
-        password.append(specialChars.charAt(random.nextInt(specialChars.length())));
-
-        // Preenche o resto da senha
-        for (int i = 4; i < length; i++) {
-            password.append(allChars.charAt(random.nextInt(allChars.length())));
-        }
-
-        // Embaralha a senha
-        char[] passwordArray = password.toString().toCharArray();
-        for (int i = passwordArray.length - 1; i > 0; i--) {
-            int j = random.nextInt(i + 1);
-            char temp = passwordArray[i];
-            passwordArray[i] = passwordArray[j];
-            passwordArray[j] = temp;
+        char[] password = PASSWORD_GENERATOR.generate(length);
+        try {
+            return new String(password);
+        } finally {
+            Arrays.fill(password, '\0');
         }
+    }
 
-        return new String(passwordArray);
+    /**
+     * Gerador compartilhado, para geração em lote de senhas como char[].
+     */
+    public static PasswordGenerator passwordGenerator() {
+        return PASSWORD_GENERATOR;
     }
-} 
\ No newline at end of file
+}
@@ -4,44 +4,84 @@ import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.PosixFilePermissions;
 import java.security.*;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Geração de chaves e leitura dos chaveiros em texto claro de versões anteriores.
+ * Nenhuma chave é gravada em disco: o chaveiro vive cifrado no registro do usuário.
+ */
 public class KeyManager {
     private static final String KEY_FILE = "secure_key.dat";
+    private static final String KEYRING_FILE = "secure_keyring.dat";
+    private static final String CURRENT_PREFIX = "current=";
     private static final int KEY_SIZE = 256;
     private static final String ALGORITHM = "AES";
 
-    public static SecretKey getOrCreateKey() throws Exception {
-        Path keyPath = Paths.get(KEY_FILE);
-        
-        if (Files.exists(keyPath)) {
-            return loadKey(keyPath);
-        } else {
-            SecretKey key = generateKey();
-            saveKey(key, keyPath);
-            return key;
+    /**
+     * Lê o chaveiro antigo deste diretório de trabalho, se houver, para que as senhas
+     * cifradas com ele continuem legíveis depois que as chaves migrarem para o registro
+     * do usuário. Retorna null quando não há chaveiro antigo.
+     */
+    public static KeyRing loadLegacyKeyRing() throws IOException {
+        return loadLegacyKeyRing(Paths.get(""));
+    }
+
+    /**
+     * Lê secure_keyring.dat ou, nas instalações mais antigas, secure_key.dat (importada como
+     * chave {@link KeyRing#LEGACY_KEY_ID}). Os arquivos nunca são reescritos; depois que
+     * todos os usuários da instalação entrarem uma vez, podem ser apagados.
+     */
+    static KeyRing loadLegacyKeyRing(Path directory) throws IOException {
+        Path keyRingPath = directory.resolve(KEYRING_FILE);
+        if (Files.exists(keyRingPath)) {
+            return loadKeyRing(keyRingPath);
+        }
+        Path legacyPath = directory.resolve(KEY_FILE);
+        if (Files.exists(legacyPath)) {
+            return new KeyRing(Map.of(KeyRing.LEGACY_KEY_ID, loadKey(legacyPath)), KeyRing.LEGACY_KEY_ID);
         }
+        return null;
     }
 
-    private static SecretKey generateKey() throws NoSuchAlgorithmException {
+    static SecretKey generateKey() throws NoSuchAlgorithmException {
         KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
         keyGen.init(KEY_SIZE, SecureRandom.getInstanceStrong());
         return keyGen.generateKey();
     }
 
-    private static void saveKey(SecretKey key, Path path) throws IOException {
-        byte[] encoded = key.getEncoded();
-        Files.write(path, encoded);
-        // Define permissões restritas no arquivo
-        Files.setPosixFilePermissions(path, 
-            PosixFilePermissions.fromString("rw-------"));
+    private static KeyRing loadKeyRing(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Map<Integer, SecretKey> keys = new TreeMap<>();
+        Integer current = null;
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (line.startsWith(CURRENT_PREFIX)) {
+                current = Integer.parseInt(line.substring(CURRENT_PREFIX.length()));
+                continue;
+            }
+            int separator = line.indexOf(':');
+            if (separator <= 0) {
+                throw new IOException("Linha inválida no chaveiro: " + path);
+            }
+            int keyId = Integer.parseInt(line.substring(0, separator));
+            byte[] encoded = Base64.getDecoder().decode(line.substring(separator + 1));
+            keys.put(keyId, new SecretKeySpec(encoded, ALGORITHM));
+        }
+        if (current == null || keys.isEmpty()) {
+            throw new IOException("Chaveiro inválido: " + path);
+        }
+        return new KeyRing(keys, current);
     }
 
     private static SecretKey loadKey(Path path) throws IOException {
         byte[] encoded = Files.readAllBytes(path);
         return new SecretKeySpec(encoded, ALGORITHM);
     }
-} 
\ No newline at end of file
+}
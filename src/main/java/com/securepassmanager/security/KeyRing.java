@@ -0,0 +1,156 @@
+package com.securepassmanager.security;
+
+import javax.crypto.SecretKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Conjunto versionado de chaves AES. Cada chave tem um identificador curto gravado no
+ * cabeçalho do texto cifrado; novas criptografias sempre usam a chave mais recente,
+ * enquanto as antigas continuam disponíveis para descriptografia.
+ *
+ * <p>O chaveiro só existe em memória: em disco ele fica apenas cifrado pela senha mestra
+ * no registro do usuário (ver {@link VaultSession}).
+ */
+public class KeyRing {
+    /** Identificador da chave do formato antigo (secure_key.dat), sem cabeçalho. */
+    public static final int LEGACY_KEY_ID = 0;
+    public static final int MAX_KEY_ID = 0xFFFF;
+
+    private final TreeMap<Integer, SecretKey> keys;
+    private volatile int currentKeyId;
+
+    KeyRing(Map<Integer, SecretKey> keys, int currentKeyId) {
+        if (!keys.containsKey(currentKeyId)) {
+            throw new IllegalArgumentException("Chave atual não encontrada no chaveiro");
+        }
+        this.keys = new TreeMap<>(keys);
+        this.currentKeyId = currentKeyId;
+    }
+
+    /**
+     * Chaveiro mantido apenas em memória, com uma chave nova.
+     */
+    public static KeyRing inMemory() throws Exception {
+        return new KeyRing(Map.of(1, KeyManager.generateKey()), 1);
+    }
+
+    public int currentKeyId() {
+        return currentKeyId;
+    }
+
+    public synchronized SecretKey currentKey() {
+        return keys.get(currentKeyId);
+    }
+
+    /**
+     * Retorna a chave com o identificador informado, ou null se não existir.
+     */
+    public synchronized SecretKey getKey(int keyId) {
+        return keys.get(keyId);
+    }
+
+    public synchronized Set<Integer> keyIds() {
+        return Collections.unmodifiableSet(new TreeMap<>(keys).keySet());
+    }
+
+    synchronized Map<Integer, SecretKey> snapshot() {
+        return new TreeMap<>(keys);
+    }
+
+    /**
+     * Acrescenta as chaves que ainda não existem no chaveiro (por exemplo, as do chaveiro
+     * antigo desta instalação) e adota a chave atual mais recente. Chaves com o mesmo
+     * identificador são comparadas pelo conteúdo: duas instalações começam ambas na chave 1,
+     * e aceitar só o identificador deixaria textos cifrados de uma delas ilegíveis.
+     * Retorna true se houve mudança.
+     *
+     * @throws IllegalStateException se algum identificador já existir com outra chave;
+     *                               nesse caso nada é importado
+     */
+    synchronized boolean importKeys(Map<Integer, SecretKey> imported, int importedCurrentKeyId) {
+        List<String> conflicts = new ArrayList<>();
+        for (Map.Entry<Integer, SecretKey> entry : imported.entrySet()) {
+            SecretKey existing = keys.get(entry.getKey());
+            if (existing != null && !sameKey(existing, entry.getValue())) {
+                conflicts.add(entry.getKey() + " (" + fingerprint(existing) + " / " + fingerprint(entry.getValue()) + ")");
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Chaves diferentes com o mesmo identificador: " + String.join(", ", conflicts));
+        }
+        boolean changed = false;
+        for (Map.Entry<Integer, SecretKey> entry : imported.entrySet()) {
+            if (keys.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                changed = true;
+            }
+        }
+        if (importedCurrentKeyId > currentKeyId && keys.containsKey(importedCurrentKeyId)) {
+            currentKeyId = importedCurrentKeyId;
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Gera uma nova chave e torna-a a chave atual. Quem guarda o chaveiro (a sessão do
+     * cofre) precisa cifrá-lo novamente para que a chave sobreviva à sessão.
+     * Retorna o identificador da nova chave.
+     */
+    public synchronized int rotate() throws Exception {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("Chaveiro apagado");
+        }
+        int newKeyId = keys.lastKey() + 1;
+        if (newKeyId > MAX_KEY_ID) {
+            throw new IllegalStateException("Limite de chaves do chaveiro atingido");
+        }
+        keys.put(newKeyId, KeyManager.generateKey());
+        currentKeyId = newKeyId;
+        return newKeyId;
+    }
+
+    /**
+     * Esquece todas as chaves; usado quando a sessão que as abriu é bloqueada.
+     */
+    synchronized void clear() {
+        keys.clear();
+    }
+
+    /**
+     * Impressão digital curta (SHA-256 truncado) de uma chave, para mensagens de conflito.
+     */
+    static String fingerprint(SecretKey key) {
+        byte[] encoded = key.getEncoded();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(encoded);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    private static boolean sameKey(SecretKey a, SecretKey b) {
+        byte[] left = a.getEncoded();
+        byte[] right = b.getEncoded();
+        try {
+            return MessageDigest.isEqual(left, right);
+        } finally {
+            Arrays.fill(left, (byte) 0);
+            Arrays.fill(right, (byte) 0);
+        }
+    }
+}
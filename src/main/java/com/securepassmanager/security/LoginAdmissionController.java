@@ -0,0 +1,202 @@
+package com.securepassmanager.security;
+
+import com.securepassmanager.util.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Controle de admissão para tentativas de login, aplicado antes da verificação bcrypt.
+ * Cada conta tem seu próprio balde de fichas (token bucket) e todas compartilham um balde
+ * global dimensionado pela quantidade de núcleos. Tentativas sem ficha na conta são
+ * descartadas na hora; sem ficha global, aguardam numa fila limitada e são descartadas
+ * quando a fila está cheia ou o tempo de espera acaba.
+ *
+ * <p>Os baldes das contas ficam num mapa LRU limitado: ao passar do limite, o balde usado
+ * há mais tempo é descartado, mesmo que ainda não esteja cheio, para que uma varredura por
+ * muitos emails diferentes não faça o mapa crescer sem limite.
+ */
+public class LoginAdmissionController {
+    private static final int MAX_TRACKED_ACCOUNTS = 10_000;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class Holder {
+        static final LoginAdmissionController SHARED = new LoginAdmissionController(
+            AppConfig.getInt("login.global.rate", Runtime.getRuntime().availableProcessors() * 4),
+            AppConfig.getInt("login.global.burst", Runtime.getRuntime().availableProcessors() * 4),
+            AppConfig.getInt("login.account.per.minute", 10),
+            AppConfig.getInt("login.account.burst", 5),
+            AppConfig.getInt("login.queue.size", 64),
+            AppConfig.getLong("login.queue.wait.ms", 2000),
+            System::nanoTime);
+    }
+
+    private final TokenBucket globalBucket;
+    private final double accountRatePerSecond;
+    private final int accountBurst;
+    private final Semaphore queueSlots;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> accountBuckets;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * @param globalRatePerSecond  fichas globais repostas por segundo
+     * @param globalBurst          capacidade do balde global
+     * @param accountRatePerMinute fichas por conta repostas por minuto
+     * @param accountBurst         capacidade do balde de cada conta
+     * @param maxQueue             tentativas que podem aguardar por uma ficha global
+     * @param maxWaitMillis        tempo máximo de espera na fila
+     * @param clock                fonte de tempo em nanossegundos
+     */
+    public LoginAdmissionController(int globalRatePerSecond, int globalBurst, int accountRatePerMinute,
+                                    int accountBurst, int maxQueue, long maxWaitMillis, LongSupplier clock) {
+        this(globalRatePerSecond, globalBurst, accountRatePerMinute, accountBurst, maxQueue, maxWaitMillis,
+            MAX_TRACKED_ACCOUNTS, clock);
+    }
+
+    LoginAdmissionController(int globalRatePerSecond, int globalBurst, int accountRatePerMinute, int accountBurst,
+                             int maxQueue, long maxWaitMillis, int maxTrackedAccounts, LongSupplier clock) {
+        if (globalRatePerSecond <= 0 || globalBurst <= 0 || accountRatePerMinute <= 0 || accountBurst <= 0) {
+            throw new IllegalArgumentException("Taxas e capacidades devem ser positivas");
+        }
+        this.clock = clock;
+        this.globalBucket = new TokenBucket(globalRatePerSecond, globalBurst, clock.getAsLong());
+        this.accountRatePerSecond = accountRatePerMinute / 60.0;
+        this.accountBurst = accountBurst;
+        this.queueSlots = new Semaphore(Math.max(0, maxQueue));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        this.accountBuckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxTrackedAccounts;
+            }
+        };
+    }
+
+    public static LoginAdmissionController shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Solicita permissão para uma verificação de senha da conta informada.
+     * Retorna false se a tentativa foi descartada; nesse caso a senha não deve ser verificada.
+     */
+    public boolean tryAdmit(String accountId) {
+        long now = clock.getAsLong();
+        TokenBucket account = accountBucket(accountId, now);
+        if (account.tryTake(now) > 0) {
+            shed.increment();
+            return false;
+        }
+
+        long wait = globalBucket.tryTake(now);
+        if (wait == 0) {
+            admitted.increment();
+            return true;
+        }
+        if (maxWaitNanos == 0 || !queueSlots.tryAcquire()) {
+            account.refund();
+            shed.increment();
+            return false;
+        }
+
+        queued.increment();
+        try {
+            long deadline = now + maxWaitNanos;
+            while (true) {
+                long remaining = deadline - clock.getAsLong();
+                if (remaining <= 0) {
+                    account.refund();
+                    shed.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(Math.min(wait, remaining));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    account.refund();
+                    shed.increment();
+                    return false;
+                }
+                wait = globalBucket.tryTake(clock.getAsLong());
+                if (wait == 0) {
+                    admitted.increment();
+                    return true;
+                }
+            }
+        } finally {
+            queueSlots.release();
+        }
+    }
+
+    public long admittedCount() {
+        return admitted.sum();
+    }
+
+    public long queuedCount() {
+        return queued.sum();
+    }
+
+    public long shedCount() {
+        return shed.sum();
+    }
+
+    int trackedAccounts() {
+        synchronized (accountBuckets) {
+            return accountBuckets.size();
+        }
+    }
+
+    private TokenBucket accountBucket(String accountId, long now) {
+        synchronized (accountBuckets) {
+            return accountBuckets.computeIfAbsent(accountId, id -> new TokenBucket(accountRatePerSecond, accountBurst, now));
+        }
+    }
+
+    /**
+     * Balde de fichas com reposição contínua.
+     */
+    static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, double capacity, long now) {
+            this.ratePerNano = ratePerSecond / NANOS_PER_SECOND;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Consome uma ficha e retorna 0, ou retorna quantos nanossegundos faltam para a próxima.
+         */
+        synchronized long tryTake(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerNano));
+        }
+
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.securepassmanager.security;
+
+/**
+ * Tentativa de login recusada antes de verificar a senha: conta bloqueada por falhas
+ * seguidas ou excesso de tentativas no momento. Diferente de uma senha errada, indica
+ * que o cliente deve esperar antes de tentar de novo.
+ */
+public class LoginThrottledException extends SecurityException {
+    private static final long serialVersionUID = 1L;
+
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.securepassmanager.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+
+/**
+ * Derivação da chave de proteção do cofre (KEK) a partir da senha mestra com
+ * PBKDF2-HMAC-SHA256. O número de iterações é calibrado por benchmark no momento da
+ * configuração, para que o desbloqueio leve o tempo desejado neste hardware.
+ */
+public final class MasterKeyDerivation {
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final int SALT_LENGTH = 16;
+    private static final int BENCHMARK_ITERATIONS = 20_000;
+    private static final int BENCHMARK_ROUNDS = 3;
+    public static final int MIN_ITERATIONS = 100_000;
+    public static final int MAX_ITERATIONS = 10_000_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private MasterKeyDerivation() {
+    }
+
+    /**
+     * Mede o custo do PBKDF2 neste hardware e retorna a quantidade de iterações que
+     * leva aproximadamente {@code targetMillis} milissegundos.
+     */
+    public static int calibrateIterations(long targetMillis) {
+        char[] password = "calibracao-kdf".toCharArray();
+        byte[] salt = newSalt();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+            long start = System.nanoTime();
+            Arrays.fill(derive(password, salt, BENCHMARK_ITERATIONS), (byte) 0);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double iterationsPerNano = (double) BENCHMARK_ITERATIONS / Math.max(1, best);
+        long iterations = (long) (iterationsPerNano * targetMillis * 1_000_000L);
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    public static byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Deriva os bytes da KEK; o chamador deve apagá-los após o uso.
+     */
+    public static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_LENGTH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KDF_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("PBKDF2 indisponível", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
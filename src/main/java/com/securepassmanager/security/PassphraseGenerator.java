@@ -0,0 +1,118 @@
+package com.securepassmanager.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Gerador de frases-senha no estilo diceware. A lista de palavras é mapeada em memória
+ * e apenas os deslocamentos de cada palavra ficam no heap. Aceita tanto listas com uma
+ * palavra por linha quanto o formato diceware ("11111&lt;tab&gt;palavra").
+ */
+public class PassphraseGenerator {
+    private static final int RANDOM_BUFFER_SIZE = 4096;
+    private static final int MIN_WORDS = 4;
+
+    private final MappedByteBuffer wordlist;
+    private final int[] wordStarts;
+    private final int[] wordEnds;
+    private final int maxWordBytes;
+    private final BufferedRandom random;
+
+    public PassphraseGenerator(Path wordlistPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(wordlistPath, StandardOpenOption.READ)) {
+            this.wordlist = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int lines = 0;
+        for (int i = 0; i < wordlist.limit(); i++) {
+            if (wordlist.get(i) == '\n') lines++;
+        }
+        int[] starts = new int[lines + 1];
+        int[] ends = new int[lines + 1];
+        int count = 0;
+        int longest = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= wordlist.limit(); i++) {
+            if (i == wordlist.limit() || wordlist.get(i) == '\n') {
+                int end = i;
+                while (end > lineStart && isWhitespace(wordlist.get(end - 1))) end--;
+                int start = end;
+                while (start > lineStart && !isWhitespace(wordlist.get(start - 1))) start--;
+                if (end > start) {
+                    starts[count] = start;
+                    ends[count] = end;
+                    longest = Math.max(longest, end - start);
+                    count++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (count < 2) {
+            throw new IllegalArgumentException("Lista de palavras vazia ou inválida: " + wordlistPath);
+        }
+        this.wordStarts = Arrays.copyOf(starts, count);
+        this.wordEnds = Arrays.copyOf(ends, count);
+        this.maxWordBytes = longest;
+        this.random = new BufferedRandom(RANDOM_BUFFER_SIZE);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    public int wordCount() {
+        return wordStarts.length;
+    }
+
+    /**
+     * Entropia aproximada, em bits, de uma frase com a quantidade de palavras informada.
+     */
+    public double entropyBits(int words) {
+        return words * (Math.log(wordStarts.length) / Math.log(2));
+    }
+
+    /**
+     * Gera uma frase-senha como char[]; o chamador deve apagá-la após o uso.
+     */
+    public synchronized char[] generate(int words, char separator) {
+        if (words < MIN_WORDS) {
+            words = MIN_WORDS;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        CharBuffer wordChars = CharBuffer.allocate(maxWordBytes);
+        char[] result = new char[words * (maxWordBytes + 1)];
+        int length = 0;
+        try {
+            for (int w = 0; w < words; w++) {
+                int index = random.nextIndex(wordStarts.length);
+                ByteBuffer word = wordlist.duplicate();
+                word.limit(wordEnds[index]).position(wordStarts[index]);
+                wordChars.clear();
+                decoder.reset();
+                CoderResult status = decoder.decode(word, wordChars, true);
+                if (status.isError()) {
+                    throw new IllegalStateException("Palavra com codificação inválida na lista");
+                }
+                wordChars.flip();
+                if (w > 0) {
+                    result[length++] = separator;
+                }
+                int wordLength = wordChars.remaining();
+                wordChars.get(result, length, wordLength);
+                length += wordLength;
+            }
+            return Arrays.copyOf(result, length);
+        } finally {
+            Arrays.fill(result, '\0');
+            Arrays.fill(wordChars.array(), '\0');
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.securepassmanager.security;
 
+import com.securepassmanager.jfr.BreachLookupEvent;
+import com.securepassmanager.metrics.Counter;
+import com.securepassmanager.metrics.LatencyHistogram;
+import com.securepassmanager.metrics.MetricsRegistry;
+
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -11,28 +16,75 @@ import java.util.regex.Pattern;
 
 public class PasswordBreachChecker {
     private static final String API_URL = "https://api.pwnedpasswords.com/range/";
+    private static final LatencyHistogram CHECK_LATENCY =
+        MetricsRegistry.global().histogram("breach.check", "client", "httpclient");
+    private static final Counter PREFILTER_NEGATIVE =
+        MetricsRegistry.global().counter("breach.prefilter", "result", "negative");
+    private static final Counter PREFILTER_POSITIVE =
+        MetricsRegistry.global().counter("breach.prefilter", "result", "positive");
     private final HttpClient httpClient;
+    private final String apiUrl;
+    private final BreachFilter prefilter;
 
     public PasswordBreachChecker() {
+        this(API_URL);
+    }
+
+    public PasswordBreachChecker(BreachFilter prefilter) {
+        this(API_URL, prefilter);
+    }
+
+    /**
+     * @param apiUrl URL base da consulta por prefixo (terminada em "/"), por exemplo um
+     *               servidor local que substitui a API durante testes de carga
+     */
+    public PasswordBreachChecker(String apiUrl) {
+        this(apiUrl, null);
+    }
+
+    /**
+     * @param prefilter filtro do corpus de vazamentos; senhas que ele descarta são dadas
+     *                  como não vazadas sem consultar a API. Pode ser null.
+     */
+    public PasswordBreachChecker(String apiUrl, BreachFilter prefilter) {
         this.httpClient = HttpClient.newHttpClient();
+        this.apiUrl = apiUrl;
+        this.prefilter = prefilter;
     }
 
     public boolean isPasswordBreached(String password) {
+        long start = System.nanoTime();
+        BreachLookupEvent event = new BreachLookupEvent();
+        event.begin();
+        String cacheOutcome = "none";
+        int status = 0;
+        boolean breached = false;
         try {
-            String sha1Hash = getSHA1Hash(password);
+            byte[] sha1 = sha1(password);
+            if (prefilter != null) {
+                if (!prefilter.mightContain(sha1)) {
+                    PREFILTER_NEGATIVE.increment();
+                    cacheOutcome = "filter";
+                    return false;
+                }
+                PREFILTER_POSITIVE.increment();
+            }
+            String sha1Hash = toHex(sha1);
             String prefix = sha1Hash.substring(0, 5);
             String suffix = sha1Hash.substring(5).toUpperCase();
 
             HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(API_URL + prefix))
+                .uri(URI.create(apiUrl + prefix))
                 .header("User-Agent", "SecurePassManager")
                 .GET()
                 .build();
 
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() != 200) {
-                System.err.println("Erro na API: " + response.statusCode());
+            status = response.statusCode();
+
+            if (status != 200) {
+                CHECK_LATENCY.recordError();
+                System.err.println("Erro na API: " + status);
                 return false;
             }
 
@@ -41,22 +93,35 @@ public class PasswordBreachChecker {
 
             for (String hash : hashes) {
                 if (pattern.matcher(hash).matches()) {
+                    breached = true;
                     return true;
                 }
             }
 
             return false;
         } catch (Exception e) {
+            CHECK_LATENCY.recordError();
             System.err.println("Erro ao verificar vazamento de senha: " + e.getMessage());
             return false;
+        } finally {
+            CHECK_LATENCY.record(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.client = "httpclient";
+                event.cacheOutcome = cacheOutcome;
+                event.breached = breached;
+                event.status = status;
+                event.commit();
+            }
         }
     }
 
-    private String getSHA1Hash(String input) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-512");
-        byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+    private static byte[] sha1(String input) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-1").digest(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toHex(byte[] hash) {
         StringBuilder hexString = new StringBuilder();
-        
+
         for (byte b : hash) {
             String hex = Integer.toHexString(0xff & b);
             if (hex.length() == 1) {
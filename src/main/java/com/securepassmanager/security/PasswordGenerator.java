@@ -0,0 +1,123 @@
+package com.securepassmanager.security;
+
+import java.util.Arrays;
+
+/**
+ * Gerador de senhas fortes com conjuntos de caracteres configuráveis.
+ * Cada conjunto informado aparece pelo menos uma vez em toda senha gerada, e as senhas
+ * são entregues como char[] para que possam ser apagadas após o uso.
+ */
+public class PasswordGenerator {
+    public static final String UPPER_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    public static final String LOWER_CHARS = "abcdefghijklmnopqrstuvwxyz";
+    public static final String NUMBERS = "0123456789";
+    public static final String SPECIAL_CHARS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    private static final int RANDOM_BUFFER_SIZE = 8192;
+    private static final int MAX_BATCH_CHARS = 1 << 20;
+
+    private final char[][] charClasses;
+    private final char[] allChars;
+    private final int minLength;
+    private final BufferedRandom random;
+
+    /**
+     * Consome um lote de senhas geradas. O array é apagado assim que o método retorna.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(char[] passwords, int count, int length);
+    }
+
+    /**
+     * @param minLength tamanho mínimo aplicado a todas as senhas
+     * @param charClasses conjuntos de caracteres obrigatórios
+     */
+    public PasswordGenerator(int minLength, String... charClasses) {
+        if (charClasses.length == 0) {
+            throw new IllegalArgumentException("Informe pelo menos um conjunto de caracteres");
+        }
+        if (minLength < charClasses.length) {
+            throw new IllegalArgumentException("Tamanho mínimo menor que o número de conjuntos obrigatórios");
+        }
+        this.minLength = minLength;
+        this.charClasses = new char[charClasses.length][];
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < charClasses.length; i++) {
+            if (charClasses[i] == null || charClasses[i].isEmpty()) {
+                throw new IllegalArgumentException("Conjunto de caracteres vazio");
+            }
+            this.charClasses[i] = charClasses[i].toCharArray();
+            all.append(charClasses[i]);
+        }
+        this.allChars = all.toString().toCharArray();
+        this.random = new BufferedRandom(RANDOM_BUFFER_SIZE);
+    }
+
+    /**
+     * Gerador com letras maiúsculas, minúsculas, números e caracteres especiais.
+     */
+    public static PasswordGenerator defaultGenerator(int minLength) {
+        return new PasswordGenerator(minLength, UPPER_CHARS, LOWER_CHARS, NUMBERS, SPECIAL_CHARS);
+    }
+
+    public int effectiveLength(int length) {
+        return Math.max(length, minLength);
+    }
+
+    public char[] generate(int length) {
+        char[] password = new char[effectiveLength(length)];
+        generate(password, 0, password.length);
+        return password;
+    }
+
+    /**
+     * Gera uma senha diretamente em uma região de um array fornecido pelo chamador.
+     */
+    public synchronized void generate(char[] dest, int offset, int length) {
+        if (length < minLength) {
+            throw new IllegalArgumentException("A senha deve ter pelo menos " + minLength + " caracteres");
+        }
+        // Garante pelo menos um caractere de cada conjunto
+        for (int i = 0; i < charClasses.length; i++) {
+            char[] chars = charClasses[i];
+            dest[offset + i] = chars[random.nextIndex(chars.length)];
+        }
+        // Preenche o resto da senha
+        for (int i = charClasses.length; i < length; i++) {
+            dest[offset + i] = allChars[random.nextIndex(allChars.length)];
+        }
+        // Embaralha a senha (Fisher-Yates)
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextIndex(i + 1);
+            char temp = dest[offset + i];
+            dest[offset + i] = dest[offset + j];
+            dest[offset + j] = temp;
+        }
+    }
+
+    /**
+     * Gera {@code count} senhas em lotes contíguos (cada senha ocupa {@code length} posições)
+     * e entrega cada lote ao consumidor. Os lotes são apagados após o consumo, então a
+     * memória usada não depende da quantidade total de senhas.
+     */
+    public void generateBatch(int count, int length, BatchConsumer consumer) {
+        int passwordLength = effectiveLength(length);
+        int perBatch = Math.max(1, Math.min(count, MAX_BATCH_CHARS / passwordLength));
+        char[] batch = new char[perBatch * passwordLength];
+        try {
+            int remaining = count;
+            while (remaining > 0) {
+                int inBatch = Math.min(perBatch, remaining);
+                for (int i = 0; i < inBatch; i++) {
+                    generate(batch, i * passwordLength, passwordLength);
+                }
+                consumer.accept(batch, inBatch, passwordLength);
+                Arrays.fill(batch, '\0');
+                remaining -= inBatch;
+            }
+        } finally {
+            Arrays.fill(batch, '\0');
+        }
+    }
+}
@@ -0,0 +1,1007 @@
+package com.securepassmanager.security;
+
+import java.io.IOException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estimador de força de senha no estilo do zxcvbn: procura palavras de dicionário (também
+ * invertidas e com substituições l33t), padrões do teclado, sequências, repetições e datas,
+ * e escolhe a decomposição da senha que um atacante adivinharia com menos tentativas.
+ *
+ * <p>Os dicionários ficam numa {@link CompactTrie} mapeada em memória, percorrida uma vez
+ * por posição da senha, então a análise não aloca palavras e leva microssegundos; dá para
+ * auditar o cofre inteiro ou dar retorno a cada tecla. Só os primeiros
+ * {@value #MAX_ANALYZED_LENGTH} caracteres são analisados; o restante conta como força bruta.
+ */
+public class PasswordStrengthEstimator {
+    public static final String DEFAULT_RESOURCE = "strength/dictionaries.trie";
+    public static final int MAX_ANALYZED_LENGTH = 64;
+
+    private static final double BRUTEFORCE_CARDINALITY = 10;
+    private static final double MIN_GUESSES_BEFORE_GROWING_SEQUENCE = 10_000;
+    private static final double MIN_SUBMATCH_GUESSES_SINGLE_CHAR = 10;
+    private static final double MIN_SUBMATCH_GUESSES_MULTI_CHAR = 50;
+    private static final double MIN_YEAR_SPACE = 20;
+    private static final int MIN_DICTIONARY_WORD = 3;
+    private static final int MAX_DECORATION_LENGTH = 3;
+    private static final int MAX_SEQUENCE_DELTA = 5;
+    private static final int MAX_L33T_COMBINATIONS = 32;
+    private static final int MIN_YEAR = 1000;
+    private static final int MAX_YEAR = 2050;
+    private static final double[] SCORE_THRESHOLDS = {1e3, 1e6, 1e8, 1e10};
+    private static final double SCORE_DELTA = 5;
+
+    /** Substituições l33t: caractere digitado e as letras que ele pode representar. */
+    private static final String[][] L33T_TABLE = {
+        {"4", "a"}, {"@", "a"}, {"8", "b"}, {"(", "c"}, {"{", "c"}, {"[", "c"}, {"<", "c"},
+        {"3", "e"}, {"6", "g"}, {"9", "g"}, {"1", "il"}, {"!", "i"}, {"|", "il"}, {"7", "lt"},
+        {"0", "o"}, {"$", "s"}, {"5", "s"}, {"+", "t"}, {"%", "x"}, {"2", "z"},
+    };
+
+    /** Teclado QWERTY em layout inclinado, como no zxcvbn: cada linha começa na coluna indicada. */
+    private static final String[] KEYBOARD_ROWS = {"`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./"};
+    private static final String[] KEYBOARD_SHIFTED_ROWS = {"~!@#$%^&*()_+", "QWERTYUIOP{}|", "ASDFGHJKL:\"", "ZXCVBNM<>?"};
+    private static final int[] KEYBOARD_ROW_START = {0, 1, 1, 1};
+    private static final int[][] SLANTED_NEIGHBORS = {{-1, 0}, {0, -1}, {1, -1}, {1, 0}, {0, 1}, {-1, 1}};
+    private static final int KEYBOARD_SIZE = 128;
+    /** Para cada caractere ASCII, as teclas vizinhas (índice da tecla ou -1) por direção. */
+    private static final int[][] KEYBOARD_NEIGHBORS = new int[KEYBOARD_SIZE][];
+    private static final int[] KEY_OF = new int[KEYBOARD_SIZE];
+    private static final char[] KEY_UNSHIFTED;
+    private static final char[] KEY_SHIFTED;
+    private static final double KEYBOARD_STARTING_POSITIONS;
+    private static final double KEYBOARD_AVERAGE_DEGREE;
+
+    static {
+        Arrays.fill(KEY_OF, -1);
+        int keys = 0;
+        for (String row : KEYBOARD_ROWS) {
+            keys += row.length();
+        }
+        KEY_UNSHIFTED = new char[keys];
+        KEY_SHIFTED = new char[keys];
+        int[][] grid = new int[KEYBOARD_ROWS.length][];
+        int key = 0;
+        for (int y = 0; y < KEYBOARD_ROWS.length; y++) {
+            grid[y] = new int[KEYBOARD_ROW_START[y] + KEYBOARD_ROWS[y].length()];
+            Arrays.fill(grid[y], -1);
+            for (int i = 0; i < KEYBOARD_ROWS[y].length(); i++) {
+                KEY_UNSHIFTED[key] = KEYBOARD_ROWS[y].charAt(i);
+                KEY_SHIFTED[key] = KEYBOARD_SHIFTED_ROWS[y].charAt(i);
+                KEY_OF[KEY_UNSHIFTED[key]] = key;
+                KEY_OF[KEY_SHIFTED[key]] = key;
+                grid[y][KEYBOARD_ROW_START[y] + i] = key++;
+            }
+        }
+        int[][] neighbors = new int[keys][];
+        long degrees = 0;
+        for (int y = 0; y < grid.length; y++) {
+            for (int x = 0; x < grid[y].length; x++) {
+                if (grid[y][x] < 0) {
+                    continue;
+                }
+                int[] adjacent = new int[SLANTED_NEIGHBORS.length];
+                for (int d = 0; d < SLANTED_NEIGHBORS.length; d++) {
+                    int nx = x + SLANTED_NEIGHBORS[d][0];
+                    int ny = y + SLANTED_NEIGHBORS[d][1];
+                    adjacent[d] = ny >= 0 && ny < grid.length && nx >= 0 && nx < grid[ny].length ? grid[ny][nx] : -1;
+                    if (adjacent[d] >= 0) {
+                        degrees++;
+                    }
+                }
+                neighbors[grid[y][x]] = adjacent;
+            }
+        }
+        for (int c = 0; c < KEYBOARD_SIZE; c++) {
+            if (KEY_OF[c] >= 0) {
+                KEYBOARD_NEIGHBORS[c] = neighbors[KEY_OF[c]];
+            }
+        }
+        KEYBOARD_STARTING_POSITIONS = keys;
+        KEYBOARD_AVERAGE_DEGREE = (double) degrees / keys;
+    }
+
+    public enum Pattern { DICTIONARY, SPATIAL, SEQUENCE, REPEAT, DATE, BRUTEFORCE }
+
+    /**
+     * Trecho {@code [start, end]} (inclusivo) da senha explicado por um padrão. Não guarda
+     * o texto da senha.
+     */
+    public static final class Match {
+        final Pattern pattern;
+        final int start;
+        final int end;
+        double guesses;
+        String dictionary;
+        int rank;
+        boolean reversed;
+        boolean l33t;
+        boolean uppercase;
+        int turns;
+        int shifted;
+        boolean ascending;
+        int year;
+        boolean separated;
+        double baseGuesses;
+        int repeatCount;
+        boolean decoration;
+
+        Match(Pattern pattern, int start, int end) {
+            this.pattern = pattern;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Pattern pattern() {
+            return pattern;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        public double guesses() {
+            return guesses;
+        }
+
+        /** Nome do dicionário, para correspondências de {@link Pattern#DICTIONARY}. */
+        public String dictionary() {
+            return dictionary;
+        }
+
+        int length() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * Resultado da estimativa. O {@link #score()} vai de 0 (adivinhada em até mil
+     * tentativas) a 4 (mais de 10¹⁰ tentativas).
+     */
+    public static final class Result {
+        private final double guessesLog10;
+        private final int score;
+        private final List<Match> sequence;
+        private final String warning;
+        private final List<String> suggestions;
+
+        Result(double guessesLog10, int score, List<Match> sequence, String warning, List<String> suggestions) {
+            this.guessesLog10 = guessesLog10;
+            this.score = score;
+            this.sequence = sequence;
+            this.warning = warning;
+            this.suggestions = suggestions;
+        }
+
+        public double guesses() {
+            return Math.pow(10, guessesLog10);
+        }
+
+        public double guessesLog10() {
+            return guessesLog10;
+        }
+
+        public int score() {
+            return score;
+        }
+
+        /** Decomposição da senha escolhida pelo estimador, em ordem. */
+        public List<Match> sequence() {
+            return sequence;
+        }
+
+        /** Aviso principal, ou string vazia quando a senha é forte. */
+        public String warning() {
+            return warning;
+        }
+
+        public List<String> suggestions() {
+            return suggestions;
+        }
+    }
+
+    private static final class DefaultHolder {
+        static final PasswordStrengthEstimator INSTANCE = load();
+
+        private static PasswordStrengthEstimator load() {
+            try {
+                return new PasswordStrengthEstimator(CompactTrie.fromResource(DEFAULT_RESOURCE));
+            } catch (IOException e) {
+                throw new IllegalStateException("Não foi possível carregar os dicionários de senhas", e);
+            }
+        }
+    }
+
+    private final CompactTrie dictionaries;
+    private final int referenceYear;
+
+    public PasswordStrengthEstimator(CompactTrie dictionaries) {
+        this(dictionaries, Year.now().getValue());
+    }
+
+    PasswordStrengthEstimator(CompactTrie dictionaries, int referenceYear) {
+        this.dictionaries = dictionaries;
+        this.referenceYear = referenceYear;
+    }
+
+    /**
+     * Estimador com os dicionários embutidos, carregados na primeira chamada.
+     */
+    public static PasswordStrengthEstimator getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public Result estimate(CharSequence password) {
+        char[] chars = new char[password.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = password.charAt(i);
+        }
+        try {
+            return estimate(chars);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * Estima a força sem copiar a senha para uma String; cópias internas são apagadas.
+     */
+    public Result estimate(char[] password) {
+        int length = Math.min(password.length, MAX_ANALYZED_LENGTH);
+        if (length == 0) {
+            return new Result(0, 0, Collections.emptyList(), "A senha está vazia",
+                List.of("Use uma frase-senha com várias palavras pouco comuns"));
+        }
+        char[] analyzed = Arrays.copyOf(password, length);
+        try {
+            List<Match> matches = new ArrayList<>();
+            dictionaryMatches(analyzed, matches);
+            spatialMatches(analyzed, matches);
+            sequenceMatches(analyzed, matches);
+            repeatMatches(analyzed, matches);
+            dateMatches(analyzed, matches);
+
+            List<Match> sequence = new ArrayList<>();
+            double guesses = mostGuessableSequence(analyzed, matches, sequence);
+            double log10 = Math.log10(guesses) + (password.length - length) * Math.log10(BRUTEFORCE_CARDINALITY);
+            int score = score(log10);
+            return new Result(log10, score, Collections.unmodifiableList(sequence),
+                warning(score, sequence), suggestions(score, sequence));
+        } finally {
+            Arrays.fill(analyzed, '\0');
+        }
+    }
+
+    private static int score(double guessesLog10) {
+        for (int score = 0; score < SCORE_THRESHOLDS.length; score++) {
+            if (guessesLog10 < Math.log10(SCORE_THRESHOLDS[score] + SCORE_DELTA)) {
+                return score;
+            }
+        }
+        return SCORE_THRESHOLDS.length;
+    }
+
+    // ---- dicionários ----
+
+    private void dictionaryMatches(char[] password, List<Match> matches) {
+        int n = password.length;
+        char[] lower = new char[n];
+        char[] reversed = new char[n];
+        try {
+            for (int i = 0; i < n; i++) {
+                lower[i] = Character.toLowerCase(password[i]);
+                reversed[n - 1 - i] = lower[i];
+            }
+            findWords(password, lower, null, false, matches);
+            findWords(password, reversed, null, true, matches);
+            l33tMatches(password, lower, matches);
+        } finally {
+            Arrays.fill(lower, '\0');
+            Arrays.fill(reversed, '\0');
+        }
+    }
+
+    /**
+     * Procura palavras em {@code text} (a senha em minúsculas, possivelmente invertida ou com
+     * substituições). {@code substituted} marca as posições trocadas; se não for null, só
+     * valem as palavras que contêm alguma troca.
+     */
+    private void findWords(char[] password, char[] text, boolean[] substituted, boolean reversed, List<Match> matches) {
+        int n = text.length;
+        for (int i = 0; i < n; i++) {
+            final int start = i;
+            dictionaries.matchPrefixes(text, i, n, (end, dictionary, rank) -> {
+                int last = end - 1;
+                if (end - start < MIN_DICTIONARY_WORD) {
+                    return;
+                }
+                if (substituted != null && !anySubstituted(substituted, start, last)) {
+                    return;
+                }
+                int i0 = reversed ? n - 1 - last : start;
+                int j0 = reversed ? n - 1 - start : last;
+                Match match = new Match(Pattern.DICTIONARY, i0, j0);
+                match.dictionary = dictionaries.dictionaryName(dictionary);
+                match.rank = rank;
+                match.reversed = reversed;
+                match.l33t = substituted != null;
+                double uppercase = uppercaseVariations(password, i0, j0);
+                match.uppercase = uppercase > 1;
+                double guesses = rank * uppercase;
+                if (match.l33t) {
+                    guesses *= l33tVariations(password, text, i0, j0);
+                }
+                if (reversed) {
+                    guesses *= 2;
+                }
+                match.guesses = guesses;
+                matches.add(match);
+            });
+        }
+    }
+
+    private static boolean anySubstituted(boolean[] substituted, int start, int end) {
+        for (int k = start; k <= end; k++) {
+            if (substituted[k]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void l33tMatches(char[] password, char[] lower, List<Match> matches) {
+        int n = lower.length;
+        List<Character> subs = new ArrayList<>();
+        List<String> letters = new ArrayList<>();
+        for (String[] row : L33T_TABLE) {
+            char sub = row[0].charAt(0);
+            for (char c : lower) {
+                if (c == sub) {
+                    subs.add(sub);
+                    letters.add(row[1]);
+                    break;
+                }
+            }
+        }
+        if (subs.isEmpty()) {
+            return;
+        }
+        int combinations = 1;
+        for (String options : letters) {
+            combinations = Math.min(MAX_L33T_COMBINATIONS, combinations * options.length());
+        }
+        char[] text = new char[n];
+        boolean[] substituted = new boolean[n];
+        try {
+            for (int combination = 0; combination < combinations; combination++) {
+                int choice = combination;
+                System.arraycopy(lower, 0, text, 0, n);
+                Arrays.fill(substituted, false);
+                for (int s = 0; s < subs.size(); s++) {
+                    String options = letters.get(s);
+                    char letter = options.charAt(choice % options.length());
+                    choice /= options.length();
+                    for (int k = 0; k < n; k++) {
+                        if (lower[k] == subs.get(s)) {
+                            text[k] = letter;
+                            substituted[k] = true;
+                        }
+                    }
+                }
+                findWords(password, text, substituted, false, matches);
+            }
+        } finally {
+            Arrays.fill(text, '\0');
+        }
+        removeDuplicateL33t(matches);
+    }
+
+    /** Combinações diferentes podem achar a mesma palavra; fica só a de menor custo. */
+    private static void removeDuplicateL33t(List<Match> matches) {
+        for (int a = matches.size() - 1; a >= 0; a--) {
+            Match m = matches.get(a);
+            if (!m.l33t) {
+                continue;
+            }
+            for (int b = 0; b < a; b++) {
+                Match other = matches.get(b);
+                if (other.l33t && other.start == m.start && other.end == m.end && other.guesses <= m.guesses) {
+                    matches.remove(a);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static double uppercaseVariations(char[] password, int start, int end) {
+        int upper = 0;
+        int lower = 0;
+        for (int k = start; k <= end; k++) {
+            if (Character.isUpperCase(password[k])) upper++;
+            else if (Character.isLowerCase(password[k])) lower++;
+        }
+        if (upper == 0) {
+            return 1;
+        }
+        boolean firstOnly = upper == 1 && Character.isUpperCase(password[start]);
+        boolean lastOnly = upper == 1 && Character.isUpperCase(password[end]);
+        if (lower == 0 || firstOnly || lastOnly) {
+            return 2;
+        }
+        double variations = 0;
+        for (int k = 1; k <= Math.min(upper, lower); k++) {
+            variations += binomial(upper + lower, k);
+        }
+        return variations;
+    }
+
+    private static double l33tVariations(char[] password, char[] text, int start, int end) {
+        double variations = 1;
+        boolean[] counted = new boolean[end - start + 1];
+        for (int k = start; k <= end; k++) {
+            char sub = Character.toLowerCase(password[k]);
+            char letter = text[k];
+            if (sub == letter || counted[k - start]) {
+                continue;
+            }
+            int subCount = 0;
+            int letterCount = 0;
+            for (int m = start; m <= end; m++) {
+                char c = Character.toLowerCase(password[m]);
+                if (c == sub && text[m] == letter) {
+                    subCount++;
+                    counted[m - start] = true;
+                } else if (c == letter) {
+                    letterCount++;
+                }
+            }
+            if (letterCount == 0) {
+                variations *= 2;
+            } else {
+                double possibilities = 0;
+                for (int i = 1; i <= Math.min(subCount, letterCount); i++) {
+                    possibilities += binomial(subCount + letterCount, i);
+                }
+                variations *= possibilities;
+            }
+        }
+        return variations;
+    }
+
+    // ---- teclado ----
+
+    private static void spatialMatches(char[] password, List<Match> matches) {
+        int n = password.length;
+        int i = 0;
+        while (i < n - 1) {
+            int j = i + 1;
+            int lastDirection = -1;
+            int turns = 0;
+            int shifted = isShifted(password[i]) ? 1 : 0;
+            while (true) {
+                char previous = password[j - 1];
+                int direction = -1;
+                if (j < n && previous < KEYBOARD_SIZE && KEYBOARD_NEIGHBORS[previous] != null && password[j] < KEYBOARD_SIZE) {
+                    int target = KEY_OF[password[j]];
+                    int[] adjacent = KEYBOARD_NEIGHBORS[previous];
+                    for (int d = 0; d < adjacent.length && target >= 0; d++) {
+                        if (adjacent[d] == target) {
+                            direction = d;
+                            break;
+                        }
+                    }
+                }
+                if (direction >= 0) {
+                    if (KEY_SHIFTED[KEY_OF[password[j]]] == password[j]) {
+                        shifted++;
+                    }
+                    if (direction != lastDirection) {
+                        turns++;
+                        lastDirection = direction;
+                    }
+                    j++;
+                } else {
+                    if (j - i > 2) {
+                        Match match = new Match(Pattern.SPATIAL, i, j - 1);
+                        match.turns = turns;
+                        match.shifted = shifted;
+                        match.guesses = spatialGuesses(match);
+                        matches.add(match);
+                    }
+                    i = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean isShifted(char c) {
+        return c < KEYBOARD_SIZE && KEY_OF[c] >= 0 && KEY_SHIFTED[KEY_OF[c]] == c;
+    }
+
+    private static double spatialGuesses(Match match) {
+        int length = match.length();
+        double guesses = 0;
+        for (int i = 2; i <= length; i++) {
+            for (int j = 1; j <= Math.min(match.turns, i - 1); j++) {
+                guesses += binomial(i - 1, j - 1) * KEYBOARD_STARTING_POSITIONS * Math.pow(KEYBOARD_AVERAGE_DEGREE, j);
+            }
+        }
+        int shifted = match.shifted;
+        int unshifted = length - shifted;
+        if (shifted > 0) {
+            if (unshifted == 0) {
+                guesses *= 2;
+            } else {
+                double variations = 0;
+                for (int i = 1; i <= Math.min(shifted, unshifted); i++) {
+                    variations += binomial(shifted + unshifted, i);
+                }
+                guesses *= variations;
+            }
+        }
+        return guesses;
+    }
+
+    // ---- sequências ----
+
+    private static void sequenceMatches(char[] password, List<Match> matches) {
+        int n = password.length;
+        if (n < 2) {
+            return;
+        }
+        int i = 0;
+        int lastDelta = password[1] - password[0];
+        for (int k = 2; k < n; k++) {
+            int delta = password[k] - password[k - 1];
+            if (delta != lastDelta) {
+                addSequence(password, i, k - 1, lastDelta, matches);
+                i = k - 1;
+                lastDelta = delta;
+            }
+        }
+        addSequence(password, i, n - 1, lastDelta, matches);
+    }
+
+    private static void addSequence(char[] password, int i, int j, int delta, List<Match> matches) {
+        if ((j - i > 1 || Math.abs(delta) == 1) && delta != 0 && Math.abs(delta) <= MAX_SEQUENCE_DELTA) {
+            Match match = new Match(Pattern.SEQUENCE, i, j);
+            match.ascending = delta > 0;
+            char first = password[i];
+            double base;
+            if ("aAzZ019".indexOf(first) >= 0) {
+                base = 4;
+            } else if (Character.isDigit(first)) {
+                base = 10;
+            } else {
+                base = 26;
+            }
+            if (!match.ascending) {
+                base *= 2;
+            }
+            match.guesses = base * match.length();
+            matches.add(match);
+        }
+    }
+
+    // ---- repetições ----
+
+    private void repeatMatches(char[] password, List<Match> matches) {
+        int n = password.length;
+        int i = 0;
+        while (i < n - 1) {
+            int bestBase = 0;
+            int bestCount = 0;
+            for (int base = 1; base <= (n - i) / 2; base++) {
+                int count = 1;
+                while (i + (count + 1) * base <= n && regionEquals(password, i, i + count * base, base)) {
+                    count++;
+                }
+                if (count >= 2 && count * base > bestCount * bestBase) {
+                    bestBase = base;
+                    bestCount = count;
+                }
+            }
+            if (bestCount == 0) {
+                i++;
+                continue;
+            }
+            Match match = new Match(Pattern.REPEAT, i, i + bestBase * bestCount - 1);
+            char[] base = Arrays.copyOfRange(password, i, i + bestBase);
+            try {
+                match.baseGuesses = bestBase == 1 ? BRUTEFORCE_CARDINALITY : estimate(base).guesses();
+            } finally {
+                Arrays.fill(base, '\0');
+            }
+            match.repeatCount = bestCount;
+            match.guesses = match.baseGuesses * bestCount;
+            matches.add(match);
+            i = match.end + 1;
+        }
+    }
+
+    private static boolean regionEquals(char[] text, int a, int b, int length) {
+        for (int k = 0; k < length; k++) {
+            if (text[a + k] != text[b + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---- datas ----
+
+    /** Divisões possíveis de datas sem separador, por tamanho (posições de corte). */
+    private static final int[][][] DATE_SPLITS = {
+        {{1, 2}, {2, 3}},                 // 4: 1191, 9111
+        {{1, 3}, {2, 3}},                 // 5: 1/11/91, 11/1/91
+        {{1, 2}, {2, 4}, {4, 5}},         // 6: 1/1/1991, 11/11/91, 1991/1/1
+        {{1, 3}, {2, 3}, {4, 5}, {4, 6}}, // 7
+        {{2, 4}, {4, 6}},                 // 8: 11/11/1991, 1991/11/11
+    };
+
+    private void dateMatches(char[] password, List<Match> matches) {
+        int n = password.length;
+        for (int i = 0; i < n; i++) {
+            int digits = 0;
+            while (i + digits < n && digits < 8 && Character.isDigit(password[i + digits])) {
+                digits++;
+            }
+            for (int length = 4; length <= digits; length++) {
+                int bestYear = -1;
+                for (int[] split : DATE_SPLITS[length - 4]) {
+                    int year = dateYear(parse(password, i, split[0]), parse(password, i + split[0], split[1] - split[0]),
+                        parse(password, i + split[1], length - split[1]));
+                    if (year >= 0 && (bestYear < 0 || Math.abs(year - referenceYear) < Math.abs(bestYear - referenceYear))) {
+                        bestYear = year;
+                    }
+                }
+                if (bestYear >= 0) {
+                    matches.add(dateMatch(i, i + length - 1, bestYear, false, false));
+                }
+            }
+            if (digits >= 4) {
+                int year = parse(password, i, 4);
+                if (year >= 1900 && year <= 2099) {
+                    matches.add(dateMatch(i, i + 3, year, false, true));
+                }
+            }
+            separatedDate(password, i, matches);
+        }
+    }
+
+    /** Datas como 01/02/1991, 1-2-91 ou 1991.02.01 a partir de {@code i}. */
+    private void separatedDate(char[] password, int i, List<Match> matches) {
+        int n = password.length;
+        int first = digitRun(password, i, 4);
+        if (first == 0 || i + first >= n) {
+            return;
+        }
+        char separator = password[i + first];
+        if (" /\\_.-".indexOf(separator) < 0) {
+            return;
+        }
+        int secondStart = i + first + 1;
+        int second = digitRun(password, secondStart, 2);
+        if (second == 0 || secondStart + second >= n || password[secondStart + second] != separator) {
+            return;
+        }
+        int thirdStart = secondStart + second + 1;
+        int third = digitRun(password, thirdStart, 4);
+        if (third == 0) {
+            return;
+        }
+        int year = dateYear(parse(password, i, first), parse(password, secondStart, second), parse(password, thirdStart, third));
+        if (year >= 0) {
+            matches.add(dateMatch(i, thirdStart + third - 1, year, true, false));
+        }
+    }
+
+    private static int digitRun(char[] password, int start, int max) {
+        int length = 0;
+        while (start + length < password.length && length < max && Character.isDigit(password[start + length])) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int parse(char[] password, int start, int length) {
+        int value = 0;
+        for (int k = start; k < start + length; k++) {
+            value = value * 10 + (password[k] - '0');
+        }
+        return value;
+    }
+
+    private Match dateMatch(int start, int end, int year, boolean separated, boolean onlyYear) {
+        Match match = new Match(Pattern.DATE, start, end);
+        match.year = year;
+        match.separated = separated;
+        double yearSpace = Math.max(Math.abs(year - referenceYear), MIN_YEAR_SPACE);
+        match.guesses = onlyYear ? yearSpace : yearSpace * 365 * (separated ? 4 : 1);
+        return match;
+    }
+
+    /**
+     * Ano da data formada pelos três números (em alguma ordem dia/mês/ano), ou -1 se não
+     * formam uma data plausível.
+     */
+    private static int dateYear(int a, int b, int c) {
+        if (b > 31 || b <= 0) {
+            return -1;
+        }
+        int over12 = 0;
+        int over31 = 0;
+        int under1 = 0;
+        for (int value : new int[] {a, b, c}) {
+            if ((value > 99 && value < MIN_YEAR) || value > MAX_YEAR) {
+                return -1;
+            }
+            if (value > 31) over31++;
+            if (value > 12) over12++;
+            if (value <= 0) under1++;
+        }
+        if (over31 >= 2 || over12 == 3 || under1 >= 2) {
+            return -1;
+        }
+        int[][] candidates = {{c, a, b}, {a, b, c}};
+        for (int[] candidate : candidates) {
+            if (candidate[0] >= MIN_YEAR && candidate[0] <= MAX_YEAR) {
+                return isDayMonth(candidate[1], candidate[2]) ? candidate[0] : -1;
+            }
+        }
+        for (int[] candidate : candidates) {
+            if (isDayMonth(candidate[1], candidate[2])) {
+                int year = candidate[0];
+                return year > 99 ? year : year > 50 ? 1900 + year : 2000 + year;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDayMonth(int x, int y) {
+        return (x >= 1 && x <= 31 && y >= 1 && y <= 12) || (y >= 1 && y <= 31 && x >= 1 && x <= 12);
+    }
+
+    // ---- busca da sequência mais provável ----
+
+    /**
+     * Programação dinâmica do zxcvbn: para cada prefixo e quantidade de trechos, guarda a
+     * decomposição com menos tentativas, contando {@code l! * produto + 10000^(p-1)} para
+     * sequências de {@code l} trechos, dos quais {@code p} não são enfeites. Enfeites (datas
+     * e anos, e trechos curtos sem letras, como "!!" ou "@") são o que se cola a uma palavra
+     * para cumprir regras de senha: entram só no produto, sem o acréscimo por trecho, para
+     * que "Palavra2024!!" custe o produto dos pedaços e não 10^8 tentativas.
+     * Retorna o total e preenche {@code sequence}.
+     */
+    private static double mostGuessableSequence(char[] password, List<Match> matches, List<Match> sequence) {
+        int n = password.length;
+        List<List<Match>> byEnd = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            byEnd.add(new ArrayList<>());
+        }
+        for (Match match : matches) {
+            match.guesses = Math.max(match.guesses, minimumGuesses(match, n));
+            match.decoration = isDecoration(password, match);
+            byEnd.get(match.end).add(match);
+        }
+        Optimal optimal = new Optimal(n);
+        for (int k = 0; k < n; k++) {
+            for (Match match : byEnd.get(k)) {
+                if (match.start > 0) {
+                    for (int l = 1; l <= optimal.longest[match.start - 1]; l++) {
+                        if (optimal.best[match.start - 1][l] != null) {
+                            optimal.update(match, l + 1);
+                        }
+                    }
+                } else {
+                    optimal.update(match, 1);
+                }
+            }
+            optimal.update(bruteforce(password, 0, k), 1);
+            for (int i = 1; i <= k; i++) {
+                Match bruteforce = null;
+                for (int l = 1; l <= optimal.longest[i - 1]; l++) {
+                    Match previous = optimal.best[i - 1][l];
+                    if (previous == null || previous.pattern == Pattern.BRUTEFORCE) {
+                        continue;
+                    }
+                    if (bruteforce == null) {
+                        bruteforce = bruteforce(password, i, k);
+                    }
+                    optimal.update(bruteforce, l + 1);
+                }
+            }
+        }
+
+        int last = n - 1;
+        int bestLength = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+        for (int l = 1; l <= optimal.longest[last]; l++) {
+            if (optimal.best[last][l] != null && optimal.totals[last][l] < minimum) {
+                minimum = optimal.totals[last][l];
+                bestLength = l;
+            }
+        }
+        Match[] chosen = new Match[bestLength];
+        int k = last;
+        for (int l = bestLength; l >= 1; l--) {
+            Match match = optimal.best[k][l];
+            chosen[l - 1] = match;
+            k = match.start - 1;
+        }
+        sequence.addAll(Arrays.asList(chosen));
+        return minimum;
+    }
+
+    /** Tabelas da programação dinâmica, indexadas por posição final e quantidade de trechos. */
+    private static final class Optimal {
+        final Match[][] best;
+        final double[][] products;
+        final double[][] totals;
+        final int[][] pieces;
+        final int[] longest;
+
+        Optimal(int n) {
+            best = new Match[n][n + 1];
+            products = new double[n][n + 1];
+            totals = new double[n][n + 1];
+            pieces = new int[n][n + 1];
+            longest = new int[n];
+        }
+
+        void update(Match match, int l) {
+            int k = match.end;
+            double product = match.guesses;
+            int piecesSoFar = match.decoration ? 0 : 1;
+            if (l > 1) {
+                product *= products[match.start - 1][l - 1];
+                piecesSoFar += pieces[match.start - 1][l - 1];
+            }
+            double total = factorial(l) * product
+                + Math.pow(MIN_GUESSES_BEFORE_GROWING_SEQUENCE, Math.max(piecesSoFar, 1) - 1);
+            for (int competing = 1; competing <= Math.min(l, longest[k]); competing++) {
+                if (best[k][competing] != null && totals[k][competing] <= total) {
+                    return;
+                }
+            }
+            best[k][l] = match;
+            products[k][l] = product;
+            totals[k][l] = total;
+            pieces[k][l] = piecesSoFar;
+            longest[k] = Math.max(longest[k], l);
+        }
+    }
+
+    private static Match bruteforce(char[] password, int start, int end) {
+        Match match = new Match(Pattern.BRUTEFORCE, start, end);
+        match.guesses = Math.max(Math.pow(BRUTEFORCE_CARDINALITY, match.length()), minimumGuesses(match, password.length));
+        match.decoration = isDecoration(password, match);
+        return match;
+    }
+
+    /**
+     * Datas, anos e trechos curtos sem letras que só acompanham outro trecho.
+     */
+    private static boolean isDecoration(char[] password, Match match) {
+        if (match.length() == password.length) {
+            return false;
+        }
+        if (match.pattern == Pattern.DATE) {
+            return true;
+        }
+        if (match.length() > MAX_DECORATION_LENGTH) {
+            return false;
+        }
+        for (int i = match.start; i <= match.end; i++) {
+            if (Character.isLetter(password[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double minimumGuesses(Match match, int passwordLength) {
+        if (match.length() >= passwordLength) {
+            return 1;
+        }
+        return match.length() == 1 ? MIN_SUBMATCH_GUESSES_SINGLE_CHAR + 1 : MIN_SUBMATCH_GUESSES_MULTI_CHAR + 1;
+    }
+
+    private static double factorial(int n) {
+        double result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    private static double binomial(int n, int k) {
+        if (k > n) {
+            return 0;
+        }
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    // ---- retorno ao usuário ----
+
+    private static String warning(int score, List<Match> sequence) {
+        if (score > 2) {
+            return "";
+        }
+        Match longest = null;
+        for (Match match : sequence) {
+            if (match.pattern != Pattern.BRUTEFORCE && (longest == null || match.length() > longest.length())) {
+                longest = match;
+            }
+        }
+        if (longest == null) {
+            return "A senha é curta demais";
+        }
+        switch (longest.pattern) {
+            case DICTIONARY:
+                if ("passwords".equals(longest.dictionary)) {
+                    return longest.rank <= 10 && !longest.l33t && !longest.reversed
+                        ? "Esta é uma das 10 senhas mais comuns"
+                        : "Esta senha é muito comum";
+                }
+                if ("names".equals(longest.dictionary)) {
+                    return "Nomes e sobrenomes são fáceis de adivinhar";
+                }
+                return "Uma palavra do dicionário é fácil de adivinhar";
+            case SPATIAL:
+                return longest.turns == 1
+                    ? "Linhas retas do teclado são fáceis de adivinhar"
+                    : "Padrões curtos do teclado são fáceis de adivinhar";
+            case REPEAT:
+                return longest.length() == longest.repeatCount
+                    ? "Repetições como \"aaa\" são fáceis de adivinhar"
+                    : "Repetições como \"abcabc\" são só um pouco mais difíceis que \"abc\"";
+            case SEQUENCE:
+                return "Sequências como abc ou 6543 são fáceis de adivinhar";
+            case DATE:
+                return "Datas costumam ser fáceis de adivinhar";
+            default:
+                return "";
+        }
+    }
+
+    private static List<String> suggestions(int score, List<Match> sequence) {
+        if (score > 2) {
+            return Collections.emptyList();
+        }
+        List<String> suggestions = new ArrayList<>();
+        suggestions.add("Acrescente uma ou duas palavras pouco comuns");
+        for (Match match : sequence) {
+            if (match.pattern == Pattern.DICTIONARY && match.uppercase) {
+                suggestions.add("Letras maiúsculas no início ou em tudo ajudam pouco");
+                break;
+            }
+        }
+        for (Match match : sequence) {
+            if (match.pattern == Pattern.DICTIONARY && (match.reversed || match.l33t)) {
+                suggestions.add("Inverter palavras ou trocar letras por símbolos previsíveis, como '@' por 'a', ajuda pouco");
+                break;
+            }
+        }
+        for (Match match : sequence) {
+            if (match.pattern == Pattern.DATE) {
+                suggestions.add("Evite datas e anos ligados a você");
+                break;
+            }
+        }
+        return suggestions;
+    }
+}
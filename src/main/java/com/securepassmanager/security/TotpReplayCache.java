@@ -0,0 +1,63 @@
+package com.securepassmanager.security;
+
+import dev.samstevens.totp.time.SystemTimeProvider;
+import dev.samstevens.totp.time.TimeProvider;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de códigos TOTP já utilizados, compartilhado por todo o processo.
+ * Os códigos são agrupados por intervalo de tempo (time step); cada grupo é descartado
+ * assim que o intervalo sai da janela de verificação, de modo que a memória ocupada
+ * depende apenas dos logins feitos dentro da janela e não do total de usuários.
+ */
+public class TotpReplayCache {
+    private static final TotpReplayCache SHARED =
+        new TotpReplayCache(new SystemTimeProvider(), TotpVerifier.TIME_PERIOD, TotpVerifier.VERIFICATION_WINDOW);
+
+    private final TimeProvider timeProvider;
+    private final int timePeriod;
+    private final int window;
+    private final ConcurrentHashMap<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+    private volatile long lastEvictionStep = Long.MIN_VALUE;
+
+    public TotpReplayCache(TimeProvider timeProvider, int timePeriod, int window) {
+        this.timeProvider = timeProvider;
+        this.timePeriod = timePeriod;
+        this.window = window;
+    }
+
+    public static TotpReplayCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registra o uso de um código. Retorna false se o mesmo código já foi usado pelo mesmo
+     * usuário no mesmo intervalo, ou se o intervalo já saiu da janela de verificação.
+     */
+    public boolean markUsed(String userId, long timeStep, String code) {
+        long currentStep = Math.floorDiv(timeProvider.getTime(), timePeriod);
+        evictExpired(currentStep);
+        if (timeStep < currentStep - window) {
+            return false;
+        }
+        Set<String> bucket = buckets.computeIfAbsent(timeStep, step -> ConcurrentHashMap.newKeySet());
+        return bucket.add(userId + ':' + code);
+    }
+
+    /**
+     * Quantidade de intervalos atualmente mantidos em memória.
+     */
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    private void evictExpired(long currentStep) {
+        if (currentStep == lastEvictionStep) {
+            return;
+        }
+        lastEvictionStep = currentStep;
+        buckets.keySet().removeIf(step -> step < currentStep - window);
+    }
+}
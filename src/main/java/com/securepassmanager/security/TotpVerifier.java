@@ -0,0 +1,259 @@
+package com.securepassmanager.security;
+
+import dev.samstevens.totp.time.SystemTimeProvider;
+import dev.samstevens.totp.time.TimeProvider;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verificador TOTP (RFC 6238, HMAC-SHA1, 6 dígitos) compartilhado e thread-safe.
+ * As instâncias de {@link Mac} e seus buffers vêm de um pool pequeno, compartilhado por
+ * todas as threads (inclusive virtuais, que não se beneficiariam de um ThreadLocal), e as
+ * chaves decodificadas do Base32 ficam em um cache LRU limitado, de modo que uma
+ * verificação não decodifica o segredo nem cria objetos criptográficos novos.
+ */
+public class TotpVerifier {
+    static final int TIME_PERIOD = 30;
+    static final int VERIFICATION_WINDOW = 1;
+    private static final int CODE_MODULUS = 1_000_000;
+    private static final int CODE_DIGITS = 6;
+    private static final String HMAC_ALGORITHM = "HmacSHA1";
+    private static final int DEFAULT_KEY_CACHE_SIZE = 10_000;
+    private static final int WINDOW_SIZE = 2 * VERIFICATION_WINDOW + 1;
+    private static final int MAX_POOLED_CONTEXTS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final TotpVerifier SHARED =
+        new TotpVerifier(new SystemTimeProvider(), TotpReplayCache.shared(), DEFAULT_KEY_CACHE_SIZE);
+
+    private final TimeProvider timeProvider;
+    private final TotpReplayCache replayCache;
+    private final LinkedHashMap<String, CachedKey> keyCache;
+    private final ConcurrentLinkedQueue<MacContext> contexts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledContexts = new AtomicInteger();
+
+    public TotpVerifier(TimeProvider timeProvider, TotpReplayCache replayCache, int maxCachedKeys) {
+        this.timeProvider = timeProvider;
+        this.replayCache = replayCache;
+        this.keyCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedKey> eldest) {
+                return size() > maxCachedKeys;
+            }
+        };
+    }
+
+    public static TotpVerifier shared() {
+        return SHARED;
+    }
+
+    /**
+     * Verifica o código de um usuário. O segredo (Base32) só é decodificado quando a chave
+     * do usuário não está no cache. Códigos válidos são registrados no cache anti-replay.
+     */
+    public boolean verify(String userId, String secret, String code) {
+        int parsed = parseCode(code);
+        return parsed >= 0 && verify(userId, secret, parsed);
+    }
+
+    public boolean verify(String userId, String secret, int code) {
+        long currentStep = Math.floorDiv(timeProvider.getTime(), TIME_PERIOD);
+        long matchedStep = findMatchingStep(keyFor(userId, secret), currentStep, code);
+        if (matchedStep == Long.MIN_VALUE) {
+            return false;
+        }
+        return replayCache.markUsed(userId, matchedStep, formatCode(code));
+    }
+
+    /**
+     * Gera o código de um intervalo de tempo específico.
+     */
+    public int generate(String userId, String secret, long timeStep) {
+        SecretKeySpec key = keyFor(userId, secret);
+        MacContext context = acquireContext();
+        try {
+            return computeCode(context, key, timeStep);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    private MacContext acquireContext() {
+        MacContext context = contexts.poll();
+        if (context == null) {
+            return new MacContext();
+        }
+        pooledContexts.decrementAndGet();
+        return context;
+    }
+
+    /**
+     * Devolve o contexto ao pool; acima de {@link #MAX_POOLED_CONTEXTS} ele é descartado,
+     * para que um pico de threads simultâneas não deixe o pool grande para sempre.
+     */
+    private void releaseContext(MacContext context) {
+        if (pooledContexts.incrementAndGet() <= MAX_POOLED_CONTEXTS) {
+            contexts.offer(context);
+        } else {
+            pooledContexts.decrementAndGet();
+        }
+    }
+
+    /**
+     * Calcula todos os códigos da janela em uma única passagem, sem interromper na
+     * primeira correspondência, e retorna o intervalo correspondente ou Long.MIN_VALUE.
+     */
+    private long findMatchingStep(SecretKeySpec key, long currentStep, int code) {
+        MacContext context = acquireContext();
+        try {
+            long matched = Long.MIN_VALUE;
+            for (int i = 0; i < WINDOW_SIZE; i++) {
+                long step = currentStep - VERIFICATION_WINDOW + i;
+                int candidate = computeCode(context, key, step);
+                if ((candidate ^ code) == 0) {
+                    matched = step;
+                }
+            }
+            return matched;
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    private int computeCode(MacContext context, SecretKeySpec key, long timeStep) {
+        byte[] counter = context.counter;
+        long value = timeStep;
+        for (int i = 7; i >= 0; i--) {
+            counter[i] = (byte) value;
+            value >>>= 8;
+        }
+        try {
+            Mac mac = context.mac(key);
+            mac.update(counter);
+            mac.doFinal(context.hash, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Falha ao calcular código TOTP", e);
+        }
+        byte[] hash = context.hash;
+        int offset = hash[hash.length - 1] & 0xf;
+        int binary = ((hash[offset] & 0x7f) << 24)
+            | ((hash[offset + 1] & 0xff) << 16)
+            | ((hash[offset + 2] & 0xff) << 8)
+            | (hash[offset + 3] & 0xff);
+        return binary % CODE_MODULUS;
+    }
+
+    private SecretKeySpec keyFor(String userId, String secret) {
+        synchronized (keyCache) {
+            CachedKey cached = keyCache.get(userId);
+            if (cached != null && cached.secret.equals(secret)) {
+                return cached.key;
+            }
+        }
+        SecretKeySpec key = new SecretKeySpec(decodeBase32(secret), HMAC_ALGORITHM);
+        synchronized (keyCache) {
+            keyCache.put(userId, new CachedKey(secret, key));
+        }
+        return key;
+    }
+
+    boolean isKeyCached(String userId) {
+        synchronized (keyCache) {
+            return keyCache.containsKey(userId);
+        }
+    }
+
+    /**
+     * Converte o código digitado em inteiro; retorna -1 se não for numérico ou tiver mais de 6 dígitos.
+     */
+    private static int parseCode(String code) {
+        if (code == null || code.isEmpty() || code.length() > CODE_DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String formatCode(int code) {
+        char[] digits = new char[CODE_DIGITS];
+        for (int i = CODE_DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
+        return new String(digits);
+    }
+
+    static byte[] decodeBase32(String secret) {
+        int length = 0;
+        byte[] out = new byte[secret.length() * 5 / 8];
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < secret.length(); i++) {
+            char c = secret.charAt(i);
+            int value;
+            if (c >= 'A' && c <= 'Z') value = c - 'A';
+            else if (c >= 'a' && c <= 'z') value = c - 'a';
+            else if (c >= '2' && c <= '7') value = c - '2' + 26;
+            else if (c == '=' || c == ' ' || c == '-') continue;
+            else throw new IllegalArgumentException("Segredo TOTP inválido");
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                out[length++] = (byte) (buffer >> bits);
+            }
+        }
+        if (length == out.length) {
+            return out;
+        }
+        byte[] trimmed = new byte[length];
+        System.arraycopy(out, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    private static final class CachedKey {
+        final String secret;
+        final SecretKeySpec key;
+
+        CachedKey(String secret, SecretKeySpec key) {
+            this.secret = secret;
+            this.key = key;
+        }
+    }
+
+    private static final class MacContext {
+        final byte[] counter = new byte[8];
+        final byte[] hash = new byte[20];
+        private final Mac mac;
+        private Key currentKey;
+
+        MacContext() {
+            try {
+                this.mac = Mac.getInstance(HMAC_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA1 indisponível", e);
+            }
+        }
+
+        Mac mac(SecretKeySpec key) throws GeneralSecurityException {
+            if (currentKey != key) {
+                mac.init(key);
+                currentKey = key;
+            }
+            return mac;
+        }
+    }
+}
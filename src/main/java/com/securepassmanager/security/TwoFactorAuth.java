@@ -1,21 +1,15 @@
 package com.securepassmanager.security;
 
-import dev.samstevens.totp.code.*;
 import dev.samstevens.totp.exceptions.QrGenerationException;
 import dev.samstevens.totp.qr.QrData;
-import dev.samstevens.totp.qr.QrGenerator;
-import dev.samstevens.totp.qr.ZxingPngQrGenerator;
 import dev.samstevens.totp.secret.DefaultSecretGenerator;
 import dev.samstevens.totp.secret.SecretGenerator;
-import dev.samstevens.totp.time.SystemTimeProvider;
-import dev.samstevens.totp.time.TimeProvider;
 
 import java.security.SecureRandom;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Base64;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 
 /**
@@ -24,46 +18,33 @@ import java.util.List;
 public class TwoFactorAuth {
     private static final int BACKUP_CODES_COUNT = 8;
     private static final int BACKUP_CODE_LENGTH = 10;
-    private static final int VERIFICATION_WINDOW = 1;
-    private static final int MAX_USED_CODES = 100; // Mantém os últimos 100 códigos usados
     
+    private final String userId;
     private final String secret;
     private final Set<String> backupCodes;
-    private final CodeGenerator codeGenerator;
-    private final TimeProvider timeProvider;
-    private final QrGenerator qrGenerator;
-    private final CodeVerifier codeVerifier;
-    private final Set<String> usedCodes; // Armazena códigos já utilizados
+    private final TotpVerifier totpVerifier;
 
     public TwoFactorAuth() {
         SecretGenerator secretGenerator = new DefaultSecretGenerator();
+        this.userId = null;
         this.secret = secretGenerator.generate();
         this.backupCodes = generateBackupCodes();
-        this.codeGenerator = new DefaultCodeGenerator();
-        this.timeProvider = new SystemTimeProvider();
-        this.qrGenerator = new ZxingPngQrGenerator();
-        this.codeVerifier = new DefaultCodeVerifier(codeGenerator, timeProvider);
-        this.usedCodes = ConcurrentHashMap.newKeySet();
+        this.totpVerifier = TotpVerifier.shared();
     }
 
     public TwoFactorAuth(String secret) {
-        this.secret = secret;
-        this.backupCodes = new HashSet<>();
-        this.codeGenerator = new DefaultCodeGenerator();
-        this.timeProvider = new SystemTimeProvider();
-        this.qrGenerator = new ZxingPngQrGenerator();
-        this.codeVerifier = new DefaultCodeVerifier(codeGenerator, timeProvider);
-        this.usedCodes = ConcurrentHashMap.newKeySet();
+        this(null, secret, List.of());
     }
 
     public TwoFactorAuth(String secret, List<String> backupCodesList) {
+        this(null, secret, backupCodesList);
+    }
+
+    public TwoFactorAuth(String userId, String secret, List<String> backupCodesList) {
+        this.userId = userId;
         this.secret = secret;
         this.backupCodes = new HashSet<>(backupCodesList);
-        this.codeGenerator = new DefaultCodeGenerator();
-        this.timeProvider = new SystemTimeProvider();
-        this.qrGenerator = new ZxingPngQrGenerator();
-        this.codeVerifier = new DefaultCodeVerifier(codeGenerator, timeProvider);
-        this.usedCodes = ConcurrentHashMap.newKeySet();
+        this.totpVerifier = TotpVerifier.shared();
     }
 
     public String getSecret() {
@@ -103,7 +84,13 @@ public class TwoFactorAuth {
         System.out.println("\nDigite o código de 6 dígitos do seu app autenticador");
         System.out.println("Ou digite um código de backup se necessário");
         String code = scanner.nextLine().trim();
+        return verifyCode(code);
+    }
 
+    /**
+     * Verifica um código TOTP ou de backup sem interação com o usuário.
+     */
+    public boolean verifyCode(String code) {
         // Verifica se é um código de backup
         if (backupCodes.contains(code)) {
             backupCodes.remove(code);
@@ -111,32 +98,9 @@ public class TwoFactorAuth {
             return true;
         }
 
-        // Verifica o código TOTP
-        try {
-            int codeInt = Integer.parseInt(code);
-            String formattedCode = String.format("%06d", codeInt);
-            
-            // Verifica se o código já foi usado
-            if (usedCodes.contains(formattedCode)) {
-                System.out.println("\n❌ Este código já foi utilizado!");
-                return false;
-            }
-
-            // Verifica se o código é válido
-            if (codeVerifier.isValidCode(secret, formattedCode)) {
-                // Adiciona o código à lista de códigos usados
-                usedCodes.add(formattedCode);
-                
-                // Mantém apenas os últimos MAX_USED_CODES códigos
-                if (usedCodes.size() > MAX_USED_CODES) {
-                    usedCodes.clear(); // Limpa todos os códigos antigos
-                }
-                return true;
-            }
-            return false;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+        // Verifica o código TOTP (o cache anti-replay é compartilhado entre todos os logins)
+        String replayKey = userId != null ? userId : secret;
+        return totpVerifier.verify(replayKey, secret, code);
     }
 
     private Set<String> generateBackupCodes() {
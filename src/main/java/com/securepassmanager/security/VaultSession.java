@@ -0,0 +1,307 @@
+package com.securepassmanager.security;
+
+import com.securepassmanager.model.User;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessão de cofre desbloqueada pela senha mestra.
+ * As chaves do chaveiro ficam guardadas no registro do usuário, cifradas por uma chave
+ * (KEK) derivada da senha mestra. Apenas o desbloqueio paga o custo do KDF: a KEK e o
+ * chaveiro aberto ficam em memória durante a sessão e são apagados no bloqueio, manual
+ * ou após um período de inatividade. Criptografar e descriptografar senhas só é possível
+ * pelo {@link #encryption()} de uma sessão desbloqueada.
+ */
+public class VaultSession {
+    private static final String WRAP_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final byte WRAP_FORMAT_VERSION = 1;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ScheduledExecutorService EXPIRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "vault-session-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final KeyRing keyRing;
+    private final EncryptionService encryption;
+    private final long idleTimeoutMillis;
+    private byte[] kek;
+    private long lastAccess;
+    private ScheduledFuture<?> expiryTask;
+    private boolean userUpdated;
+
+    private VaultSession(KeyRing keyRing, byte[] kek, long idleTimeoutMillis) {
+        this.keyRing = keyRing;
+        this.encryption = new EncryptionService(this::unlockedKeyRing, LoginAdmissionController.shared());
+        this.kek = kek;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        touch();
+    }
+
+    /**
+     * Desbloqueia o cofre do usuário. Se o usuário ainda não tem chaves protegidas pela
+     * senha mestra, os parâmetros do KDF são calibrados e um chaveiro é criado agora, a
+     * partir do chaveiro antigo da instalação ({@code legacyKeys}, se houver) ou com uma
+     * chave nova; nesse caso (ou se o chaveiro antigo tiver chaves que faltam na cópia do
+     * usuário) {@link #isUserUpdated()} indica que o registro do usuário precisa ser salvo.
+     *
+     * @throws SecurityException     se a senha não abrir as chaves do usuário
+     * @throws IllegalStateException se o chaveiro antigo tiver outra chave com o mesmo
+     *                               identificador de uma chave do usuário
+     */
+    static VaultSession open(User user, String masterPassword, KeyRing legacyKeys,
+                             long unlockTargetMillis, long idleTimeoutMillis) throws Exception {
+        char[] password = masterPassword.toCharArray();
+        try {
+            if (user.getWrappedVaultKey() == null || user.getKdfSalt() == null || user.getKdfIterations() <= 0) {
+                KeyRing keyRing = legacyKeys != null
+                    ? new KeyRing(legacyKeys.snapshot(), legacyKeys.currentKeyId())
+                    : KeyRing.inMemory();
+                VaultSession session = create(user, password, keyRing, unlockTargetMillis, idleTimeoutMillis);
+                session.userUpdated = true;
+                return session;
+            }
+
+            byte[] salt = Base64.getDecoder().decode(user.getKdfSalt());
+            byte[] kek = MasterKeyDerivation.derive(password, salt, user.getKdfIterations());
+            KeyRing keyRing;
+            try {
+                keyRing = unwrapKeyRing(kek, user.getWrappedVaultKey());
+            } catch (AEADBadTagException e) {
+                Arrays.fill(kek, (byte) 0);
+                throw new SecurityException("Senha mestra não abre as chaves do cofre.");
+            }
+            VaultSession session = new VaultSession(keyRing, kek, idleTimeoutMillis);
+            // Senhas cifradas antes da migração usam as chaves do chaveiro antigo
+            if (legacyKeys != null) {
+                boolean imported;
+                try {
+                    imported = keyRing.importKeys(legacyKeys.snapshot(), legacyKeys.currentKeyId());
+                } catch (IllegalStateException e) {
+                    session.lock();
+                    throw new IllegalStateException("O chaveiro antigo desta instalação não corresponde às chaves da conta ("
+                        + e.getMessage() + "). Mova secure_keyring.dat/secure_key.dat para fora do diretório "
+                        + "para entrar apenas com as chaves da conta.", e);
+                }
+                if (imported) {
+                    session.rewrap(user);
+                    session.userUpdated = true;
+                }
+            }
+            return session;
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private static VaultSession create(User user, char[] password, KeyRing keyRing,
+                                       long unlockTargetMillis, long idleTimeoutMillis) throws Exception {
+        int iterations = MasterKeyDerivation.calibrateIterations(unlockTargetMillis);
+        byte[] salt = MasterKeyDerivation.newSalt();
+        byte[] kek = MasterKeyDerivation.derive(password, salt, iterations);
+        user.setKdfSalt(Base64.getEncoder().encodeToString(salt));
+        user.setKdfIterations(iterations);
+        VaultSession session = new VaultSession(keyRing, kek, idleTimeoutMillis);
+        session.rewrap(user);
+        return session;
+    }
+
+    /**
+     * Troca a senha mestra: novos parâmetros de KDF e nova KEK. As chaves do cofre
+     * não mudam, então nenhuma senha armazenada precisa ser recriptografada.
+     */
+    public synchronized void changeMasterPassword(User user, String newPassword, long unlockTargetMillis) throws Exception {
+        ensureUnlocked();
+        char[] password = newPassword.toCharArray();
+        try {
+            int iterations = MasterKeyDerivation.calibrateIterations(unlockTargetMillis);
+            byte[] salt = MasterKeyDerivation.newSalt();
+            byte[] newKek = MasterKeyDerivation.derive(password, salt, iterations);
+            Arrays.fill(kek, (byte) 0);
+            kek = newKek;
+            user.setKdfSalt(Base64.getEncoder().encodeToString(salt));
+            user.setKdfIterations(iterations);
+            rewrap(user);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    /**
+     * Cifra novamente o chaveiro atual com a KEK da sessão (por exemplo, após uma rotação),
+     * sem pagar o custo do KDF.
+     */
+    public synchronized void rewrap(User user) throws Exception {
+        ensureUnlocked();
+        byte[] plain = serialize(keyRing);
+        try {
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, kekSpec(), new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            byte[] encrypted = cipher.doFinal(plain);
+            byte[] combined = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, combined, 0, iv.length);
+            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+            user.setWrappedVaultKey(Base64.getEncoder().encodeToString(combined));
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /**
+     * Gera uma nova chave no chaveiro da sessão e cifra o chaveiro novamente no registro
+     * do usuário, que precisa ser salvo em seguida. Retorna o identificador da nova chave.
+     */
+    public synchronized int rotateKey(User user) throws Exception {
+        ensureUnlocked();
+        int keyId = keyRing.rotate();
+        rewrap(user);
+        return keyId;
+    }
+
+    /**
+     * Serviço de criptografia que usa o chaveiro desta sessão. Depois do bloqueio, toda
+     * operação com chaves lança {@link IllegalStateException}.
+     */
+    public EncryptionService encryption() {
+        return encryption;
+    }
+
+    public synchronized boolean isUnlocked() {
+        return kek != null;
+    }
+
+    public boolean isUserUpdated() {
+        return userUpdated;
+    }
+
+    /**
+     * Registra atividade na sessão, adiando o bloqueio automático.
+     */
+    public synchronized void touch() {
+        if (kek == null) {
+            return;
+        }
+        lastAccess = System.currentTimeMillis();
+        if (expiryTask == null) {
+            scheduleExpiry(idleTimeoutMillis);
+        }
+    }
+
+    /**
+     * Apaga a KEK e o chaveiro da memória. Um novo desbloqueio exige a senha mestra.
+     */
+    public synchronized void lock() {
+        if (kek != null) {
+            Arrays.fill(kek, (byte) 0);
+            kek = null;
+        }
+        keyRing.clear();
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+            expiryTask = null;
+        }
+    }
+
+    private void scheduleExpiry(long delayMillis) {
+        expiryTask = EXPIRY_SCHEDULER.schedule(this::checkIdle, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void checkIdle() {
+        expiryTask = null;
+        if (kek == null) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - lastAccess;
+        if (idle >= idleTimeoutMillis) {
+            lock();
+        } else {
+            scheduleExpiry(idleTimeoutMillis - idle);
+        }
+    }
+
+    private void ensureUnlocked() {
+        if (kek == null) {
+            throw new IllegalStateException("Sessão do cofre bloqueada. Informe a senha mestra novamente.");
+        }
+        touch();
+    }
+
+    private synchronized KeyRing unlockedKeyRing() {
+        ensureUnlocked();
+        return keyRing;
+    }
+
+    private SecretKey kekSpec() {
+        return new SecretKeySpec(kek, "AES");
+    }
+
+    /**
+     * Abre a cópia das chaves guardada no registro do usuário.
+     */
+    private static KeyRing unwrapKeyRing(byte[] kek, String wrapped) throws Exception {
+        byte[] combined = Base64.getDecoder().decode(wrapped);
+        Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(kek, "AES"),
+            new GCMParameterSpec(GCM_TAG_LENGTH, combined, 0, GCM_IV_LENGTH));
+        byte[] plain = cipher.doFinal(combined, GCM_IV_LENGTH, combined.length - GCM_IV_LENGTH);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(plain);
+            if (buffer.get() != WRAP_FORMAT_VERSION) {
+                throw new IllegalStateException("Formato de chaves do cofre não suportado");
+            }
+            int current = buffer.getShort() & 0xffff;
+            int count = buffer.getShort() & 0xffff;
+            Map<Integer, SecretKey> keys = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getShort() & 0xffff;
+                byte[] encoded = new byte[buffer.get() & 0xff];
+                buffer.get(encoded);
+                keys.put(id, new SecretKeySpec(encoded, "AES"));
+                Arrays.fill(encoded, (byte) 0);
+            }
+            return new KeyRing(keys, current);
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    private static byte[] serialize(KeyRing keyRing) {
+        Map<Integer, SecretKey> keys = keyRing.snapshot();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(WRAP_FORMAT_VERSION);
+        writeShort(out, keyRing.currentKeyId());
+        writeShort(out, keys.size());
+        for (Map.Entry<Integer, SecretKey> entry : keys.entrySet()) {
+            byte[] encoded = entry.getValue().getEncoded();
+            writeShort(out, entry.getKey());
+            out.write(encoded.length);
+            out.write(encoded, 0, encoded.length);
+            Arrays.fill(encoded, (byte) 0);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
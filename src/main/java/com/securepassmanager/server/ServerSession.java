@@ -0,0 +1,120 @@
+package com.securepassmanager.server;
+
+import com.securepassmanager.model.User;
+import com.securepassmanager.security.TwoFactorAuth;
+import com.securepassmanager.security.VaultSession;
+
+import java.util.function.Consumer;
+
+/**
+ * Estado de um cliente do modo servidor: após a senha mestra a sessão fica pendente até
+ * o segundo fator ser confirmado. O cofre só é desbloqueado, e a sessão dele guardada
+ * aqui, depois disso.
+ */
+final class ServerSession {
+    private final User user;
+    private final TwoFactorAuth twoFactorAuth;
+    private volatile VaultSession vaultSession;
+    private final long createdAt;
+    private volatile boolean authenticated;
+    private Runnable onClose;
+    private String pendingPasswordHash;
+    private Consumer<String> passwordHashSaver;
+
+    ServerSession(User user, TwoFactorAuth twoFactorAuth, long createdAt) {
+        this.user = user;
+        this.twoFactorAuth = twoFactorAuth;
+        this.createdAt = createdAt;
+    }
+
+    User user() {
+        return user;
+    }
+
+    TwoFactorAuth twoFactorAuth() {
+        return twoFactorAuth;
+    }
+
+    VaultSession vaultSession() {
+        return vaultSession;
+    }
+
+    boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    void markAuthenticated() {
+        markAuthenticated(null, null);
+    }
+
+    /**
+     * Confirma o segundo fator e guarda o cofre desbloqueado. Um hash da senha mestra
+     * recalculado durante o login (ver {@link #passwordRehashed}) só é entregue a
+     * {@code saver} a partir daqui.
+     */
+    void markAuthenticated(VaultSession unlocked, Consumer<String> saver) {
+        String pending;
+        synchronized (this) {
+            vaultSession = unlocked;
+            authenticated = true;
+            passwordHashSaver = saver;
+            pending = pendingPasswordHash;
+            pendingPasswordHash = null;
+        }
+        if (pending != null && saver != null) {
+            saver.accept(pending);
+        }
+    }
+
+    /**
+     * Recebe o hash recalculado com o custo atual; fica guardado até o segundo fator ser
+     * confirmado, para que quem só sabe a senha não altere o registro do usuário.
+     */
+    void passwordRehashed(String hash) {
+        Consumer<String> saver;
+        synchronized (this) {
+            if (!authenticated) {
+                pendingPasswordHash = hash;
+                return;
+            }
+            saver = passwordHashSaver;
+        }
+        if (saver != null) {
+            saver.accept(hash);
+        }
+    }
+
+    /**
+     * Sessões pendentes expiram após {@code pendingTtlMillis}; sessões autenticadas
+     * expiram quando o cofre é bloqueado por inatividade.
+     */
+    boolean isExpired(long now, long pendingTtlMillis) {
+        if (!authenticated) {
+            return now - createdAt > pendingTtlMillis;
+        }
+        VaultSession vaultSession = this.vaultSession;
+        return vaultSession != null && !vaultSession.isUnlocked();
+    }
+
+    /**
+     * Ação executada uma única vez quando a sessão é encerrada (logout ou expiração).
+     */
+    synchronized void onClose(Runnable action) {
+        onClose = action;
+    }
+
+    void close() {
+        VaultSession vaultSession = this.vaultSession;
+        if (vaultSession != null) {
+            vaultSession.lock();
+        }
+        Runnable action;
+        synchronized (this) {
+            action = onClose;
+            onClose = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.securepassmanager.server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Tokens de sessão do modo servidor. O token é aleatório (256 bits) e só identifica a
+ * sessão; nenhuma chave ou senha é derivada dele.
+ */
+final class SessionRegistry {
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, ServerSession> sessions = new ConcurrentHashMap<>();
+    private final long pendingTtlMillis;
+    private final int maxSessions;
+    private final LongSupplier clock;
+
+    SessionRegistry(long pendingTtlMillis, int maxSessions, LongSupplier clock) {
+        this.pendingTtlMillis = pendingTtlMillis;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Registra a sessão e retorna seu token.
+     *
+     * @throws IllegalStateException se o limite de sessões ativas foi atingido
+     */
+    String register(ServerSession session) {
+        purgeExpired();
+        if (sessions.size() >= maxSessions) {
+            session.close();
+            throw new IllegalStateException("Limite de sessões atingido");
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, session);
+        return token;
+    }
+
+    /**
+     * Retorna a sessão do token, ou null se não existir ou tiver expirado.
+     */
+    ServerSession get(String token) {
+        if (token == null) {
+            return null;
+        }
+        ServerSession session = sessions.get(token);
+        if (session != null && session.isExpired(clock.getAsLong(), pendingTtlMillis)) {
+            remove(token);
+            return null;
+        }
+        return session;
+    }
+
+    void remove(String token) {
+        ServerSession session = sessions.remove(token);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    void closeAll() {
+        sessions.keySet().forEach(this::remove);
+    }
+
+    private void purgeExpired() {
+        long now = clock.getAsLong();
+        sessions.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired(now, pendingTtlMillis)) {
+                entry.getValue().close();
+                return true;
+            }
+            return false;
+        });
+    }
+}
@@ -0,0 +1,570 @@
+package com.securepassmanager.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.model.User;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.LoginThrottledException;
+import com.securepassmanager.security.TwoFactorAuth;
+import com.securepassmanager.security.VaultSession;
+import com.securepassmanager.service.SyncScheduler;
+import com.securepassmanager.service.UserService;
+import com.securepassmanager.service.VaultSearchIndex;
+import com.securepassmanager.storage.OffHeapCiphertextCache;
+import com.securepassmanager.storage.VaultRepository;
+import com.securepassmanager.util.AppConfig;
+import com.securepassmanager.util.InputValidator;
+import com.securepassmanager.util.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Modo servidor: expõe as operações do cofre por HTTP/JSON num socket local, para que uma
+ * única JVM (com os pools do MongoDB, o chaveiro e os caches já aquecidos) atenda vários
+ * clientes ao mesmo tempo.
+ *
+ * <pre>
+ * POST   /api/login           {"email", "password"}  → {"token"} (pendente de 2FA)
+ * POST   /api/login/2fa       {"code", "password"}   → sessão autenticada (cofre desbloqueado)
+ * POST   /api/logout
+ * GET    /api/entries                                → metadados das entradas
+ * GET    /api/entries/{serviço}                      → entrada com a senha
+ * PUT    /api/entries/{serviço} {"username", "password", "title"}
+ * DELETE /api/entries/{serviço}
+ * GET    /api/search?q=texto                          → metadados das entradas mais parecidas
+ * GET    /api/generate?length=N
+ * </pre>
+ *
+ * As requisições autenticadas usam o cabeçalho {@code Authorization: Bearer <token>}.
+ * Com {@code server.cache.offheap.mb > 0}, as entradas lidas ficam num
+ * {@link OffHeapCiphertextCache} e as leituras seguintes são descriptografadas direto de lá.
+ * Com um {@link SyncScheduler}, o cofre de cada usuário com sessão autenticada é mantido
+ * sincronizado com a nuvem até a última sessão dele terminar.
+ * O índice de busca de cada usuário é montado na primeira busca, acompanha as gravações
+ * feitas pelo servidor e é descartado quando a última sessão do usuário termina ou quando
+ * o cofre muda por fora (ver {@link #vaultChanged}).
+ */
+public class VaultHttpServer {
+    private static final String API_PREFIX = "/api/";
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_GENERATED_LENGTH = 16;
+    private static final int MAX_GENERATED_LENGTH = 128;
+    private static final int SEARCH_LIMIT = 10;
+
+    private final EncryptionService encryptionService;
+    private final UserService userService;
+    private final VaultRepository vaultRepository;
+    private final SessionRegistry sessions;
+    private final OffHeapCiphertextCache ciphertextCache;
+    private final SyncScheduler syncScheduler;
+    private final Map<String, Integer> activeSessions = new ConcurrentHashMap<>();
+    private final Map<String, VaultSearchIndex> searchIndexes = new ConcurrentHashMap<>();
+    private final Gson gson = new Gson();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public VaultHttpServer(EncryptionService encryptionService, UserService userService, VaultRepository vaultRepository) {
+        this(encryptionService, userService, vaultRepository, null);
+    }
+
+    /**
+     * @param syncScheduler agendador da sincronização com a nuvem, ou null sem nuvem
+     */
+    public VaultHttpServer(EncryptionService encryptionService, UserService userService, VaultRepository vaultRepository,
+                           SyncScheduler syncScheduler) {
+        this.syncScheduler = syncScheduler;
+        this.encryptionService = encryptionService;
+        this.userService = userService;
+        this.vaultRepository = vaultRepository;
+        this.sessions = new SessionRegistry(
+            AppConfig.getLong("server.pending.ttl.ms", 2 * 60 * 1000),
+            AppConfig.getInt("server.max.sessions", 1000),
+            System::currentTimeMillis);
+        long cacheMegabytes = AppConfig.getLong("server.cache.offheap.mb", 0);
+        this.ciphertextCache = cacheMegabytes > 0
+            ? new OffHeapCiphertextCache(cacheMegabytes * 1024 * 1024, AppConfig.getInt("server.cache.offheap.slot.bytes", 384))
+            : null;
+    }
+
+    /**
+     * Inicia o servidor. Por padrão escuta apenas em 127.0.0.1.
+     */
+    public synchronized void start(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext(API_PREFIX, this::handle);
+        server.start();
+    }
+
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        sessions.closeAll();
+        searchIndexes.clear();
+        if (ciphertextCache != null) {
+            ciphertextCache.clear();
+        }
+    }
+
+    /**
+     * Uma thread virtual por requisição quando a JVM oferece esse recurso (Java 21+);
+     * nas versões anteriores, um pool limitado de threads de plataforma.
+     */
+    static ExecutorService newRequestExecutor() {
+        return VirtualThreads.newPerTaskExecutor("vault-http",
+            AppConfig.getInt("server.threads", Runtime.getRuntime().availableProcessors() * 8));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath().substring(API_PREFIX.length());
+            String method = exchange.getRequestMethod();
+            if (path.equals("login") && method.equals("POST")) {
+                login(exchange);
+            } else if (path.equals("login/2fa") && method.equals("POST")) {
+                verifySecondFactor(exchange);
+            } else if (path.equals("logout") && method.equals("POST")) {
+                sessions.remove(bearerToken(exchange));
+                send(exchange, 204, null);
+            } else if (path.equals("generate") && method.equals("GET")) {
+                requireSession(exchange);
+                generate(exchange);
+            } else if (path.equals("search") && method.equals("GET")) {
+                search(exchange, requireSession(exchange));
+            } else if (path.equals("entries") && method.equals("GET")) {
+                listEntries(exchange, requireSession(exchange));
+            } else if (path.startsWith("entries/")) {
+                String service = InputValidator.sanitize(
+                    URLDecoder.decode(path.substring("entries/".length()), StandardCharsets.UTF_8));
+                if (!InputValidator.isValidServiceOrUsername(service)) {
+                    throw new ApiException(400, "Nome de serviço inválido");
+                }
+                ServerSession session = requireSession(exchange);
+                switch (method) {
+                    case "GET":
+                        getEntry(exchange, session, service);
+                        break;
+                    case "PUT":
+                        putEntry(exchange, session, service);
+                        break;
+                    case "DELETE":
+                        deleteEntry(exchange, session, service);
+                        break;
+                    default:
+                        throw new ApiException(405, "Método não suportado");
+                }
+            } else {
+                throw new ApiException(404, "Recurso não encontrado");
+            }
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (LoginThrottledException e) {
+            sendError(exchange, 429, e.getMessage());
+        } catch (SecurityException e) {
+            sendError(exchange, 401, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Erro no modo servidor: " + e.getMessage());
+            sendError(exchange, 500, "Erro interno");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void login(HttpExchange exchange) throws Exception {
+        JsonObject body = readJson(exchange);
+        String email = stringField(body, "email");
+        String password = stringField(body, "password");
+        if (!InputValidator.isValidEmail(email) || password == null) {
+            throw new ApiException(400, "E-mail ou senha ausentes");
+        }
+
+        String accountId = UserService.normalizeEmail(email);
+        User user = userService.findByEmail(email);
+        if (user == null) {
+            encryptionService.verifyUnknownAccount(accountId, password);
+            throw new ApiException(401, "Credenciais inválidas");
+        }
+        if (!encryptionService.verifyPassword(accountId, password, user.getPasswordHash())) {
+            throw new ApiException(401, "Credenciais inválidas");
+        }
+        // O registro em cache é compartilhado por todos os logins; a sessão usa uma cópia.
+        // O cofre só é desbloqueado após o segundo fator: a sessão pendente não guarda
+        // nada secreto além do próprio segundo fator.
+        User sessionUser = new User(user);
+        TwoFactorAuth twoFactorAuth = new TwoFactorAuth(sessionUser.getId(), sessionUser.getTotpSecret(), sessionUser.getBackupCodes());
+        ServerSession session = new ServerSession(sessionUser, twoFactorAuth, sessions.now());
+        String token;
+        try {
+            token = sessions.register(session);
+        } catch (IllegalStateException e) {
+            throw new ApiException(503, e.getMessage());
+        }
+        // A senha não fica na sessão: o hash é recalculado agora e gravado após o 2FA
+        encryptionService.rehashIfNeeded(password, sessionUser.getPasswordHash(), session::passwordRehashed);
+        send(exchange, 200, Map.of("token", token, "twoFactorRequired", true));
+    }
+
+    /**
+     * Confirma o segundo fator. A senha mestra é enviada de novo: ela é conferida com o
+     * hash, desbloqueia o cofre (derivando a chave, o que no primeiro desbloqueio grava o
+     * chaveiro no registro do usuário) e é descartada em seguida.
+     */
+    private void verifySecondFactor(HttpExchange exchange) throws Exception {
+        String token = bearerToken(exchange);
+        ServerSession session = sessions.get(token);
+        if (session == null || session.isAuthenticated()) {
+            throw new ApiException(401, "Sessão inválida ou expirada");
+        }
+        JsonObject body = readJson(exchange);
+        String code = InputValidator.sanitize(stringField(body, "code"));
+        String password = stringField(body, "password");
+        if (code == null || code.isEmpty() || password == null) {
+            throw new ApiException(400, "Código ou senha ausentes");
+        }
+
+        User user = session.user();
+        boolean passwordMatches;
+        try {
+            passwordMatches = encryptionService.verifyPassword(UserService.normalizeEmail(user.getEmail()), password, user.getPasswordHash());
+        } catch (LoginThrottledException e) {
+            sessions.remove(token);
+            throw e;
+        }
+        TwoFactorAuth twoFactorAuth = session.twoFactorAuth();
+        int backupCodesBefore = twoFactorAuth.getBackupCodes().size();
+        if (!passwordMatches || !twoFactorAuth.verifyCode(code)) {
+            sessions.remove(token);
+            throw new ApiException(401, passwordMatches ? "Código inválido" : "Credenciais inválidas");
+        }
+        if (twoFactorAuth.getBackupCodes().size() != backupCodesBefore) {
+            user.setBackupCodes(new ArrayList<>(twoFactorAuth.getBackupCodes()));
+            userService.updateUser(user);
+        }
+        // Desbloqueia antes de liberar o hash recalculado: a cópia gravada com o novo hash
+        // precisa levar o chaveiro criado no primeiro desbloqueio
+        VaultSession vaultSession = userService.unlockVault(user, password, encryptionService);
+        session.markAuthenticated(vaultSession, newHash -> savePasswordHash(session.user(), newHash));
+        trackSession(session);
+        send(exchange, 200, Map.of("authenticated", true));
+    }
+
+    private void savePasswordHash(User user, String newHash) {
+        User updated = new User(user);
+        updated.setPasswordHash(newHash);
+        userService.updateUser(updated);
+    }
+
+    /**
+     * Registra o usuário no agendador de sincronização (com prioridade, como no login da
+     * CLI). Quando a última sessão autenticada dele terminar, o usuário sai do agendador e
+     * o índice de busca dele é descartado.
+     */
+    private void trackSession(ServerSession session) {
+        String userId = session.user().getId();
+        activeSessions.merge(userId, 1, Integer::sum);
+        session.onClose(() -> {
+            if (activeSessions.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null) == null) {
+                searchIndexes.remove(userId);
+                if (syncScheduler != null) {
+                    syncScheduler.unregister(userId);
+                }
+            }
+        });
+        if (syncScheduler != null) {
+            syncScheduler.requestSync(userId);
+        }
+    }
+
+    /**
+     * Avisa que o cofre do usuário foi alterado fora do servidor (por exemplo, por uma
+     * sincronização com a nuvem): o índice de busca é remontado na próxima busca.
+     */
+    public void vaultChanged(String userId) {
+        searchIndexes.remove(userId);
+    }
+
+    /**
+     * Mantém o índice de busca do usuário, se já montado, em dia com uma gravação. Enquanto
+     * o índice está sendo montado a atualização espera por ele, e a montagem que leu o
+     * repositório antes da gravação não fica com a versão anterior.
+     */
+    private void updateSearchIndex(String userId, Consumer<VaultSearchIndex> update) {
+        searchIndexes.computeIfPresent(userId, (id, index) -> {
+            update.accept(index);
+            return index;
+        });
+    }
+
+    private void search(HttpExchange exchange, ServerSession session) throws IOException {
+        String query = queryParameter(exchange, "q");
+        if (query == null || query.isBlank()) {
+            throw new ApiException(400, "Consulta ausente");
+        }
+        VaultSearchIndex index = searchIndexes.computeIfAbsent(session.user().getId(),
+            userId -> VaultSearchIndex.of(vaultRepository.getAllPasswordEntries(userId)));
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (VaultSearchIndex.Hit hit : index.search(query, SEARCH_LIMIT)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("service", hit.getService());
+            item.put("title", hit.getTitle());
+            item.put("username", hit.getUsername());
+            item.put("score", hit.getScore());
+            result.add(item);
+        }
+        send(exchange, 200, result);
+    }
+
+    private void markDirty(String userId) {
+        if (syncScheduler != null) {
+            syncScheduler.markDirty(userId);
+        }
+    }
+
+    private void listEntries(HttpExchange exchange, ServerSession session) throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (PasswordEntry entry : vaultRepository.getAllPasswordEntries(session.user().getId())) {
+            result.add(metadata(entry));
+        }
+        send(exchange, 200, result);
+    }
+
+    private void getEntry(HttpExchange exchange, ServerSession session, String service) throws Exception {
+        String userId = session.user().getId();
+        EncryptionService encryption = session.vaultSession().encryption();
+        if (ciphertextCache != null) {
+            Map<String, Object> cached = ciphertextCache.read(userId, service, (metadata, ciphertext) -> {
+                // Entradas com chave antiga seguem pelo repositório, onde são recriptografadas
+                if (encryption.needsReEncryption(ciphertext)) {
+                    return null;
+                }
+                Map<String, Object> result = metadata(metadata);
+                result.put("password", encryption.decryptPassword(ciphertext));
+                return result;
+            });
+            if (cached != null) {
+                send(exchange, 200, cached);
+                return;
+            }
+        }
+
+        // A geração é lida antes do repositório: se um PUT ou DELETE acontecer durante a
+        // leitura, a cópia lida aqui não entra no cache
+        long stamp = ciphertextCache != null ? ciphertextCache.stamp(userId, service) : 0;
+        PasswordEntry entry = vaultRepository.findByService(service, userId);
+        if (entry == null) {
+            throw new ApiException(404, "Serviço não encontrado");
+        }
+        Map<String, Object> result = metadata(entry);
+        result.put("password", encryption.decryptPassword(entry.getPassword()));
+        reEncryptIfNeeded(encryption, entry);
+        if (ciphertextCache != null) {
+            ciphertextCache.putIfUnchanged(entry, stamp);
+        }
+        send(exchange, 200, result);
+    }
+
+    /**
+     * Rotação preguiçosa: entradas criptografadas com uma chave antiga são gravadas
+     * novamente com a chave atual quando são lidas.
+     */
+    private void reEncryptIfNeeded(EncryptionService encryption, PasswordEntry entry) {
+        try {
+            if (encryption.needsReEncryption(entry.getPassword())) {
+                entry.setPassword(encryption.reEncrypt(entry.getPassword()));
+                vaultRepository.insertOrUpdatePasswordEntry(entry);
+                updateSearchIndex(entry.getUserId(), index -> index.index(entry));
+                markDirty(entry.getUserId());
+            }
+        } catch (Exception e) {
+            System.err.println("Aviso: não foi possível atualizar a chave da senha: " + e.getMessage());
+        }
+    }
+
+    private void putEntry(HttpExchange exchange, ServerSession session, String service) throws Exception {
+        JsonObject body = readJson(exchange);
+        String username = InputValidator.sanitize(stringField(body, "username"));
+        String password = stringField(body, "password");
+        if (!InputValidator.isValidServiceOrUsername(username)) {
+            throw new ApiException(400, "Nome de usuário inválido");
+        }
+        if (password == null || password.isEmpty()) {
+            throw new ApiException(400, "Senha ausente");
+        }
+
+        PasswordEntry entry = new PasswordEntry(service, username,
+            session.vaultSession().encryption().encryptPassword(password), session.user().getId());
+        entry.setTitle(InputValidator.sanitize(stringField(body, "title")));
+        long stamp = ciphertextCache != null ? ciphertextCache.stamp(entry.getUserId(), service) : 0;
+        vaultRepository.insertOrUpdatePasswordEntry(entry);
+        updateSearchIndex(entry.getUserId(), index -> index.index(entry));
+        markDirty(entry.getUserId());
+        // Outra gravação concorrente pode ter chegado ao cache primeiro com uma versão anterior
+        if (ciphertextCache != null && !ciphertextCache.putIfUnchanged(entry, stamp)) {
+            ciphertextCache.invalidate(entry.getUserId(), service);
+        }
+        send(exchange, 200, metadata(entry));
+    }
+
+    private void deleteEntry(HttpExchange exchange, ServerSession session, String service) throws IOException {
+        boolean deleted = vaultRepository.deletePasswordEntry(service, session.user().getId());
+        // Invalida depois da remoção: um GET concorrente que leu a entrada antes dela não a
+        // devolve ao cache, pois a invalidação muda a geração
+        if (ciphertextCache != null) {
+            ciphertextCache.invalidate(session.user().getId(), service);
+        }
+        if (!deleted) {
+            throw new ApiException(404, "Serviço não encontrado");
+        }
+        updateSearchIndex(session.user().getId(), index -> index.remove(service));
+        markDirty(session.user().getId());
+        send(exchange, 204, null);
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        int length = DEFAULT_GENERATED_LENGTH;
+        try {
+            String lengthParameter = queryParameter(exchange, "length");
+            if (lengthParameter != null) {
+                length = Integer.parseInt(lengthParameter);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Tamanho inválido");
+        }
+        if (length > MAX_GENERATED_LENGTH) {
+            throw new ApiException(400, "Tamanho máximo: " + MAX_GENERATED_LENGTH);
+        }
+        try {
+            send(exchange, 200, Map.of("password", encryptionService.generateStrongPassword(length)));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    private ServerSession requireSession(HttpExchange exchange) {
+        ServerSession session = sessions.get(bearerToken(exchange));
+        if (session == null || !session.isAuthenticated()) {
+            throw new ApiException(401, "Sessão inválida ou expirada");
+        }
+        session.vaultSession().touch();
+        return session;
+    }
+
+    /**
+     * Valor do parâmetro da query string, em qualquer posição, ou null se ausente.
+     */
+    static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = URLDecoder.decode(separator >= 0 ? pair.substring(0, separator) : pair, StandardCharsets.UTF_8);
+            if (key.equals(name)) {
+                return separator >= 0 ? URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8) : "";
+            }
+        }
+        return null;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        return header.substring("Bearer ".length()).trim();
+    }
+
+    private static Map<String, Object> metadata(PasswordEntry entry) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("service", entry.getService());
+        result.put("title", entry.getTitle());
+        result.put("username", entry.getUsername());
+        result.put("createdAt", String.valueOf(entry.getCreatedAt()));
+        result.put("updatedAt", String.valueOf(entry.getUpdatedAt()));
+        return result;
+    }
+
+    private static JsonObject readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Corpo da requisição muito grande");
+            }
+            return JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new ApiException(400, "JSON inválido");
+        }
+    }
+
+    private static String stringField(JsonObject body, String name) {
+        return body.has(name) && body.get(name).isJsonPrimitive() ? body.get(name).getAsString() : null;
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        // Fechar o corpo consome o que restou dele (logout, GET e DELETE não o leem). Se ele
+        // não chegou ao fim quando a resposta termina de ser escrita, o HttpServer do JDK
+        // fecha a conexão, e o cliente que já a reaproveitou recebe EOF.
+        exchange.getRequestBody().close();
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, Map.of("error", message != null ? message : "Erro"));
+    }
+
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
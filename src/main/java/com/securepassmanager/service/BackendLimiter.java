@@ -0,0 +1,51 @@
+package com.securepassmanager.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limite de chamadas simultâneas a um backend (MongoDB local ou nuvem). A vaga é ocupada
+ * só enquanto dura a chamada de E/S: uma sincronização que espera a nuvem não segura uma
+ * vaga do banco local, e vice-versa.
+ */
+public final class BackendLimiter {
+    /** Sem limite, para sincronizações avulsas (fora do {@link SyncScheduler}). */
+    public static final BackendLimiter UNLIMITED = new BackendLimiter(Integer.MAX_VALUE);
+
+    private final Semaphore permits;
+
+    public BackendLimiter(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("O limite do backend deve ser positivo");
+        }
+        this.permits = new Semaphore(limit);
+    }
+
+    /**
+     * Executa a chamada ocupando uma vaga; espera se não houver vaga livre.
+     */
+    public <T> T call(Supplier<T> io) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido esperando o backend", e);
+        }
+        try {
+            return io.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable io) {
+        call(() -> {
+            io.run();
+            return null;
+        });
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+}
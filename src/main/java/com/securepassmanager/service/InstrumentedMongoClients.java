@@ -0,0 +1,147 @@
+package com.securepassmanager.service;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.securepassmanager.jfr.MongoOperationEvent;
+import com.securepassmanager.metrics.MetricsRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cria clientes do MongoDB que registram a latência de cada comando enviado ao servidor
+ * ({@code mongodb.find{backend=local}}, {@code mongodb.insert{backend=cloud}}, ...).
+ * Como a medição fica no driver, todas as chamadas de MongoDBService e UserService são
+ * cobertas sem instrumentar método a método. Com o JFR ativo, cada comando também gera
+ * um {@link MongoOperationEvent}.
+ */
+final class InstrumentedMongoClients {
+    private static final Map<String, SharedClient> SHARED = new HashMap<>();
+
+    private InstrumentedMongoClients() {
+    }
+
+    /**
+     * @param backend "local" ou "cloud"
+     */
+    static MongoClient create(String uri, String backend) {
+        MongoClientSettings settings = MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(uri))
+            .addCommandListener(new MetricsCommandListener(backend))
+            .build();
+        return MongoClients.create(settings);
+    }
+
+    /**
+     * Cliente compartilhado por todos que usam a mesma URI (um pool de conexões por
+     * cluster, mesmo com vários bancos no mesmo cluster). Cada {@code acquire} deve ter
+     * um {@link #release} correspondente; o cliente é fechado no último.
+     */
+    static synchronized MongoClient acquire(String uri, String backend) {
+        SharedClient shared = SHARED.computeIfAbsent(uri, u -> new SharedClient(create(u, backend)));
+        shared.references++;
+        return shared.client;
+    }
+
+    static synchronized void release(MongoClient client) {
+        Iterator<SharedClient> it = SHARED.values().iterator();
+        while (it.hasNext()) {
+            SharedClient shared = it.next();
+            if (shared.client == client) {
+                if (--shared.references == 0) {
+                    it.remove();
+                    client.close();
+                }
+                return;
+            }
+        }
+    }
+
+    private static final class SharedClient {
+        final MongoClient client;
+        int references;
+
+        SharedClient(MongoClient client) {
+            this.client = client;
+        }
+    }
+
+    private static final class MetricsCommandListener implements CommandListener {
+        private final String backend;
+        // Eventos JFR em andamento, por requestId; só é usado quando o evento está habilitado
+        private final Map<Integer, MongoOperationEvent> pending = new ConcurrentHashMap<>();
+
+        MetricsCommandListener(String backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            MongoOperationEvent jfrEvent = new MongoOperationEvent();
+            if (jfrEvent.isEnabled()) {
+                jfrEvent.begin();
+                jfrEvent.command = event.getCommandName();
+                jfrEvent.collection = collectionOf(event.getCommandName(), event.getCommand());
+                jfrEvent.backend = backend;
+                pending.put(event.getRequestId(), jfrEvent);
+            }
+        }
+
+        @Override
+        public void commandSucceeded(CommandSucceededEvent event) {
+            MetricsRegistry.global().histogram("mongodb." + event.getCommandName(), "backend", backend)
+                .record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            MongoOperationEvent jfrEvent = pending.remove(event.getRequestId());
+            if (jfrEvent != null) {
+                jfrEvent.documents = documentsOf(event.getResponse());
+                jfrEvent.succeeded = true;
+                jfrEvent.commit();
+            }
+        }
+
+        @Override
+        public void commandFailed(CommandFailedEvent event) {
+            MetricsRegistry.global().histogram("mongodb." + event.getCommandName(), "backend", backend)
+                .recordError();
+            MongoOperationEvent jfrEvent = pending.remove(event.getRequestId());
+            if (jfrEvent != null) {
+                jfrEvent.succeeded = false;
+                jfrEvent.commit();
+            }
+        }
+
+        private static String collectionOf(String commandName, BsonDocument command) {
+            BsonValue value = command.get("getMore".equals(commandName) ? "collection" : commandName);
+            return value != null && value.isString() ? value.asString().getValue() : null;
+        }
+
+        /**
+         * Documentos afetados (n) em gravações, ou do lote retornado em consultas.
+         */
+        private static int documentsOf(BsonDocument response) {
+            if (response.isNumber("n")) {
+                return response.getNumber("n").intValue();
+            }
+            if (response.isDocument("cursor")) {
+                BsonDocument cursor = response.getDocument("cursor");
+                for (String batch : new String[] {"firstBatch", "nextBatch"}) {
+                    if (cursor.isArray(batch)) {
+                        return cursor.getArray(batch).size();
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+}
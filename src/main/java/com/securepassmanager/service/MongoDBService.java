@@ -1,33 +1,60 @@
 package com.securepassmanager.service;
 
+import com.mongodb.ConnectionString;
 import com.mongodb.client.*;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
 import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.storage.ShardRoutingTable;
+import com.securepassmanager.storage.VaultMerkleTree;
+import com.securepassmanager.storage.VaultRepository;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-public class MongoDBService {
+public class MongoDBService implements VaultRepository {
     private static final String DATABASE_NAME = "SecurePassManager";
     private static final String COLLECTION_NAME = "passwords";
     private static final String MASTER_COLLECTION = "master_password";
     private static final int CLOSE_TIMEOUT_SECONDS = 5;
+    static final int SCHEMA_VERSION = 2;
+    private static final Pattern URI_DATABASE = Pattern.compile("^(mongodb(?:\\+srv)?://[^/?]+)(/[^?]*)?(\\?.*)?$");
 
     private final MongoClient mongoClient;
     private final MongoDatabase database;
     private final MongoCollection<Document> collection;
     private volatile boolean isClosed = false;
     private final boolean isCloud;
+    private final boolean sharedClient;
     private MongoClient cloudClient;
     private MongoDatabase cloudDatabase;
     private MongoCollection<Document> cloudCollection;
+    private final MongoMerkleIndex merkle;
+    private MongoMerkleIndex cloudMerkle;
 
     public MongoDBService() {
         Properties props = new Properties();
@@ -49,7 +76,7 @@ public class MongoDBService {
 
         // Tenta conectar local primeiro
         try {
-            client = MongoClients.create(localUri);
+            client = InstrumentedMongoClients.create(localUri, "local");
             db = client.getDatabase(DATABASE_NAME);
             coll = db.getCollection(COLLECTION_NAME);
             db.runCommand(new Document("ping", 1));
@@ -58,9 +85,10 @@ public class MongoDBService {
             // Se tiver URI da nuvem, tenta conectar também
             if (cloudUri != null && !cloudUri.contains("<usuario>")) {
                 try {
-                    cloudClient = MongoClients.create(cloudUri);
+                    cloudClient = InstrumentedMongoClients.create(cloudUri, "cloud");
                     cloudDatabase = cloudClient.getDatabase(DATABASE_NAME);
                     cloudCollection = cloudDatabase.getCollection(COLLECTION_NAME);
+                    cloudMerkle = new MongoMerkleIndex(cloudDatabase, cloudCollection);
                     cloudDatabase.runCommand(new Document("ping", 1));
                     cloud = true;
                     System.out.println("Conectado ao MongoDB Atlas (nuvem).");
@@ -74,7 +102,7 @@ public class MongoDBService {
             // Se falhar local, tenta nuvem
             if (cloudUri != null && !cloudUri.contains("<usuario>")) {
                 try {
-                    client = MongoClients.create(cloudUri);
+                    client = InstrumentedMongoClients.create(cloudUri, "cloud");
                     db = client.getDatabase(DATABASE_NAME);
                     coll = db.getCollection(COLLECTION_NAME);
                     db.runCommand(new Document("ping", 1));
@@ -106,12 +134,78 @@ public class MongoDBService {
         this.database = db;
         this.collection = coll;
         this.isCloud = cloud;
+        this.sharedClient = false;
+        this.merkle = new MongoMerkleIndex(db, coll);
+    }
+
+    private MongoDBService(MongoClient client, String databaseName) {
+        this.mongoClient = client;
+        this.database = client.getDatabase(databaseName);
+        this.collection = database.getCollection(COLLECTION_NAME);
+        this.isCloud = false;
+        this.sharedClient = true;
+        this.merkle = new MongoMerkleIndex(database, collection);
+    }
+
+    /**
+     * Conexão com um shard do cofre. O banco vem da própria URI
+     * ({@code mongodb://host:27017/spm_shard1}; sem banco, o padrão) e o cliente é
+     * compartilhado entre todos os shards do mesmo cluster. Shards não têm cópia na nuvem.
+     */
+    public static MongoDBService forShard(String name, String uri) {
+        String databaseName = new ConnectionString(uri).getDatabase();
+        return connect(uri, databaseName != null ? databaseName : DATABASE_NAME, "shard", "ao shard " + name);
+    }
+
+    /**
+     * Conexão com um banco avulso do cluster da URI, sem cópia na nuvem, usada pelo teste
+     * de carga para não tocar no cofre.
+     */
+    public static MongoDBService forDatabase(String uri, String databaseName) {
+        return connect(uri, databaseName, "loadtest", "ao banco " + databaseName);
+    }
+
+    private static MongoDBService connect(String uri, String databaseName, String label, String target) {
+        MongoClient client = InstrumentedMongoClients.acquire(clusterUri(uri), label);
+        try {
+            MongoDBService service = new MongoDBService(client, databaseName);
+            service.database.runCommand(new Document("ping", 1));
+            return service;
+        } catch (RuntimeException e) {
+            InstrumentedMongoClients.release(client);
+            throw new RuntimeException("Não foi possível conectar " + target + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tabela de roteamento dos shards guardada no banco deste shard.
+     */
+    public ShardRoutingTable routingTable() {
+        return new MongoShardRoutingTable(database);
     }
 
     public boolean isCloudConnection() {
         return isCloud;
     }
 
+    @Override
+    public boolean ping() {
+        try {
+            (cloudDatabase != null ? cloudDatabase : database).runCommand(new Document("ping", 1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * URI sem o nome do banco, para que shards do mesmo cluster usem o mesmo pool.
+     */
+    static String clusterUri(String uri) {
+        Matcher matcher = URI_DATABASE.matcher(uri);
+        return matcher.matches() ? matcher.group(1) + "/" + (matcher.group(3) != null ? matcher.group(3) : "") : uri;
+    }
+
     private void validateConnection() {
         if (isClosed) {
             throw new IllegalStateException("Conexão com MongoDB está fechada");
@@ -121,25 +215,100 @@ public class MongoDBService {
         }
     }
 
-    public void insertPasswordEntry(PasswordEntry entry) {
-        validateConnection();
+    /**
+     * Converte uma entrada para o formato v2: senha criptografada como BSON Binary e
+     * datas como BSON Date.
+     */
+    static Document toDocument(PasswordEntry entry) {
+        return new Document()
+                .append("title", entry.getTitle())
+                .append("service", entry.getService())
+                .append("username", entry.getUsername())
+                .append("password", encodeCiphertext(entry.getPassword()))
+                .append("userId", entry.getUserId())
+                .append("createdAt", toDate(entry.getCreatedAt()))
+                .append("updatedAt", toDate(entry.getUpdatedAt()))
+                .append("bucket", VaultMerkleTree.bucketOf(entry.getService()))
+                .append("schemaVersion", SCHEMA_VERSION);
+    }
+
+    /**
+     * Lê uma entrada aceitando tanto o formato v2 quanto o formato antigo (Base64 e datas em texto).
+     */
+    static PasswordEntry toPasswordEntry(Document doc) {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setTitle(doc.getString("title"));
+        entry.setService(doc.getString("service"));
+        entry.setUsername(doc.getString("username"));
+        entry.setPassword(decodeCiphertext(doc.get("password")));
+        entry.setUserId(doc.getString("userId"));
+        LocalDateTime createdAt = readDate(doc.get("createdAt"));
+        LocalDateTime updatedAt = readDate(doc.get("updatedAt"));
+        if (createdAt != null) entry.setCreatedAt(createdAt);
+        if (updatedAt != null) entry.setUpdatedAt(updatedAt);
+        return entry;
+    }
+
+    static Object encodeCiphertext(String base64) {
+        if (base64 == null) {
+            return null;
+        }
         try {
-            Document doc = new Document()
-                    .append("title", entry.getTitle())
-                    .append("service", entry.getService())
-                    .append("username", entry.getUsername())
-                    .append("password", entry.getPassword())
-                    .append("userId", entry.getUserId())
-                    .append("createdAt", entry.getCreatedAt().toString())
-                    .append("updatedAt", entry.getUpdatedAt().toString());
-            
-            // Salva localmente
-            collection.insertOne(doc);
-            
-            // Se tiver conexão com a nuvem, sincroniza
+            return new Binary(Base64.getDecoder().decode(base64));
+        } catch (IllegalArgumentException e) {
+            return base64;
+        }
+    }
+
+    static String decodeCiphertext(Object value) {
+        if (value instanceof Binary) {
+            return Base64.getEncoder().encodeToString(((Binary) value).getData());
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    static Date toDate(LocalDateTime dateTime) {
+        return dateTime != null ? Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant()) : null;
+    }
+
+    static LocalDateTime readDate(Object value) {
+        if (value instanceof Date) {
+            return LocalDateTime.ofInstant(((Date) value).toInstant(), ZoneId.systemDefault());
+        }
+        if (value instanceof String) {
+            try {
+                return LocalDateTime.parse((String) value);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inicia em segundo plano a migração dos documentos antigos para o formato v2,
+     * tanto no banco local quanto na nuvem.
+     */
+    public void startSchemaMigration() {
+        validateConnection();
+        Thread migration = new Thread(() -> {
+            merkle.ensureIndexes();
+            new SchemaMigrator(collection, "local").run();
             if (cloudCollection != null) {
-                cloudCollection.insertOne(doc);
+                cloudMerkle.ensureIndexes();
+                new SchemaMigrator(cloudCollection, "nuvem").run();
             }
+        }, "schema-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    // Mesma semântica dos demais repositórios: uma entrada por serviço e usuário
+    public void insertPasswordEntry(PasswordEntry entry) {
+        try {
+            insertOrUpdatePasswordEntry(entry);
+        } catch (IllegalStateException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Erro ao inserir senha: " + e.getMessage(), e);
         }
@@ -151,36 +320,27 @@ public class MongoDBService {
         try {
             // Se tiver conexão com a nuvem, busca de lá primeiro
             if (cloudCollection != null) {
-                FindIterable<Document> cloudDocs = cloudCollection.find(Filters.eq("userId", userId));
-                for (Document doc : cloudDocs) {
-                    PasswordEntry entry = new PasswordEntry();
-                    entry.setTitle(doc.getString("title"));
-                    entry.setService(doc.getString("service"));
-                    entry.setUsername(doc.getString("username"));
-                    entry.setPassword(doc.getString("password"));
-                    entry.setUserId(doc.getString("userId"));
+                Map<String, Document> localDocs = new HashMap<>();
+                for (Document doc : collection.find(Filters.eq("userId", userId))) {
+                    PasswordEntry local = toPasswordEntry(doc);
+                    localDocs.put(local.getService(), toDocument(local));
+                }
+                for (Document doc : cloudCollection.find(Filters.eq("userId", userId))) {
+                    PasswordEntry entry = toPasswordEntry(doc);
                     entries.add(entry);
-                    
-                    // Sincroniza com local
-                    collection.replaceOne(
-                        Filters.and(
-                            Filters.eq("service", entry.getService()),
-                            Filters.eq("userId", entry.getUserId())
-                        ),
-                        doc,
-                        new com.mongodb.client.model.ReplaceOptions().upsert(true)
-                    );
+
+                    // Sincroniza com local só o que difere, mantendo a árvore de hashes em dia
+                    Document cloudDoc = toDocument(entry);
+                    if (!cloudDoc.equals(localDocs.get(entry.getService()))) {
+                        Bson filter = Filters.and(Filters.eq("service", entry.getService()), Filters.eq("userId", userId));
+                        replaceTracked(collection, merkle, filter, cloudDoc, entry);
+                    }
                 }
             } else {
                 // Se não tiver nuvem, busca local
                 FindIterable<Document> docs = collection.find(Filters.eq("userId", userId));
                 for (Document doc : docs) {
-                    PasswordEntry entry = new PasswordEntry();
-                    entry.setTitle(doc.getString("title"));
-                    entry.setService(doc.getString("service"));
-                    entry.setUsername(doc.getString("username"));
-                    entry.setPassword(doc.getString("password"));
-                    entry.setUserId(doc.getString("userId"));
+                    PasswordEntry entry = toPasswordEntry(doc);
                     entries.add(entry);
                 }
             }
@@ -196,13 +356,7 @@ public class MongoDBService {
             Bson filter = Filters.and(Filters.eq("service", service), Filters.eq("userId", userId));
             Document doc = collection.find(filter).first();
             if (doc != null) {
-                PasswordEntry entry = new PasswordEntry();
-                entry.setTitle(doc.getString("title"));
-                entry.setService(doc.getString("service"));
-                entry.setUsername(doc.getString("username"));
-                entry.setPassword(doc.getString("password"));
-                entry.setUserId(doc.getString("userId"));
-                return entry;
+                return toPasswordEntry(doc);
             }
             return null;
         } catch (Exception e) {
@@ -237,6 +391,11 @@ public class MongoDBService {
         if (isClosed) {
             return;
         }
+        if (sharedClient) {
+            isClosed = true;
+            InstrumentedMongoClients.release(mongoClient);
+            return;
+        }
 
         try {
             if (mongoClient != null) {
@@ -281,30 +440,159 @@ public class MongoDBService {
             Filters.eq("service", entry.getService()),
             Filters.eq("userId", entry.getUserId())
         );
-        Document doc = new Document()
-                .append("title", entry.getTitle())
-                .append("service", entry.getService())
-                .append("username", entry.getUsername())
-                .append("password", entry.getPassword())
-                .append("userId", entry.getUserId())
-                .append("createdAt", entry.getCreatedAt().toString())
-                .append("updatedAt", entry.getUpdatedAt().toString());
-        
-        // Atualiza local
-        collection.replaceOne(filter, doc, new com.mongodb.client.model.ReplaceOptions().upsert(true));
-        
+        Document doc = toDocument(entry);
+
+        // Atualiza local (e a árvore de hashes com a folha anterior e a nova)
+        replaceTracked(collection, merkle, filter, doc, entry);
+
+        // Se tiver nuvem, sincroniza
+        if (cloudCollection != null) {
+            replaceTracked(cloudCollection, cloudMerkle, filter, doc, entry);
+        }
+    }
+
+    private static void replaceTracked(MongoCollection<Document> target, MongoMerkleIndex index, Bson filter,
+                                       Document doc, PasswordEntry entry) {
+        ObjectId marker = index.beginWrite(entry.getUserId());
+        Document before;
+        try {
+            before = target.findOneAndReplace(filter, doc, new FindOneAndReplaceOptions().upsert(true));
+        } catch (RuntimeException e) {
+            index.endWrite(entry.getUserId(), marker);
+            throw e;
+        }
+        // A diferença da folha e o fim da gravação vão juntos, num único bulkWrite
+        index.endWrite(entry.getUserId(), marker, before != null ? toPasswordEntry(before) : null, entry);
+    }
+
+    // Percorre as entradas do usuário com um cursor, sem carregar a coleção em memória
+    public long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer) {
+        validateConnection();
+        long count = 0;
+        try (MongoCursor<Document> cursor = collection.find(Filters.eq("userId", userId)).batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(toPasswordEntry(cursor.next()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Grava um lote de entradas com um único bulkWrite (upsert por serviço e usuário)
+    public void upsertPasswordEntries(List<PasswordEntry> entries) {
+        validateConnection();
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> writes = new ArrayList<>(entries.size());
+        for (PasswordEntry entry : entries) {
+            Bson filter = Filters.and(
+                Filters.eq("service", entry.getService()),
+                Filters.eq("userId", entry.getUserId())
+            );
+            writes.add(new ReplaceOneModel<>(filter, toDocument(entry), new ReplaceOptions().upsert(true)));
+        }
+        BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+        Set<String> userIds = new HashSet<>();
+        entries.forEach(entry -> userIds.add(entry.getUserId()));
+        // Em lote a folha anterior de cada entrada não é conhecida: a árvore é refeita na próxima leitura
+        bulkWriteTracked(collection, merkle, writes, options, userIds);
+
+        // Se tiver nuvem, sincroniza
+        if (cloudCollection != null) {
+            bulkWriteTracked(cloudCollection, cloudMerkle, writes, options, userIds);
+        }
+    }
+
+    private static void bulkWriteTracked(MongoCollection<Document> target, MongoMerkleIndex index,
+                                         List<WriteModel<Document>> writes, BulkWriteOptions options, Set<String> userIds) {
+        Map<String, ObjectId> markers = new HashMap<>();
+        userIds.forEach(userId -> markers.put(userId, index.beginWrite(userId)));
+        try {
+            target.bulkWrite(writes, options);
+            userIds.forEach(index::invalidate);
+        } finally {
+            markers.forEach(index::endWrite);
+        }
+    }
+
+    // Usuários com entradas no banco local
+    public Set<String> listUserIds() {
+        validateConnection();
+        Set<String> userIds = new HashSet<>();
+        collection.distinct("userId", String.class).into(userIds);
+        return userIds;
+    }
+
+    // Remove a entrada de um serviço do usuário; retorna true se algo foi removido
+    public boolean deletePasswordEntry(String service, String userId) {
+        validateConnection();
+        Bson filter = Filters.and(Filters.eq("service", service), Filters.eq("userId", userId));
+        long deleted = deleteAll(collection, merkle, filter, userId);
+
         // Se tiver nuvem, sincroniza
         if (cloudCollection != null) {
-            cloudCollection.replaceOne(filter, doc, new com.mongodb.client.model.ReplaceOptions().upsert(true));
+            deleted += deleteAll(cloudCollection, cloudMerkle, filter, userId);
         }
+        return deleted > 0;
+    }
+
+    private static long deleteAll(MongoCollection<Document> target, MongoMerkleIndex index, Bson filter, String userId) {
+        long deleted = 0;
+        Document removed;
+        ObjectId marker = index.beginWrite(userId);
+        try {
+            while ((removed = target.findOneAndDelete(filter)) != null) {
+                index.replace(userId, toPasswordEntry(removed), null);
+                deleted++;
+            }
+        } finally {
+            index.endWrite(userId, marker);
+        }
+        return deleted;
     }
 
     // Substitui todas as senhas de um usuário por uma nova lista
     public void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries) {
         validateConnection();
-        collection.deleteMany(Filters.eq("userId", userId));
-        for (PasswordEntry entry : entries) {
-            insertPasswordEntry(entry);
+        ObjectId marker = merkle.beginWrite(userId);
+        try {
+            collection.deleteMany(Filters.eq("userId", userId));
+            merkle.invalidate(userId);
+            upsertPasswordEntries(entries);
+        } finally {
+            merkle.endWrite(userId, marker);
+        }
+    }
+
+    public VaultMerkleTree merkleTree(String userId) {
+        validateConnection();
+        return merkle.tree(userId);
+    }
+
+    // Uma única consulta quando a árvore já existe
+    public long merkleRoot(String userId) {
+        validateConnection();
+        return merkle.root(userId);
+    }
+
+    public long[] merkleBuckets(String userId) {
+        return merkleTree(userId).buckets();
+    }
+
+    @Override
+    public void invalidateMerkleTree(String userId) {
+        validateConnection();
+        ObjectId marker = merkle.beginWrite(userId);
+        try {
+            merkle.invalidate(userId);
+        } finally {
+            merkle.endWrite(userId, marker);
         }
     }
+
+    public List<PasswordEntry> entriesInBuckets(String userId, Set<Integer> buckets) {
+        validateConnection();
+        return merkle.entriesInBuckets(userId, buckets);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.securepassmanager.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.storage.VaultMerkleTree;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mantém no MongoDB a árvore de hashes de cada cofre ({@code vault_merkle}: um documento
+ * por faixa não vazia e um para a raiz, com {@code bucket = -1}). Cada gravação aplica a
+ * diferença entre a folha antiga e a nova com {@code $bit xor}, sem reler o cofre. Se a
+ * raiz não existe (cofre anterior a este recurso, ou invalidado por uma gravação em lote),
+ * a árvore é reconstruída na próxima leitura.
+ *
+ * <p>Um documento de estado por usuário ({@code bucket = -2}) guarda um marcador por
+ * gravação em andamento ({@code pending}, com o instante de início) e conta as concluídas
+ * ({@code version}); toda gravação no cofre é envolvida por {@link #beginWrite} e
+ * {@link #endWrite}, e o fim vai no mesmo {@code bulkWrite} que aplica a diferença da folha.
+ * Uma reconstrução só mantém a árvore gravada se nenhuma gravação estava em andamento nem
+ * terminou enquanto ela lia as entradas; senão apaga a raiz, e a próxima leitura
+ * reconstrói de novo. Assim uma gravação concorrente não fica de fora da árvore (nem é
+ * aplicada duas vezes). Marcadores mais antigos que {@link #STALE_WRITE_MILLIS} são de
+ * processos que caíram no meio da gravação: são ignorados e removidos, para que a árvore
+ * volte a ser confiável.
+ */
+final class MongoMerkleIndex {
+    static final String COLLECTION_NAME = "vault_merkle";
+    private static final int ROOT = -1;
+    private static final int STATE = -2;
+    static final long STALE_WRITE_MILLIS = 2 * 60 * 1000L;
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    private final MongoCollection<Document> entries;
+    private final MongoCollection<Document> merkle;
+
+    MongoMerkleIndex(MongoDatabase database, MongoCollection<Document> entries) {
+        this.entries = entries;
+        this.merkle = database.getCollection(COLLECTION_NAME);
+    }
+
+    void ensureIndexes() {
+        try {
+            merkle.createIndex(Indexes.ascending("userId", "bucket"), new IndexOptions().unique(true));
+            entries.createIndex(Indexes.ascending("userId", "bucket"));
+        } catch (MongoException e) {
+            System.err.println("Aviso: não foi possível criar os índices da árvore de hashes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marca o início de uma gravação no cofre do usuário e devolve o marcador, que deve ser
+     * entregue a {@link #endWrite} mesmo se a gravação falhar.
+     */
+    ObjectId beginWrite(String userId) {
+        ObjectId marker = new ObjectId();
+        merkle.updateOne(key(userId, STATE),
+            Updates.push("pending", new Document("id", marker).append("at", new Date())), new UpdateOptions().upsert(true));
+        return marker;
+    }
+
+    void endWrite(String userId, ObjectId marker) {
+        endWrite(userId, marker, null, null);
+    }
+
+    /**
+     * Encerra a gravação aplicando, no mesmo {@code bulkWrite}, a troca de uma entrada:
+     * {@code before} é o que havia (ou null, se é nova) e {@code after} o que ficou (ou null).
+     */
+    void endWrite(String userId, ObjectId marker, PasswordEntry before, PasswordEntry after) {
+        List<WriteModel<Document>> writes = new ArrayList<>(changeWrites(userId, before, after));
+        writes.add(new UpdateOneModel<>(key(userId, STATE), Updates.combine(
+            Updates.pull("pending", new Document("id", marker)), Updates.inc("version", 1))));
+        merkle.bulkWrite(writes, UNORDERED);
+    }
+
+    /**
+     * Registra a troca de uma entrada dentro de uma gravação que continua aberta.
+     */
+    void replace(String userId, PasswordEntry before, PasswordEntry after) {
+        List<WriteModel<Document>> writes = changeWrites(userId, before, after);
+        if (!writes.isEmpty()) {
+            merkle.bulkWrite(writes, UNORDERED);
+        }
+    }
+
+    private static List<WriteModel<Document>> changeWrites(String userId, PasswordEntry before, PasswordEntry after) {
+        long delta = (before != null ? VaultMerkleTree.leafHash(before) : 0)
+            ^ (after != null ? VaultMerkleTree.leafHash(after) : 0);
+        if (delta == 0) {
+            return List.of();
+        }
+        int bucket = VaultMerkleTree.bucketOf(after != null ? after.getService() : before.getService());
+        Bson xor = Updates.bitwiseXor("hash", delta);
+        return List.of(
+            // Sem upsert na raiz: se ela não existe, a árvore será reconstruída de qualquer forma
+            new UpdateOneModel<>(key(userId, ROOT), xor),
+            new UpdateOneModel<>(key(userId, bucket), xor, new UpdateOptions().upsert(true)));
+    }
+
+    /**
+     * Descarta a árvore do usuário; usada após gravações em lote.
+     */
+    void invalidate(String userId) {
+        merkle.deleteMany(treeDocs(userId));
+    }
+
+    long root(String userId) {
+        Document root = merkle.find(key(userId, ROOT)).first();
+        return root != null ? hashOf(root) : rebuild(userId).root();
+    }
+
+    VaultMerkleTree tree(String userId) {
+        long[] buckets = new long[VaultMerkleTree.BUCKETS];
+        boolean hasRoot = false;
+        for (Document doc : merkle.find(Filters.eq("userId", userId))) {
+            int bucket = doc.getInteger("bucket");
+            if (bucket == STATE) {
+                continue;
+            }
+            if (bucket == ROOT) {
+                hasRoot = true;
+            } else {
+                buckets[bucket] = hashOf(doc);
+            }
+        }
+        return hasRoot ? VaultMerkleTree.fromBuckets(buckets) : rebuild(userId);
+    }
+
+    List<PasswordEntry> entriesInBuckets(String userId, Iterable<Integer> buckets) {
+        List<PasswordEntry> result = new ArrayList<>();
+        for (Document doc : entries.find(Filters.and(Filters.eq("userId", userId), Filters.in("bucket", buckets)))) {
+            result.add(MongoDBService.toPasswordEntry(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Recalcula a árvore a partir das entradas e grava a faixa de cada documento que ainda
+     * não a tem (documentos gravados antes deste recurso).
+     */
+    private VaultMerkleTree rebuild(String userId) {
+        Date staleBefore = new Date(System.currentTimeMillis() - STALE_WRITE_MILLIS);
+        // Descarta marcadores de gravações que nunca terminaram (processo encerrado no meio)
+        merkle.updateOne(key(userId, STATE), Updates.pull("pending", Filters.lt("at", staleBefore)));
+        Document stateBefore = merkle.find(key(userId, STATE)).first();
+        VaultMerkleTree tree = new VaultMerkleTree();
+        List<WriteModel<Document>> missingBuckets = new ArrayList<>();
+        for (Document doc : entries.find(Filters.eq("userId", userId))) {
+            PasswordEntry entry = MongoDBService.toPasswordEntry(doc);
+            tree.add(entry);
+            int bucket = VaultMerkleTree.bucketOf(entry.getService());
+            if (!Integer.valueOf(bucket).equals(doc.get("bucket"))) {
+                missingBuckets.add(new UpdateOneModel<>(Filters.eq("_id", doc.get("_id")), Updates.set("bucket", bucket)));
+            }
+        }
+        if (!missingBuckets.isEmpty()) {
+            entries.bulkWrite(missingBuckets, UNORDERED);
+        }
+
+        merkle.deleteMany(treeDocs(userId));
+        List<Document> docs = new ArrayList<>();
+        long[] buckets = tree.buckets();
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != 0) {
+                docs.add(new Document("userId", userId).append("bucket", i).append("hash", buckets[i]));
+            }
+        }
+        docs.add(new Document("userId", userId).append("bucket", ROOT).append("hash", tree.root()));
+        try {
+            merkle.insertMany(docs);
+        } catch (MongoException e) {
+            // Outra reconstrução simultânea gravou primeiro; a árvore calculada continua válida
+        }
+        if (!quiescent(stateBefore, merkle.find(key(userId, STATE)).first(), staleBefore)) {
+            // Uma gravação cruzou a leitura das entradas: a árvore gravada pode estar defasada
+            merkle.deleteOne(key(userId, ROOT));
+        }
+        return tree;
+    }
+
+    /**
+     * Indica se nenhuma gravação estava em andamento nem terminou entre os dois estados.
+     * Marcadores iniciados antes de {@code staleBefore} não contam.
+     */
+    static boolean quiescent(Document before, Document after, Date staleBefore) {
+        return activeWrites(before, staleBefore) == 0 && activeWrites(after, staleBefore) == 0
+            && number(before, "version") == number(after, "version");
+    }
+
+    private static int activeWrites(Document state, Date staleBefore) {
+        List<Document> pending = state != null ? state.getList("pending", Document.class) : null;
+        if (pending == null) {
+            return 0;
+        }
+        int active = 0;
+        for (Document marker : pending) {
+            Date at = marker.getDate("at");
+            if (at == null || !at.before(staleBefore)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    private static long number(Document doc, String field) {
+        Object value = doc != null ? doc.get(field) : null;
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static Bson treeDocs(String userId) {
+        return Filters.and(Filters.eq("userId", userId), Filters.ne("bucket", STATE));
+    }
+
+    private static Bson key(String userId, int bucket) {
+        return Filters.and(Filters.eq("userId", userId), Filters.eq("bucket", bucket));
+    }
+
+    private static long hashOf(Document doc) {
+        Object hash = doc.get("hash");
+        return hash instanceof Number ? ((Number) hash).longValue() : 0;
+    }
+}
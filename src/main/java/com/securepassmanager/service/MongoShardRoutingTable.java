@@ -0,0 +1,82 @@
+package com.securepassmanager.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import com.securepassmanager.storage.ShardRoutingTable;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Tabela de roteamento dos shards nas coleções {@code shard_routes} (uma rota por usuário,
+ * com o {@code userId} como {@code _id}) e {@code shard_config} (anel de posicionamento)
+ * do banco de um dos shards.
+ */
+public class MongoShardRoutingTable implements ShardRoutingTable {
+    private static final String RING_ID = "ring";
+
+    private final MongoCollection<Document> routes;
+    private final MongoCollection<Document> config;
+
+    MongoShardRoutingTable(MongoDatabase database) {
+        this.routes = database.getCollection("shard_routes");
+        this.config = database.getCollection("shard_config");
+    }
+
+    @Override
+    public List<String> ring() {
+        Document doc = config.find(Filters.eq("_id", RING_ID)).first();
+        return doc != null ? doc.getList("shards", String.class) : null;
+    }
+
+    @Override
+    public void saveRing(List<String> shards) {
+        config.replaceOne(Filters.eq("_id", RING_ID), new Document("_id", RING_ID).append("shards", shards),
+            new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public Route find(String userId) {
+        return toRoute(routes.find(Filters.eq("_id", userId)).first());
+    }
+
+    @Override
+    public Route assignIfAbsent(String userId, String shard) {
+        try {
+            return toRoute(routes.findOneAndUpdate(Filters.eq("_id", userId), Updates.setOnInsert("shard", shard),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)));
+        } catch (MongoWriteException e) {
+            // Outro processo criou a rota no mesmo instante
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            return find(userId);
+        }
+    }
+
+    @Override
+    public void save(String userId, Route route) {
+        routes.replaceOne(Filters.eq("_id", userId),
+            new Document("_id", userId).append("shard", route.shard()).append("movingTo", route.movingTo()),
+            new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Route> consumer) {
+        for (Document doc : routes.find()) {
+            consumer.accept(doc.getString("_id"), toRoute(doc));
+        }
+    }
+
+    private static Route toRoute(Document doc) {
+        return doc != null ? new Route(doc.getString("shard"), doc.getString("movingTo")) : null;
+    }
+}
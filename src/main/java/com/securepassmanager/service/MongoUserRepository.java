@@ -0,0 +1,264 @@
+package com.securepassmanager.service;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.*;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.securepassmanager.model.User;
+import com.securepassmanager.storage.UserRepository;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Usuários na coleção {@code users} do MongoDB, na nuvem quando configurada e acessível,
+ * senão no servidor local.
+ */
+public class MongoUserRepository implements UserRepository {
+    private static final String DATABASE_NAME = "SecurePassManager";
+    private static final String COLLECTION_NAME = "users";
+    private static final String EMAIL_INDEX = "email_unique";
+    private static final String LEGACY_EMAIL_INDEX = "email_1";
+
+    private final MongoClient mongoClient;
+    private final MongoCollection<Document> collection;
+    private final boolean isCloud;
+
+    public MongoUserRepository() {
+        Properties props = new Properties();
+        String cloudUri = null;
+        String localUri = null;
+        try (FileInputStream fis = new FileInputStream("application.properties")) {
+            props.load(fis);
+            cloudUri = props.getProperty("mongodb.uri.cloud");
+            localUri = props.getProperty("mongodb.uri.local");
+        } catch (IOException e) {
+            System.err.println("Não foi possível ler application.properties. Usando padrão local.");
+            localUri = "mongodb://localhost:27017";
+        }
+
+        MongoClient client = null;
+        MongoDatabase db = null;
+        MongoCollection<Document> coll = null;
+        boolean cloud = false;
+
+        // Tenta conectar na nuvem primeiro
+        if (cloudUri != null && !cloudUri.contains("<usuario>")) {
+            try {
+                client = InstrumentedMongoClients.create(cloudUri, "cloud");
+                db = client.getDatabase(DATABASE_NAME);
+                coll = db.getCollection(COLLECTION_NAME);
+                db.runCommand(new Document("ping", 1));
+                cloud = true;
+                System.out.println("Conectado ao MongoDB Atlas (nuvem) [UserService].");
+            } catch (Exception e) {
+                System.out.println("Falha ao conectar ao MongoDB Atlas. Tentando local...");
+            }
+        }
+        if (client == null) {
+            try {
+                client = InstrumentedMongoClients.create(localUri, "local");
+                db = client.getDatabase(DATABASE_NAME);
+                coll = db.getCollection(COLLECTION_NAME);
+                db.runCommand(new Document("ping", 1));
+                System.out.println("Conectado ao MongoDB local [UserService].");
+            } catch (Exception ex) {
+                throw new RuntimeException("Não foi possível conectar ao MongoDB local nem à nuvem.", ex);
+            }
+        }
+        this.mongoClient = client;
+        this.collection = coll;
+        this.isCloud = cloud;
+
+        ensureUniqueEmails();
+    }
+
+    private MongoUserRepository(MongoClient client, MongoCollection<Document> collection) {
+        this.mongoClient = client;
+        this.collection = collection;
+        this.isCloud = false;
+
+        ensureUniqueEmails();
+    }
+
+    /**
+     * Usuários no banco indicado na URI, sem tentar a nuvem; usado pelo teste de carga.
+     */
+    public static MongoUserRepository forDatabase(String uri) {
+        String databaseName = new ConnectionString(uri).getDatabase();
+        if (databaseName == null) {
+            throw new IllegalArgumentException("A URI deve indicar o banco: " + uri);
+        }
+        MongoClient client = InstrumentedMongoClients.create(uri, "loadtest");
+        try {
+            MongoDatabase db = client.getDatabase(databaseName);
+            db.runCommand(new Document("ping", 1));
+            return new MongoUserRepository(client, db.getCollection(COLLECTION_NAME));
+        } catch (RuntimeException e) {
+            client.close();
+            throw new RuntimeException("Não foi possível conectar ao banco " + databaseName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Na primeira execução com o índice único, normaliza os emails gravados por versões
+     * antigas (com maiúsculas ou espaços), que as buscas pelo email normalizado não achariam,
+     * e cria o índice. Emails que colidem após a normalização são mantidos e reportados.
+     */
+    private void ensureUniqueEmails() {
+        try {
+            for (Document index : collection.listIndexes()) {
+                if (EMAIL_INDEX.equals(index.getString("name"))) {
+                    return;
+                }
+            }
+            Bson notNormalized = Filters.expr(new Document("$ne", List.of("$email",
+                new Document("$toLower", new Document("$trim", new Document("input", "$email"))))));
+            int migrated = 0;
+            for (Document doc : collection.find(Filters.and(Filters.type("email", BsonType.STRING), notNormalized))
+                    .projection(Projections.include("email"))) {
+                String email = doc.getString("email");
+                String normalized = UserService.normalizeEmail(email);
+                if (normalized == null) {
+                    continue;
+                }
+                if (collection.countDocuments(Filters.eq("email", normalized)) > 0) {
+                    System.err.println("Aviso: email duplicado após normalização, mantido como está: " + email);
+                    continue;
+                }
+                collection.updateOne(Filters.eq("_id", doc.get("_id")), Updates.set("email", normalized));
+                migrated++;
+            }
+            if (migrated > 0) {
+                System.out.println("Emails normalizados: " + migrated + " usuários atualizados.");
+            }
+            collection.createIndex(Indexes.ascending("email"), new IndexOptions().unique(true).name(EMAIL_INDEX));
+            try {
+                collection.dropIndex(LEGACY_EMAIL_INDEX);
+            } catch (MongoCommandException e) {
+                // Índice antigo já removido ou nunca criado
+            }
+        } catch (Exception e) {
+            System.err.println("Aviso: não foi possível criar o índice único de email: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isCloudConnection() {
+        return isCloud;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        Document doc = collection.find(Filters.eq("email", email)).first();
+        return doc != null ? toUser(doc) : null;
+    }
+
+    private static User toUser(Document doc) {
+        User user = new User();
+        user.setId(doc.getObjectId("_id").toHexString());
+        user.setEmail(doc.getString("email"));
+        user.setPasswordHash(doc.getString("passwordHash"));
+        user.setTotpSecret(doc.getString("totpSecret"));
+        List<String> codes = new ArrayList<>();
+        if (doc.get("backupCodes") instanceof List<?>) {
+            for (Object o : (List<?>) doc.get("backupCodes")) {
+                if (o != null) codes.add(o.toString());
+            }
+        }
+        user.setBackupCodes(codes);
+        user.setKdfSalt(doc.getString("kdfSalt"));
+        Integer iterations = doc.getInteger("kdfIterations");
+        user.setKdfIterations(iterations != null ? iterations : 0);
+        user.setWrappedVaultKey(doc.getString("wrappedVaultKey"));
+        return user;
+    }
+
+    @Override
+    public void insert(User user) {
+        Document doc = new Document()
+                .append("email", user.getEmail())
+                .append("passwordHash", user.getPasswordHash())
+                .append("totpSecret", user.getTotpSecret())
+                .append("backupCodes", user.getBackupCodes())
+                .append("kdfSalt", user.getKdfSalt())
+                .append("kdfIterations", user.getKdfIterations())
+                .append("wrappedVaultKey", user.getWrappedVaultKey());
+        try {
+            collection.insertOne(doc);
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                throw new IllegalArgumentException("Já existe um usuário com esse email", e);
+            }
+            throw e;
+        }
+        user.setId(doc.getObjectId("_id").toHexString());
+    }
+
+    @Override
+    public void update(User user) {
+        collection.updateOne(byId(user), new Document("$set", fields(user)));
+    }
+
+    @Override
+    public boolean saveVaultKeysIfAbsent(User user) {
+        Bson unset = Filters.eq("wrappedVaultKey", null);
+        return collection.updateOne(Filters.and(byId(user), unset), Updates.combine(
+            Updates.set("kdfSalt", user.getKdfSalt()),
+            Updates.set("kdfIterations", user.getKdfIterations()),
+            Updates.set("wrappedVaultKey", user.getWrappedVaultKey()))).getModifiedCount() > 0;
+    }
+
+    @Override
+    public boolean delete(String email) {
+        return collection.deleteOne(Filters.eq("email", email)).getDeletedCount() > 0;
+    }
+
+    private static Bson byId(User user) {
+        return Filters.eq("_id", new ObjectId(user.getId()));
+    }
+
+    private static Document fields(User user) {
+        return new Document()
+            .append("passwordHash", user.getPasswordHash())
+            .append("totpSecret", user.getTotpSecret())
+            .append("backupCodes", user.getBackupCodes())
+            .append("kdfSalt", user.getKdfSalt())
+            .append("kdfIterations", user.getKdfIterations())
+            .append("wrappedVaultKey", user.getWrappedVaultKey());
+    }
+
+    @Override
+    public long estimatedCount() {
+        return collection.estimatedDocumentCount();
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> consumer) {
+        for (Document doc : collection.find().projection(Projections.include("email"))) {
+            String email = doc.getString("email");
+            if (email != null) {
+                consumer.accept(email);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        mongoClient.close();
+    }
+}
@@ -0,0 +1,116 @@
+package com.securepassmanager.service;
+
+import com.mongodb.MongoCursorNotFoundException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migra, em lotes, os documentos de senha do formato antigo (senha em Base64 e datas
+ * em texto) para o formato v2 (BSON Binary e BSON Date). Documentos gravados pela
+ * aplicação durante a migração já estão em v2 e não são tocados. A coleção é percorrida
+ * uma vez, em ordem de {@code _id}, para que cada lote não precise pular os já migrados.
+ */
+class SchemaMigrator implements Runnable {
+    private static final int BATCH_SIZE = 500;
+    private static final long PAUSE_BETWEEN_BATCHES_MS = 50;
+
+    private final MongoCollection<Document> collection;
+    private final String label;
+
+    SchemaMigrator(MongoCollection<Document> collection, String label) {
+        this.collection = collection;
+        this.label = label;
+    }
+
+    @Override
+    public void run() {
+        Bson pending = Filters.ne("schemaVersion", MongoDBService.SCHEMA_VERSION);
+        long migrated = 0;
+        Object lastId = null;
+        try {
+            boolean finished = false;
+            while (!finished && !Thread.currentThread().isInterrupted()) {
+                // Uma passada percorre a coleção em ordem de _id com um único cursor; se o
+                // cursor expirar, a próxima passada continua depois do último _id migrado
+                Bson filter = lastId == null ? pending : Filters.and(pending, Filters.gt("_id", lastId));
+                List<Document> batch = new ArrayList<>(BATCH_SIZE);
+                try (MongoCursor<Document> cursor = collection.find(filter)
+                        .projection(Projections.include("_id", "password", "createdAt", "updatedAt"))
+                        .sort(Sorts.ascending("_id"))
+                        .batchSize(BATCH_SIZE)
+                        .iterator()) {
+                    while (cursor.hasNext() && !Thread.currentThread().isInterrupted()) {
+                        batch.add(cursor.next());
+                        if (batch.size() == BATCH_SIZE) {
+                            migrate(batch, pending);
+                            migrated += batch.size();
+                            lastId = batch.get(batch.size() - 1).get("_id");
+                            batch.clear();
+                            Thread.sleep(PAUSE_BETWEEN_BATCHES_MS);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        migrate(batch, pending);
+                        migrated += batch.size();
+                        lastId = batch.get(batch.size() - 1).get("_id");
+                    }
+                    finished = true;
+                } catch (MongoCursorNotFoundException e) {
+                    System.err.println("Aviso: cursor da migração de esquema (" + label + ") expirou; retomando.");
+                }
+            }
+            if (migrated > 0) {
+                System.out.println("Migração de esquema (" + label + "): " + migrated + " documentos atualizados.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Erro na migração de esquema (" + label + "): " + e.getMessage());
+        }
+    }
+
+    private void migrate(List<Document> batch, Bson pending) {
+        List<WriteModel<Document>> updates = new ArrayList<>(batch.size());
+        for (Document doc : batch) {
+            updates.add(new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", doc.get("_id")), pending),
+                new Document("$set", upgrade(doc))
+            ));
+        }
+        collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * Campos convertidos para v2. Valores que não puderem ser convertidos são mantidos,
+     * pois o leitor aceita os dois formatos; o documento é marcado como v2 de qualquer forma.
+     */
+    private static Document upgrade(Document doc) {
+        Document set = new Document("schemaVersion", MongoDBService.SCHEMA_VERSION);
+        Object password = doc.get("password");
+        if (password instanceof String) {
+            set.append("password", MongoDBService.encodeCiphertext((String) password));
+        }
+        for (String field : new String[] {"createdAt", "updatedAt"}) {
+            Object value = doc.get(field);
+            if (value instanceof String) {
+                LocalDateTime dateTime = MongoDBService.readDate(value);
+                if (dateTime != null) {
+                    set.append(field, MongoDBService.toDate(dateTime));
+                }
+            }
+        }
+        return set;
+    }
+}
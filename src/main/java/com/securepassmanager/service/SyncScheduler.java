@@ -0,0 +1,353 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.metrics.Counter;
+import com.securepassmanager.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Mantém sincronizados, em segundo plano, os cofres de todos os usuários ativos.
+ *
+ * <p>A cada rodada os usuários pendentes (com alterações locais, com sincronização pedida
+ * ou há mais de {@code interval} sem sincronizar) são ordenados por prioridade: quanto
+ * mais tempo sem sincronizar, maior a prioridade, com um acréscimo para quem alterou dados
+ * recentemente. São disparadas no máximo {@code parallelism} sincronizações ao mesmo
+ * tempo. Cada chamada a um backend ocupa, só enquanto dura, uma vaga do limite daquele
+ * backend ({@code localLimit} e {@code cloudLimit}, ver {@link BackendLimiter}), para não
+ * esgotar o pool de conexões de nenhum dos dois lados sem que a espera por um deles
+ * bloqueie o outro.
+ *
+ * <p>Antes de cada rodada a nuvem é testada; se estiver inacessível (ou uma sincronização
+ * falhar e o teste confirmar a queda), o agendador pausa com espera exponencial e nenhum
+ * usuário perde a vez. A idade da última sincronização de cada usuário é publicada no
+ * medidor {@code sync.age{user=...}}, em segundos (-1 enquanto ainda não sincronizou).
+ */
+public class SyncScheduler {
+    static final long MIN_PAUSE_MILLIS = 5_000;
+    static final long MAX_PAUSE_MILLIS = 5 * 60_000;
+
+    /**
+     * Sincronização de um usuário; normalmente {@link SyncService#syncBidirectional}.
+     * Cada chamada a um backend deve passar pelo limitador correspondente.
+     */
+    public interface SyncTask {
+        void sync(String userId, BackendLimiter local, BackendLimiter cloud) throws Exception;
+    }
+
+    private static final class UserState {
+        final String userId;
+        long lastSyncMillis = -1;
+        long lastChangeMillis = -1;
+        long retryAtMillis;
+        long changeSeq;
+        long syncedSeq;
+        boolean requested;
+        boolean running;
+        boolean removed;
+
+        UserState(String userId) {
+            this.userId = userId;
+        }
+
+        boolean dirty() {
+            return changeSeq != syncedSeq;
+        }
+    }
+
+    private final SyncTask task;
+    private final BooleanSupplier cloudReachable;
+    private final int parallelism;
+    private final BackendLimiter localLimiter;
+    private final BackendLimiter cloudLimiter;
+    private final long intervalMillis;
+    private final LongSupplier clock;
+    private final Executor workers;
+    private final MetricsRegistry metrics;
+    private final Counter syncs;
+    private final Counter failures;
+    private final Map<String, UserState> users = new HashMap<>();
+    private int inFlight;
+    private long pausedUntil;
+    private long pauseMillis;
+    private ScheduledExecutorService ticker;
+
+    public SyncScheduler(SyncTask task, BooleanSupplier cloudReachable, int parallelism,
+                         int localLimit, int cloudLimit, long intervalSeconds) {
+        this(task, cloudReachable, parallelism, localLimit, cloudLimit, TimeUnit.SECONDS.toMillis(intervalSeconds),
+            System::currentTimeMillis, newWorkerPool(parallelism), MetricsRegistry.global());
+    }
+
+    SyncScheduler(SyncTask task, BooleanSupplier cloudReachable, int parallelism, int localLimit, int cloudLimit,
+                  long intervalMillis, LongSupplier clock, Executor workers, MetricsRegistry metrics) {
+        if (parallelism <= 0 || localLimit <= 0 || cloudLimit <= 0) {
+            throw new IllegalArgumentException("Paralelismo e limites por backend devem ser positivos");
+        }
+        this.task = task;
+        this.cloudReachable = cloudReachable;
+        this.parallelism = parallelism;
+        this.localLimiter = new BackendLimiter(localLimit);
+        this.cloudLimiter = new BackendLimiter(cloudLimit);
+        this.intervalMillis = intervalMillis;
+        this.clock = clock;
+        this.workers = workers;
+        this.metrics = metrics;
+        this.syncs = metrics.counter("sync.scheduler.runs");
+        this.failures = metrics.counter("sync.scheduler.failures");
+        metrics.gauge("sync.scheduler.paused", () -> isPaused() ? 1 : 0);
+    }
+
+    private static ExecutorService newWorkerPool(int parallelism) {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "sync-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Passa a manter o cofre do usuário sincronizado.
+     */
+    public void register(String userId) {
+        synchronized (this) {
+            if (users.containsKey(userId)) {
+                return;
+            }
+            UserState state = new UserState(userId);
+            users.put(userId, state);
+            metrics.gauge("sync.age", () -> ageSeconds(state), "user", userId);
+        }
+    }
+
+    public void unregister(String userId) {
+        synchronized (this) {
+            UserState state = users.remove(userId);
+            if (state == null) {
+                return;
+            }
+            state.removed = true;
+        }
+        metrics.removeGauge("sync.age", "user", userId);
+    }
+
+    /**
+     * Registra uma alteração local no cofre do usuário; ele ganha prioridade na fila.
+     */
+    public synchronized void markDirty(String userId) {
+        UserState state = users.get(userId);
+        if (state != null) {
+            state.changeSeq++;
+            state.lastChangeMillis = clock.getAsLong();
+        }
+        wakeUp();
+    }
+
+    /**
+     * Pede a sincronização do usuário na próxima rodada, à frente dos demais.
+     */
+    public void requestSync(String userId) {
+        register(userId);
+        synchronized (this) {
+            UserState state = users.get(userId);
+            state.requested = true;
+            state.retryAtMillis = 0;
+        }
+        wakeUp();
+    }
+
+    public synchronized void start(long tickMillis) {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sync-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::dispatchSafely, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = ticker;
+            ticker = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+        }
+        if (workers instanceof ExecutorService) {
+            ExecutorService pool = (ExecutorService) workers;
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return clock.getAsLong() < pausedUntil;
+    }
+
+    /**
+     * Segundos desde a última sincronização bem-sucedida do usuário, ou -1.
+     */
+    public synchronized long syncAgeSeconds(String userId) {
+        UserState state = users.get(userId);
+        return state != null ? ageSeconds(state) : -1;
+    }
+
+    private long ageSeconds(UserState state) {
+        long last;
+        synchronized (this) {
+            last = state.lastSyncMillis;
+        }
+        return last < 0 ? -1 : TimeUnit.MILLISECONDS.toSeconds(clock.getAsLong() - last);
+    }
+
+    private void dispatchSafely() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            System.err.println("Aviso: falha no agendador de sincronização: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Uma rodada do agendador: escolhe os usuários pendentes por prioridade e dispara o
+     * quanto couber nos limites. Retorna quantas sincronizações foram disparadas.
+     */
+    int dispatch() {
+        List<UserState> due;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (now < pausedUntil) {
+                return 0;
+            }
+            due = new ArrayList<>();
+            for (UserState state : users.values()) {
+                if (!state.running && now >= state.retryAtMillis && isDue(state, now)) {
+                    due.add(state);
+                }
+            }
+            if (due.isEmpty() || inFlight >= parallelism) {
+                return 0;
+            }
+            due.sort(Comparator.comparingLong((UserState s) -> priority(s, now)).reversed());
+        }
+
+        // O teste de conectividade é feito fora da trava: pode demorar até o timeout do driver
+        if (!cloudReachable.getAsBoolean()) {
+            pause();
+            return 0;
+        }
+
+        List<UserState> started = new ArrayList<>();
+        synchronized (this) {
+            for (UserState state : due) {
+                if (inFlight >= parallelism || state.running || state.removed) {
+                    continue;
+                }
+                state.running = true;
+                state.requested = false;
+                inFlight++;
+                started.add(state);
+            }
+        }
+        for (UserState state : started) {
+            long seq;
+            synchronized (this) {
+                seq = state.changeSeq;
+            }
+            workers.execute(() -> runSync(state, seq));
+        }
+        return started.size();
+    }
+
+    private boolean isDue(UserState state, long now) {
+        return state.requested || state.dirty() || state.lastSyncMillis < 0
+            || now - state.lastSyncMillis >= intervalMillis;
+    }
+
+    /**
+     * Tempo sem sincronizar, mais um acréscimo que decai ao longo de um intervalo a partir
+     * da última alteração; pedidos explícitos (login) vêm antes de tudo.
+     */
+    private long priority(UserState state, long now) {
+        if (state.requested) {
+            return Long.MAX_VALUE;
+        }
+        long staleness = state.lastSyncMillis < 0 ? intervalMillis : now - state.lastSyncMillis;
+        long recency = state.dirty() ? Math.max(0, intervalMillis - (now - state.lastChangeMillis)) : 0;
+        return staleness + recency;
+    }
+
+    private void runSync(UserState state, long seq) {
+        boolean succeeded = false;
+        try {
+            task.sync(state.userId, localLimiter, cloudLimiter);
+            succeeded = true;
+            syncs.increment();
+        } catch (Exception e) {
+            failures.increment();
+            System.err.println("Aviso: falha ao sincronizar o cofre de " + state.userId + ": " + e.getMessage());
+        }
+
+        boolean cloudDown = !succeeded && !cloudReachable.getAsBoolean();
+        synchronized (this) {
+            inFlight--;
+            state.running = false;
+            if (succeeded) {
+                state.lastSyncMillis = clock.getAsLong();
+                // Alterações feitas durante a sincronização mantêm o usuário pendente
+                state.syncedSeq = seq;
+                pauseMillis = 0;
+            } else if (cloudDown) {
+                pauseLocked();
+            } else {
+                state.retryAtMillis = clock.getAsLong() + intervalMillis;
+            }
+        }
+        if (succeeded) {
+            wakeUp();
+        }
+    }
+
+    private synchronized void pause() {
+        pauseLocked();
+    }
+
+    private void pauseLocked() {
+        long now = clock.getAsLong();
+        if (now < pausedUntil) {
+            return;
+        }
+        pauseMillis = pauseMillis == 0 ? MIN_PAUSE_MILLIS : Math.min(MAX_PAUSE_MILLIS, pauseMillis * 2);
+        pausedUntil = now + pauseMillis;
+        System.err.println("Aviso: nuvem inacessível; sincronização pausada por " + pauseMillis / 1000 + "s.");
+    }
+
+    /**
+     * Antecipa a próxima rodada (sem esperar o tick) quando há trabalho novo.
+     */
+    private synchronized void wakeUp() {
+        if (ticker != null) {
+            ticker.execute(this::dispatchSafely);
+        }
+    }
+}
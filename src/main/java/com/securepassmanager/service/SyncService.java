@@ -1,22 +1,76 @@
 package com.securepassmanager.service;
 
+import com.securepassmanager.jfr.SyncPhaseEvent;
+import com.securepassmanager.metrics.LatencyHistogram;
+import com.securepassmanager.metrics.MetricsRegistry;
 import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.storage.VaultMerkleTree;
+import com.securepassmanager.storage.VaultRepository;
 import java.util.*;
 
 public class SyncService {
-    private final MongoDBService localService;
-    private final MongoDBService cloudService;
+    private static final LatencyHistogram SYNC_LATENCY = MetricsRegistry.global().histogram("sync.bidirectional");
 
-    public SyncService(MongoDBService localService, MongoDBService cloudService) {
+    private final VaultRepository localService;
+    private final VaultRepository cloudService;
+
+    public SyncService(VaultRepository localService, VaultRepository cloudService) {
         this.localService = localService;
         this.cloudService = cloudService;
     }
 
-    // Sincronização bidirecional com merge por updatedAt
+    // Sincronização bidirecional com merge por updatedAt (anti-entropia por árvore de hashes)
     public void syncBidirectional(String userId) {
-        List<PasswordEntry> localEntries = localService.getAllPasswordEntries(userId);
-        List<PasswordEntry> cloudEntries = cloudService.getAllPasswordEntries(userId);
+        syncBidirectional(userId, BackendLimiter.UNLIMITED, BackendLimiter.UNLIMITED);
+    }
+
+    /**
+     * Sincroniza passando cada chamada ao banco local e à nuvem pelo limitador do lado
+     * correspondente; nenhuma vaga de um lado é mantida enquanto o outro é acessado.
+     */
+    public void syncBidirectional(String userId, BackendLimiter localLimiter, BackendLimiter cloudLimiter) {
+        SYNC_LATENCY.time(() -> {
+            merge(userId, localLimiter, cloudLimiter);
+            return null;
+        });
+    }
+
+    /**
+     * Indica se o lado da nuvem responde; usado pelo {@link SyncScheduler} para pausar.
+     */
+    public boolean isCloudReachable() {
+        return cloudService.ping();
+    }
+
+    /**
+     * Compara primeiro as raízes das árvores de hashes dos dois lados; se forem iguais,
+     * nada mais é lido. Caso contrário, compara as faixas e só busca e grava as entradas
+     * das faixas que diferem, então o custo cresce com a divergência e não com o cofre.
+     */
+    private void merge(String userId, BackendLimiter localLimiter, BackendLimiter cloudLimiter) {
+        SyncPhaseEvent phase = beginPhase();
+        long localRoot = localLimiter.call(() -> localService.merkleRoot(userId));
+        long cloudRoot = cloudLimiter.call(() -> cloudService.merkleRoot(userId));
+        boolean inSync = localRoot == cloudRoot;
+        endPhase(phase, "compare-roots", 0);
+        if (inSync) {
+            return;
+        }
+
+        phase = beginPhase();
+        long[] localBuckets = localLimiter.call(() -> localService.merkleBuckets(userId));
+        long[] cloudBuckets = cloudLimiter.call(() -> cloudService.merkleBuckets(userId));
+        Set<Integer> buckets = VaultMerkleTree.differingBuckets(localBuckets, cloudBuckets);
+        endPhase(phase, "compare-buckets", buckets.size());
 
+        phase = beginPhase();
+        List<PasswordEntry> localEntries = localLimiter.call(() -> localService.entriesInBuckets(userId, buckets));
+        endPhase(phase, "fetch-local", localEntries.size());
+        phase = beginPhase();
+        List<PasswordEntry> cloudEntries = cloudLimiter.call(() -> cloudService.entriesInBuckets(userId, buckets));
+        endPhase(phase, "fetch-cloud", cloudEntries.size());
+
+        phase = beginPhase();
         // Mapear por serviço para facilitar o merge
         Map<String, PasswordEntry> localMap = new HashMap<>();
         for (PasswordEntry entry : localEntries) {
@@ -27,32 +81,61 @@ public class SyncService {
             cloudMap.put(entry.getService(), entry);
         }
 
-        // Merge: mantém sempre o mais recente
+        // Merge: mantém sempre o mais recente e grava só no lado que está desatualizado
         Set<String> allServices = new HashSet<>();
         allServices.addAll(localMap.keySet());
         allServices.addAll(cloudMap.keySet());
 
-        List<PasswordEntry> merged = new ArrayList<>();
+        List<PasswordEntry> toLocal = new ArrayList<>();
+        List<PasswordEntry> toCloud = new ArrayList<>();
         for (String service : allServices) {
             PasswordEntry local = localMap.get(service);
             PasswordEntry cloud = cloudMap.get(service);
             if (local == null) {
-                merged.add(cloud);
+                toLocal.add(cloud);
             } else if (cloud == null) {
-                merged.add(local);
-            } else {
+                toCloud.add(local);
+            } else if (VaultMerkleTree.leafHash(local) != VaultMerkleTree.leafHash(cloud)) {
                 // Compara updatedAt
                 if (local.getUpdatedAt().isAfter(cloud.getUpdatedAt())) {
-                    merged.add(local);
+                    toCloud.add(local);
                 } else {
-                    merged.add(cloud);
+                    toLocal.add(cloud);
                 }
             }
         }
+        endPhase(phase, "merge", toLocal.size() + toCloud.size());
+
+        if (toLocal.isEmpty() && toCloud.isEmpty()) {
+            // Raízes diferentes com as mesmas entradas: a árvore de algum lado está defasada
+            localLimiter.run(() -> localService.invalidateMerkleTree(userId));
+            cloudLimiter.run(() -> cloudService.invalidateMerkleTree(userId));
+            System.out.println("Árvores de hashes defasadas descartadas; nenhuma entrada divergente.");
+            return;
+        }
+
+        // Gravações individuais mantêm as árvores atualizadas sem recalculá-las
+        phase = beginPhase();
+        localLimiter.run(() -> toLocal.forEach(localService::insertOrUpdatePasswordEntry));
+        endPhase(phase, "write-local", toLocal.size());
+        phase = beginPhase();
+        cloudLimiter.run(() -> toCloud.forEach(cloudService::insertOrUpdatePasswordEntry));
+        endPhase(phase, "write-cloud", toCloud.size());
+        System.out.println("Sincronização bidirecional com merge concluída! (" + (toLocal.size() + toCloud.size())
+            + " entradas atualizadas em " + buckets.size() + " faixas)");
+    }
+
+    private static SyncPhaseEvent beginPhase() {
+        SyncPhaseEvent event = new SyncPhaseEvent();
+        event.begin();
+        return event;
+    }
 
-        // Atualiza ambos os bancos com o merge
-        localService.replaceAllPasswordEntries(userId, merged);
-        cloudService.replaceAllPasswordEntries(userId, merged);
-        System.out.println("Sincronização bidirecional com merge concluída!");
+    private static void endPhase(SyncPhaseEvent event, String phase, int entries) {
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.entries = entries;
+            event.commit();
+        }
     }
 } 
\ No newline at end of file
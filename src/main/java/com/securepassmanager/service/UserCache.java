@@ -0,0 +1,70 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache LRU limitado de usuários indexado pelo email normalizado.
+ * Guarda também resultados negativos (email inexistente) por um período curto.
+ */
+class UserCache {
+    private final int maxEntries;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedUser> entries;
+
+    UserCache(int maxEntries, long positiveTtlMillis, long negativeTtlMillis, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.positiveTtlMillis = positiveTtlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                return size() > UserCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Resultado de uma consulta ao cache. Retorna null quando não há entrada válida;
+     * caso contrário, {@link CachedUser#user} pode ser null (resultado negativo).
+     */
+    synchronized CachedUser get(String normalizedEmail) {
+        CachedUser cached = entries.get(normalizedEmail);
+        if (cached == null) {
+            return null;
+        }
+        if (clock.getAsLong() >= cached.expiresAt) {
+            entries.remove(normalizedEmail);
+            return null;
+        }
+        return cached;
+    }
+
+    synchronized void put(String normalizedEmail, User user) {
+        entries.put(normalizedEmail, new CachedUser(user, clock.getAsLong() + positiveTtlMillis));
+    }
+
+    synchronized void putNegative(String normalizedEmail) {
+        entries.put(normalizedEmail, new CachedUser(null, clock.getAsLong() + negativeTtlMillis));
+    }
+
+    synchronized void invalidate(String normalizedEmail) {
+        entries.remove(normalizedEmail);
+    }
+
+    static final class CachedUser {
+        final User user;
+        final long expiresAt;
+
+        private CachedUser(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
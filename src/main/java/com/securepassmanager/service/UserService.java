@@ -1,122 +1,278 @@
 package com.securepassmanager.service;
 
-import com.mongodb.client.*;
-import com.mongodb.client.model.Filters;
 import com.securepassmanager.model.User;
-import org.bson.Document;
-import org.bson.types.ObjectId;
-import java.util.List;
-import java.util.ArrayList;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Properties;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.VaultSession;
+import com.securepassmanager.storage.UserRepository;
+import com.securepassmanager.util.BloomFilter;
 
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Cadastro e busca de usuários sobre um {@link UserRepository}, com cache das buscas
+ * recentes e um filtro de Bloom dos emails cadastrados para descartar emails inexistentes
+ * sem consultar o armazenamento. O filtro é recarregado em segundo plano, num timer, para
+ * reconhecer cadastros feitos por outros processos; enquanto ele estiver desatualizado
+ * (recarga atrasada ou com erro), um email fora dele é procurado no armazenamento, com o
+ * cache negativo evitando consultas repetidas. A verificação de email já cadastrado
+ * consulta sempre o armazenamento.
+ */
 public class UserService {
-    private static final String DATABASE_NAME = "SecurePassManager";
-    private static final String COLLECTION_NAME = "users";
-
-    private final MongoClient mongoClient;
-    private final MongoDatabase database;
-    private final MongoCollection<Document> collection;
-    private final boolean isCloud;
-
-    public UserService() {
-        Properties props = new Properties();
-        String cloudUri = null;
-        String localUri = null;
-        try (FileInputStream fis = new FileInputStream("application.properties")) {
-            props.load(fis);
-            cloudUri = props.getProperty("mongodb.uri.cloud");
-            localUri = props.getProperty("mongodb.uri.local");
-        } catch (IOException e) {
-            System.err.println("Não foi possível ler application.properties. Usando padrão local.");
-            localUri = "mongodb://localhost:27017";
-        }
-
-        MongoClient client = null;
-        MongoDatabase db = null;
-        MongoCollection<Document> coll = null;
-        boolean cloud = false;
-
-        // Tenta conectar na nuvem primeiro
-        if (cloudUri != null && !cloudUri.contains("<usuario>")) {
-            try {
-                client = MongoClients.create(cloudUri);
-                db = client.getDatabase(DATABASE_NAME);
-                coll = db.getCollection(COLLECTION_NAME);
-                db.runCommand(new Document("ping", 1));
-                cloud = true;
-                System.out.println("Conectado ao MongoDB Atlas (nuvem) [UserService].");
-            } catch (Exception e) {
-                System.out.println("Falha ao conectar ao MongoDB Atlas. Tentando local...");
+    private static final int CACHE_MAX_ENTRIES = 10_000;
+    private static final long CACHE_POSITIVE_TTL = 10 * 60 * 1000; // 10 minutos
+    private static final long CACHE_NEGATIVE_TTL = 30 * 1000; // 30 segundos
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final long BLOOM_MIN_CAPACITY = 100_000;
+    private static final long BLOOM_REFRESH_INTERVAL = 60 * 1000; // 1 minuto
+    private static final ScheduledExecutorService BLOOM_REFRESHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-email-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final UserRepository repository;
+    private final UserCache cache;
+    private final LongSupplier clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile BloomFilter knownEmails;
+    private volatile long knownEmailsLoadedAt;
+    private volatile boolean closed;
+
+    public UserService(UserRepository repository) {
+        this(repository, System::currentTimeMillis);
+        scheduleRefresh(new WeakReference<>(this));
+    }
+
+    UserService(UserRepository repository, LongSupplier clock) {
+        this.repository = repository;
+        this.clock = clock;
+        this.cache = new UserCache(CACHE_MAX_ENTRIES, CACHE_POSITIVE_TTL, CACHE_NEGATIVE_TTL, clock);
+        this.knownEmailsLoadedAt = clock.getAsLong();
+        this.knownEmails = loadKnownEmails();
+    }
+
+    /**
+     * Carrega todos os emails cadastrados em um filtro de Bloom, permitindo descartar
+     * emails inexistentes sem consultar o banco.
+     */
+    private BloomFilter loadKnownEmails() {
+        BloomFilter filter = new BloomFilter(Math.max(BLOOM_MIN_CAPACITY, repository.estimatedCount() * 2),
+            BLOOM_FALSE_POSITIVE_RATE);
+        repository.forEachEmail(email -> {
+            String normalized = normalizeEmail(email);
+            if (normalized != null) {
+                filter.put(normalized);
             }
-        }
-        if (client == null) {
-            try {
-                client = MongoClients.create(localUri);
-                db = client.getDatabase(DATABASE_NAME);
-                coll = db.getCollection(COLLECTION_NAME);
-                db.runCommand(new Document("ping", 1));
-                System.out.println("Conectado ao MongoDB local [UserService].");
-            } catch (Exception ex) {
-                throw new RuntimeException("Não foi possível conectar ao MongoDB local nem à nuvem.", ex);
+        });
+        return filter;
+    }
+
+    /**
+     * Agenda a próxima recarga do filtro. A tarefa só guarda uma referência fraca: um
+     * serviço descartado sem {@link #close()} não fica preso ao timer.
+     */
+    private static void scheduleRefresh(WeakReference<UserService> service) {
+        BLOOM_REFRESHER.schedule(() -> {
+            UserService current = service.get();
+            if (current == null || current.closed) {
+                return;
             }
-        }
-        this.mongoClient = client;
-        this.database = db;
-        this.collection = coll;
-        this.isCloud = cloud;
+            current.refreshKnownEmails();
+            scheduleRefresh(service);
+        }, BLOOM_REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Normaliza o email para uso como chave (sem espaços e em minúsculas).
+     */
+    public static String normalizeEmail(String email) {
+        if (email == null) return null;
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
     }
 
     public boolean isCloudConnection() {
-        return isCloud;
+        return repository.isCloudConnection();
+    }
+
+    /**
+     * Indica se o email já está cadastrado, consultando o armazenamento (sem o filtro nem
+     * resultados negativos em cache), para que um cadastro feito por outro processo não
+     * seja duplicado.
+     */
+    public boolean isRegistered(String email) {
+        String key = normalizeEmail(email);
+        if (key == null) {
+            return false;
+        }
+        User user = repository.findByEmail(key);
+        if (user == null) {
+            return false;
+        }
+        knownEmails.put(key);
+        cache.put(key, user);
+        return true;
     }
 
+    /**
+     * @throws IllegalArgumentException se o email já estiver cadastrado
+     */
     public void registerUser(User user) {
-        Document doc = new Document()
-                .append("email", user.getEmail())
-                .append("passwordHash", user.getPasswordHash())
-                .append("totpSecret", user.getTotpSecret())
-                .append("backupCodes", user.getBackupCodes());
-        collection.insertOne(doc);
-        user.setId(doc.getObjectId("_id").toHexString());
+        String email = normalizeEmail(user.getEmail());
+        user.setEmail(email);
+        if (email != null && repository.findByEmail(email) != null) {
+            throw new IllegalArgumentException("Já existe um usuário com esse email");
+        }
+        repository.insert(user);
+        if (email != null) {
+            knownEmails.put(email);
+            cache.put(email, user);
+        }
     }
 
     public User findByEmail(String email) {
-        Document doc = collection.find(Filters.eq("email", email)).first();
-        if (doc != null) {
-            User user = new User();
-            user.setId(doc.getObjectId("_id").toHexString());
-            user.setEmail(doc.getString("email"));
-            user.setPasswordHash(doc.getString("passwordHash"));
-            user.setTotpSecret(doc.getString("totpSecret"));
-            List<String> codes = new ArrayList<>();
-            if (doc.get("backupCodes") instanceof List<?>) {
-                for (Object o : (List<?>) doc.get("backupCodes")) {
-                    if (o != null) codes.add(o.toString());
-                }
+        String key = normalizeEmail(email);
+        if (key == null) {
+            return null;
+        }
+        UserCache.CachedUser cached = cache.get(key);
+        if (cached != null) {
+            return cached.user;
+        }
+        if (!knownEmails.mightContain(key)) {
+            if (!isKnownEmailsStale()) {
+                return null;
             }
-            user.setBackupCodes(codes);
+            // Filtro desatualizado: a recarga roda em segundo plano e a busca segue no banco
+            BLOOM_REFRESHER.execute(this::refreshKnownEmails);
+        }
+
+        User user = repository.findByEmail(key);
+        if (user != null) {
+            cache.put(key, user);
             return user;
         }
+        cache.putNegative(key);
         return null;
     }
 
+    private boolean isKnownEmailsStale() {
+        return clock.getAsLong() - knownEmailsLoadedAt >= BLOOM_REFRESH_INTERVAL;
+    }
+
+    /**
+     * Recarrega o filtro de emails (uma recarga por vez; chamadas durante uma recarga são
+     * ignoradas). Roda fora do fluxo de login: no timer ou quando uma busca encontra o
+     * filtro desatualizado.
+     */
+    void refreshKnownEmails() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long startedAt = clock.getAsLong();
+            knownEmails = loadKnownEmails();
+            knownEmailsLoadedAt = startedAt;
+        } catch (RuntimeException e) {
+            System.err.println("Aviso: não foi possível recarregar o filtro de emails: " + e.getMessage());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
     public void updateUser(User user) {
         if (user.getId() == null) {
             throw new IllegalArgumentException("Usuário sem ID não pode ser atualizado");
         }
-        collection.updateOne(
-            Filters.eq("_id", new ObjectId(user.getId())),
-            new Document("$set", new Document()
-                .append("passwordHash", user.getPasswordHash())
-                .append("totpSecret", user.getTotpSecret())
-                .append("backupCodes", user.getBackupCodes())
-            )
-        );
+        repository.update(user);
+        String key = normalizeEmail(user.getEmail());
+        if (key != null) {
+            // Cópia: o objeto de quem chamou continua sendo alterado fora do cache
+            cache.put(key, new User(user));
+        }
+    }
+
+    /**
+     * Remove o usuário do armazenamento e do cache. O filtro de emails continua com o
+     * email até a próxima recarga, o que só custa uma consulta ao banco.
+     *
+     * @return true se o usuário existia
+     */
+    public boolean deleteUser(String email) {
+        String key = normalizeEmail(email);
+        if (key == null) {
+            return false;
+        }
+        boolean deleted = repository.delete(key);
+        cache.invalidate(key);
+        return deleted;
+    }
+
+    /**
+     * Grava as chaves do cofre criadas no primeiro desbloqueio, sem sobrescrever um
+     * chaveiro gravado nesse meio-tempo por outro login (ver
+     * {@link UserRepository#saveVaultKeysIfAbsent}). Se outro login venceu, o usuário sai
+     * do cache para que a próxima leitura traga o chaveiro gravado.
+     *
+     * @return true se as chaves foram gravadas
+     */
+    public boolean saveVaultKeysIfAbsent(User user) {
+        String key = normalizeEmail(user.getEmail());
+        boolean saved = repository.saveVaultKeysIfAbsent(user);
+        if (key != null) {
+            if (saved) {
+                cache.put(key, new User(user));
+            } else {
+                cache.invalidate(key);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Desbloqueia o cofre e salva o registro do usuário se o desbloqueio o alterou. O
+     * {@code user} deve ser uma cópia do registro (não o objeto do cache), pois recebe as
+     * chaves cifradas. No primeiro desbloqueio as chaves são gravadas só se nenhum outro
+     * login as gravou antes; caso contrário o chaveiro criado aqui é descartado e o cofre
+     * é aberto com o chaveiro gravado.
+     */
+    public VaultSession unlockVault(User user, String masterPassword, EncryptionService encryption) throws Exception {
+        boolean firstUnlock = user.getWrappedVaultKey() == null;
+        VaultSession session = encryption.openVaultSession(user, masterPassword);
+        if (!session.isUserUpdated()) {
+            return session;
+        }
+        if (!firstUnlock) {
+            updateUser(user);
+            return session;
+        }
+        if (saveVaultKeysIfAbsent(user)) {
+            return session;
+        }
+
+        session.lock();
+        User stored = repository.findByEmail(normalizeEmail(user.getEmail()));
+        if (stored == null || stored.getWrappedVaultKey() == null) {
+            throw new IllegalStateException("Não foi possível salvar as chaves do cofre de " + user.getEmail());
+        }
+        user.setKdfSalt(stored.getKdfSalt());
+        user.setKdfIterations(stored.getKdfIterations());
+        user.setWrappedVaultKey(stored.getWrappedVaultKey());
+        session = encryption.openVaultSession(user, masterPassword);
+        if (session.isUserUpdated()) {
+            updateUser(user);
+        }
+        return session;
     }
 
     public void close() {
-        mongoClient.close();
+        closed = true;
+        repository.close();
     }
-} 
\ No newline at end of file
+}
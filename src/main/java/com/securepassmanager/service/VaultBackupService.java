@@ -0,0 +1,129 @@
+package com.securepassmanager.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.storage.LocalDateTimeAdapter;
+import com.securepassmanager.storage.VaultRepository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exportação e restauração do cofre de um usuário em arquivo criptografado por blocos.
+ * As entradas são gravadas como JSON, uma por linha, com a senha ainda criptografada;
+ * a exportação percorre o cursor do repositório com memória constante. A restauração lê o
+ * arquivo duas vezes, também com memória constante: a primeira leitura autentica o arquivo
+ * inteiro, para nunca gravar um backup truncado ou adulterado pela metade, e só a segunda
+ * grava as entradas.
+ */
+public class VaultBackupService {
+    private static final int BATCH_SIZE = 500;
+
+    private final VaultRepository vaultRepository;
+    private final EncryptionService encryptionService;
+    private final Gson gson = new GsonBuilder()
+        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+        .create();
+
+    public VaultBackupService(VaultRepository vaultRepository, EncryptionService encryptionService) {
+        this.vaultRepository = vaultRepository;
+        this.encryptionService = encryptionService;
+    }
+
+    /**
+     * Exporta todas as entradas do usuário. O arquivo é gravado ao lado do destino e só
+     * substitui o destino quando completo. Retorna a quantidade de entradas exportadas.
+     */
+    public long export(String userId, Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), ".export-", ".tmp");
+        try {
+            long count;
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    encryptionService.encryptingStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                count = vaultRepository.forEachPasswordEntry(userId, BATCH_SIZE, entry -> {
+                    try {
+                        entry.setId(null);
+                        writer.write(gson.toJson(entry));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Restaura as entradas do arquivo para o usuário informado, em duas passagens. A
+     * primeira lê o arquivo inteiro só para autenticá-lo (todos os blocos, inclusive o
+     * final) e validar as entradas, sem guardá-las: um arquivo truncado ou adulterado não
+     * altera o cofre. A segunda lê o arquivo de novo e grava as entradas em lotes. Entradas
+     * com o mesmo serviço são substituídas. Retorna a quantidade de entradas restauradas.
+     */
+    public long restore(String userId, Path file) throws IOException {
+        readEntries(file, entry -> { });
+
+        List<PasswordEntry> batch = new ArrayList<>(BATCH_SIZE);
+        long count = readEntries(file, entry -> {
+            entry.setUserId(userId);
+            batch.add(entry);
+            if (batch.size() == BATCH_SIZE) {
+                vaultRepository.upsertPasswordEntries(batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            vaultRepository.upsertPasswordEntries(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Entrega cada entrada do arquivo a {@code consumer}, na ordem. Retorna a quantidade de
+     * entradas lidas; a exceção de autenticação do último bloco só chega ao fim da leitura.
+     */
+    private long readEntries(Path file, Consumer<PasswordEntry> consumer) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                encryptionService.decryptingStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                PasswordEntry entry;
+                try {
+                    entry = gson.fromJson(line, PasswordEntry.class);
+                } catch (JsonParseException e) {
+                    throw new IOException("Entrada inválida no arquivo: " + e.getMessage(), e);
+                }
+                consumer.accept(entry);
+                count++;
+            }
+        }
+        return count;
+    }
+}
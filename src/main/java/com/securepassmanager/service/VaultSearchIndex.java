@@ -0,0 +1,290 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de busca aproximada sobre os metadados do cofre (serviço, título e usuário),
+ * baseado em trigramas. Tolera erros de digitação porque a pontuação é a proporção de
+ * trigramas em comum (coeficiente de Dice) e não uma comparação exata.
+ * Apenas os metadados em texto claro são indexados; a senha, cifrada ou não, nunca entra
+ * no índice.
+ */
+public class VaultSearchIndex {
+    private static final int FIELD_COUNT = 3;
+    private static final int SERVICE = 0;
+    private static final int TITLE = 1;
+    private static final int USERNAME = 2;
+    private static final double[] FIELD_WEIGHTS = {1.0, 0.9, 0.8};
+    private static final double SUBSTRING_BONUS = 0.5;
+    private static final double MIN_SCORE = 0.3;
+
+    /**
+     * Resultado de uma busca: somente os metadados da entrada.
+     */
+    public static final class Hit {
+        private final String service;
+        private final String title;
+        private final String username;
+        private final double score;
+
+        Hit(String service, String title, String username, double score) {
+            this.service = service;
+            this.title = title;
+            this.username = username;
+            this.score = score;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private static final class Document {
+        final String[] values = new String[FIELD_COUNT];
+        final String[] normalized = new String[FIELD_COUNT];
+        final int[] gramCounts = new int[FIELD_COUNT];
+    }
+
+    /**
+     * Lista de ocorrências de um trigrama: cada posição guarda docId * FIELD_COUNT + campo.
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> docIdsByService = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private int removedCount;
+
+    /**
+     * Cria um índice com as entradas informadas.
+     */
+    public static VaultSearchIndex of(Collection<PasswordEntry> entries) {
+        VaultSearchIndex index = new VaultSearchIndex();
+        for (PasswordEntry entry : entries) {
+            index.index(entry);
+        }
+        return index;
+    }
+
+    /**
+     * Inclui ou atualiza uma entrada; o serviço identifica a entrada dentro do cofre.
+     */
+    public void index(PasswordEntry entry) {
+        if (entry.getService() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(entry.getService());
+            Document doc = new Document();
+            doc.values[SERVICE] = entry.getService();
+            doc.values[TITLE] = entry.getTitle();
+            doc.values[USERNAME] = entry.getUsername();
+
+            int docId = documents.size();
+            documents.add(doc);
+            docIdsByService.put(entry.getService(), docId);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                if (doc.values[field] == null) {
+                    continue;
+                }
+                doc.normalized[field] = normalize(doc.values[field]);
+                long[] grams = trigrams(doc.normalized[field]);
+                doc.gramCounts[field] = grams.length;
+                for (long gram : grams) {
+                    postings.computeIfAbsent(gram, g -> new Postings()).add(docId * FIELD_COUNT + field);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a entrada do serviço informado, se existir.
+     */
+    public void remove(String service) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(service);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByService.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna até {@code limit} entradas mais parecidas com a consulta, da melhor para a pior.
+     */
+    public List<Hit> search(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String normalizedQuery = normalize(query);
+        long[] queryGrams = trigrams(normalizedQuery);
+
+        lock.readLock().lock();
+        try {
+            int[] shared = new int[documents.size() * FIELD_COUNT];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (long gram : queryGrams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    continue;
+                }
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.slots[i];
+                    if (documents.get(slot / FIELD_COUNT) == null) {
+                        continue;
+                    }
+                    if (shared[slot]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = slot;
+                    }
+                }
+            }
+
+            Map<Integer, Double> bestScores = new HashMap<>();
+            for (int i = 0; i < touchedCount; i++) {
+                int slot = touched[i];
+                int docId = slot / FIELD_COUNT;
+                int field = slot % FIELD_COUNT;
+                Document doc = documents.get(docId);
+                double dice = 2.0 * shared[slot] / (queryGrams.length + doc.gramCounts[field]);
+                if (doc.normalized[field].contains(normalizedQuery)) {
+                    dice += SUBSTRING_BONUS;
+                }
+                bestScores.merge(docId, dice * FIELD_WEIGHTS[field], Math::max);
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::getScore));
+            for (Map.Entry<Integer, Double> candidate : bestScores.entrySet()) {
+                if (candidate.getValue() < MIN_SCORE) {
+                    continue;
+                }
+                if (top.size() < limit || candidate.getValue() > top.peek().getScore()) {
+                    Document doc = documents.get(candidate.getKey());
+                    top.add(new Hit(doc.values[SERVICE], doc.values[TITLE], doc.values[USERNAME], candidate.getValue()));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            List<Hit> results = new ArrayList<>(top);
+            results.sort(Comparator.comparingDouble(Hit::getScore).reversed());
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String service) {
+        Integer docId = docIdsByService.remove(service);
+        if (docId == null) {
+            return;
+        }
+        // Remoção lógica: as ocorrências são descartadas na próxima compactação
+        documents.set(docId, null);
+        removedCount++;
+        if (removedCount > 1024 && removedCount > docIdsByService.size()) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        List<Document> live = new ArrayList<>(docIdsByService.size());
+        int[] remap = new int[documents.size()];
+        Arrays.fill(remap, -1);
+        for (int docId = 0; docId < documents.size(); docId++) {
+            Document doc = documents.get(docId);
+            if (doc != null) {
+                remap[docId] = live.size();
+                live.add(doc);
+            }
+        }
+        postings.values().removeIf(list -> {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int newId = remap[list.slots[i] / FIELD_COUNT];
+                if (newId >= 0) {
+                    list.slots[kept++] = newId * FIELD_COUNT + list.slots[i] % FIELD_COUNT;
+                }
+            }
+            list.size = kept;
+            return kept == 0;
+        });
+        docIdsByService.replaceAll((service, docId) -> remap[docId]);
+        documents.clear();
+        documents.addAll(live);
+        removedCount = 0;
+    }
+
+    /**
+     * Minúsculas, sem acentos e com espaços colapsados.
+     */
+    static String normalize(String value) {
+        String stripped = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Trigramas distintos do texto, com um espaço de borda em cada extremidade para que
+     * prefixos e sufixos contem (e consultas de dois caracteres ainda gerem trigramas).
+     */
+    static long[] trigrams(String normalized) {
+        String padded = ' ' + normalized + ' ';
+        long[] grams = new long[Math.max(0, padded.length() - 2)];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+}
@@ -0,0 +1,537 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Repositório em memória em formato colunar, para caches com milhões de entradas.
+ *
+ * <p>Em vez de um {@link PasswordEntry} por entrada (oito referências, dois
+ * {@link LocalDateTime}, e o mesmo {@code userId} repetido em cada objeto), cada campo fica
+ * num array indexado pelo número da entrada: {@code userId} e serviço são códigos de
+ * dicionário ({@code int}), as datas são milissegundos desde a época ({@code long}) e o
+ * usuário, o título e o texto cifrado são copiados em UTF-8 para blocos de bytes
+ * compartilhados, referenciados por bloco, posição e tamanho. Sem contar esses textos, cada
+ * entrada ocupa cerca de 110 bytes (colunas e índice), contra cerca de 500 da representação
+ * em objetos.
+ *
+ * <p>As leituras devolvem {@link PasswordEntry} montados na hora, então alterações do
+ * chamador não afetam o repositório. As datas ficam com precisão de milissegundos (a mesma
+ * guardada pelo MongoDB). Os dicionários só crescem: valores removidos continuam
+ * reservados, o que é aceitável porque usuários e serviços se repetem muito. Usuário e
+ * título quase não se repetem e mudam a cada edição; por isso ficam nos blocos, onde as
+ * versões substituídas são recuperadas ao compactar.
+ */
+public class CompactEntryStore implements VaultRepository {
+    static final int SLAB_SIZE = 1 << 20;
+    private static final int NONE = -1;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 64;
+    // Campos de texto guardados nos blocos
+    private static final int CIPHERTEXT = 0;
+    private static final int USERNAME = 1;
+    private static final int TITLE = 2;
+    private static final int TEXT_FIELDS = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringDictionary users = new StringDictionary();
+    private final StringDictionary services = new StringDictionary();
+    private final SlotIndex index = new SlotIndex();
+
+    // Colunas, indexadas pelo número da entrada
+    private int[] userOf = new int[INITIAL_CAPACITY];
+    private int[] serviceOf = new int[INITIAL_CAPACITY];
+    private long[] idOf = new long[INITIAL_CAPACITY];
+    private long[] createdOf = new long[INITIAL_CAPACITY];
+    private long[] updatedOf = new long[INITIAL_CAPACITY];
+    // Fatia de cada campo de texto nos blocos: [campo][entrada]
+    private int[][] textSlabOf = new int[TEXT_FIELDS][INITIAL_CAPACITY];
+    private int[][] textOffsetOf = new int[TEXT_FIELDS][INITIAL_CAPACITY];
+    private int[][] textLengthOf = new int[TEXT_FIELDS][INITIAL_CAPACITY];
+    // Lista duplamente encadeada das entradas de cada usuário; nextInUser também encadeia as livres
+    private int[] nextInUser = new int[INITIAL_CAPACITY];
+    private int[] prevInUser = new int[INITIAL_CAPACITY];
+    private int[] userHead = new int[INITIAL_CAPACITY];
+    private int[] userCount = new int[INITIAL_CAPACITY];
+    private int highWater;
+    private int freeHead = NONE;
+    private int live;
+
+    private final List<byte[]> slabs = new ArrayList<>();
+    private int slabPosition = SLAB_SIZE;
+    private long liveTextBytes;
+    private long garbageTextBytes;
+
+    public CompactEntryStore() {
+        Arrays.fill(userHead, NONE);
+    }
+
+    @Override
+    public void insertPasswordEntry(PasswordEntry entry) {
+        insertOrUpdatePasswordEntry(entry);
+    }
+
+    @Override
+    public void insertOrUpdatePasswordEntry(PasswordEntry entry) {
+        put(entry);
+    }
+
+    /**
+     * @return true se a entrada ainda não existia
+     */
+    boolean put(PasswordEntry entry) {
+        lock.writeLock().lock();
+        try {
+            int user = users.intern(entry.getUserId());
+            int service = services.intern(entry.getService());
+            long key = SlotIndex.key(user, service);
+            int slot = index.get(key);
+            boolean added = slot == NONE;
+            if (added) {
+                slot = allocate();
+                for (int field = 0; field < TEXT_FIELDS; field++) {
+                    textLengthOf[field][slot] = NONE;
+                }
+                link(slot, user);
+                index.put(key, slot);
+                live++;
+            } else {
+                releaseTexts(slot);
+            }
+            serviceOf[slot] = service;
+            idOf[slot] = entry.getId() != null ? entry.getId() : NULL_LONG;
+            createdOf[slot] = toMillis(entry.getCreatedAt());
+            updatedOf[slot] = toMillis(entry.getUpdatedAt());
+            storeText(slot, CIPHERTEXT, entry.getPassword());
+            storeText(slot, USERNAME, entry.getUsername());
+            storeText(slot, TITLE, entry.getTitle());
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsertPasswordEntries(List<PasswordEntry> entries) {
+        for (PasswordEntry entry : entries) {
+            put(entry);
+        }
+    }
+
+    @Override
+    public PasswordEntry findByService(String service, String userId) {
+        lock.readLock().lock();
+        try {
+            int slot = find(service, userId);
+            return slot != NONE ? view(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PasswordEntry> getAllPasswordEntries(String userId) {
+        List<PasswordEntry> result = new ArrayList<>();
+        forEachPasswordEntry(userId, 0, result::add);
+        return result;
+    }
+
+    /**
+     * As entradas são montadas sob a trava de leitura e entregues, em ordem de serviço,
+     * depois de liberá-la, para que o consumidor possa gravar no próprio repositório.
+     */
+    @Override
+    public long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer) {
+        List<PasswordEntry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int user = users.code(userId);
+            if (user == NONE) {
+                return 0;
+            }
+            for (int slot = userHead[user]; slot != NONE; slot = nextInUser[slot]) {
+                entries.add(view(slot));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        entries.sort(Comparator.comparing(PasswordEntry::getService));
+        entries.forEach(consumer);
+        return entries.size();
+    }
+
+    @Override
+    public boolean deletePasswordEntry(String service, String userId) {
+        lock.writeLock().lock();
+        try {
+            int slot = find(service, userId);
+            if (slot == NONE) {
+                return false;
+            }
+            remove(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            removeUser(userId);
+            upsertPasswordEntries(entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove todas as entradas do usuário e retorna quantas existiam.
+     */
+    int removeUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            int user = users.code(userId);
+            if (user == NONE) {
+                return 0;
+            }
+            int removed = 0;
+            while (userHead[user] != NONE) {
+                remove(userHead[user]);
+                removed++;
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> listUserIds() {
+        lock.readLock().lock();
+        try {
+            Set<String> userIds = new HashSet<>();
+            for (int user = 0; user < users.size(); user++) {
+                if (userCount[user] > 0) {
+                    userIds.add(users.value(user));
+                }
+            }
+            return userIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes ocupados nos blocos (texto cifrado, usuário e título) por entradas vivas e por
+     * versões substituídas.
+     */
+    long[] slabBytes() {
+        lock.readLock().lock();
+        try {
+            return new long[] {liveTextBytes, garbageTextBytes};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nada a liberar
+    }
+
+    private int find(String service, String userId) {
+        int user = users.code(userId);
+        int code = services.code(service);
+        return user == NONE || code == NONE ? NONE : index.get(SlotIndex.key(user, code));
+    }
+
+    private PasswordEntry view(int slot) {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setId(idOf[slot] != NULL_LONG ? idOf[slot] : null);
+        entry.setTitle(loadText(slot, TITLE));
+        entry.setService(services.value(serviceOf[slot]));
+        entry.setUsername(loadText(slot, USERNAME));
+        entry.setPassword(loadText(slot, CIPHERTEXT));
+        entry.setUserId(users.value(userOf[slot]));
+        // Depois de setPassword, que atualiza updatedAt
+        entry.setCreatedAt(fromMillis(createdOf[slot]));
+        entry.setUpdatedAt(fromMillis(updatedOf[slot]));
+        return entry;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = nextInUser[slot];
+            return slot;
+        }
+        if (highWater == userOf.length) {
+            int capacity = userOf.length * 2;
+            userOf = Arrays.copyOf(userOf, capacity);
+            serviceOf = Arrays.copyOf(serviceOf, capacity);
+            idOf = Arrays.copyOf(idOf, capacity);
+            createdOf = Arrays.copyOf(createdOf, capacity);
+            updatedOf = Arrays.copyOf(updatedOf, capacity);
+            for (int field = 0; field < TEXT_FIELDS; field++) {
+                textSlabOf[field] = Arrays.copyOf(textSlabOf[field], capacity);
+                textOffsetOf[field] = Arrays.copyOf(textOffsetOf[field], capacity);
+                textLengthOf[field] = Arrays.copyOf(textLengthOf[field], capacity);
+            }
+            nextInUser = Arrays.copyOf(nextInUser, capacity);
+            prevInUser = Arrays.copyOf(prevInUser, capacity);
+        }
+        return highWater++;
+    }
+
+    private void link(int slot, int user) {
+        if (user >= userHead.length) {
+            int capacity = Math.max(userHead.length * 2, user + 1);
+            int previous = userHead.length;
+            userHead = Arrays.copyOf(userHead, capacity);
+            Arrays.fill(userHead, previous, capacity, NONE);
+            userCount = Arrays.copyOf(userCount, capacity);
+        }
+        userOf[slot] = user;
+        prevInUser[slot] = NONE;
+        nextInUser[slot] = userHead[user];
+        if (userHead[user] != NONE) {
+            prevInUser[userHead[user]] = slot;
+        }
+        userHead[user] = slot;
+        userCount[user]++;
+    }
+
+    private void remove(int slot) {
+        int user = userOf[slot];
+        index.remove(SlotIndex.key(user, serviceOf[slot]));
+        if (prevInUser[slot] != NONE) {
+            nextInUser[prevInUser[slot]] = nextInUser[slot];
+        } else {
+            userHead[user] = nextInUser[slot];
+        }
+        if (nextInUser[slot] != NONE) {
+            prevInUser[nextInUser[slot]] = prevInUser[slot];
+        }
+        userCount[user]--;
+        releaseTexts(slot);
+        nextInUser[slot] = freeHead;
+        freeHead = slot;
+        live--;
+    }
+
+    private void storeText(int slot, int field, String text) {
+        if (text == null) {
+            textLengthOf[field][slot] = NONE;
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (garbageTextBytes > SLAB_SIZE && garbageTextBytes > liveTextBytes) {
+            compactSlabs();
+        }
+        appendText(slot, field, bytes);
+    }
+
+    private void appendText(int slot, int field, byte[] bytes) {
+        if (bytes.length > SLAB_SIZE - slabPosition) {
+            // Textos maiores que um bloco ganham um bloco só para eles
+            slabs.add(new byte[Math.max(SLAB_SIZE, bytes.length)]);
+            slabPosition = 0;
+        }
+        int slab = slabs.size() - 1;
+        System.arraycopy(bytes, 0, slabs.get(slab), slabPosition, bytes.length);
+        textSlabOf[field][slot] = slab;
+        textOffsetOf[field][slot] = slabPosition;
+        textLengthOf[field][slot] = bytes.length;
+        slabPosition += bytes.length;
+        liveTextBytes += bytes.length;
+    }
+
+    private String loadText(int slot, int field) {
+        int length = textLengthOf[field][slot];
+        return length == NONE ? null
+            : new String(slabs.get(textSlabOf[field][slot]), textOffsetOf[field][slot], length, StandardCharsets.UTF_8);
+    }
+
+    private void releaseTexts(int slot) {
+        for (int field = 0; field < TEXT_FIELDS; field++) {
+            int length = textLengthOf[field][slot];
+            if (length != NONE) {
+                liveTextBytes -= length;
+                garbageTextBytes += length;
+                textLengthOf[field][slot] = NONE;
+            }
+        }
+    }
+
+    /**
+     * Copia os textos vivos para blocos novos, descartando as versões substituídas.
+     */
+    private void compactSlabs() {
+        List<byte[]> old = new ArrayList<>(slabs);
+        slabs.clear();
+        slabPosition = SLAB_SIZE;
+        liveTextBytes = 0;
+        garbageTextBytes = 0;
+        for (int user = 0; user < users.size(); user++) {
+            for (int slot = userHead[user]; slot != NONE; slot = nextInUser[slot]) {
+                for (int field = 0; field < TEXT_FIELDS; field++) {
+                    int length = textLengthOf[field][slot];
+                    if (length != NONE) {
+                        int offset = textOffsetOf[field][slot];
+                        appendText(slot, field, Arrays.copyOfRange(old.get(textSlabOf[field][slot]), offset, offset + length));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : NULL_LONG;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis != NULL_LONG ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Dicionário de strings: cada valor distinto é guardado uma única vez e referenciado
+     * por um código {@code int}; {@code null} tem o código -1.
+     */
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int code(String value) {
+            Integer code = value != null ? codes.get(value) : null;
+            return code != null ? code : NONE;
+        }
+
+        String value(int code) {
+            return code != NONE ? values.get(code) : null;
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * Tabela de endereçamento aberto de {@code (usuário, serviço)} para o número da
+     * entrada, sem objetos por entrada. Sondagem linear, com remoção por deslocamento
+     * (sem marcadores de removido).
+     */
+    private static final class SlotIndex {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] slots = new int[INITIAL_CAPACITY]; // número da entrada + 1; 0 = vazio
+        private int size;
+
+        static long key(int user, int service) {
+            return ((long) user << 32) | (service & 0xffffffffL);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = home(key, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return slots[i] - 1;
+                }
+            }
+            return NONE;
+        }
+
+        void put(long key, int slot) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = home(key, mask);
+            while (slots[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            slots[i] = slot + 1;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = home(key, mask);
+            while (slots[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                return;
+            }
+            // Puxa para trás as chaves seguintes que ficariam inalcançáveis com o buraco
+            for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int k = home(keys[j], mask);
+                boolean reachable = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (!reachable) {
+                    keys[i] = keys[j];
+                    slots[i] = slots[j];
+                    i = j;
+                }
+            }
+            slots[i] = 0;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[capacity];
+            slots = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] != 0) {
+                    put(oldKeys[i], oldSlots[i] - 1);
+                }
+            }
+        }
+
+        private static int home(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.securepassmanager.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.securepassmanager.model.User;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Usuários do backend embutido, num arquivo JSON ao lado do arquivo do cofre, para que
+ * {@code vault.backend=embedded} funcione sem servidor de banco de dados. O arquivo é
+ * pequeno e lido inteiro na abertura; cada gravação o reescreve num temporário e o troca
+ * de forma atômica. Um arquivo {@code .lock} impede que dois processos o usem ao mesmo tempo.
+ */
+public class EmbeddedUserRepository implements UserRepository {
+    private static final Type USER_LIST = new TypeToken<List<User>>() { }.getType();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Path file;
+    private final Gson gson = new Gson();
+    private final Map<String, User> usersByEmail = new LinkedHashMap<>();
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private EmbeddedUserRepository(Path file, FileChannel lockChannel, FileLock lock) {
+        this.file = file;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo de usuários.
+     */
+    public static EmbeddedUserRepository open(Path file) throws IOException {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Arquivo de usuários em uso por outro processo: " + file);
+        }
+        EmbeddedUserRepository repository = new EmbeddedUserRepository(file, lockChannel, lock);
+        try {
+            repository.load();
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+        return repository;
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<User> users = gson.fromJson(reader, USER_LIST);
+            if (users != null) {
+                for (User user : users) {
+                    usersByEmail.put(user.getEmail(), user);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized User findByEmail(String email) {
+        User user = usersByEmail.get(email);
+        return user != null ? copy(user) : null;
+    }
+
+    @Override
+    public synchronized void insert(User user) {
+        if (usersByEmail.containsKey(user.getEmail())) {
+            throw new IllegalArgumentException("Já existe um usuário com esse email");
+        }
+        byte[] id = new byte[12];
+        RANDOM.nextBytes(id);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : id) {
+            hex.append(String.format("%02x", b));
+        }
+        user.setId(hex.toString());
+        usersByEmail.put(user.getEmail(), copy(user));
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            usersByEmail.remove(user.getEmail());
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void update(User user) {
+        User previous = usersByEmail.get(user.getEmail());
+        if (previous == null || !previous.getId().equals(user.getId())) {
+            throw new IllegalArgumentException("Usuário não encontrado: " + user.getEmail());
+        }
+        usersByEmail.put(user.getEmail(), copy(user));
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            usersByEmail.put(user.getEmail(), previous);
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized boolean saveVaultKeysIfAbsent(User user) {
+        User previous = usersByEmail.get(user.getEmail());
+        if (previous == null || !previous.getId().equals(user.getId()) || previous.getWrappedVaultKey() != null) {
+            return false;
+        }
+        usersByEmail.put(user.getEmail(), InMemoryUserRepository.withVaultKeys(previous, user));
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            usersByEmail.put(user.getEmail(), previous);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(String email) {
+        User previous = usersByEmail.remove(email);
+        if (previous == null) {
+            return false;
+        }
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            usersByEmail.put(email, previous);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long estimatedCount() {
+        return usersByEmail.size();
+    }
+
+    @Override
+    public synchronized void forEachEmail(Consumer<String> consumer) {
+        usersByEmail.keySet().forEach(consumer);
+    }
+
+    private void save() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(new ArrayList<>(usersByEmail.values()), USER_LIST, writer);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar o arquivo de usuários: " + e.getMessage(), e);
+        }
+    }
+
+    private User copy(User user) {
+        return gson.fromJson(gson.toJson(user), User.class);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (lock.isValid()) {
+                lock.release();
+            }
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o arquivo de usuários: " + e.getMessage());
+        }
+    }
+}
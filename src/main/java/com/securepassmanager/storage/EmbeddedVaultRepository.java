@@ -0,0 +1,465 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Repositório embutido para instalações de um único nó, sem servidor de banco de dados.
+ * Cada gravação é acrescentada a um log em arquivo ({@code [tamanho][crc32][registro]}) e
+ * aplicada a um índice em memória ({@link CompactEntryStore}), de onde saem todas as
+ * leituras; ao abrir, o log é relido para reconstruir o índice. Um final de arquivo
+ * incompleto ou corrompido (queda no meio de uma gravação) é descartado. Quando a maior parte do log passa a ser de
+ * registros substituídos, o arquivo é compactado para conter apenas as entradas vivas.
+ */
+public class EmbeddedVaultRepository implements VaultRepository {
+    private static final byte[] MAGIC = {'S', 'P', 'M', 'V'};
+    private static final byte FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = MAGIC.length + 1;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_DELETE_USER = 3;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final Path file;
+    private final boolean fsync;
+    private final CompactEntryStore index = new CompactEntryStore();
+    private FileChannel channel;
+    private FileLock lock;
+    private long records;
+    private long liveEntries;
+    private boolean closed;
+
+    private EmbeddedVaultRepository(Path file, boolean fsync) {
+        this.file = file;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo do cofre e reconstrói o índice.
+     *
+     * @param fsync se true, cada gravação só retorna depois de chegar ao disco
+     */
+    public static EmbeddedVaultRepository open(Path file, boolean fsync) throws IOException {
+        EmbeddedVaultRepository repository = new EmbeddedVaultRepository(file, fsync);
+        repository.openChannel();
+        try {
+            repository.recover();
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+        return repository;
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Já aberto por este mesmo processo
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Arquivo do cofre em uso por outro processo: " + file);
+        }
+    }
+
+    private void recover() throws IOException {
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH).put(MAGIC).put(FORMAT_VERSION).flip();
+            writeFully(header);
+            channel.force(true);
+            return;
+        }
+        channel.position(0);
+        // O canal não é fechado aqui: o fluxo apenas lê a partir da posição atual
+        InputStream raw = Channels.newInputStream(channel);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024));
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            throw new IOException("Arquivo do cofre inválido: " + file);
+        }
+        if (!Arrays.equals(magic, MAGIC) || in.readByte() != FORMAT_VERSION) {
+            throw new IOException("Arquivo do cofre inválido ou de versão não suportada: " + file);
+        }
+
+        long validEnd = FILE_HEADER_LENGTH;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            apply(payload);
+            validEnd += RECORD_HEADER_LENGTH + payload.length;
+        }
+        if (validEnd < channel.size()) {
+            System.err.println("Aviso: descartando " + (channel.size() - validEnd)
+                + " bytes incompletos ou corrompidos no fim de " + file);
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        String userId = readString(in);
+        records++;
+        switch (op) {
+            case OP_PUT:
+                PasswordEntry entry = new PasswordEntry();
+                entry.setUserId(userId);
+                entry.setService(readString(in));
+                entry.setTitle(readString(in));
+                entry.setUsername(readString(in));
+                entry.setPassword(readString(in));
+                entry.setCreatedAt(readDate(in));
+                entry.setUpdatedAt(readDate(in));
+                if (index.put(entry)) {
+                    liveEntries++;
+                }
+                break;
+            case OP_DELETE:
+                if (index.deletePasswordEntry(readString(in), userId)) {
+                    liveEntries--;
+                }
+                break;
+            case OP_DELETE_USER:
+                liveEntries -= index.removeUser(userId);
+                break;
+            default:
+                throw new IOException("Registro desconhecido no arquivo do cofre: " + op);
+        }
+    }
+
+    @Override
+    public void insertPasswordEntry(PasswordEntry entry) {
+        insertOrUpdatePasswordEntry(entry);
+    }
+
+    @Override
+    public void insertOrUpdatePasswordEntry(PasswordEntry entry) {
+        upsertPasswordEntries(List.of(entry));
+    }
+
+    @Override
+    public synchronized void upsertPasswordEntries(List<PasswordEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        for (PasswordEntry entry : entries) {
+            appendRecord(batch, putRecord(entry));
+        }
+        write(batch);
+        for (PasswordEntry entry : entries) {
+            if (index.put(entry)) {
+                liveEntries++;
+            }
+        }
+        records += entries.size();
+        compactIfNeeded();
+    }
+
+    @Override
+    public PasswordEntry findByService(String service, String userId) {
+        return index.findByService(service, userId);
+    }
+
+    @Override
+    public List<PasswordEntry> getAllPasswordEntries(String userId) {
+        return index.getAllPasswordEntries(userId);
+    }
+
+    @Override
+    public long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer) {
+        return index.forEachPasswordEntry(userId, batchSize, consumer);
+    }
+
+    @Override
+    public Set<String> listUserIds() {
+        return index.listUserIds();
+    }
+
+    @Override
+    public synchronized boolean deletePasswordEntry(String service, String userId) {
+        if (index.findByService(service, userId) == null) {
+            return false;
+        }
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        appendRecord(batch, deleteRecord(OP_DELETE, userId, service));
+        write(batch);
+        index.deletePasswordEntry(service, userId);
+        liveEntries--;
+        records++;
+        compactIfNeeded();
+        return true;
+    }
+
+    @Override
+    public synchronized void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        appendRecord(batch, deleteRecord(OP_DELETE_USER, userId, null));
+        for (PasswordEntry entry : entries) {
+            appendRecord(batch, putRecord(entry));
+        }
+        write(batch);
+        liveEntries -= index.removeUser(userId);
+        for (PasswordEntry entry : entries) {
+            if (index.put(entry)) {
+                liveEntries++;
+            }
+        }
+        records += 1 + entries.size();
+        compactIfNeeded();
+    }
+
+    /**
+     * Reescreve o arquivo apenas com as entradas vivas. A troca é atômica: até o novo
+     * arquivo estar completo em disco, o log antigo continua valendo.
+     */
+    public synchronized void compact() {
+        ensureOpen();
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            batch.write(MAGIC);
+            batch.write(FORMAT_VERSION);
+            for (String userId : index.listUserIds()) {
+                index.forEachPasswordEntry(userId, 0, entry -> appendRecord(batch, putRecord(entry)));
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao compactar o arquivo do cofre: " + e.getMessage(), e);
+        }
+        // O novo arquivo é travado antes da troca e o antigo só é liberado depois dela, para
+        // que nenhum outro processo consiga abrir o cofre no meio da compactação
+        FileChannel newChannel = null;
+        try {
+            newChannel = FileChannel.open(compacted, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock newLock = newChannel.tryLock();
+            if (newLock == null) {
+                throw new IOException("Arquivo compactado em uso por outro processo: " + compacted);
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel oldChannel = channel;
+            FileLock oldLock = lock;
+            channel = newChannel;
+            lock = newLock;
+            channel.position(channel.size());
+            records = liveEntries;
+            try {
+                oldLock.release();
+                oldChannel.close();
+            } catch (IOException e) {
+                System.err.println("Aviso: erro ao fechar o arquivo do cofre anterior à compactação: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            if (newChannel != null && newChannel != channel) {
+                try {
+                    newChannel.close();
+                    Files.deleteIfExists(compacted);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException("Erro ao trocar o arquivo do cofre compactado: " + e.getMessage(), e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (records > 2 * liveEntries && sizeQuietly() > MIN_COMPACTION_BYTES) {
+            compact();
+        }
+    }
+
+    /**
+     * Tamanho atual do arquivo em bytes.
+     */
+    public synchronized long size() {
+        ensureOpen();
+        return sizeQuietly();
+    }
+
+    private long sizeQuietly() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (lock != null && lock.isValid()) {
+                lock.release();
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o arquivo do cofre: " + e.getMessage());
+        }
+    }
+
+    private void write(ByteArrayOutputStream batch) {
+        ensureOpen();
+        long start = -1;
+        try {
+            start = channel.position();
+            writeFully(ByteBuffer.wrap(batch.toByteArray()));
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // Um registro parcial no meio do log faria a próxima recuperação parar nele e
+            // descartar os registros gravados depois; o arquivo volta ao tamanho anterior
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                    closed = true;
+                }
+            }
+            throw new UncheckedIOException("Erro ao gravar no arquivo do cofre: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Arquivo do cofre está fechado");
+        }
+    }
+
+    private static void appendRecord(ByteArrayOutputStream batch, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        header.putInt(payload.length).putInt((int) crc.getValue());
+        batch.write(header.array(), 0, RECORD_HEADER_LENGTH);
+        batch.write(payload, 0, payload.length);
+    }
+
+    private static byte[] putRecord(PasswordEntry entry) {
+        return record(out -> {
+            out.writeByte(OP_PUT);
+            writeString(out, entry.getUserId());
+            writeString(out, entry.getService());
+            writeString(out, entry.getTitle());
+            writeString(out, entry.getUsername());
+            writeString(out, entry.getPassword());
+            writeString(out, entry.getCreatedAt() != null ? entry.getCreatedAt().toString() : null);
+            writeString(out, entry.getUpdatedAt() != null ? entry.getUpdatedAt().toString() : null);
+        });
+    }
+
+    private static byte[] deleteRecord(byte op, String userId, String service) {
+        return record(out -> {
+            out.writeByte(op);
+            writeString(out, userId);
+            if (op == OP_DELETE) {
+                writeString(out, service);
+            }
+        });
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        String value = readString(in);
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+}
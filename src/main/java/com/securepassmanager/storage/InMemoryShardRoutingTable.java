@@ -0,0 +1,45 @@
+package com.securepassmanager.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Tabela de roteamento em memória, usada em testes. Vários {@link ShardedVaultRepository}
+ * que compartilham a mesma instância fazem o papel de processos diferentes.
+ */
+public class InMemoryShardRoutingTable implements ShardRoutingTable {
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private volatile List<String> ring;
+
+    @Override
+    public List<String> ring() {
+        return ring;
+    }
+
+    @Override
+    public void saveRing(List<String> shards) {
+        ring = List.copyOf(shards);
+    }
+
+    @Override
+    public Route find(String userId) {
+        return routes.get(userId);
+    }
+
+    @Override
+    public Route assignIfAbsent(String userId, String shard) {
+        return routes.computeIfAbsent(userId, id -> new Route(shard, null));
+    }
+
+    @Override
+    public void save(String userId, Route route) {
+        routes.put(userId, route);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Route> consumer) {
+        routes.forEach(consumer);
+    }
+}
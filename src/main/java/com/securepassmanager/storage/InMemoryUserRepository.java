@@ -0,0 +1,84 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.User;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Usuários em memória, indexados pelo email. Usado em testes; os registros são copiados
+ * na entrada e na saída, como aconteceria com um banco de verdade.
+ */
+public class InMemoryUserRepository implements UserRepository {
+    private final Map<String, User> usersByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Override
+    public User findByEmail(String email) {
+        User user = usersByEmail.get(email);
+        return user != null ? copy(user) : null;
+    }
+
+    @Override
+    public void insert(User user) {
+        user.setId(String.format("%024x", nextId.getAndIncrement()));
+        if (usersByEmail.putIfAbsent(user.getEmail(), copy(user)) != null) {
+            user.setId(null);
+            throw new IllegalArgumentException("Já existe um usuário com esse email");
+        }
+    }
+
+    @Override
+    public void update(User user) {
+        if (usersByEmail.computeIfPresent(user.getEmail(), (email, previous) -> copy(user)) == null) {
+            throw new IllegalArgumentException("Usuário não encontrado: " + user.getEmail());
+        }
+    }
+
+    @Override
+    public boolean saveVaultKeysIfAbsent(User user) {
+        boolean[] saved = {false};
+        usersByEmail.computeIfPresent(user.getEmail(), (email, previous) -> {
+            if (previous.getWrappedVaultKey() != null) {
+                return previous;
+            }
+            saved[0] = true;
+            return withVaultKeys(previous, user);
+        });
+        return saved[0];
+    }
+
+    @Override
+    public boolean delete(String email) {
+        return usersByEmail.remove(email) != null;
+    }
+
+    static User withVaultKeys(User stored, User source) {
+        User updated = new User(stored);
+        updated.setKdfSalt(source.getKdfSalt());
+        updated.setKdfIterations(source.getKdfIterations());
+        updated.setWrappedVaultKey(source.getWrappedVaultKey());
+        return updated;
+    }
+
+    @Override
+    public long estimatedCount() {
+        return usersByEmail.size();
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> consumer) {
+        new ArrayList<>(usersByEmail.keySet()).forEach(consumer);
+    }
+
+    private static User copy(User user) {
+        return new User(user);
+    }
+
+    @Override
+    public void close() {
+    }
+}
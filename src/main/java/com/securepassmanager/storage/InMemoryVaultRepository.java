@@ -0,0 +1,128 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Repositório em memória, ordenado por serviço dentro de cada usuário. Usado em testes
+ * (para volumes grandes, veja {@link CompactEntryStore}). Leituras não bloqueiam; as entradas são
+ * copiadas na entrada e na saída, como aconteceria com um banco de verdade, para que
+ * alterações feitas pelo chamador não vazem para o repositório.
+ */
+public class InMemoryVaultRepository implements VaultRepository {
+    private final Map<String, ConcurrentSkipListMap<String, PasswordEntry>> entriesByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void insertPasswordEntry(PasswordEntry entry) {
+        insertOrUpdatePasswordEntry(entry);
+    }
+
+    @Override
+    public void insertOrUpdatePasswordEntry(PasswordEntry entry) {
+        put(entry);
+    }
+
+    /**
+     * @return true se a entrada ainda não existia
+     */
+    boolean put(PasswordEntry entry) {
+        return entriesByUser.computeIfAbsent(entry.getUserId(), id -> new ConcurrentSkipListMap<>())
+            .put(entry.getService(), copy(entry)) == null;
+    }
+
+    @Override
+    public void upsertPasswordEntries(List<PasswordEntry> entries) {
+        for (PasswordEntry entry : entries) {
+            insertOrUpdatePasswordEntry(entry);
+        }
+    }
+
+    @Override
+    public PasswordEntry findByService(String service, String userId) {
+        Map<String, PasswordEntry> entries = entriesByUser.get(userId);
+        PasswordEntry entry = entries != null ? entries.get(service) : null;
+        return entry != null ? copy(entry) : null;
+    }
+
+    @Override
+    public List<PasswordEntry> getAllPasswordEntries(String userId) {
+        List<PasswordEntry> result = new ArrayList<>();
+        forEachPasswordEntry(userId, 0, result::add);
+        return result;
+    }
+
+    @Override
+    public long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer) {
+        Map<String, PasswordEntry> entries = entriesByUser.get(userId);
+        if (entries == null) {
+            return 0;
+        }
+        long count = 0;
+        for (PasswordEntry entry : entries.values()) {
+            consumer.accept(copy(entry));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean deletePasswordEntry(String service, String userId) {
+        Map<String, PasswordEntry> entries = entriesByUser.get(userId);
+        return entries != null && entries.remove(service) != null;
+    }
+
+    @Override
+    public void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries) {
+        ConcurrentSkipListMap<String, PasswordEntry> replacement = new ConcurrentSkipListMap<>();
+        for (PasswordEntry entry : entries) {
+            replacement.put(entry.getService(), copy(entry));
+        }
+        entriesByUser.put(userId, replacement);
+    }
+
+    /**
+     * Remove todas as entradas do usuário e retorna quantas existiam.
+     */
+    int removeUser(String userId) {
+        Map<String, PasswordEntry> removed = entriesByUser.remove(userId);
+        return removed != null ? removed.size() : 0;
+    }
+
+    @Override
+    public Set<String> listUserIds() {
+        Set<String> userIds = new HashSet<>();
+        entriesByUser.forEach((userId, entries) -> {
+            if (!entries.isEmpty()) {
+                userIds.add(userId);
+            }
+        });
+        return userIds;
+    }
+
+    @Override
+    public void close() {
+        // Nada a liberar
+    }
+
+    static PasswordEntry copy(PasswordEntry source) {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setId(source.getId());
+        entry.setTitle(source.getTitle());
+        entry.setService(source.getService());
+        entry.setUsername(source.getUsername());
+        entry.setPassword(source.getPassword());
+        entry.setUserId(source.getUserId());
+        // Depois de setPassword, que atualiza updatedAt
+        entry.setCreatedAt(source.getCreatedAt());
+        entry.setUpdatedAt(source.getUpdatedAt());
+        return entry;
+    }
+}
@@ -0,0 +1,418 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.metrics.Counter;
+import com.securepassmanager.metrics.MetricsRegistry;
+import com.securepassmanager.model.PasswordEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache de entradas do cofre fora do heap, para processos de longa duração (modo servidor)
+ * que mantêm o cofre quente sem acumular strings de texto cifrado na geração antiga.
+ *
+ * <p>O orçamento de memória é dividido em slots de tamanho fixo em buffers diretos; cada
+ * slot guarda a chave {@code (userId, service)}, os metadados e o texto cifrado já decodificado
+ * do Base64. O índice é uma tabela de endereçamento aberto de {@code int}, e quando não há
+ * slot livre a vítima é escolhida pelo algoritmo do relógio (segunda chance): o ponteiro
+ * percorre os slots, poupando uma vez os que foram lidos desde a última passagem. No heap
+ * ficam só o índice e alguns bytes por slot, então o consumo é proporcional ao orçamento e
+ * não ao tamanho do cofre. Entradas maiores que um slot não são guardadas.
+ *
+ * <p>As leituras entregam ao {@link Reader} uma visão somente leitura do texto cifrado,
+ * que pode ser passada direto para {@code EncryptionService.decryptPassword(ByteBuffer)}
+ * sem cópia para o heap. O cache não enxerga gravações feitas por outros processos; quem o
+ * usa deve atualizá-lo ou invalidá-lo a cada gravação que fizer.
+ *
+ * <p>Cada chave pertence a uma faixa com um número de geração, incrementado a cada
+ * {@link #put}, {@link #putIfUnchanged} bem-sucedido e {@link #invalidate}. Quem lê do
+ * repositório obtém a geração com {@link #stamp} antes da leitura e guarda o resultado com
+ * {@link #putIfUnchanged}: se a chave foi gravada ou removida nesse meio-tempo, a cópia
+ * lida (possivelmente antiga) é descartada em vez de sobrescrever a mais nova.
+ */
+public class OffHeapCiphertextCache implements AutoCloseable {
+    private static final int MAX_SEGMENT_BYTES = 256 * 1024 * 1024;
+    private static final int MIN_SLOT_BYTES = 64;
+    private static final int MAX_SLOT_BYTES = Short.MAX_VALUE;
+    private static final int MAX_SLOTS = 1 << 26;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private static final Counter HITS = MetricsRegistry.global().counter("cache.ciphertext.hit");
+    private static final Counter MISSES = MetricsRegistry.global().counter("cache.ciphertext.miss");
+    private static final Counter EVICTIONS = MetricsRegistry.global().counter("cache.ciphertext.evict");
+    private static final Counter OVERSIZE = MetricsRegistry.global().counter("cache.ciphertext.oversize");
+
+    /**
+     * Recebe os metadados da entrada (sem a senha) e o texto cifrado fora do heap, válido
+     * apenas durante a chamada.
+     */
+    public interface Reader<T> {
+        T read(PasswordEntry metadata, ByteBuffer ciphertext) throws Exception;
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int slotSize;
+    private final int slotCount;
+    private final int slotsPerSegment;
+    private final ByteBuffer[] segments;
+    private final int[] table; // número do slot + 1; 0 = vazio
+    private final int[] slotHash;
+    private final byte[] referenced;
+    private final int[] freeSlots;
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private int freeCount;
+    private int highWater;
+    private int hand;
+    private int size;
+
+    public OffHeapCiphertextCache(long budgetBytes, int slotSize) {
+        if (slotSize < MIN_SLOT_BYTES || slotSize > MAX_SLOT_BYTES) {
+            throw new IllegalArgumentException("Tamanho de slot inválido: " + slotSize);
+        }
+        long slots = budgetBytes / slotSize;
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Orçamento de memória inválido: " + budgetBytes + " bytes");
+        }
+        this.slotSize = slotSize;
+        this.slotCount = (int) slots;
+        this.slotsPerSegment = Math.min(slotCount, MAX_SEGMENT_BYTES / slotSize);
+        this.segments = new ByteBuffer[(slotCount + slotsPerSegment - 1) / slotsPerSegment];
+        for (int i = 0; i < segments.length; i++) {
+            int slotsInSegment = Math.min(slotsPerSegment, slotCount - i * slotsPerSegment);
+            segments[i] = ByteBuffer.allocateDirect(slotsInSegment * slotSize);
+        }
+        this.table = new int[Integer.highestOneBit(slotCount * 2 - 1) << 1];
+        this.slotHash = new int[slotCount];
+        this.referenced = new byte[slotCount];
+        this.freeSlots = new int[slotCount];
+    }
+
+    /**
+     * Guarda (ou substitui) a entrada. Retorna false se ela não cabe num slot; nesse caso
+     * uma versão anterior em cache é descartada.
+     */
+    public boolean put(PasswordEntry entry) {
+        return store(entry, -1);
+    }
+
+    /**
+     * Geração atual da chave, a ser passada para {@link #putIfUnchanged} depois de ler a
+     * entrada do repositório.
+     */
+    public long stamp(String userId, String service) {
+        int stripe = stripe(hash(key(userId, service)));
+        lock.readLock().lock();
+        try {
+            return generations[stripe];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda a entrada só se a chave não foi gravada nem invalidada desde {@code stamp}.
+     * Retorna false se a entrada foi descartada (por ser antiga ou não caber num slot).
+     * Quem grava no repositório e recebe false deve chamar {@link #invalidate}, pois a
+     * versão em cache pode ser de uma gravação concorrente anterior à sua.
+     */
+    public boolean putIfUnchanged(PasswordEntry entry, long stamp) {
+        return store(entry, stamp);
+    }
+
+    private boolean store(PasswordEntry entry, long stamp) {
+        String keyString = key(entry.getUserId(), entry.getService());
+        byte[] key = keyString.getBytes(StandardCharsets.UTF_8);
+        byte[] ciphertext = entry.getPassword() != null ? Base64.getDecoder().decode(entry.getPassword()) : new byte[0];
+        byte[] username = bytes(entry.getUsername());
+        byte[] title = bytes(entry.getTitle());
+        int length = 2 + key.length + 2 + ciphertext.length + 3 * Long.BYTES
+            + stringLength(username) + stringLength(title);
+        int hash = hash(keyString);
+        lock.writeLock().lock();
+        try {
+            int stripe = stripe(hash);
+            if (stamp >= 0 && generations[stripe] != stamp) {
+                return false;
+            }
+            generations[stripe]++;
+            int position = find(key, hash);
+            int slot;
+            if (position >= 0) {
+                slot = table[position] - 1;
+                if (length > slotSize) {
+                    release(removeAt(position));
+                }
+            } else {
+                slot = -1;
+            }
+            if (length > slotSize) {
+                OVERSIZE.increment();
+                return false;
+            }
+            if (slot < 0) {
+                slot = claimSlot();
+                slotHash[slot] = hash;
+                insert(slot);
+                size++;
+            }
+            ByteBuffer buffer = slotBuffer(slot);
+            buffer.putShort((short) key.length).put(key);
+            buffer.putShort((short) ciphertext.length).put(ciphertext);
+            buffer.putLong(entry.getId() != null ? entry.getId() : NULL_LONG);
+            buffer.putLong(toMillis(entry.getCreatedAt()));
+            buffer.putLong(toMillis(entry.getUpdatedAt()));
+            putString(buffer, username);
+            putString(buffer, title);
+            referenced[slot] = 1;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entrega a entrada em cache ao leitor e retorna o resultado dele, ou null se a entrada
+     * não está em cache. A entrada não pode ser substituída enquanto o leitor executa.
+     */
+    public <T> T read(String userId, String service, Reader<T> reader) throws Exception {
+        String key = key(userId, service);
+        lock.readLock().lock();
+        try {
+            int position = find(key.getBytes(StandardCharsets.UTF_8), hash(key));
+            if (position < 0) {
+                MISSES.increment();
+                return null;
+            }
+            HITS.increment();
+            int slot = table[position] - 1;
+            referenced[slot] = 1;
+
+            ByteBuffer buffer = slotBuffer(slot);
+            int keyLength = buffer.getShort() & 0xffff;
+            buffer.position(buffer.position() + keyLength);
+            int cipherLength = buffer.getShort() & 0xffff;
+            ByteBuffer ciphertext = buffer.slice().limit(cipherLength).asReadOnlyBuffer();
+            buffer.position(buffer.position() + cipherLength);
+
+            PasswordEntry metadata = new PasswordEntry();
+            metadata.setUserId(userId);
+            metadata.setService(service);
+            long id = buffer.getLong();
+            metadata.setId(id != NULL_LONG ? id : null);
+            metadata.setCreatedAt(fromMillis(buffer.getLong()));
+            metadata.setUpdatedAt(fromMillis(buffer.getLong()));
+            metadata.setUsername(getString(buffer));
+            metadata.setTitle(getString(buffer));
+            return reader.read(metadata, ciphertext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void invalidate(String userId, String service) {
+        String key = key(userId, service);
+        int hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            generations[stripe(hash)]++;
+            int position = find(key.getBytes(StandardCharsets.UTF_8), hash);
+            if (position >= 0) {
+                release(removeAt(position));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(table, 0);
+            Arrays.fill(referenced, (byte) 0);
+            highWater = 0;
+            freeCount = 0;
+            hand = 0;
+            size = 0;
+            for (int i = 0; i < generations.length; i++) {
+                generations[i]++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int capacity() {
+        return slotCount;
+    }
+
+    /**
+     * Os buffers diretos são liberados pelo coletor quando o cache deixa de ser referenciado.
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    /**
+     * Slot para uma entrada nova: primeiro os liberados por invalidação, depois os nunca
+     * usados e, por fim, o relógio.
+     */
+    private int claimSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWater < slotCount) {
+            return highWater++;
+        }
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) % slotCount;
+            if (referenced[slot] != 0) {
+                referenced[slot] = 0;
+                continue;
+            }
+            removeAt(positionOf(slot));
+            EVICTIONS.increment();
+            return slot;
+        }
+    }
+
+    private int find(byte[] key, int hash) {
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (slotHash[slot] == hash && keyEquals(slot, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int positionOf(int slot) {
+        int mask = table.length - 1;
+        int i = slotHash[slot] & mask;
+        while (table[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int i = slotHash[slot] & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    private void release(int slot) {
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Remove a posição da tabela, puxando para trás as seguintes que ficariam inalcançáveis.
+     * Retorna o slot que ela ocupava.
+     */
+    private int removeAt(int position) {
+        int slot = table[position] - 1;
+        referenced[slot] = 0;
+        size--;
+        int mask = table.length - 1;
+        int i = position;
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = slotHash[table[j] - 1] & mask;
+            boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+        return slot;
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+        ByteBuffer buffer = slotBuffer(slot);
+        if ((buffer.getShort() & 0xffff) != key.length) {
+            return false;
+        }
+        for (byte b : key) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer slotBuffer(int slot) {
+        ByteBuffer segment = segments[slot / slotsPerSegment].duplicate();
+        int offset = (slot % slotsPerSegment) * slotSize;
+        segment.limit(offset + slotSize).position(offset);
+        return segment;
+    }
+
+    private static String key(String userId, String service) {
+        return userId + '\0' + service;
+    }
+
+    private static int hash(String key) {
+        long h = ConsistentHashRing.hash(key);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int stripe(int hash) {
+        return hash & (GENERATION_STRIPES - 1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringLength(byte[] value) {
+        return 2 + (value != null ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : NULL_LONG;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis != NULL_LONG ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC) : null;
+    }
+}
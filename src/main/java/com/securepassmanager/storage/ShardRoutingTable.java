@@ -0,0 +1,65 @@
+package com.securepassmanager.storage;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Tabela de roteamento dos shards, guardada num armazenamento compartilhado por todos os
+ * processos que abrem o mesmo {@link ShardedVaultRepository} (servidor, CLI e
+ * {@code --rebalance}). Guarda o anel usado para posicionar usuários novos e a rota de
+ * cada usuário que já gravou algo, para que uma redistribuição feita por um processo seja
+ * vista pelos outros. Implementações: {@code MongoShardRoutingTable} e
+ * {@link InMemoryShardRoutingTable} (testes).
+ */
+public interface ShardRoutingTable {
+
+    /**
+     * Rota de um usuário: o shard onde estão as entradas e, durante uma redistribuição,
+     * o shard para onde estão sendo copiadas.
+     */
+    final class Route {
+        private final String shard;
+        private final String movingTo;
+
+        public Route(String shard, String movingTo) {
+            this.shard = shard;
+            this.movingTo = movingTo;
+        }
+
+        public String shard() {
+            return shard;
+        }
+
+        /**
+         * Shard de destino enquanto o usuário é movido, ou null.
+         */
+        public String movingTo() {
+            return movingTo;
+        }
+    }
+
+    /**
+     * Shards do anel de posicionamento, ou null se ainda não foi gravado.
+     */
+    List<String> ring();
+
+    void saveRing(List<String> shards);
+
+    /**
+     * @return a rota do usuário, ou null se ele ainda não tem rota
+     */
+    Route find(String userId);
+
+    /**
+     * Grava a rota só se o usuário ainda não tiver uma e retorna a rota que vale, que pode
+     * ter sido gravada antes por outro processo.
+     */
+    Route assignIfAbsent(String userId, String shard);
+
+    void save(String userId, Route route);
+
+    /**
+     * Percorre as rotas gravadas.
+     */
+    void forEach(BiConsumer<String, Route> consumer);
+}
@@ -0,0 +1,382 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Roteador que distribui os cofres entre vários repositórios (shards) por hash
+ * consistente do {@code userId}: todas as entradas de um usuário ficam no mesmo shard.
+ *
+ * <p>O roteamento fica numa {@link ShardRoutingTable} compartilhada por todos os processos.
+ * Na primeira gravação, o usuário recebe uma rota para o shard indicado pelo anel de
+ * posicionamento gravado na tabela; acrescentar um shard em vault.shards não muda esse anel
+ * nem as rotas, então ninguém perde o acesso às próprias entradas antes da redistribuição.
+ * As rotas são lidas sob demanda e ficam em cache por {@code routeTtlMillis}, sem varrer os
+ * shards ao abrir.
+ *
+ * <p>{@link #rebalance} adota o anel da configuração e move os usuários cujo shard mudou,
+ * em rodadas: marca os usuários como em movimento (gravações são recusadas), espera o cache
+ * de rotas dos outros processos expirar, copia as entradas, aponta a rota para o destino,
+ * espera de novo e só então apaga a origem. Se o processo cair no meio, as entradas ficam
+ * nos dois shards, a rota continua na origem e a próxima execução refaz a cópia (as
+ * gravações são idempotentes).
+ */
+public class ShardedVaultRepository implements VaultRepository {
+    private static final int LOCK_STRIPES = 256;
+    private static final int MAX_CACHED_ROUTES = 100_000;
+    private static final int USERS_PER_ROUND = 100;
+
+    /**
+     * Progresso da redistribuição.
+     */
+    public interface RebalanceListener {
+        void userMoved(String userId, String from, String to, long entries);
+    }
+
+    private static final class CachedRoute {
+        final ShardRoutingTable.Route route;
+        final long loadedAt;
+
+        CachedRoute(ShardRoutingTable.Route route, long loadedAt) {
+            this.route = route;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Map<String, VaultRepository> shards;
+    private final int virtualNodes;
+    private final ConsistentHashRing configuredRing;
+    private final ShardRoutingTable routes;
+    private final long routeTtlMillis;
+    private final Map<String, CachedRoute> routeCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedRoute> eldest) {
+            return size() > MAX_CACHED_ROUTES;
+        }
+    };
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+    private volatile ConsistentHashRing placementRing;
+    private volatile long placementLoadedAt;
+
+    /**
+     * @param routes         tabela de roteamento compartilhada
+     * @param routeTtlMillis por quanto tempo uma rota lida da tabela é reaproveitada; também
+     *                       é a espera da redistribuição entre marcar e mover um usuário
+     */
+    public ShardedVaultRepository(Map<String, ? extends VaultRepository> shards, int virtualNodes,
+                                  ShardRoutingTable routes, long routeTtlMillis) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.virtualNodes = virtualNodes;
+        this.configuredRing = new ConsistentHashRing(this.shards.keySet(), virtualNodes);
+        this.routes = routes;
+        this.routeTtlMillis = routeTtlMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        if (routes.ring() == null) {
+            routes.saveRing(new ArrayList<>(this.shards.keySet()));
+        }
+        loadPlacementRing();
+    }
+
+    /**
+     * Nome do shard que atende o usuário neste momento.
+     */
+    public String shardOf(String userId) {
+        ShardRoutingTable.Route route = route(userId);
+        return route != null ? route.shard() : placementRing().nodeFor(userId);
+    }
+
+    /**
+     * Usuários com rota registrada fora do shard indicado pelo anel da configuração.
+     */
+    public int pendingMoves() {
+        int[] pending = {0};
+        routes.forEach((userId, route) -> {
+            if (!route.shard().equals(configuredRing.nodeFor(userId))) {
+                pending[0]++;
+            }
+        });
+        return pending[0];
+    }
+
+    /**
+     * Adota o anel da configuração e move para o shard indicado por ele os usuários que
+     * estão em outro, em lotes de {@code batchSize} entradas. Retorna quantos usuários foram
+     * movidos.
+     */
+    public int rebalance(int batchSize, RebalanceListener listener) {
+        adoptConfiguredRing();
+        List<String> pending = new ArrayList<>();
+        routes.forEach((userId, route) -> {
+            if (!route.shard().equals(configuredRing.nodeFor(userId))) {
+                pending.add(userId);
+            }
+        });
+        int moved = 0;
+        for (int i = 0; i < pending.size(); i += USERS_PER_ROUND) {
+            moved += moveRound(pending.subList(i, Math.min(pending.size(), i + USERS_PER_ROUND)), batchSize, listener);
+        }
+        return moved;
+    }
+
+    /**
+     * Antes de trocar o anel de posicionamento, dá uma rota a quem tem entradas mas ainda
+     * não tem rota (cofres gravados antes da tabela), apontando para onde elas estão.
+     */
+    private void adoptConfiguredRing() {
+        List<String> current = routes.ring();
+        List<String> configured = new ArrayList<>(shards.keySet());
+        if (configured.equals(current)) {
+            return;
+        }
+        for (Map.Entry<String, VaultRepository> shard : shards.entrySet()) {
+            for (String userId : shard.getValue().listUserIds()) {
+                // Se o usuário estiver em mais de um shard, vale o que o anel antigo indica
+                routes.assignIfAbsent(userId, placementRing().nodeFor(userId));
+            }
+        }
+        routes.saveRing(configured);
+        loadPlacementRing();
+    }
+
+    private int moveRound(List<String> userIds, int batchSize, RebalanceListener listener) {
+        Map<String, ShardRoutingTable.Route> moving = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            ShardRoutingTable.Route route = routes.find(userId);
+            String to = configuredRing.nodeFor(userId);
+            if (route != null && !route.shard().equals(to)) {
+                ShardRoutingTable.Route marked = new ShardRoutingTable.Route(route.shard(), to);
+                routes.save(userId, marked);
+                forgetRoute(userId);
+                moving.put(userId, marked);
+            }
+        }
+        // Outros processos deixam de gravar quando a rota em cache deles expira
+        waitForRouteCaches();
+
+        Map<String, Long> copied = new HashMap<>();
+        for (Map.Entry<String, ShardRoutingTable.Route> user : moving.entrySet()) {
+            String userId = user.getKey();
+            ShardRoutingTable.Route route = user.getValue();
+            Lock lock = lockFor(userId).writeLock();
+            lock.lock();
+            try {
+                copied.put(userId, copyUser(userId, shards.get(route.shard()), shards.get(route.movingTo()), batchSize));
+                routes.save(userId, new ShardRoutingTable.Route(route.movingTo(), null));
+                forgetRoute(userId);
+            } finally {
+                lock.unlock();
+            }
+        }
+        // Quem ainda tem a rota antiga em cache continua lendo da origem até ela expirar
+        waitForRouteCaches();
+
+        for (Map.Entry<String, ShardRoutingTable.Route> user : moving.entrySet()) {
+            ShardRoutingTable.Route route = user.getValue();
+            shards.get(route.shard()).replaceAllPasswordEntries(user.getKey(), List.of());
+            listener.userMoved(user.getKey(), route.shard(), route.movingTo(), copied.get(user.getKey()));
+        }
+        return moving.size();
+    }
+
+    private static long copyUser(String userId, VaultRepository source, VaultRepository target, int batchSize) {
+        List<PasswordEntry> batch = new ArrayList<>(batchSize);
+        long count = source.forEachPasswordEntry(userId, batchSize, entry -> {
+            batch.add(entry);
+            if (batch.size() == batchSize) {
+                target.upsertPasswordEntries(batch);
+                batch.clear();
+            }
+        });
+        target.upsertPasswordEntries(batch);
+        return count;
+    }
+
+    private void waitForRouteCaches() {
+        if (routeTtlMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(routeTtlMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Redistribuição interrompida", e);
+        }
+    }
+
+    private ShardRoutingTable.Route route(String userId) {
+        long now = System.currentTimeMillis();
+        synchronized (routeCache) {
+            CachedRoute cached = routeCache.get(userId);
+            if (cached != null && now - cached.loadedAt < routeTtlMillis) {
+                return cached.route;
+            }
+        }
+        ShardRoutingTable.Route route = routes.find(userId);
+        cacheRoute(userId, route, now);
+        return route;
+    }
+
+    private void cacheRoute(String userId, ShardRoutingTable.Route route, long now) {
+        if (routeTtlMillis > 0) {
+            synchronized (routeCache) {
+                routeCache.put(userId, new CachedRoute(route, now));
+            }
+        }
+    }
+
+    private void forgetRoute(String userId) {
+        synchronized (routeCache) {
+            routeCache.remove(userId);
+        }
+    }
+
+    /**
+     * Shard para uma gravação: cria a rota do usuário se ainda não existir e recusa a
+     * gravação enquanto ele é movido.
+     */
+    private String writeShardOf(String userId) {
+        ShardRoutingTable.Route route = route(userId);
+        if (route == null) {
+            route = routes.assignIfAbsent(userId, placementRing().nodeFor(userId));
+            cacheRoute(userId, route, System.currentTimeMillis());
+        }
+        if (route.movingTo() != null) {
+            throw new IllegalStateException("Cofre em redistribuição entre shards; tente novamente em instantes.");
+        }
+        return route.shard();
+    }
+
+    private ConsistentHashRing placementRing() {
+        if (System.currentTimeMillis() - placementLoadedAt >= routeTtlMillis) {
+            loadPlacementRing();
+        }
+        return placementRing;
+    }
+
+    private void loadPlacementRing() {
+        List<String> names = routes.ring();
+        for (String name : names) {
+            if (!shards.containsKey(name)) {
+                throw new IllegalStateException("Shard " + name + " está na tabela de roteamento mas não em vault.shards");
+            }
+        }
+        placementRing = new ConsistentHashRing(names, virtualNodes);
+        placementLoadedAt = System.currentTimeMillis();
+    }
+
+    private ReadWriteLock lockFor(String userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private interface ShardCall<T> {
+        T call(VaultRepository shard);
+    }
+
+    private <T> T withShard(String userId, ShardCall<T> call) {
+        Lock lock = lockFor(userId).readLock();
+        lock.lock();
+        try {
+            return call.call(shards.get(shardOf(userId)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T withWriteShard(String userId, ShardCall<T> call) {
+        Lock lock = lockFor(userId).readLock();
+        lock.lock();
+        try {
+            return call.call(shards.get(writeShardOf(userId)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void insertPasswordEntry(PasswordEntry entry) {
+        withWriteShard(entry.getUserId(), shard -> {
+            shard.insertPasswordEntry(entry);
+            return null;
+        });
+    }
+
+    @Override
+    public void insertOrUpdatePasswordEntry(PasswordEntry entry) {
+        withWriteShard(entry.getUserId(), shard -> {
+            shard.insertOrUpdatePasswordEntry(entry);
+            return null;
+        });
+    }
+
+    @Override
+    public void upsertPasswordEntries(List<PasswordEntry> entries) {
+        Map<String, List<PasswordEntry>> byUser = new HashMap<>();
+        for (PasswordEntry entry : entries) {
+            byUser.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<String, List<PasswordEntry>> user : byUser.entrySet()) {
+            withWriteShard(user.getKey(), shard -> {
+                shard.upsertPasswordEntries(user.getValue());
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public PasswordEntry findByService(String service, String userId) {
+        return withShard(userId, shard -> shard.findByService(service, userId));
+    }
+
+    @Override
+    public List<PasswordEntry> getAllPasswordEntries(String userId) {
+        return withShard(userId, shard -> shard.getAllPasswordEntries(userId));
+    }
+
+    @Override
+    public long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer) {
+        return withShard(userId, shard -> shard.forEachPasswordEntry(userId, batchSize, consumer));
+    }
+
+    @Override
+    public boolean deletePasswordEntry(String service, String userId) {
+        return withWriteShard(userId, shard -> shard.deletePasswordEntry(service, userId));
+    }
+
+    @Override
+    public void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries) {
+        withWriteShard(userId, shard -> {
+            shard.replaceAllPasswordEntries(userId, entries);
+            return null;
+        });
+    }
+
+    @Override
+    public Set<String> listUserIds() {
+        Set<String> userIds = new HashSet<>();
+        for (VaultRepository shard : shards.values()) {
+            userIds.addAll(shard.listUserIds());
+        }
+        return userIds;
+    }
+
+    @Override
+    public void close() {
+        for (VaultRepository shard : shards.values()) {
+            shard.close();
+        }
+    }
+}
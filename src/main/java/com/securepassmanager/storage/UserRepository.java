@@ -0,0 +1,62 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.User;
+
+import java.util.function.Consumer;
+
+/**
+ * Armazenamento dos registros de usuário (hash da senha, 2FA e chaves do cofre cifradas).
+ * Implementações: {@code MongoUserRepository} (local ou nuvem), {@link EmbeddedUserRepository}
+ * (arquivo local, para o backend embutido) e {@link InMemoryUserRepository} (testes). O
+ * cache e o filtro de emails ficam no {@code UserService}, acima do repositório.
+ */
+public interface UserRepository extends AutoCloseable {
+
+    /**
+     * @param email email já normalizado
+     * @return o usuário, ou null se não existir
+     */
+    User findByEmail(String email);
+
+    /**
+     * Grava um usuário novo e preenche o seu id.
+     */
+    void insert(User user);
+
+    void update(User user);
+
+    /**
+     * Grava as chaves do cofre (sal e iterações do KDF e chaveiro cifrado) só se o registro
+     * armazenado ainda não tiver um chaveiro. Dois primeiros logins simultâneos criam
+     * chaveiros diferentes; apenas o primeiro a gravar vence, e o outro deve abrir o
+     * registro de novo em vez de sobrescrevê-lo.
+     *
+     * @return true se as chaves foram gravadas
+     */
+    boolean saveVaultKeysIfAbsent(User user);
+
+    /**
+     * Remove o registro do usuário.
+     *
+     * @param email email já normalizado
+     * @return true se havia um registro com esse email
+     */
+    boolean delete(String email);
+
+    /**
+     * Quantidade aproximada de usuários, para dimensionar o filtro de emails.
+     */
+    long estimatedCount();
+
+    /**
+     * Percorre os emails cadastrados.
+     */
+    void forEachEmail(Consumer<String> consumer);
+
+    default boolean isCloudConnection() {
+        return false;
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,126 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Árvore de hashes do cofre de um usuário, usada para descobrir o que difere entre duas
+ * cópias sem transferir as entradas. Cada entrada vira uma folha de 64 bits calculada
+ * sobre {@code (service, updatedAt, hash do texto cifrado)}; as folhas são agrupadas em
+ * {@value #BUCKETS} faixas pelo hash do serviço, e a raiz resume todas as faixas.
+ *
+ * <p>Faixas e raiz combinam as folhas por XOR. Assim, trocar uma entrada atualiza a faixa
+ * e a raiz só com a folha antiga e a nova ({@code h ^= antiga ^ nova}), sem reler as
+ * demais, e o repositório pode manter a árvore a cada gravação em vez de recalculá-la.
+ */
+public final class VaultMerkleTree {
+    public static final int BUCKETS = 256;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    });
+
+    private final long[] buckets = new long[BUCKETS];
+    private long root;
+
+    public static VaultMerkleTree of(Iterable<PasswordEntry> entries) {
+        VaultMerkleTree tree = new VaultMerkleTree();
+        for (PasswordEntry entry : entries) {
+            tree.add(entry);
+        }
+        return tree;
+    }
+
+    public void add(PasswordEntry entry) {
+        apply(bucketOf(entry.getService()), leafHash(entry));
+    }
+
+    /**
+     * Acrescenta ou retira uma folha da faixa (XOR é sua própria inversa).
+     */
+    public void apply(int bucket, long leaf) {
+        buckets[bucket] ^= leaf;
+        root ^= leaf;
+    }
+
+    public long root() {
+        return root;
+    }
+
+    public long[] buckets() {
+        return buckets.clone();
+    }
+
+    /**
+     * Reconstrói a árvore a partir das faixas (a raiz é derivada delas).
+     */
+    public static VaultMerkleTree fromBuckets(long[] buckets) {
+        VaultMerkleTree tree = new VaultMerkleTree();
+        for (int i = 0; i < BUCKETS; i++) {
+            tree.apply(i, buckets[i]);
+        }
+        return tree;
+    }
+
+    /**
+     * Faixas cujo resumo difere entre as duas cópias.
+     */
+    public static Set<Integer> differingBuckets(long[] a, long[] b) {
+        Set<Integer> differing = new LinkedHashSet<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (a[i] != b[i]) {
+                differing.add(i);
+            }
+        }
+        return differing;
+    }
+
+    public static int bucketOf(String service) {
+        return (int) (ConsistentHashRing.hash(service != null ? service : "") >>> 56);
+    }
+
+    /**
+     * Folha da entrada. A data é truncada em milissegundos, a precisão guardada pelo
+     * MongoDB, para que a mesma entrada tenha a mesma folha em qualquer backend.
+     */
+    public static long leafHash(PasswordEntry entry) {
+        MessageDigest digest = SHA256.get();
+        byte[] ciphertextHash = digest.digest(bytes(entry.getPassword()));
+        digest.update(bytes(entry.getService()));
+        digest.update((byte) 0);
+        digest.update(bytes(entry.getUpdatedAt() != null
+            ? entry.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS).toString() : null));
+        digest.update((byte) 0);
+        digest.update(ciphertextHash);
+        byte[] hash = digest.digest();
+        long leaf = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            leaf = (leaf << 8) | (hash[i] & 0xff);
+        }
+        return leaf;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof VaultMerkleTree && Arrays.equals(buckets, ((VaultMerkleTree) o).buckets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(buckets);
+    }
+}
@@ -0,0 +1,121 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Armazenamento das entradas do cofre, identificadas por {@code (userId, service)}.
+ * As senhas chegam e saem já criptografadas; o repositório nunca vê texto puro.
+ * Implementações: {@code MongoDBService} (local e/ou nuvem), {@link EmbeddedVaultRepository}
+ * (arquivo local, sem servidor), {@link CompactEntryStore} (cache em memória colunar) e
+ * {@link InMemoryVaultRepository} (testes).
+ */
+public interface VaultRepository extends AutoCloseable {
+
+    void insertPasswordEntry(PasswordEntry entry);
+
+    /**
+     * Grava a entrada, substituindo a existente com o mesmo serviço e usuário.
+     */
+    void insertOrUpdatePasswordEntry(PasswordEntry entry);
+
+    /**
+     * Grava um lote de entradas de uma vez (mesma semântica de {@link #insertOrUpdatePasswordEntry}).
+     */
+    void upsertPasswordEntries(List<PasswordEntry> entries);
+
+    /**
+     * @return a entrada do serviço, ou null se não existir
+     */
+    PasswordEntry findByService(String service, String userId);
+
+    List<PasswordEntry> getAllPasswordEntries(String userId);
+
+    /**
+     * Percorre as entradas do usuário sem exigir que todas caibam em memória de uma vez.
+     * Retorna a quantidade de entradas visitadas.
+     */
+    long forEachPasswordEntry(String userId, int batchSize, Consumer<PasswordEntry> consumer);
+
+    /**
+     * @return true se alguma entrada foi removida
+     */
+    boolean deletePasswordEntry(String service, String userId);
+
+    /**
+     * Substitui todas as entradas do usuário pela lista informada.
+     */
+    void replaceAllPasswordEntries(String userId, List<PasswordEntry> entries);
+
+    /**
+     * Usuários que têm ao menos uma entrada neste repositório.
+     */
+    Set<String> listUserIds();
+
+    /**
+     * Árvore de hashes do cofre do usuário. A implementação padrão percorre as entradas,
+     * o que é barato para repositórios no próprio processo; repositórios remotos mantêm a
+     * árvore a cada gravação.
+     */
+    default VaultMerkleTree merkleTree(String userId) {
+        VaultMerkleTree tree = new VaultMerkleTree();
+        forEachPasswordEntry(userId, 500, tree::add);
+        return tree;
+    }
+
+    /**
+     * Raiz da árvore de hashes; duas cópias com a mesma raiz têm o mesmo conteúdo.
+     */
+    default long merkleRoot(String userId) {
+        return merkleTree(userId).root();
+    }
+
+    /**
+     * Resumo de cada uma das {@value VaultMerkleTree#BUCKETS} faixas da árvore.
+     */
+    default long[] merkleBuckets(String userId) {
+        return merkleTree(userId).buckets();
+    }
+
+    /**
+     * Descarta a árvore de hashes mantida para o usuário, que será recalculada a partir
+     * das entradas; usada quando a sincronização encontra raízes diferentes sem nenhuma
+     * entrada diferente. Repositórios que calculam a árvore a cada leitura não fazem nada.
+     */
+    default void invalidateMerkleTree(String userId) {
+    }
+
+    /**
+     * Entradas do usuário cujos serviços caem nas faixas informadas.
+     */
+    default List<PasswordEntry> entriesInBuckets(String userId, Set<Integer> buckets) {
+        List<PasswordEntry> entries = new ArrayList<>();
+        forEachPasswordEntry(userId, 500, entry -> {
+            if (buckets.contains(VaultMerkleTree.bucketOf(entry.getService()))) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Indica se o repositório tem uma cópia na nuvem, o que habilita a sincronização.
+     */
+    default boolean isCloudConnection() {
+        return false;
+    }
+
+    /**
+     * Testa se o armazenamento responde; repositórios locais estão sempre acessíveis.
+     */
+    default boolean ping() {
+        return true;
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,50 @@
+package com.securepassmanager.util;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Validação e limpeza das entradas do usuário, compartilhadas pelo menu interativo e
+ * pelo modo servidor.
+ */
+public final class InputValidator {
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+    private static final Pattern SERVICE_OR_USERNAME = Pattern.compile("^[A-Za-z0-9._-]{2,64}$");
+    private static final Pattern BACKUP_CODE = Pattern.compile("^[A-Za-z0-9]{6,12}$");
+    private static final int MAX_INPUT_LENGTH = 64;
+
+    private InputValidator() {
+    }
+
+    /**
+     * Remove quebras de linha, caracteres perigosos, acentos e caracteres não ASCII,
+     * limitando o tamanho a 64 caracteres.
+     */
+    public static String sanitize(String input) {
+        if (input == null) return null;
+        String sanitized = input.trim().replaceAll("[\n\r\t]", "");
+        // Remove caracteres potencialmente perigosos
+        sanitized = sanitized.replaceAll("[<>;]", "");
+        // Remove emojis e caracteres não ASCII
+        sanitized = sanitized.replaceAll("[^\\p{ASCII}]", "");
+        // Remove acentuação
+        sanitized = Normalizer.normalize(sanitized, Normalizer.Form.NFD).replaceAll("[^\\p{ASCII}]", "");
+        if (sanitized.length() > MAX_INPUT_LENGTH) sanitized = sanitized.substring(0, MAX_INPUT_LENGTH);
+        return sanitized;
+    }
+
+    public static boolean isValidEmail(String email) {
+        return email != null && EMAIL.matcher(email).matches();
+    }
+
+    /**
+     * Apenas letras, números, pontos, traços e sublinhados (2 a 64 caracteres).
+     */
+    public static boolean isValidServiceOrUsername(String value) {
+        return value != null && SERVICE_OR_USERNAME.matcher(value).matches();
+    }
+
+    public static boolean isValidBackupCode(String code) {
+        return code != null && BACKUP_CODE.matcher(code).matches();
+    }
+}
@@ -0,0 +1,37 @@
+package com.securepassmanager.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executores de uma thread virtual por tarefa quando a JVM oferece esse recurso (Java 21+).
+ * O projeto compila para Java 17, então o método é localizado por reflexão e, nas versões
+ * anteriores, é usado um pool limitado de threads de plataforma (daemon).
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static ExecutorService newPerTaskExecutor(String fallbackName, int fallbackThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, fallbackThreads), r -> {
+                Thread thread = new Thread(r, fallbackName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static boolean available() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
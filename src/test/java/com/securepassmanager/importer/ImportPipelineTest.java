@@ -0,0 +1,93 @@
+package com.securepassmanager.importer;
+
+import com.securepassmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportPipelineTest {
+
+    @Test
+    void testCsvReaderHandlesQuotesAndMultilineFields() throws Exception {
+        String csv = "name,url,username,password,extra\r\n"
+            + "GitHub,https://www.github.com/login,alice,\"pa,ss\"\"word\",\"nota\nem duas linhas\"\r\n"
+            + "\r\n"
+            + "Banco,,bob,segredo123,\n";
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(csv));
+
+        ImportRecord first = reader.next();
+        assertEquals("github.com", first.getService());
+        assertEquals("alice", first.getUsername());
+        assertEquals("pa,ss\"word", first.getPassword());
+
+        ImportRecord second = reader.next();
+        assertEquals("Banco", second.getService()); // Sem URL: vem do título
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testJsonReaderStreamsBitwardenItems() throws Exception {
+        String json = "{\"encrypted\": false, \"folders\": [], \"items\": ["
+            + "{\"name\": \"Netflix\", \"login\": {\"username\": \"carol\", \"password\": \"x1\","
+            + " \"uris\": [{\"uri\": \"https://netflix.com\"}]}},"
+            + "{\"service\": \"dropbox\", \"username\": \"dave\", \"password\": \"x2\"}]}";
+        JsonRecordReader reader = new JsonRecordReader(new StringReader(json));
+
+        ImportRecord first = reader.next();
+        assertEquals("netflix.com", first.getService());
+        assertEquals("carol", first.getUsername());
+        assertEquals("dropbox", reader.next().getService());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testPipelineEncryptsValidatesAndWritesInBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("service,username,password\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("service").append(i).append(",user").append(i).append(",senha").append(i).append('\n');
+        }
+        csv.append("x,user,senha\n");          // Serviço curto demais
+        csv.append("valid-service,user,\n");   // Sem senha
+
+        List<PasswordEntry> written = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        ImportPipeline pipeline = new ImportPipeline(
+            plaintext -> "enc:" + plaintext,
+            batch -> {
+                batchSizes.add(batch.size());
+                written.addAll(batch);
+            },
+            "user1", 4, 16, 100);
+
+        ImportReport report = pipeline.run(new CsvRecordReader(new StringReader(csv.toString())));
+
+        assertEquals(1000, report.getImported());
+        assertEquals(2, report.getErrors());
+        assertEquals(1000, written.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 100));
+        assertTrue(written.stream().allMatch(e -> e.getPassword().startsWith("enc:") && "user1".equals(e.getUserId())));
+    }
+
+    @Test
+    void testWriterFailureIsReportedPerStage() throws Exception {
+        String csv = "service,username,password\ngithub,alice,s1\ngitlab,bob,s2\n";
+        ImportPipeline pipeline = new ImportPipeline(
+            plaintext -> plaintext,
+            batch -> {
+                throw new IllegalStateException("banco indisponível");
+            },
+            "user1", 2, 4, 10);
+
+        ImportReport report = pipeline.run(new CsvRecordReader(new StringReader(csv)));
+
+        StageStats write = report.getStages().get(3);
+        assertEquals(0, write.getProcessed());
+        assertEquals(2, write.getErrors());
+        assertTrue(write.getErrorMessages().get(0).contains("banco indisponível"));
+    }
+}
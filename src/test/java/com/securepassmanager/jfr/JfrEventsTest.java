@@ -0,0 +1,49 @@
+package com.securepassmanager.jfr;
+
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.KeyRing;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @Test
+    void testCipherEventsAreRecorded(@TempDir Path dir) throws Exception {
+        EncryptionService encryptionService = EncryptionService.forKeyRing(KeyRing.inMemory());
+        Path file = dir.resolve("cipher.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CipherEvent.class).withoutThreshold();
+            recording.start();
+            encryptionService.decryptPassword(encryptionService.encryptPassword("TestPassword123!"));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().equals("com.securepassmanager.Cipher"))
+            .collect(Collectors.toList());
+        assertEquals(List.of("encrypt", "decrypt"),
+            events.stream().map(e -> e.getString("operation")).collect(Collectors.toList()));
+        assertEquals(events.get(0).getLong("outputBytes"), events.get(1).getLong("inputBytes"));
+        assertEquals(events.get(0).getLong("inputBytes"), events.get(1).getLong("outputBytes"));
+    }
+
+    @Test
+    void testBundledProfileEnablesApplicationEvents() throws Exception {
+        Configuration configuration = Configuration.create(Paths.get("src/main/resources/jfr/securepassmanager.jfc"));
+        for (String event : new String[] {"Cipher", "Bcrypt", "MongoOperation", "SyncPhase", "BreachLookup"}) {
+            assertEquals("true", configuration.getSettings().get("com.securepassmanager." + event + "#enabled"), event);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.securepassmanager.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void testPercentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new MetricsRegistry().histogram("test");
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1000); // 1 µs a 10 ms
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_000, histogram.valueAtPercentile(50), 5_000_000 * 0.125);
+        assertEquals(9_900_000, histogram.valueAtPercentile(99), 9_900_000 * 0.125);
+        assertEquals(10.0, histogram.getMaxMillis(), 0.0001);
+    }
+
+    @Test
+    void testBucketBoundsAreConsistent() {
+        for (long value : new long[] {0, 1, 7, 8, 15, 16, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.upperBoundOf(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    void testTimeCountsErrorsAndTagsSeparateMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram local = registry.histogram("mongodb.find", "backend", "local");
+        assertSame(local, registry.histogram("mongodb.find", "backend", "local"));
+        assertNotSame(local, registry.histogram("mongodb.find", "backend", "cloud"));
+        assertEquals("mongodb.find{backend=local}", local.getName());
+
+        assertEquals(42, local.time(() -> 42));
+        assertThrows(IllegalStateException.class, () -> local.time(() -> {
+            throw new IllegalStateException("falha");
+        }));
+        assertEquals(2, local.getCount());
+        assertEquals(1, local.getErrorCount());
+    }
+
+    @Test
+    void testFileReporterRotatesBySize(@TempDir Path dir) throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("logins").increment();
+        registry.histogram("crypto.encrypt").record(1_000_000);
+        Path file = dir.resolve("metrics.log");
+        MetricsFileReporter reporter = new MetricsFileReporter(registry, file, 200, 2);
+
+        for (int i = 0; i < 5; i++) {
+            reporter.report();
+        }
+        assertTrue(Files.readString(file).contains("crypto.encrypt count=1"));
+        assertTrue(Files.exists(dir.resolve("metrics.log.1")));
+        assertFalse(Files.exists(dir.resolve("metrics.log.3")));
+    }
+}
@@ -0,0 +1,128 @@
+package com.securepassmanager.security;
+
+import com.securepassmanager.loadtest.StubBreachServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BreachFilterTest {
+    private static final int CORPUS_SIZE = 20_000;
+
+    @TempDir
+    Path dir;
+
+    private static byte[] sha1(String password) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02X", b));
+        }
+        return hex.toString();
+    }
+
+    private Path corpus(int size) throws Exception {
+        Path corpus = dir.resolve("corpus.txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(corpus)) {
+            for (int i = 0; i < size; i++) {
+                writer.write(hex(sha1("vazada-" + i)) + ":" + (i % 50 + 1));
+                writer.write("\r\n");
+            }
+        }
+        return corpus;
+    }
+
+    @Test
+    void testNoFalseNegativesAndBoundedFalsePositives() throws Exception {
+        BreachFilter filter = BreachFilter.build(corpus(CORPUS_SIZE), dir.resolve("filtro.bin"), 0.01);
+        assertEquals(CORPUS_SIZE, filter.entries());
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            assertTrue(filter.mightContain(sha1("vazada-" + i)));
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(sha1("inedita-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.02, "falsos positivos: " + falsePositives);
+    }
+
+    @Test
+    void testReopensMappedFileAndSizesByRate() throws Exception {
+        Path corpus = corpus(CORPUS_SIZE);
+        BreachFilter loose = BreachFilter.build(corpus, dir.resolve("frouxo.bin"), 0.05);
+        BreachFilter strict = BreachFilter.build(corpus, dir.resolve("estrito.bin"), 0.001);
+        assertTrue(strict.sizeBytes() > 2 * loose.sizeBytes());
+        assertEquals(Files.size(dir.resolve("estrito.bin")), strict.sizeBytes());
+
+        BreachFilter reopened = BreachFilter.open(dir.resolve("estrito.bin"));
+        assertEquals(0.001, reopened.falsePositiveRate());
+        assertTrue(reopened.mightContain(sha1("vazada-123")));
+    }
+
+    @Test
+    void testRebuildReplacesFileWithoutDisturbingMappedFilter() throws Exception {
+        Path output = dir.resolve("filtro.bin");
+        BreachFilter mapped = BreachFilter.build(corpus(100), output, 0.01);
+
+        Path bad = dir.resolve("ruim.txt");
+        Files.writeString(bad, hex(sha1("a")) + ":1\nnao-e-hash:2\n");
+        assertThrows(IOException.class, () -> BreachFilter.build(bad, output, 0.01));
+        assertEquals(100, BreachFilter.open(output).entries(), "falha na geração mantém o arquivo anterior");
+
+        BreachFilter rebuilt = BreachFilter.build(corpus(CORPUS_SIZE), output, 0.01);
+        assertEquals(CORPUS_SIZE, rebuilt.entries());
+        assertTrue(rebuilt.mightContain(sha1("vazada-" + (CORPUS_SIZE - 1))));
+        assertEquals(100, mapped.entries());
+        assertTrue(mapped.mightContain(sha1("vazada-99")), "o mapeamento anterior continua legível");
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testRejectsMalformedInput() throws Exception {
+        Path corpus = dir.resolve("ruim.txt");
+        Files.writeString(corpus, hex(sha1("a")) + ":1\nnao-e-hash:2\n");
+        assertThrows(IOException.class, () -> BreachFilter.build(corpus, dir.resolve("ruim.bin"), 0.01));
+
+        Path filter = dir.resolve("truncado.bin");
+        BreachFilter.build(corpus(100), filter, 0.01);
+        try (FileChannel channel = FileChannel.open(filter, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - BreachFilter.BLOCK_BYTES);
+        }
+        assertThrows(IOException.class, () -> BreachFilter.open(filter));
+        assertThrows(IllegalArgumentException.class, () -> BreachFilter.build(corpus, filter, 1.5));
+    }
+
+    @Test
+    void testCheckerSkipsApiForFilteredPasswords() throws Exception {
+        BreachFilter filter = BreachFilter.build(corpus(CORPUS_SIZE), dir.resolve("filtro.bin"), 0.001);
+        try (StubBreachServer server = new StubBreachServer(100, 0)) {
+            server.start(0);
+            PasswordBreachChecker checker = new PasswordBreachChecker(server.getBaseUrl(), filter);
+            for (int i = 0; i < 50; i++) {
+                checker.isPasswordBreached("senha-de-teste-" + i);
+            }
+            long filteredRequests = server.getRequestCount();
+            assertTrue(filteredRequests <= 2, "só falsos positivos chegam à API: " + filteredRequests);
+
+            checker.isPasswordBreached("vazada-7");
+            assertEquals(filteredRequests + 1, server.getRequestCount(), "provável vazamento é confirmado na API");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.securepassmanager.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedAeadStreamTest {
+    private static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_ON_DISK = CHUNK_SIZE + ChunkedAeadOutputStream.TAG_LENGTH;
+
+    private SecretKey key;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        key = KeyManager.generateKey();
+    }
+
+    private byte[] encrypt(byte[] plain) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = new ChunkedAeadOutputStream(sink, key, 7, CHUNK_SIZE)) {
+            out.write(plain);
+        }
+        return sink.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] file) throws IOException {
+        try (InputStream in = new ChunkedAeadInputStream(new ByteArrayInputStream(file), id -> id == 7 ? key : null)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testRoundTripAcrossChunkBoundaries() throws Exception {
+        Random random = new Random(42);
+        for (int size : new int[] {0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 10}) {
+            byte[] plain = new byte[size];
+            random.nextBytes(plain);
+            assertArrayEquals(plain, decrypt(encrypt(plain)), "tamanho " + size);
+        }
+    }
+
+    @Test
+    void testDetectsTruncationAtChunkBoundary() throws Exception {
+        byte[] file = encrypt(new byte[CHUNK_SIZE * 3]);
+        byte[] truncated = Arrays.copyOf(file, file.length - CHUNK_ON_DISK);
+        assertThrows(IOException.class, () -> decrypt(truncated));
+    }
+
+    @Test
+    void testDetectsReorderedChunks() throws Exception {
+        byte[] file = encrypt(new byte[CHUNK_SIZE * 3 + 10]);
+        int first = ChunkedAeadOutputStream.HEADER_LENGTH;
+        int second = first + CHUNK_ON_DISK;
+        byte[] swapped = file.clone();
+        System.arraycopy(file, first, swapped, second, CHUNK_ON_DISK);
+        System.arraycopy(file, second, swapped, first, CHUNK_ON_DISK);
+        assertThrows(IOException.class, () -> decrypt(swapped));
+    }
+
+    @Test
+    void testDetectsTamperedHeaderAndUnknownKey() throws Exception {
+        byte[] file = encrypt("dados do cofre".getBytes());
+        byte[] tampered = file.clone();
+        tampered[ChunkedAeadOutputStream.HEADER_LENGTH - 1] ^= 1; // Prefixo do nonce
+        assertThrows(IOException.class, () -> decrypt(tampered));
+
+        assertThrows(IOException.class,
+            () -> new ChunkedAeadInputStream(new ByteArrayInputStream(file), id -> null));
+    }
+}
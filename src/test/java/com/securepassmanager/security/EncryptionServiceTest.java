@@ -2,6 +2,10 @@ package com.securepassmanager.security;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
 
 class EncryptionServiceTest {
@@ -9,7 +13,7 @@ class EncryptionServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
-        encryptionService = new EncryptionService();
+        encryptionService = new EncryptionService(KeyRing.inMemory());
     }
     //O snyk acusou vulnerabilidades nessa parte do teste, mas são apenas testes unitarios 
     @Test
@@ -22,13 +26,104 @@ class EncryptionServiceTest {
         assertEquals(originalPassword, decrypted);
     }
 
+    @Test
+    void testEncryptAndDecryptWithDirectBuffers() throws Exception {
+        byte[] original = "TestPassword123!".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer plaintext = ByteBuffer.allocateDirect(original.length);
+        plaintext.put(original).flip();
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(EncryptionService.encryptedLength(original.length));
+
+        int written = encryptionService.encrypt(plaintext, encrypted);
+        encrypted.flip();
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(original.length);
+        int read = encryptionService.decrypt(encrypted, decrypted);
+
+        assertEquals(EncryptionService.encryptedLength(original.length), written);
+        assertEquals(original.length, read);
+        byte[] result = new byte[read];
+        decrypted.flip().get(result);
+        assertArrayEquals(original, result);
+    }
+
+    @Test
+    void testEncryptAndDecryptWithCharArrays() throws Exception {
+        char[] original = "Sênha€Forte123!".toCharArray();
+        String encrypted = encryptionService.encryptPassword(original);
+
+        char[] destination = new char[64];
+        int length = encryptionService.decryptPassword(encrypted, destination);
+
+        assertEquals(original.length, length);
+        assertArrayEquals(original, java.util.Arrays.copyOf(destination, length));
+        assertArrayEquals(original, encryptionService.decryptPasswordToChars(encrypted));
+        assertEquals(new String(original), encryptionService.decryptPassword(encrypted));
+    }
+
+    @Test
+    void testDecryptsWithPreviousKeyAfterRotation() throws Exception {
+        EncryptionService service = new EncryptionService(KeyRing.inMemory());
+        String encrypted = service.encryptPassword("TestPassword123!");
+        assertFalse(service.needsReEncryption(encrypted));
+
+        service.rotateKey();
+
+        assertTrue(service.needsReEncryption(encrypted));
+        assertTrue(service.needsReEncryption(ByteBuffer.wrap(java.util.Base64.getDecoder().decode(encrypted))));
+        assertEquals("TestPassword123!", service.decryptPassword(encrypted));
+        String reEncrypted = service.reEncrypt(encrypted);
+        assertFalse(service.needsReEncryption(reEncrypted));
+        assertEquals("TestPassword123!", service.decryptPassword(reEncrypted));
+    }
+
+    @Test
+    void testServiceWithoutSessionHasNoKeys() {
+        EncryptionService locked = new EncryptionService();
+        assertThrows(IllegalStateException.class, () -> locked.encryptPassword("TestPassword123!"));
+        assertNotNull(locked.generateStrongPassword(16));
+    }
+
     @Test
     void testPasswordHashing() {
-        String password = "TestPassword123!";
+        String password = "Vx7#pLq2!mZr9tKw";
         String hashed = encryptionService.hashPassword(password);
 
-        assertTrue(encryptionService.verifyPassword(password, hashed));
-        assertFalse(encryptionService.verifyPassword("WrongPassword", hashed));
+        String account = "hash-" + UUID.randomUUID() + "@example.com";
+        assertTrue(encryptionService.verifyPassword(account, password, hashed));
+        assertFalse(encryptionService.verifyPassword(account, "WrongPassword", hashed));
+    }
+
+    @Test
+    void testConfiguredBcryptCostIsClamped() {
+        assertEquals(BcryptCostCalibrator.MIN_COST, EncryptionService.configuredCost(4));
+        assertEquals(13, EncryptionService.configuredCost(13));
+        assertEquals(BcryptCostCalibrator.MAX_COST, EncryptionService.configuredCost(31));
+        assertTrue(EncryptionService.bcryptRounds() >= 12);
+    }
+
+    @Test
+    void testRejectsGuessableMasterPassword() {
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Password1234!"));
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Flamengo2024!"));
+        // Palavra comum, ano e símbolos: cumprem a regra de classes de caracteres
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Brasil2024!!"));
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Admin@1234567"));
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Summer2024!!"));
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("Palmeiras2024!!"));
+        assertThrows(IllegalArgumentException.class, () -> encryptionService.hashPassword("TestPassword123!"));
+    }
+
+    @Test
+    void testDetectsHashWithOutdatedCost() {
+        String current = encryptionService.hashPassword("Vx7#pLq2!mZr9tKw");
+        String outdated = org.mindrot.jbcrypt.BCrypt.hashpw("Vx7#pLq2!mZr9tKw", org.mindrot.jbcrypt.BCrypt.gensalt(4));
+
+        assertEquals(EncryptionService.bcryptRounds(), BcryptCostCalibrator.costOf(current));
+        assertFalse(encryptionService.needsRehash(current));
+        assertTrue(encryptionService.needsRehash(outdated));
+
+        String stronger = org.mindrot.jbcrypt.BCrypt.hashpw("TestPassword123!",
+            org.mindrot.jbcrypt.BCrypt.gensalt(EncryptionService.bcryptRounds() + 1));
+        assertFalse(encryptionService.needsRehash(stronger), "custo maior não é rebaixado");
     }
 
     @Test
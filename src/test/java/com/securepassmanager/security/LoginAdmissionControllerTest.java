@@ -0,0 +1,71 @@
+package com.securepassmanager.security;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAdmissionControllerTest {
+    private long now = 0;
+
+    @Test
+    void testShedsAccountAfterBurstAndRefills() {
+        LoginAdmissionController controller = new LoginAdmissionController(100, 100, 60, 2, 0, 0, () -> now);
+
+        assertTrue(controller.tryAdmit("alice@example.com"));
+        assertTrue(controller.tryAdmit("alice@example.com"));
+        assertFalse(controller.tryAdmit("alice@example.com"));
+        assertTrue(controller.tryAdmit("bob@example.com")); // Outra conta não é afetada
+
+        now += 1_000_000_000L; // 60 por minuto: uma ficha por segundo
+        assertTrue(controller.tryAdmit("alice@example.com"));
+
+        assertEquals(4, controller.admittedCount());
+        assertEquals(1, controller.shedCount());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedAccountEvenIfNotFull() {
+        LoginAdmissionController controller = new LoginAdmissionController(100, 100, 60, 1, 0, 0, 2, () -> now);
+
+        assertTrue(controller.tryAdmit("alice@example.com"));
+        assertTrue(controller.tryAdmit("bob@example.com"));
+        assertFalse(controller.tryAdmit("alice@example.com")); // alice passa a ser a mais recente
+        assertTrue(controller.tryAdmit("carol@example.com"));  // descarta bob, não alice
+        assertEquals(2, controller.trackedAccounts());
+
+        assertFalse(controller.tryAdmit("alice@example.com"), "balde vazio de alice continua valendo");
+        assertTrue(controller.tryAdmit("bob@example.com"), "bob foi descartado e recomeça cheio");
+        assertEquals(2, controller.trackedAccounts());
+    }
+
+    @Test
+    void testShedsWhenGlobalBucketIsEmptyAndQueueIsFull() {
+        LoginAdmissionController controller = new LoginAdmissionController(1, 2, 60, 10, 0, 1000, () -> now);
+
+        assertTrue(controller.tryAdmit("a@example.com"));
+        assertTrue(controller.tryAdmit("b@example.com"));
+        assertFalse(controller.tryAdmit("c@example.com"));
+        assertEquals(0, controller.queuedCount());
+        assertEquals(1, controller.shedCount());
+    }
+
+    @Test
+    void testQueuedAttemptIsAdmittedWhenTokenArrives() {
+        LoginAdmissionController controller = new LoginAdmissionController(20, 1, 60, 10, 4, 2000, System::nanoTime);
+
+        assertTrue(controller.tryAdmit("a@example.com"));
+        assertTrue(controller.tryAdmit("b@example.com")); // Aguarda cerca de 50 ms na fila
+        assertEquals(1, controller.queuedCount());
+        assertEquals(2, controller.admittedCount());
+    }
+
+    @Test
+    void testRejectedLoginNeverReachesBcrypt() throws Exception {
+        LoginAdmissionController controller = new LoginAdmissionController(100, 100, 60, 1, 0, 0, () -> now);
+        EncryptionService service = new EncryptionService(KeyRing.inMemory(), controller);
+
+        assertThrows(IllegalArgumentException.class, () -> service.verifyPassword("alice@example.com", "x", "hash-invalido"));
+        // Sem ficha: descartada antes de o hash ser lido
+        assertThrows(SecurityException.class, () -> service.verifyPassword("alice@example.com", "x", "hash-invalido"));
+        assertEquals(1, controller.shedCount());
+    }
+}
@@ -0,0 +1,64 @@
+package com.securepassmanager.security;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordBreachCheckerTest {
+    // SHA-1 de "password" é 5BAA61E4C9B93F3F0682250B6CF8331B7EE68FD8: prefixo e sufixo da API
+    private static final String PREFIX = "5BAA6";
+    private static final String SUFFIX = "1E4C9B93F3F0682250B6CF8331B7EE68FD8";
+
+    private final List<String> requestedPrefixes = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/range/", exchange -> {
+            String prefix = exchange.getRequestURI().getPath().substring("/range/".length());
+            requestedPrefixes.add(prefix);
+            String body = prefix.equalsIgnoreCase(PREFIX)
+                ? "0018A45C4D1DEF81644B54AB7F969B88D65:1\r\n" + SUFFIX + ":9545824\r\n"
+                : "0018A45C4D1DEF81644B54AB7F969B88D65:1\r\n";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/range/";
+    }
+
+    @Test
+    void testQueriesRangeWithSha1Prefix() {
+        PasswordBreachChecker checker = new PasswordBreachChecker(baseUrl());
+        assertTrue(checker.isPasswordBreached("password"));
+        assertFalse(checker.isPasswordBreached("senha-que-ninguem-usou-ainda"));
+        assertTrue(PREFIX.equalsIgnoreCase(requestedPrefixes.get(0)), requestedPrefixes.toString());
+    }
+
+    @Test
+    void testOkHttpCheckerUsesSameHash() throws Exception {
+        com.securepassmanager.api.PasswordBreachChecker checker =
+            new com.securepassmanager.api.PasswordBreachChecker(baseUrl());
+        assertEquals(9545824, checker.checkPassword("password"));
+        assertTrue(PREFIX.equalsIgnoreCase(requestedPrefixes.get(0)), requestedPrefixes.toString());
+    }
+}
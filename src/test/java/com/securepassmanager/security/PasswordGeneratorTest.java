@@ -0,0 +1,60 @@
+package com.securepassmanager.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordGeneratorTest {
+
+    @Test
+    void testCustomPolicy() {
+        PasswordGenerator generator = new PasswordGenerator(16, "ABC", "123");
+        char[] password = generator.generate(8);
+
+        assertEquals(16, password.length);
+        String text = new String(password);
+        assertTrue(text.matches("[ABC123]+"));
+        assertTrue(text.matches(".*[ABC].*"));
+        assertTrue(text.matches(".*[123].*"));
+    }
+
+    @Test
+    void testBatchIsWipedAfterConsumption() {
+        PasswordGenerator generator = PasswordGenerator.defaultGenerator(12);
+        Set<String> passwords = new HashSet<>();
+        char[][] lastBatch = new char[1][];
+
+        generator.generateBatch(500, 20, (batch, count, length) -> {
+            for (int i = 0; i < count; i++) {
+                passwords.add(new String(batch, i * length, length));
+            }
+            lastBatch[0] = batch;
+        });
+
+        assertEquals(500, passwords.size());
+        for (char c : lastBatch[0]) {
+            assertEquals('\0', c);
+        }
+    }
+
+    @Test
+    void testPassphraseFromDicewareList(@TempDir Path dir) throws Exception {
+        Path wordlist = dir.resolve("words.txt");
+        Files.writeString(wordlist, "11111\tabacate\n11112\tbanana\n11113\tcaju\n11114\tdamasco\n");
+        PassphraseGenerator generator = new PassphraseGenerator(wordlist);
+
+        char[] phrase = generator.generate(5, '-');
+        String[] words = new String(phrase).split("-");
+
+        assertEquals(4, generator.wordCount());
+        assertEquals(5, words.length);
+        for (String word : words) {
+            assertTrue(Set.of("abacate", "banana", "caju", "damasco").contains(word));
+        }
+    }
+}
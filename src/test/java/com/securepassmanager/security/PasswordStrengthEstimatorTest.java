@@ -0,0 +1,149 @@
+package com.securepassmanager.security;
+
+import com.securepassmanager.security.PasswordStrengthEstimator.Match;
+import com.securepassmanager.security.PasswordStrengthEstimator.Pattern;
+import com.securepassmanager.security.PasswordStrengthEstimator.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordStrengthEstimatorTest {
+    private static final String[] DICTIONARIES = {"passwords", "english", "portuguese", "names"};
+
+    private final PasswordStrengthEstimator estimator = PasswordStrengthEstimator.getDefault();
+
+    private static List<Pattern> patterns(Result result) {
+        return result.sequence().stream().map(Match::pattern).collect(Collectors.toList());
+    }
+
+    @Test
+    void testPackedTrieMatchesWordLists() throws Exception {
+        Map<String, List<String>> lists = new LinkedHashMap<>();
+        for (String name : DICTIONARIES) {
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("strength/" + name + ".txt")) {
+                assertNotNull(in, name);
+                lists.put(name, CompactTrie.readWordList(in));
+            }
+        }
+        byte[] expected = CompactTrie.pack(lists);
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(PasswordStrengthEstimator.DEFAULT_RESOURCE)) {
+            assertArrayEquals(expected, in.readAllBytes(),
+                "regere strength/dictionaries.trie com CompactTrie após alterar as listas");
+        }
+    }
+
+    @Test
+    void testTrieLookup() throws Exception {
+        CompactTrie trie = CompactTrie.fromResource(PasswordStrengthEstimator.DEFAULT_RESOURCE);
+        assertEquals(4, trie.dictionaryCount());
+        assertEquals("passwords", trie.dictionaryName(1));
+        assertEquals(1, trie.rank("123456"));
+        assertEquals(2, trie.rank("password"));
+        assertEquals(0, trie.rank("passwor"));
+        assertEquals(0, trie.rank("xq9zk"));
+        assertTrue(trie.rank("flamengo") > 0);
+    }
+
+    @Test
+    void testCommonPatternsScoreLow() {
+        assertTrue(estimator.estimate("Password1234!").score() <= 2, "caso que passava na regra de classes de caracteres");
+        assertEquals(0, estimator.estimate("password").score());
+        assertTrue(estimator.estimate("P@ssw0rd").score() <= 1);
+        assertTrue(estimator.estimate("qwertyuiop").score() <= 1);
+        assertTrue(estimator.estimate("abcdefghij").score() <= 1);
+        assertTrue(estimator.estimate("aaaaaaaaaaaa").score() <= 1);
+        assertTrue(estimator.estimate("15/08/1990").score() <= 2);
+        assertTrue(estimator.estimate("Flamengo2024").score() <= 2);
+    }
+
+    @Test
+    void testWordYearAndSymbolsScoreBelowGate() {
+        // Três pedaços (palavra, ano, símbolos) bastavam para chegar a 10^8 tentativas.
+        // Nenhuma destas combinações está nas listas: só a palavra está.
+        String[] passwords = {"Brasil2024!!", "Admin@1234567", "Summer2024!!", "Inverno2023!", "Flamengo2024!!",
+            "Palmeiras2024!!", "Monkey2024!!", "Dragon2023!!", "Winter2031!!", "Mariana1990!!", "Futebol2024!!"};
+        for (String password : passwords) {
+            assertTrue(estimator.estimate(password).score() < 3, password);
+        }
+    }
+
+    @Test
+    void testWordDateAndSymbolsCostTheProductOfThePieces() {
+        Result result = estimator.estimate("Monkey15/08/1990!");
+        assertEquals(List.of(Pattern.DICTIONARY, Pattern.DATE, Pattern.BRUTEFORCE), patterns(result));
+        double product = 6; // 3! ordens dos trechos
+        for (Match match : result.sequence()) {
+            product *= match.guesses();
+        }
+        assertEquals(Math.log10(product), result.guessesLog10(), 0.01, "sem o acréscimo de 10^4 por trecho");
+    }
+
+    @Test
+    void testDecorationsDoNotDiscountSeveralWords() {
+        assertTrue(estimator.estimate("Cachorro#Vermelho27").score() >= 3);
+    }
+
+    @Test
+    void testRandomAndPassphrasesScoreHigh() throws Exception {
+        assertEquals(4, estimator.estimate("Vx7#pLq2!mZr9tKw").score());
+        assertTrue(estimator.estimate("cavalo correto bateria grampo").score() >= 3);
+        assertTrue(estimator.estimate(new EncryptionService().generateStrongPassword(16)).score() >= 3);
+    }
+
+    @Test
+    void testRecognizesPatterns() {
+        assertTrue(patterns(estimator.estimate("mjuyhnbgt")).contains(Pattern.SPATIAL));
+        assertTrue(patterns(estimator.estimate("x13579")).contains(Pattern.SEQUENCE));
+        assertTrue(patterns(estimator.estimate("x19900815")).contains(Pattern.DATE));
+        assertTrue(patterns(estimator.estimate("xabcabcabc")).contains(Pattern.REPEAT));
+
+        Result reversed = estimator.estimate("drowssap");
+        assertEquals(List.of(Pattern.DICTIONARY), patterns(reversed));
+        assertEquals("passwords", reversed.sequence().get(0).dictionary());
+        assertFalse(reversed.warning().isEmpty());
+        assertFalse(reversed.suggestions().isEmpty());
+    }
+
+    @Test
+    void testStrongerVariantsNeedMoreGuesses() {
+        double plain = estimator.estimate("monkey").guessesLog10();
+        assertTrue(estimator.estimate("Monkey").guessesLog10() > plain);
+        assertTrue(estimator.estimate("m0nk3y").guessesLog10() > plain);
+        assertTrue(estimator.estimate("monkeyzebrafalcon").guessesLog10()
+            > estimator.estimate("monkey").guessesLog10() + 3);
+    }
+
+    @Test
+    void testCharArrayInputAndLongPasswords() {
+        char[] password = "Password1234!".toCharArray();
+        assertEquals(estimator.estimate("Password1234!").score(), estimator.estimate(password).score());
+        assertArrayEquals("Password1234!".toCharArray(), password, "a entrada do chamador não é alterada");
+
+        Result empty = estimator.estimate("");
+        assertEquals(0, empty.score());
+        Result longPassword = estimator.estimate("a".repeat(500));
+        assertTrue(longPassword.guessesLog10() > 400);
+    }
+
+    @Test
+    void testScoresInMicroseconds() {
+        String[] samples = {"Password1234!", "Vx7#pLq2!mZr9tKw", "correcthorsebatterystaple", "15/08/1990qwerty",
+            "P@ssw0rdP@ssw0rd", "j8Jd-0a9_Lq!2mZx"};
+        for (int i = 0; i < 2_000; i++) {
+            estimator.estimate(samples[i % samples.length]);
+        }
+        int rounds = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            estimator.estimate(samples[i % samples.length]);
+        }
+        long averageNanos = (System.nanoTime() - start) / rounds;
+        assertTrue(averageNanos < 1_000_000, "média por senha: " + averageNanos + " ns");
+    }
+}
@@ -0,0 +1,28 @@
+package com.securepassmanager.security;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TotpReplayCacheTest {
+    private long now = 1_000_000;
+    private final TotpReplayCache cache = new TotpReplayCache(() -> now, 30, 1);
+
+    @Test
+    void testRejectsReplayWithinWindow() {
+        long step = now / 30;
+        assertTrue(cache.markUsed("user1", step, "123456"));
+        assertFalse(cache.markUsed("user1", step, "123456"));
+        assertTrue(cache.markUsed("user2", step, "123456")); // Outro usuário, mesmo código
+    }
+
+    @Test
+    void testDropsExpiredSteps() {
+        long step = now / 30;
+        for (int i = 0; i < 10; i++) {
+            now += 30;
+            cache.markUsed("user1", now / 30, "000000");
+        }
+        assertTrue(cache.bucketCount() <= 3);
+        assertFalse(cache.markUsed("user1", step, "654321")); // Intervalo já expirado
+    }
+}
@@ -0,0 +1,89 @@
+package com.securepassmanager.security;
+
+import dev.samstevens.totp.code.DefaultCodeGenerator;
+import dev.samstevens.totp.secret.DefaultSecretGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TotpVerifierTest {
+    private final long now = 1_700_000_000L;
+    private final TotpVerifier verifier = new TotpVerifier(() -> now, new TotpReplayCache(() -> now, 30, 1), 2);
+
+    @Test
+    void testMatchesReferenceGenerator() throws Exception {
+        String secret = new DefaultSecretGenerator().generate();
+        long step = now / 30;
+        String expected = new DefaultCodeGenerator().generate(secret, step);
+
+        assertEquals(Integer.parseInt(expected), verifier.generate("user1", secret, step));
+        assertTrue(verifier.verify("user1", secret, expected));
+        assertFalse(verifier.verify("user1", secret, expected)); // Replay
+    }
+
+    @Test
+    void testAcceptsOnlyCodesInsideWindow() throws Exception {
+        String secret = new DefaultSecretGenerator().generate();
+        DefaultCodeGenerator generator = new DefaultCodeGenerator();
+        long step = now / 30;
+
+        assertTrue(verifier.verify("user1", secret, generator.generate(secret, step - 1)));
+        assertFalse(verifier.verify("user1", secret, generator.generate(secret, step - 3)));
+        assertFalse(verifier.verify("user1", secret, "12a456"));
+    }
+
+    @Test
+    void testDetectsChangedSecret() throws Exception {
+        DefaultSecretGenerator secrets = new DefaultSecretGenerator();
+        String oldSecret = secrets.generate();
+        String newSecret = secrets.generate();
+        long step = now / 30;
+
+        verifier.generate("user1", oldSecret, step);
+        String code = new DefaultCodeGenerator().generate(newSecret, step);
+        assertTrue(verifier.verify("user1", newSecret, code));
+    }
+
+    @Test
+    void testKeyCacheEvictsLeastRecentlyUsed() {
+        DefaultSecretGenerator secrets = new DefaultSecretGenerator();
+        String first = secrets.generate();
+        long step = now / 30;
+        verifier.generate("user1", first, step);
+        verifier.generate("user2", secrets.generate(), step);
+        verifier.generate("user1", first, step);
+        verifier.generate("user3", secrets.generate(), step);
+
+        assertTrue(verifier.isKeyCached("user1"), "usada por último, não é descartada");
+        assertFalse(verifier.isKeyCached("user2"));
+        assertTrue(verifier.isKeyCached("user3"));
+    }
+
+    @Test
+    void testConcurrentCodesShareMacPool() throws Exception {
+        DefaultSecretGenerator secrets = new DefaultSecretGenerator();
+        DefaultCodeGenerator reference = new DefaultCodeGenerator();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String userId = "user" + (i % 4);
+                String secret = secrets.generate();
+                long step = now / 30 + i;
+                results.add(pool.submit(() ->
+                    Integer.parseInt(reference.generate(secret, step)) == verifier.generate(userId, secret, step)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
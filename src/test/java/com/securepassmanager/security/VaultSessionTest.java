@@ -0,0 +1,118 @@
+package com.securepassmanager.security;
+
+import com.securepassmanager.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultSessionTest {
+    private static final long UNLOCK_TARGET = 10;
+    private static final long IDLE_TIMEOUT = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWrapsKeysOnFirstUnlockAndReopens() throws Exception {
+        User user = new User("user@example.com", "hash", "secret");
+
+        VaultSession first = VaultSession.open(user, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT);
+        assertTrue(first.isUserUpdated());
+        assertNotNull(user.getWrappedVaultKey());
+        assertTrue(user.getKdfIterations() >= MasterKeyDerivation.MIN_ITERATIONS);
+        String encrypted = first.encryption().encryptPassword("segredo-do-cofre");
+        first.lock();
+
+        VaultSession second = VaultSession.open(user, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT);
+        assertFalse(second.isUserUpdated());
+        assertEquals("segredo-do-cofre", second.encryption().decryptPassword(encrypted));
+        assertThrows(SecurityException.class,
+            () -> VaultSession.open(user, "Senha-Errada-123", null, UNLOCK_TARGET, IDLE_TIMEOUT));
+    }
+
+    @Test
+    void testLockForgetsKeys() throws Exception {
+        User user = new User("user@example.com", "hash", "secret");
+        VaultSession session = VaultSession.open(user, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT);
+        String encrypted = session.encryption().encryptPassword("segredo-do-cofre");
+
+        session.lock();
+        assertFalse(session.isUnlocked());
+        assertThrows(IllegalStateException.class, () -> session.encryption().decryptPassword(encrypted));
+        assertThrows(IllegalStateException.class, () -> session.rewrap(user));
+    }
+
+    @Test
+    void testRotationIsSavedInUserRecord() throws Exception {
+        User user = new User("user@example.com", "hash", "secret");
+        VaultSession session = VaultSession.open(user, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT);
+        String before = session.encryption().encryptPassword("antes");
+        int keyId = session.rotateKey(user);
+        String after = session.encryption().encryptPassword("depois");
+        session.lock();
+
+        VaultSession reopened = VaultSession.open(user, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT);
+        assertEquals(2, keyId);
+        assertEquals("antes", reopened.encryption().decryptPassword(before));
+        assertEquals("depois", reopened.encryption().decryptPassword(after));
+        assertFalse(reopened.encryption().needsReEncryption(after));
+    }
+
+    @Test
+    void testMigratesLegacyKeyRingAndRejectsConflicts() throws Exception {
+        KeyRing legacy = KeyRing.inMemory();
+        String legacyEncrypted = EncryptionService.forKeyRing(legacy).encryptPassword("senha-antiga");
+
+        User migrated = new User("user@example.com", "hash", "secret");
+        VaultSession session = VaultSession.open(migrated, "Senha-Mestra-123", legacy, UNLOCK_TARGET, IDLE_TIMEOUT);
+        assertEquals("senha-antiga", session.encryption().decryptPassword(legacyEncrypted));
+        session.lock();
+        assertFalse(VaultSession.open(migrated, "Senha-Mestra-123", legacy, UNLOCK_TARGET, IDLE_TIMEOUT).isUserUpdated());
+
+        // Outra instalação também começou na chave 1, com outro conteúdo
+        User other = new User("other@example.com", "hash", "secret");
+        VaultSession.open(other, "Senha-Mestra-123", null, UNLOCK_TARGET, IDLE_TIMEOUT).lock();
+        IllegalStateException conflict = assertThrows(IllegalStateException.class,
+            () -> VaultSession.open(other, "Senha-Mestra-123", legacy, UNLOCK_TARGET, IDLE_TIMEOUT));
+        assertTrue(conflict.getMessage().contains("1 ("));
+    }
+
+    @Test
+    void testReadsLegacyFilesWithoutWritingKeys() throws Exception {
+        assertNull(KeyManager.loadLegacyKeyRing(dir));
+
+        byte[] key = KeyManager.generateKey().getEncoded();
+        Files.write(dir.resolve("secure_key.dat"), key);
+        KeyRing legacy = KeyManager.loadLegacyKeyRing(dir);
+        assertEquals(KeyRing.LEGACY_KEY_ID, legacy.currentKeyId());
+        assertArrayEquals(key, legacy.getKey(KeyRing.LEGACY_KEY_ID).getEncoded());
+
+        Files.writeString(dir.resolve("secure_keyring.dat"),
+            "current=2\n1:" + Base64.getEncoder().encodeToString(key) + "\n2:"
+                + Base64.getEncoder().encodeToString(KeyManager.generateKey().getEncoded()) + "\n");
+        KeyRing keyRing = KeyManager.loadLegacyKeyRing(dir);
+        assertEquals(2, keyRing.currentKeyId());
+        assertEquals(java.util.Set.of(1, 2), keyRing.keyIds());
+
+        User user = new User("user@example.com", "hash", "secret");
+        VaultSession.open(user, "Senha-Mestra-123", keyRing, UNLOCK_TARGET, IDLE_TIMEOUT).lock();
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count(), "nenhum chaveiro novo é gravado em disco");
+        }
+    }
+
+    @Test
+    void testImportComparesKeyMaterial() throws Exception {
+        KeyRing keyRing = KeyRing.inMemory();
+        assertFalse(keyRing.importKeys(keyRing.snapshot(), keyRing.currentKeyId()));
+        KeyRing other = KeyRing.inMemory();
+        assertThrows(IllegalStateException.class, () -> keyRing.importKeys(other.snapshot(), 1));
+        assertTrue(keyRing.importKeys(Map.of(5, KeyManager.generateKey()), 5));
+        assertEquals(5, keyRing.currentKeyId());
+    }
+}
@@ -0,0 +1,57 @@
+package com.securepassmanager.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+    private long now = 0;
+
+    @Test
+    void testPendingSessionExpires() {
+        SessionRegistry registry = new SessionRegistry(1000, 10, () -> now);
+        String token = registry.register(new ServerSession(null, null, now));
+        assertNotNull(registry.get(token));
+
+        now += 1001;
+        assertNull(registry.get(token));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testAuthenticatedSessionOutlivesPendingTtl() {
+        SessionRegistry registry = new SessionRegistry(1000, 10, () -> now);
+        ServerSession session = new ServerSession(null, null, now);
+        String token = registry.register(session);
+        session.markAuthenticated();
+
+        now += 60_000;
+        assertSame(session, registry.get(token));
+    }
+
+    @Test
+    void testRejectsSessionsOverLimit() {
+        SessionRegistry registry = new SessionRegistry(1000, 2, () -> now);
+        String first = registry.register(new ServerSession(null, null, now));
+        String second = registry.register(new ServerSession(null, null, now));
+        assertNotEquals(first, second);
+        assertThrows(IllegalStateException.class, () -> registry.register(new ServerSession(null, null, now)));
+    }
+
+    @Test
+    void testServerRejectsRequestsWithoutSession() throws Exception {
+        VaultHttpServer server = new VaultHttpServer(null, null, null);
+        server.start("127.0.0.1", 0);
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getPort() + "/api/entries");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(401, connection.getResponseCode());
+            connection.disconnect();
+        } finally {
+            server.stop();
+        }
+    }
+}
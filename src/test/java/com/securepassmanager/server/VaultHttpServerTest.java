@@ -0,0 +1,264 @@
+package com.securepassmanager.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.securepassmanager.metrics.MetricsRegistry;
+import com.securepassmanager.model.User;
+import com.securepassmanager.security.BcryptCostCalibrator;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.TwoFactorAuth;
+import com.securepassmanager.service.SyncScheduler;
+import com.securepassmanager.service.UserService;
+import com.securepassmanager.storage.InMemoryUserRepository;
+import com.securepassmanager.storage.InMemoryVaultRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultHttpServerTest {
+    private static final String PASSWORD = "Senha-Mestra-2024!";
+    private static final List<String> BACKUP_CODES = List.of("AAAA2222", "BBBB3333", "CCCC4444");
+
+    // Uma conta por teste: o controle de admissão de login é compartilhado pela JVM
+    private final String email = "ana-" + UUID.randomUUID() + "@example.com";
+    private final HttpClient client = HttpClient.newHttpClient();
+    private UserService userService;
+    private VaultHttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userService = new UserService(new InMemoryUserRepository());
+        User user = new User(email, BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4)), new TwoFactorAuth().getSecret());
+        user.setBackupCodes(BACKUP_CODES);
+        userService.registerUser(user);
+
+        server = new VaultHttpServer(new EncryptionService(), userService, new InMemoryVaultRepository());
+        server.start("127.0.0.1", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+            .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonElement json(HttpResponse<String> response) {
+        return JsonParser.parseString(response.body());
+    }
+
+    private static String secondFactor(String code) {
+        return "{\"code\":\"" + code + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    private String login(String backupCode) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        assertEquals(200, response.statusCode(), response.body());
+        String token = json(response).getAsJsonObject().get("token").getAsString();
+
+        HttpResponse<String> verified = send("POST", "/api/login/2fa", token, secondFactor(backupCode));
+        assertEquals(200, verified.statusCode(), verified.body());
+        return token;
+    }
+
+    @Test
+    void testEntryLifecycle() throws Exception {
+        String token = login(BACKUP_CODES.get(0));
+
+        HttpResponse<String> put = send("PUT", "/api/entries/github", token,
+            "{\"username\":\"ana\",\"password\":\"s3gredo\",\"title\":\"GitHub\"}");
+        assertEquals(200, put.statusCode(), put.body());
+
+        HttpResponse<String> get = send("GET", "/api/entries/github", token, null);
+        assertEquals(200, get.statusCode());
+        assertEquals("s3gredo", json(get).getAsJsonObject().get("password").getAsString());
+        assertEquals("ana", json(get).getAsJsonObject().get("username").getAsString());
+
+        HttpResponse<String> list = send("GET", "/api/entries", token, null);
+        assertEquals(1, json(list).getAsJsonArray().size());
+
+        assertEquals(204, send("DELETE", "/api/entries/github", token, null).statusCode());
+        assertEquals(404, send("GET", "/api/entries/github", token, null).statusCode());
+        assertEquals(404, send("DELETE", "/api/entries/github", token, null).statusCode());
+    }
+
+    private List<String> searchServices(String token, String query) throws Exception {
+        HttpResponse<String> response = send("GET", "/api/search?q=" + query, token, null);
+        assertEquals(200, response.statusCode(), response.body());
+        List<String> services = new ArrayList<>();
+        json(response).getAsJsonArray().forEach(hit -> services.add(hit.getAsJsonObject().get("service").getAsString()));
+        return services;
+    }
+
+    @Test
+    void testSearchFollowsEveryWrite() throws Exception {
+        String token = login(BACKUP_CODES.get(0));
+        assertEquals(200, send("PUT", "/api/entries/github", token,
+            "{\"username\":\"ana\",\"password\":\"s3gredo\",\"title\":\"Trabalho\"}").statusCode());
+        assertEquals(List.of("github"), searchServices(token, "gihtub"));
+
+        // Índice já montado: as gravações seguintes precisam aparecer nele
+        assertEquals(200, send("PUT", "/api/entries/gitlab", token,
+            "{\"username\":\"ana\",\"password\":\"outro\"}").statusCode());
+        assertEquals(200, send("PUT", "/api/entries/github", token,
+            "{\"username\":\"ana\",\"password\":\"s3gredo\",\"title\":\"Pessoal\"}").statusCode());
+        assertEquals(List.of("github"), searchServices(token, "pessoal"));
+        assertTrue(searchServices(token, "gitlab").contains("gitlab"));
+
+        assertEquals(204, send("DELETE", "/api/entries/gitlab", token, null).statusCode());
+        assertFalse(searchServices(token, "gitlab").contains("gitlab"));
+        assertEquals(400, send("GET", "/api/search", token, null).statusCode());
+    }
+
+    @Test
+    void testLoginRejectsWrongPasswordAndBackupCode() throws Exception {
+        HttpResponse<String> wrongPassword = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"outra-senha\"}");
+        assertEquals(401, wrongPassword.statusCode());
+
+        HttpResponse<String> response = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        String token = json(response).getAsJsonObject().get("token").getAsString();
+        assertEquals(401, send("GET", "/api/entries", token, null).statusCode(), "2FA pendente");
+        assertEquals(401, send("POST", "/api/login/2fa", token, secondFactor("ZZZZ9999")).statusCode());
+        assertEquals(401, send("GET", "/api/entries", token, null).statusCode(), "sessão descartada");
+    }
+
+    @Test
+    void testVaultIsUnlockedOnlyAfterSecondFactor() throws Exception {
+        assertEquals(401, send("POST", "/api/login", null,
+            "{\"email\":\"ninguem-" + UUID.randomUUID() + "@example.com\",\"password\":\"" + PASSWORD + "\"}").statusCode());
+
+        HttpResponse<String> response = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        String token = json(response).getAsJsonObject().get("token").getAsString();
+        assertNull(userService.findByEmail(email).getWrappedVaultKey(), "a senha sozinha não desbloqueia o cofre");
+        assertEquals(400, send("POST", "/api/login/2fa", token, "{\"code\":\"" + BACKUP_CODES.get(0) + "\"}").statusCode());
+
+        assertEquals(401, send("POST", "/api/login/2fa", token,
+            "{\"code\":\"" + BACKUP_CODES.get(0) + "\",\"password\":\"outra-senha\"}").statusCode());
+        assertNull(userService.findByEmail(email).getWrappedVaultKey());
+        assertTrue(userService.findByEmail(email).getBackupCodes().contains(BACKUP_CODES.get(0)), "código não consumido");
+        assertEquals(401, send("POST", "/api/login/2fa", token, secondFactor(BACKUP_CODES.get(0))).statusCode(),
+            "sessão descartada");
+    }
+
+    @Test
+    void testBackupCodeIsConsumed() throws Exception {
+        login(BACKUP_CODES.get(1));
+        assertFalse(userService.findByEmail(email).getBackupCodes().contains(BACKUP_CODES.get(1)));
+
+        HttpResponse<String> response = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        String token = json(response).getAsJsonObject().get("token").getAsString();
+        assertEquals(401, send("POST", "/api/login/2fa", token, secondFactor(BACKUP_CODES.get(1))).statusCode());
+    }
+
+    @Test
+    void testGenerateReadsLengthAnywhereInQuery() throws Exception {
+        String token = login(BACKUP_CODES.get(0));
+
+        HttpResponse<String> generated = send("GET", "/api/generate?x=1&length=20", token, null);
+        assertEquals(200, generated.statusCode(), generated.body());
+        assertEquals(20, json(generated).getAsJsonObject().get("password").getAsString().length());
+
+        assertEquals(400, send("GET", "/api/generate?length=abc", token, null).statusCode());
+        assertEquals(400, send("GET", "/api/generate?length=500", token, null).statusCode());
+    }
+
+    @Test
+    void testAuthenticatedSessionsKeepUserInSyncScheduler() throws Exception {
+        SyncScheduler scheduler = new SyncScheduler((userId, local, cloud) -> { }, () -> true, 1, 1, 1, 300);
+        VaultHttpServer syncing = new VaultHttpServer(new EncryptionService(), userService, new InMemoryVaultRepository(), scheduler);
+        syncing.start("127.0.0.1", 0);
+        VaultHttpServer previous = server;
+        server = syncing;
+        try {
+            String gauge = "sync.age{user=" + userService.findByEmail(email).getId() + "}";
+            String first = login(BACKUP_CODES.get(0));
+            String second = login(BACKUP_CODES.get(1));
+            assertNotNull(MetricsRegistry.global().gauges().get(gauge));
+
+            assertEquals(204, send("POST", "/api/logout", first, null).statusCode());
+            assertNotNull(MetricsRegistry.global().gauges().get(gauge), "ainda há uma sessão do usuário");
+            assertEquals(204, send("POST", "/api/logout", second, null).statusCode());
+            assertNull(MetricsRegistry.global().gauges().get(gauge));
+        } finally {
+            server = previous;
+            syncing.stop();
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void testOutdatedHashIsReplacedOnlyAfterSecondFactor() throws Exception {
+        HttpResponse<String> response = send("POST", "/api/login", null,
+            "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}");
+        String token = json(response).getAsJsonObject().get("token").getAsString();
+        Thread.sleep(1500);
+        assertEquals(4, BcryptCostCalibrator.costOf(userService.findByEmail(email).getPasswordHash()),
+            "sem o segundo fator o registro não muda");
+
+        assertEquals(200, send("POST", "/api/login/2fa", token, secondFactor(BACKUP_CODES.get(2))).statusCode());
+        long deadline = System.currentTimeMillis() + 10_000;
+        User stored = userService.findByEmail(email);
+        while (BcryptCostCalibrator.costOf(stored.getPasswordHash()) != EncryptionService.bcryptRounds()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            stored = userService.findByEmail(email);
+        }
+        assertEquals(EncryptionService.bcryptRounds(), BcryptCostCalibrator.costOf(stored.getPasswordHash()));
+        assertNotNull(stored.getWrappedVaultKey(), "o novo hash não apaga as chaves do cofre");
+        assertFalse(stored.getBackupCodes().contains(BACKUP_CODES.get(2)));
+    }
+
+    @Test
+    void testConcurrentFirstLoginsShareVaultKeys() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Callable<String> first = () -> login(BACKUP_CODES.get(0));
+            Callable<String> second = () -> login(BACKUP_CODES.get(1));
+            Future<String> a = pool.submit(first);
+            Future<String> b = pool.submit(second);
+            String tokenA = a.get();
+            String tokenB = b.get();
+
+            assertEquals(200, send("PUT", "/api/entries/email", tokenA,
+                "{\"username\":\"ana\",\"password\":\"da-sessao-a\"}").statusCode());
+            assertEquals(200, send("PUT", "/api/entries/banco", tokenB,
+                "{\"username\":\"ana\",\"password\":\"da-sessao-b\"}").statusCode());
+
+            HttpResponse<String> readByB = send("GET", "/api/entries/email", tokenB, null);
+            assertEquals(200, readByB.statusCode(), readByB.body());
+            assertEquals("da-sessao-a", json(readByB).getAsJsonObject().get("password").getAsString());
+            HttpResponse<String> readByA = send("GET", "/api/entries/banco", tokenA, null);
+            assertEquals(200, readByA.statusCode(), readByA.body());
+            assertEquals("da-sessao-b", json(readByA).getAsJsonObject().get("password").getAsString());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.KeyRing;
+import com.securepassmanager.storage.VaultMerkleTree;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conversões entre {@link PasswordEntry} e os documentos do MongoDB, sem servidor.
+ */
+class MongoDBServiceTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 0);
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+
+    private static PasswordEntry entry(String ciphertext) {
+        PasswordEntry entry = new PasswordEntry("github", "ana", ciphertext, "u1");
+        entry.setTitle("Trabalho");
+        entry.setCreatedAt(CREATED);
+        entry.setUpdatedAt(UPDATED);
+        return entry;
+    }
+
+    @Test
+    void testDocumentRoundTripUsesBinaryAndDates() throws Exception {
+        EncryptionService encryptionService = EncryptionService.forKeyRing(KeyRing.inMemory());
+        String ciphertext = encryptionService.encryptPassword("Segredo#2024");
+        Document doc = MongoDBService.toDocument(entry(ciphertext));
+
+        assertInstanceOf(Binary.class, doc.get("password"));
+        assertArrayEquals(Base64.getDecoder().decode(ciphertext), doc.get("password", Binary.class).getData());
+        assertInstanceOf(Date.class, doc.get("createdAt"));
+        assertInstanceOf(Date.class, doc.get("updatedAt"));
+        assertEquals(MongoDBService.SCHEMA_VERSION, doc.getInteger("schemaVersion"));
+        assertEquals(VaultMerkleTree.bucketOf("github"), doc.getInteger("bucket"));
+
+        PasswordEntry read = MongoDBService.toPasswordEntry(doc);
+        assertEquals("Trabalho", read.getTitle());
+        assertEquals("github", read.getService());
+        assertEquals("ana", read.getUsername());
+        assertEquals("u1", read.getUserId());
+        assertEquals(ciphertext, read.getPassword());
+        assertEquals("Segredo#2024", encryptionService.decryptPassword(read.getPassword()));
+        assertEquals(CREATED, read.getCreatedAt());
+        assertEquals(UPDATED, read.getUpdatedAt());
+    }
+
+    @Test
+    void testDatesKeepMillisecondPrecision() {
+        PasswordEntry entry = entry("YQ==");
+        entry.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_789));
+        assertEquals(UPDATED, MongoDBService.toPasswordEntry(MongoDBService.toDocument(entry)).getUpdatedAt());
+    }
+
+    @Test
+    void testReadsLegacyDocument() {
+        // Formato antigo: senha em Base64 como texto e datas em ISO-8601, sem schemaVersion
+        Document legacy = new Document()
+            .append("service", "github")
+            .append("username", "ana")
+            .append("password", "Y2lmcmFkbw==")
+            .append("userId", "u1")
+            .append("createdAt", "2024-05-01T12:00")
+            .append("updatedAt", "2024-05-01T12:30:15.123");
+
+        PasswordEntry read = MongoDBService.toPasswordEntry(legacy);
+        assertNull(read.getTitle());
+        assertEquals("Y2lmcmFkbw==", read.getPassword());
+        assertEquals(CREATED, read.getCreatedAt());
+        assertEquals(UPDATED, read.getUpdatedAt());
+
+        // Regravar no formato v2 não muda o texto cifrado
+        assertEquals("Y2lmcmFkbw==", MongoDBService.toPasswordEntry(MongoDBService.toDocument(read)).getPassword());
+    }
+
+    @Test
+    void testMissingOrInvalidDatesFallBackToNow() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        Document doc = new Document()
+            .append("service", "github")
+            .append("password", new Binary(new byte[] {1, 2, 3}))
+            .append("userId", "u1")
+            .append("createdAt", null)
+            .append("updatedAt", "ontem");
+
+        PasswordEntry read = MongoDBService.toPasswordEntry(doc);
+        assertFalse(read.getCreatedAt().isBefore(before));
+        assertFalse(read.getUpdatedAt().isBefore(before));
+        assertEquals("AQID", read.getPassword());
+    }
+
+    @Test
+    void testNullFieldsRoundTrip() {
+        PasswordEntry entry = entry(null);
+        entry.setTitle(null);
+        entry.setUsername(null);
+        entry.setCreatedAt(null);
+        Document doc = MongoDBService.toDocument(entry);
+        assertNull(doc.get("password"));
+        assertNull(doc.get("createdAt"));
+
+        PasswordEntry read = MongoDBService.toPasswordEntry(doc);
+        assertNull(read.getPassword());
+        assertNull(read.getTitle());
+        assertNull(read.getUsername());
+        assertNotNull(read.getCreatedAt(), "sem data gravada, a entrada lida fica com a data atual");
+    }
+
+    @Test
+    void testEncodeCiphertext() {
+        assertNull(MongoDBService.encodeCiphertext(null));
+        assertArrayEquals(new byte[] {1, 2, 3}, ((Binary) MongoDBService.encodeCiphertext("AQID")).getData());
+        // Texto que não é Base64 fica como está, em vez de perder a entrada
+        assertEquals("não é base64!", MongoDBService.encodeCiphertext("não é base64!"));
+        assertEquals("não é base64!", MongoDBService.decodeCiphertext("não é base64!"));
+        assertNull(MongoDBService.decodeCiphertext(null));
+    }
+
+    @Test
+    void testReadDate() {
+        Date date = Date.from(UPDATED.atZone(ZoneId.systemDefault()).toInstant());
+        assertEquals(UPDATED, MongoDBService.readDate(date));
+        assertEquals(UPDATED, MongoDBService.readDate("2024-05-01T12:30:15.123"));
+        assertEquals(CREATED, MongoDBService.readDate(MongoDBService.toDate(CREATED)));
+        assertNull(MongoDBService.readDate(null));
+        assertNull(MongoDBService.readDate("01/05/2024"));
+        assertNull(MongoDBService.readDate(1714564800000L));
+        assertNull(MongoDBService.toDate(null));
+    }
+}
@@ -0,0 +1,44 @@
+package com.securepassmanager.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoMerkleIndexTest {
+    private static final Date STALE_BEFORE = new Date(1_000_000);
+
+    private static Document state(long version, Date... pendingSince) {
+        Document state = new Document("version", version);
+        List<Document> pending = new ArrayList<>();
+        for (Date at : pendingSince) {
+            pending.add(new Document("id", new ObjectId()).append("at", at));
+        }
+        return state.append("pending", pending);
+    }
+
+    @Test
+    void testTrustsTreeWithoutConcurrentWrites() {
+        assertTrue(MongoMerkleIndex.quiescent(null, null, STALE_BEFORE));
+        assertTrue(MongoMerkleIndex.quiescent(state(3), state(3), STALE_BEFORE));
+    }
+
+    @Test
+    void testDistrustsTreeWhenAWriteCrossesTheRebuild() {
+        Date recent = new Date(STALE_BEFORE.getTime() + 1);
+        assertFalse(MongoMerkleIndex.quiescent(state(3, recent), state(3, recent), STALE_BEFORE), "em andamento");
+        assertFalse(MongoMerkleIndex.quiescent(state(3), state(3, recent), STALE_BEFORE), "começou durante");
+        assertFalse(MongoMerkleIndex.quiescent(state(3), state(4), STALE_BEFORE), "terminou durante");
+    }
+
+    @Test
+    void testIgnoresMarkersLeftByCrashedWriters() {
+        Date crashed = new Date(STALE_BEFORE.getTime() - 1);
+        assertTrue(MongoMerkleIndex.quiescent(state(3, crashed), state(3, crashed), STALE_BEFORE));
+    }
+}
@@ -0,0 +1,178 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncSchedulerTest {
+    private static final long INTERVAL = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicBoolean cloudUp = new AtomicBoolean(true);
+    private final List<String> synced = new ArrayList<>();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private SyncScheduler scheduler(int parallelism, int localLimit, int cloudLimit) {
+        return new SyncScheduler((userId, local, cloud) -> {
+            if (!cloudUp.get()) {
+                throw new IllegalStateException("nuvem fora do ar");
+            }
+            synced.add(userId);
+        }, cloudUp::get, parallelism, localLimit, cloudLimit, INTERVAL, now::get, pending::add, metrics);
+    }
+
+    private void runPending() {
+        List<Runnable> tasks = new ArrayList<>(pending);
+        pending.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @Test
+    void respectsParallelism() {
+        SyncScheduler scheduler = scheduler(2, 4, 4);
+        for (int i = 0; i < 5; i++) {
+            scheduler.register("u" + i);
+        }
+
+        assertEquals(2, scheduler.dispatch());
+        assertEquals(0, scheduler.dispatch());
+        runPending();
+        assertEquals(2, scheduler.dispatch());
+        runPending();
+        assertEquals(1, scheduler.dispatch());
+        runPending();
+        assertEquals(5, synced.size());
+        assertEquals(0, scheduler.dispatch(), "todos sincronizados dentro do intervalo");
+    }
+
+    @Test
+    void holdsBackendPermitOnlyAroundThatBackendsCalls() throws Exception {
+        CountDownLatch cloudHeld = new CountDownLatch(1);
+        CountDownLatch releaseCloud = new CountDownLatch(1);
+        CountDownLatch localDone = new CountDownLatch(1);
+        AtomicInteger cloudActive = new AtomicInteger();
+        AtomicInteger maxCloudActive = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(3);
+        SyncScheduler scheduler = new SyncScheduler((userId, local, cloud) -> {
+            if (userId.equals("lento")) {
+                cloud.run(() -> {
+                    cloudHeld.countDown();
+                    await(releaseCloud);
+                });
+                return;
+            }
+            local.run(localDone::countDown);
+            cloud.run(() -> {
+                maxCloudActive.accumulateAndGet(cloudActive.incrementAndGet(), Math::max);
+                cloudActive.decrementAndGet();
+            });
+        }, () -> true, 3, 1, 1, INTERVAL, now::get, workers, metrics);
+        try {
+            scheduler.register("lento");
+            assertEquals(1, scheduler.dispatch());
+            assertTrue(cloudHeld.await(5, TimeUnit.SECONDS));
+
+            scheduler.register("u1");
+            assertEquals(1, scheduler.dispatch());
+            // A única vaga do banco local não fica presa atrás da espera pela nuvem
+            assertTrue(localDone.await(5, TimeUnit.SECONDS));
+            releaseCloud.countDown();
+        } finally {
+            releaseCloud.countDown();
+            workers.shutdown();
+            assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, maxCloudActive.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void prioritizesRequestedThenRecentChangesThenStaleness() {
+        SyncScheduler scheduler = scheduler(1, 1, 1);
+        for (String user : List.of("old", "changed", "login")) {
+            scheduler.register(user);
+            scheduler.dispatch();
+            runPending();
+            now.addAndGet(1_000);
+        }
+        synced.clear();
+
+        now.addAndGet(INTERVAL);
+        scheduler.markDirty("changed");
+        scheduler.requestSync("login");
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.dispatch();
+            runPending();
+        }
+        assertEquals(List.of("login", "changed", "old"), synced);
+    }
+
+    @Test
+    void changesDuringSyncKeepUserPending() {
+        SyncScheduler scheduler = scheduler(1, 1, 1);
+        scheduler.register("u1");
+        scheduler.dispatch();
+        scheduler.markDirty("u1");
+        runPending();
+
+        assertEquals(1, scheduler.dispatch(), "a alteração feita durante a sincronização exige outra rodada");
+        runPending();
+        assertEquals(0, scheduler.dispatch());
+    }
+
+    @Test
+    void pausesWithBackoffWhileCloudIsUnreachable() {
+        SyncScheduler scheduler = scheduler(2, 2, 2);
+        scheduler.register("u1");
+        cloudUp.set(false);
+
+        assertEquals(0, scheduler.dispatch());
+        assertTrue(scheduler.isPaused());
+        now.addAndGet(SyncScheduler.MIN_PAUSE_MILLIS);
+        assertEquals(0, scheduler.dispatch());
+        now.addAndGet(SyncScheduler.MIN_PAUSE_MILLIS);
+        assertTrue(scheduler.isPaused(), "a segunda pausa dobra a espera");
+
+        now.addAndGet(SyncScheduler.MIN_PAUSE_MILLIS);
+        cloudUp.set(true);
+        assertEquals(1, scheduler.dispatch());
+        runPending();
+        assertEquals(List.of("u1"), synced);
+        assertEquals(0, metrics.gauges().get("sync.scheduler.paused").getValue());
+    }
+
+    @Test
+    void reportsSyncAgePerUser() {
+        SyncScheduler scheduler = scheduler(1, 1, 1);
+        scheduler.register("u1");
+        assertEquals(-1, metrics.gauges().get("sync.age{user=u1}").getValue());
+
+        scheduler.dispatch();
+        runPending();
+        now.addAndGet(42_000);
+        assertEquals(42, metrics.gauges().get("sync.age{user=u1}").getValue());
+
+        scheduler.unregister("u1");
+        assertNull(metrics.gauges().get("sync.age{user=u1}"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.storage.InMemoryVaultRepository;
+import com.securepassmanager.storage.VaultMerkleTree;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncServiceTest {
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    /**
+     * Conta quantas entradas cada lado precisou entregar para a reconciliação.
+     */
+    private static final class CountingRepository extends InMemoryVaultRepository {
+        int entriesFetched;
+        int fullScans;
+
+        @Override
+        public List<PasswordEntry> entriesInBuckets(String userId, Set<Integer> buckets) {
+            List<PasswordEntry> entries = super.entriesInBuckets(userId, buckets);
+            entriesFetched += entries.size();
+            return entries;
+        }
+
+        @Override
+        public List<PasswordEntry> getAllPasswordEntries(String userId) {
+            fullScans++;
+            return super.getAllPasswordEntries(userId);
+        }
+    }
+
+    private static PasswordEntry entry(String service, String password, LocalDateTime updatedAt) {
+        PasswordEntry entry = new PasswordEntry(service, "alice", password, "u1");
+        entry.setUpdatedAt(updatedAt);
+        return entry;
+    }
+
+    private static void seed(InMemoryVaultRepository... sides) {
+        for (int i = 0; i < 1000; i++) {
+            for (InMemoryVaultRepository side : sides) {
+                side.insertOrUpdatePasswordEntry(entry("service-" + i, "YQ==", T0));
+            }
+        }
+    }
+
+    @Test
+    void testIdenticalVaultsOnlyCompareRoots() {
+        CountingRepository local = new CountingRepository();
+        CountingRepository cloud = new CountingRepository();
+        seed(local, cloud);
+
+        new SyncService(local, cloud).syncBidirectional("u1");
+
+        assertEquals(0, local.entriesFetched + cloud.entriesFetched);
+        assertEquals(0, local.fullScans + cloud.fullScans);
+    }
+
+    /**
+     * Árvore mantida à parte das entradas, como a do MongoDB, que pode ficar defasada.
+     */
+    private static final class StaleTreeRepository extends InMemoryVaultRepository {
+        boolean stale = true;
+        int invalidations;
+
+        @Override
+        public VaultMerkleTree merkleTree(String userId) {
+            VaultMerkleTree tree = super.merkleTree(userId);
+            if (!stale) {
+                return tree;
+            }
+            long[] buckets = tree.buckets();
+            buckets[7] ^= 0x5bd1e995L;
+            return VaultMerkleTree.fromBuckets(buckets);
+        }
+
+        @Override
+        public void invalidateMerkleTree(String userId) {
+            invalidations++;
+            stale = false;
+        }
+    }
+
+    @Test
+    void testDifferentRootsWithSameEntriesDiscardStaleTree() {
+        StaleTreeRepository local = new StaleTreeRepository();
+        CountingRepository cloud = new CountingRepository();
+        seed(local, cloud);
+        assertNotEquals(local.merkleRoot("u1"), cloud.merkleRoot("u1"));
+
+        new SyncService(local, cloud).syncBidirectional("u1");
+
+        assertEquals(1, local.invalidations);
+        assertEquals(local.merkleRoot("u1"), cloud.merkleRoot("u1"));
+        assertEquals(1000, cloud.getAllPasswordEntries("u1").size());
+    }
+
+    @Test
+    void testOnlyDivergentBucketsAreTransferred() {
+        CountingRepository local = new CountingRepository();
+        CountingRepository cloud = new CountingRepository();
+        seed(local, cloud);
+        local.insertOrUpdatePasswordEntry(entry("service-10", "bG9jYWw=", T0.plusHours(1)));
+        cloud.insertOrUpdatePasswordEntry(entry("service-20", "bnV2ZW0=", T0.plusHours(2)));
+        cloud.insertOrUpdatePasswordEntry(entry("only-cloud", "Yw==", T0));
+
+        new SyncService(local, cloud).syncBidirectional("u1");
+
+        assertEquals(local.merkleRoot("u1"), cloud.merkleRoot("u1"));
+        assertEquals("bG9jYWw=", cloud.findByService("service-10", "u1").getPassword());
+        assertEquals("bnV2ZW0=", local.findByService("service-20", "u1").getPassword());
+        assertNotNull(local.findByService("only-cloud", "u1"));
+        // 1000 entradas em 256 faixas: cada faixa divergente tem poucas entradas
+        assertTrue(local.entriesFetched + cloud.entriesFetched < 60,
+            "entradas transferidas: " + (local.entriesFetched + cloud.entriesFetched));
+    }
+
+    @Test
+    void testTreeIsIndependentOfInsertionOrderAndSubSecondPrecision() {
+        PasswordEntry a = entry("a", "YQ==", T0.plusNanos(123_456_789));
+        PasswordEntry b = entry("b", "Yg==", T0);
+        PasswordEntry truncated = entry("a", "YQ==", T0.plusNanos(123_000_000));
+
+        assertEquals(VaultMerkleTree.of(List.of(a, b)), VaultMerkleTree.of(List.of(b, a)));
+        assertEquals(VaultMerkleTree.leafHash(a), VaultMerkleTree.leafHash(truncated));
+        assertNotEquals(VaultMerkleTree.leafHash(a), VaultMerkleTree.leafHash(entry("a", "Yw==", T0)));
+        VaultMerkleTree tree = VaultMerkleTree.of(List.of(a, b));
+        tree.apply(VaultMerkleTree.bucketOf("b"), VaultMerkleTree.leafHash(b));
+        assertEquals(VaultMerkleTree.of(List.of(a)).root(), tree.root());
+    }
+}
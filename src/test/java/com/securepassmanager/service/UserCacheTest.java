@@ -0,0 +1,46 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    @Test
+    void testPositiveAndNegativeEntriesExpire() {
+        UserCache cache = new UserCache(10, 1_000, 100, now::get);
+        User alice = new User("alice@example.com", "hash", "segredo");
+        cache.put("alice@example.com", alice);
+        cache.putNegative("bob@example.com");
+
+        assertSame(alice, cache.get("alice@example.com").user);
+        assertNull(cache.get("bob@example.com").user, "resultado negativo");
+        assertNull(cache.get("carol@example.com"), "sem entrada");
+
+        now.addAndGet(100);
+        assertNull(cache.get("bob@example.com"));
+        assertNotNull(cache.get("alice@example.com"));
+        now.addAndGet(900);
+        assertNull(cache.get("alice@example.com"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        UserCache cache = new UserCache(2, 1_000, 1_000, now::get);
+        cache.put("a@example.com", new User("a@example.com", "h", "s"));
+        cache.put("b@example.com", new User("b@example.com", "h", "s"));
+        cache.get("a@example.com");
+        cache.put("c@example.com", new User("c@example.com", "h", "s"));
+
+        assertNotNull(cache.get("a@example.com"));
+        assertNull(cache.get("b@example.com"));
+        assertNotNull(cache.get("c@example.com"));
+
+        cache.invalidate("a@example.com");
+        assertNull(cache.get("a@example.com"));
+    }
+}
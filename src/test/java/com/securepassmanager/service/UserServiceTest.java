@@ -0,0 +1,80 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.User;
+import com.securepassmanager.storage.InMemoryUserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserServiceTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void testNormalizesEmailsOnRegisterAndLookup() {
+        UserService service = new UserService(new InMemoryUserRepository(), now::get);
+        service.registerUser(new User("  Alice@Example.COM ", "hash", "segredo"));
+
+        User found = service.findByEmail("alice@example.com");
+        assertNotNull(found);
+        assertEquals("alice@example.com", found.getEmail());
+        assertNotNull(service.findByEmail("ALICE@example.com "));
+        assertNull(service.findByEmail("bob@example.com"));
+    }
+
+    @Test
+    void testSeesUsersRegisteredByAnotherProcess() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        UserService first = new UserService(repository, now::get);
+        UserService second = new UserService(repository, now::get);
+        assertNull(second.findByEmail("alice@example.com"));
+
+        first.registerUser(new User("alice@example.com", "hash", "segredo"));
+
+        assertTrue(second.isRegistered("Alice@example.com"), "o cadastro consulta o armazenamento");
+        assertThrows(IllegalArgumentException.class,
+            () -> second.registerUser(new User("ALICE@example.com", "outro", "outro")));
+    }
+
+    @Test
+    void testStaleEmailFilterFallsBackToRepository() {
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicInteger unknownLookups = new AtomicInteger();
+        InMemoryUserRepository repository = new InMemoryUserRepository() {
+            @Override
+            public User findByEmail(String email) {
+                lookups.incrementAndGet();
+                if (email.equals("eve@example.com")) {
+                    unknownLookups.incrementAndGet();
+                }
+                return super.findByEmail(email);
+            }
+        };
+        UserService stale = new UserService(repository, now::get);
+        new UserService(repository, now::get).registerUser(new User("bob@example.com", "hash", "segredo"));
+        lookups.set(0);
+        assertNull(stale.findByEmail("bob@example.com"), "filtro recente: fora dele não há consulta");
+        assertEquals(0, lookups.get());
+
+        now.addAndGet(60 * 1000);
+        assertNotNull(stale.findByEmail("bob@example.com"), "filtro desatualizado: a busca vai ao banco");
+        assertNull(stale.findByEmail("eve@example.com"));
+        assertNull(stale.findByEmail("eve@example.com"));
+        // Ou o filtro já foi recarregado em segundo plano, ou a segunda busca usa o cache negativo
+        assertTrue(unknownLookups.get() <= 1, "o email inexistente fica no cache negativo");
+    }
+
+    @Test
+    void testRefreshReloadsEmailFilter() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        UserService stale = new UserService(repository, now::get);
+        new UserService(repository, now::get).registerUser(new User("bob@example.com", "hash", "segredo"));
+        assertNull(stale.findByEmail("bob@example.com"));
+
+        now.addAndGet(1000);
+        stale.refreshKnownEmails();
+        assertNotNull(stale.findByEmail("bob@example.com"));
+    }
+}
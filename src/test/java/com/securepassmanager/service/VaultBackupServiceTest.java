@@ -0,0 +1,64 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.KeyRing;
+import com.securepassmanager.storage.InMemoryVaultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultBackupServiceTest {
+    // Mais de um lote e vários blocos de 64 KiB no arquivo
+    private static final int ENTRIES = 1200;
+
+    @TempDir
+    Path dir;
+
+    private EncryptionService encryptionService;
+    private Path backup;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        encryptionService = EncryptionService.forKeyRing(KeyRing.inMemory());
+        InMemoryVaultRepository source = new InMemoryVaultRepository();
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(new PasswordEntry("servico-" + i, "ana", encryptionService.encryptPassword("Segredo#" + i), "u1"));
+        }
+        source.upsertPasswordEntries(entries);
+        backup = dir.resolve("cofre.bak");
+        assertEquals(ENTRIES, new VaultBackupService(source, encryptionService).export("u1", backup));
+    }
+
+    @Test
+    void testRestoreRoundTrip() throws Exception {
+        InMemoryVaultRepository target = new InMemoryVaultRepository();
+        assertEquals(ENTRIES, new VaultBackupService(target, encryptionService).restore("u2", backup));
+
+        List<PasswordEntry> restored = target.getAllPasswordEntries("u2");
+        assertEquals(ENTRIES, restored.size());
+        PasswordEntry first = restored.stream().filter(e -> e.getService().equals("servico-0")).findFirst().orElseThrow();
+        assertEquals("Segredo#0", encryptionService.decryptPassword(first.getPassword()));
+    }
+
+    @Test
+    void testTruncatedBackupWritesNothing() throws Exception {
+        byte[] file = Files.readAllBytes(backup);
+        Files.write(backup, Arrays.copyOf(file, file.length - 100));
+
+        InMemoryVaultRepository target = new InMemoryVaultRepository();
+        VaultBackupService service = new VaultBackupService(target, encryptionService);
+        assertThrows(IOException.class, () -> service.restore("u2", backup));
+        assertTrue(target.getAllPasswordEntries("u2").isEmpty(), "nenhum lote gravado antes de autenticar o arquivo");
+    }
+}
@@ -0,0 +1,62 @@
+package com.securepassmanager.service;
+
+import com.securepassmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultSearchIndexTest {
+
+    private static PasswordEntry entry(String service, String username) {
+        return new PasswordEntry(service, username, "texto-cifrado-secreto", "user1");
+    }
+
+    @Test
+    void testFindsEntryDespiteTypo() {
+        VaultSearchIndex index = VaultSearchIndex.of(List.of(
+            entry("github", "dev.alice"),
+            entry("gitlab", "alice"),
+            entry("netflix", "alice.family")));
+
+        List<VaultSearchIndex.Hit> hits = index.search("githbu", 3);
+        assertFalse(hits.isEmpty());
+        assertEquals("github", hits.get(0).getService());
+    }
+
+    @Test
+    void testIncrementalUpdateAndRemove() {
+        VaultSearchIndex index = new VaultSearchIndex();
+        index.index(entry("dropbox", "bob"));
+        index.index(entry("dropbox", "robert")); // Mesmo serviço: substitui a entrada
+        assertEquals(1, index.size());
+        assertEquals("robert", index.search("dropbox", 5).get(0).getUsername());
+
+        index.remove("dropbox");
+        assertTrue(index.search("dropbox", 5).isEmpty());
+    }
+
+    @Test
+    void testNeverIndexesPassword() {
+        VaultSearchIndex index = VaultSearchIndex.of(List.of(entry("amazon", "carol")));
+        assertTrue(index.search("texto-cifrado-secreto", 5).isEmpty());
+    }
+
+    @Test
+    void testTopKOverLargeVault() {
+        VaultSearchIndex index = new VaultSearchIndex();
+        for (int i = 0; i < 100_000; i++) {
+            index.index(entry("service-" + i, "user" + (i % 100)));
+        }
+        index.index(entry("mercadolivre", "dave"));
+
+        long start = System.nanoTime();
+        List<VaultSearchIndex.Hit> hits = index.search("mercado livre", 10);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("mercadolivre", hits.get(0).getService());
+        assertTrue(hits.size() <= 10);
+        assertTrue(elapsedMillis < 500, "Busca levou " + elapsedMillis + " ms");
+    }
+}
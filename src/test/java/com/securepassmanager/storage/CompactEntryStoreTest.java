@@ -0,0 +1,150 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactEntryStoreTest {
+
+    private static PasswordEntry entry(String service, String userId, String password) {
+        PasswordEntry entry = new PasswordEntry(service, "alice", password, userId);
+        entry.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+        entry.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+        return entry;
+    }
+
+    private static String describe(PasswordEntry e) {
+        return String.join("|", String.valueOf(e.getId()), String.valueOf(e.getTitle()), e.getService(),
+            String.valueOf(e.getUsername()), String.valueOf(e.getPassword()), e.getUserId(),
+            String.valueOf(e.getCreatedAt()), String.valueOf(e.getUpdatedAt()));
+    }
+
+    private static List<String> describeAll(VaultRepository repository, String userId) {
+        return repository.getAllPasswordEntries(userId).stream()
+            .map(CompactEntryStoreTest::describe).collect(Collectors.toList());
+    }
+
+    @Test
+    void testViewsRoundTripAllFields() {
+        CompactEntryStore store = new CompactEntryStore();
+        PasswordEntry entry = entry("github", "u1", "Y2lmcmFkbw==");
+        entry.setId(42L);
+        entry.setTitle("Trabalho");
+        store.insertPasswordEntry(entry);
+        PasswordEntry sparse = entry("mail", "u1", null);
+        sparse.setUsername(null);
+        sparse.setCreatedAt(null);
+        store.insertPasswordEntry(sparse);
+
+        assertEquals(describe(entry), describe(store.findByService("github", "u1")));
+        assertEquals(describe(sparse), describe(store.findByService("mail", "u1")));
+        assertNull(store.findByService("github", "u2"));
+        assertNull(store.findByService("desconhecido", "u1"));
+
+        PasswordEntry view = store.findByService("github", "u1");
+        view.setPassword("alterado");
+        assertEquals("Y2lmcmFkbw==", store.findByService("github", "u1").getPassword(),
+            "a visão é uma cópia; alterá-la não muda o repositório");
+    }
+
+    @Test
+    void testTimestampsKeepMillisecondPrecision() {
+        CompactEntryStore store = new CompactEntryStore();
+        PasswordEntry entry = entry("github", "u1", "YQ==");
+        entry.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_789));
+        store.insertPasswordEntry(entry);
+        assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000),
+            store.findByService("github", "u1").getUpdatedAt());
+    }
+
+    @Test
+    void testMatchesInMemoryRepositoryUnderRandomOperations() {
+        CompactEntryStore store = new CompactEntryStore();
+        InMemoryVaultRepository reference = new InMemoryVaultRepository();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String userId = "u" + random.nextInt(20);
+            String service = "s" + random.nextInt(300);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                PasswordEntry entry = entry(service, userId, "c" + i);
+                store.insertOrUpdatePasswordEntry(entry);
+                reference.insertOrUpdatePasswordEntry(entry);
+            } else if (op < 9) {
+                assertEquals(reference.deletePasswordEntry(service, userId), store.deletePasswordEntry(service, userId));
+            } else if (random.nextInt(50) == 0) {
+                assertEquals(reference.removeUser(userId), store.removeUser(userId));
+            }
+        }
+
+        int size = 0;
+        for (int u = 0; u < 20; u++) {
+            assertEquals(describeAll(reference, "u" + u), describeAll(store, "u" + u));
+            size += reference.getAllPasswordEntries("u" + u).size();
+        }
+        assertEquals(reference.listUserIds(), store.listUserIds());
+        assertEquals(size, store.size());
+    }
+
+    @Test
+    void testReplacedCiphertextsAreReclaimed() {
+        CompactEntryStore store = new CompactEntryStore();
+        String large = "x".repeat(4096);
+        for (int i = 0; i < 2_000; i++) {
+            store.insertOrUpdatePasswordEntry(entry("s" + (i % 10), "u1", large + i));
+        }
+        long[] bytes = store.slabBytes();
+        // Texto cifrado e usuário ("alice") de cada uma das 10 entradas vivas
+        assertEquals(10 * (large.length() + 4 + 5), bytes[0]);
+        assertTrue(bytes[1] <= CompactEntryStore.SLAB_SIZE + large.length() + 4,
+            "versões substituídas são descartadas ao compactar os blocos: " + bytes[1]);
+        assertEquals(large + 1999, store.findByService("s9", "u1").getPassword());
+    }
+
+    @Test
+    void testEditedTitlesAndUsernamesAreReclaimed() {
+        CompactEntryStore store = new CompactEntryStore();
+        String longTitle = "t".repeat(1000);
+        for (int i = 0; i < 5_000; i++) {
+            PasswordEntry entry = entry("s", "u1", "c");
+            entry.setUsername("usuario-" + i);
+            entry.setTitle(longTitle + i);
+            store.insertOrUpdatePasswordEntry(entry);
+        }
+        PasswordEntry stored = store.findByService("s", "u1");
+        assertEquals("usuario-4999", stored.getUsername());
+        assertEquals(longTitle + 4999, stored.getTitle());
+        assertTrue(store.slabBytes()[1] <= CompactEntryStore.SLAB_SIZE + longTitle.length() + 20,
+            "títulos e usuários substituídos não ficam retidos: " + store.slabBytes()[1]);
+    }
+
+    @Test
+    void testCiphertextLargerThanSlab() {
+        CompactEntryStore store = new CompactEntryStore();
+        String huge = "y".repeat(CompactEntryStore.SLAB_SIZE + 10);
+        store.insertPasswordEntry(entry("a", "u1", "pequeno"));
+        store.insertPasswordEntry(entry("b", "u1", huge));
+        store.insertPasswordEntry(entry("c", "u1", "depois"));
+        assertEquals(huge, store.findByService("b", "u1").getPassword());
+        assertEquals("pequeno", store.findByService("a", "u1").getPassword());
+        assertEquals("depois", store.findByService("c", "u1").getPassword());
+    }
+
+    @Test
+    void testReplaceAllAndListUsers() {
+        CompactEntryStore store = new CompactEntryStore();
+        store.upsertPasswordEntries(List.of(entry("a", "u1", "1"), entry("b", "u1", "2"), entry("a", "u2", "3")));
+        store.replaceAllPasswordEntries("u1", List.of(entry("z", "u1", "9")));
+        assertEquals(List.of("z"), store.getAllPasswordEntries("u1").stream()
+            .map(PasswordEntry::getService).collect(Collectors.toList()));
+        store.replaceAllPasswordEntries("u2", List.of());
+        assertEquals(Set.of("u1"), store.listUserIds());
+    }
+}
@@ -0,0 +1,59 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedUserRepositoryTest {
+
+    @Test
+    void testUsersSurviveReopen(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.db");
+        String id;
+        try (EmbeddedUserRepository repository = EmbeddedUserRepository.open(file)) {
+            User user = new User("alice@example.com", "hash", "segredo");
+            user.setBackupCodes(List.of("codigo-1", "codigo-2"));
+            repository.insert(user);
+            id = user.getId();
+            assertNotNull(id);
+
+            user.setWrappedVaultKey("Y2hhdmVz");
+            user.setKdfIterations(600_000);
+            repository.update(user);
+            assertThrows(IllegalArgumentException.class,
+                () -> repository.insert(new User("alice@example.com", "outro", "outro")));
+        }
+
+        try (EmbeddedUserRepository repository = EmbeddedUserRepository.open(file)) {
+            User user = repository.findByEmail("alice@example.com");
+            assertEquals(id, user.getId());
+            assertEquals("Y2hhdmVz", user.getWrappedVaultKey());
+            assertEquals(600_000, user.getKdfIterations());
+            assertEquals(List.of("codigo-1", "codigo-2"), user.getBackupCodes());
+            assertNull(repository.findByEmail("bob@example.com"));
+
+            List<String> emails = new ArrayList<>();
+            repository.forEachEmail(emails::add);
+            assertEquals(List.of("alice@example.com"), emails);
+        }
+    }
+
+    @Test
+    void testReturnsCopiesAndLocksFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.db");
+        try (EmbeddedUserRepository repository = EmbeddedUserRepository.open(file)) {
+            repository.insert(new User("alice@example.com", "hash", "segredo"));
+            repository.findByEmail("alice@example.com").setPasswordHash("alterado");
+            assertEquals("hash", repository.findByEmail("alice@example.com").getPasswordHash());
+            assertThrows(IOException.class, () -> EmbeddedUserRepository.open(file));
+        }
+        EmbeddedUserRepository.open(file).close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedVaultRepositoryTest {
+
+    private static PasswordEntry entry(String service, String userId, String password) {
+        PasswordEntry entry = new PasswordEntry(service, "alice", password, userId);
+        entry.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+        return entry;
+    }
+
+    private static List<String> services(VaultRepository repository, String userId) {
+        return repository.getAllPasswordEntries(userId).stream()
+            .map(PasswordEntry::getService).collect(Collectors.toList());
+    }
+
+    @Test
+    void testEntriesSurviveReopen(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("vault.db");
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, true)) {
+            repository.insertPasswordEntry(entry("github", "u1", "c2lmcmE="));
+            repository.insertOrUpdatePasswordEntry(entry("gitlab", "u1", "YQ=="));
+            repository.insertOrUpdatePasswordEntry(entry("github", "u1", "bm92YQ=="));
+            repository.upsertPasswordEntries(List.of(entry("mail", "u2", "eA=="), entry("bank", "u2", "eQ==")));
+            assertTrue(repository.deletePasswordEntry("gitlab", "u1"));
+            assertFalse(repository.deletePasswordEntry("gitlab", "u1"));
+        }
+
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, true)) {
+            PasswordEntry github = repository.findByService("github", "u1");
+            assertEquals("bm92YQ==", github.getPassword());
+            assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000), github.getUpdatedAt());
+            assertEquals(List.of("github"), services(repository, "u1"));
+            assertEquals(List.of("bank", "mail"), services(repository, "u2"));
+            assertNull(repository.findByService("github", "u2"));
+        }
+    }
+
+    @Test
+    void testReturnedEntriesAreCopies(@TempDir Path dir) throws IOException {
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(dir.resolve("vault.db"), false)) {
+            PasswordEntry original = entry("github", "u1", "YQ==");
+            repository.insertPasswordEntry(original);
+            original.setPassword("alterada");
+            repository.findByService("github", "u1").setPassword("alterada");
+            assertEquals("YQ==", repository.findByService("github", "u1").getPassword());
+        }
+    }
+
+    @Test
+    void testReplaceAllAndTornTailRecovery(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("vault.db");
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, true)) {
+            repository.upsertPasswordEntries(List.of(entry("a", "u1", "YQ=="), entry("b", "u1", "Yg==")));
+            repository.replaceAllPasswordEntries("u1", List.of(entry("c", "u1", "Yw==")));
+        }
+        long goodSize = Files.size(file);
+        // Simula uma queda no meio da gravação de um registro
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, true)) {
+            assertEquals(goodSize, repository.size());
+            assertEquals(List.of("c"), services(repository, "u1"));
+            repository.insertPasswordEntry(entry("d", "u1", "ZA=="));
+        }
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, true)) {
+            assertEquals(List.of("c", "d"), services(repository, "u1"));
+        }
+    }
+
+    @Test
+    void testCompactionKeepsOnlyLiveEntries(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("vault.db");
+        String password = "x".repeat(2000);
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, false)) {
+            for (int i = 0; i < 2000; i++) {
+                repository.insertOrUpdatePasswordEntry(entry("service-" + (i % 10), "u1", password));
+            }
+            assertTrue(repository.size() < 1024 * 1024, "log não foi compactado: " + repository.size());
+            repository.compact();
+            assertEquals(10, services(repository, "u1").size());
+            assertThrows(IOException.class, () -> EmbeddedVaultRepository.open(file, false),
+                "o arquivo compactado continua travado");
+            repository.insertOrUpdatePasswordEntry(entry("service-new", "u1", "YQ=="));
+        }
+        try (EmbeddedVaultRepository repository = EmbeddedVaultRepository.open(file, false)) {
+            assertEquals(11, services(repository, "u1").size());
+            assertEquals(password, repository.findByService("service-3", "u1").getPassword());
+        }
+    }
+
+    @Test
+    void testRejectsForeignFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("vault.db");
+        Files.writeString(file, "não é um cofre");
+        assertThrows(IOException.class, () -> EmbeddedVaultRepository.open(file, false));
+    }
+}
@@ -0,0 +1,131 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+import com.securepassmanager.security.EncryptionService;
+import com.securepassmanager.security.KeyRing;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCiphertextCacheTest {
+
+    private static PasswordEntry entry(String service, String userId, String ciphertext) {
+        PasswordEntry entry = new PasswordEntry(service, "alice", ciphertext, userId);
+        entry.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+        return entry;
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes());
+    }
+
+    private static String ciphertextOf(OffHeapCiphertextCache cache, String userId, String service) throws Exception {
+        return cache.read(userId, service, (metadata, ciphertext) -> {
+            byte[] bytes = new byte[ciphertext.remaining()];
+            ciphertext.get(bytes);
+            return new String(bytes);
+        });
+    }
+
+    @Test
+    void testDecryptsStraightFromOffHeapMemory() throws Exception {
+        EncryptionService encryptionService = EncryptionService.forKeyRing(KeyRing.inMemory());
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(64 * 1024, 256);
+        PasswordEntry entry = entry("github", "u1", encryptionService.encryptPassword("Segredo#2024"));
+        entry.setTitle("Trabalho");
+        assertTrue(cache.put(entry));
+
+        String password = cache.read("u1", "github", (metadata, ciphertext) -> {
+            assertTrue(ciphertext.isDirect());
+            assertEquals("alice", metadata.getUsername());
+            assertEquals("Trabalho", metadata.getTitle());
+            assertEquals(entry.getUpdatedAt(), metadata.getUpdatedAt());
+            assertNull(metadata.getPassword());
+            return encryptionService.decryptPassword(ciphertext);
+        });
+        assertEquals("Segredo#2024", password);
+        assertNull(cache.read("u2", "github", (metadata, ciphertext) -> "inesperado"));
+    }
+
+    @Test
+    void testReplaceAndInvalidate() throws Exception {
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(64 * 1024, 128);
+        cache.put(entry("github", "u1", base64("antiga")));
+        cache.put(entry("github", "u1", base64("nova")));
+        assertEquals(1, cache.size());
+        assertEquals("nova", ciphertextOf(cache, "u1", "github"));
+
+        cache.invalidate("u1", "github");
+        assertNull(ciphertextOf(cache, "u1", "github"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testStaleLoadDoesNotOverwriteNewerWrite() throws Exception {
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(64 * 1024, 128);
+        long stamp = cache.stamp("u1", "github");
+        cache.put(entry("github", "u1", base64("nova")));
+        assertFalse(cache.putIfUnchanged(entry("github", "u1", base64("antiga")), stamp));
+        assertEquals("nova", ciphertextOf(cache, "u1", "github"));
+
+        stamp = cache.stamp("u1", "github");
+        cache.invalidate("u1", "github");
+        assertFalse(cache.putIfUnchanged(entry("github", "u1", base64("removida")), stamp));
+        assertNull(ciphertextOf(cache, "u1", "github"), "leitura anterior à remoção não volta ao cache");
+
+        stamp = cache.stamp("u1", "github");
+        assertTrue(cache.putIfUnchanged(entry("github", "u1", base64("atual")), stamp));
+        assertEquals("atual", ciphertextOf(cache, "u1", "github"));
+    }
+
+    @Test
+    void testOversizedEntryIsNotCachedAndDropsOldVersion() throws Exception {
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(64 * 1024, 128);
+        cache.put(entry("github", "u1", base64("curta")));
+        assertFalse(cache.put(entry("github", "u1", base64("x".repeat(200)))));
+        assertNull(ciphertextOf(cache, "u1", "github"), "a versão antiga não pode continuar em cache");
+    }
+
+    @Test
+    void testClockEvictionSparesRecentlyReadEntries() throws Exception {
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(4 * 128, 128);
+        assertEquals(4, cache.capacity());
+        for (int i = 0; i < 4; i++) {
+            cache.put(entry("s" + i, "u1", base64("c" + i)));
+        }
+        // A primeira passagem do relógio limpa todos os bits e descarta s0; depois s1 é lido de novo
+        cache.put(entry("s4", "u1", base64("c4")));
+        ciphertextOf(cache, "u1", "s1");
+        cache.put(entry("s5", "u1", base64("c5")));
+
+        assertEquals(4, cache.size());
+        assertNull(ciphertextOf(cache, "u1", "s0"));
+        assertEquals("c1", ciphertextOf(cache, "u1", "s1"));
+        assertNull(ciphertextOf(cache, "u1", "s2"));
+        assertEquals("c5", ciphertextOf(cache, "u1", "s5"));
+    }
+
+    @Test
+    void testIndexSurvivesChurn() throws Exception {
+        OffHeapCiphertextCache cache = new OffHeapCiphertextCache(500 * 128, 128);
+        for (int i = 0; i < 5_000; i++) {
+            cache.put(entry("s" + i, "u" + (i % 7), base64("c" + i)));
+            if (i % 3 == 0) {
+                cache.invalidate("u" + (i % 7), "s" + i);
+            }
+        }
+        assertEquals(500, cache.size());
+        int found = 0;
+        for (int i = 0; i < 5_000; i++) {
+            String ciphertext = ciphertextOf(cache, "u" + (i % 7), "s" + i);
+            if (ciphertext != null) {
+                assertEquals("c" + i, ciphertext);
+                found++;
+            }
+        }
+        assertEquals(500, found);
+    }
+}
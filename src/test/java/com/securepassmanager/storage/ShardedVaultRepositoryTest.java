@@ -0,0 +1,146 @@
+package com.securepassmanager.storage;
+
+import com.securepassmanager.model.PasswordEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedVaultRepositoryTest {
+
+    @Test
+    void testRingBalancesAndMovesOnlyAFractionOnAdd() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("s0", "s1", "s2"), 160);
+        ConsistentHashRing extended = ring.withNode("s3");
+        Map<String, Integer> load = new HashMap<>();
+        int moved = 0;
+        int keys = 30_000;
+        for (int i = 0; i < keys; i++) {
+            String user = "user" + i;
+            String before = ring.nodeFor(user);
+            String after = extended.nodeFor(user);
+            load.merge(before, 1, Integer::sum);
+            if (!before.equals(after)) {
+                assertEquals("s3", after, "chave só pode migrar para o nó novo");
+                moved++;
+            }
+        }
+        for (int count : load.values()) {
+            assertEquals(keys / 3.0, count, keys / 3.0 * 0.15);
+        }
+        assertEquals(keys / 4.0, moved, keys / 4.0 * 0.2);
+    }
+
+    @Test
+    void testRoutesAllEntriesOfAUserToOneShard() {
+        Map<String, InMemoryVaultRepository> shards = shards("s0", "s1", "s2");
+        ShardedVaultRepository repository = new ShardedVaultRepository(shards, 64, new InMemoryShardRoutingTable(), 0);
+        for (int u = 0; u < 30; u++) {
+            repository.upsertPasswordEntries(List.of(entry("u" + u, "a"), entry("u" + u, "b")));
+        }
+        for (int u = 0; u < 30; u++) {
+            String userId = "u" + u;
+            assertEquals(2, shards.get(repository.shardOf(userId)).getAllPasswordEntries(userId).size());
+            assertEquals(2, repository.getAllPasswordEntries(userId).size());
+        }
+        assertEquals(30, repository.listUserIds().size());
+        assertTrue(repository.deletePasswordEntry("a", "u7"));
+        assertNull(repository.findByService("a", "u7"));
+    }
+
+    @Test
+    void testRebalanceMovesUsersToNewShardOnline() {
+        Map<String, InMemoryVaultRepository> shards = shards("s0", "s1");
+        InMemoryShardRoutingTable routes = new InMemoryShardRoutingTable();
+        ShardedVaultRepository before = new ShardedVaultRepository(shards, 64, routes, 0);
+        for (int u = 0; u < 200; u++) {
+            for (int e = 0; e < 5; e++) {
+                before.insertOrUpdatePasswordEntry(entry("u" + u, "service-" + e));
+            }
+        }
+
+        shards.put("s2", new InMemoryVaultRepository());
+        ShardedVaultRepository server = new ShardedVaultRepository(shards, 64, routes, 0);
+        ShardedVaultRepository rebalancer = new ShardedVaultRepository(shards, 64, routes, 0);
+        int pending = rebalancer.pendingMoves();
+        assertTrue(pending > 0);
+        // Antes de mover, os usuários continuam sendo atendidos pelo shard antigo
+        for (int u = 0; u < 200; u++) {
+            assertEquals(5, server.getAllPasswordEntries("u" + u).size());
+        }
+
+        Map<String, Long> movedEntries = new HashMap<>();
+        assertEquals(pending, rebalancer.rebalance(2, (userId, from, to, entries) -> {
+            assertEquals("s2", to);
+            movedEntries.put(userId, entries);
+        }));
+        assertEquals(0, rebalancer.pendingMoves());
+        assertEquals(pending, shards.get("s2").listUserIds().size());
+        for (int u = 0; u < 200; u++) {
+            String userId = "u" + u;
+            // O outro processo enxerga as rotas gravadas pela redistribuição
+            assertEquals(rebalancer.shardOf(userId), server.shardOf(userId));
+            assertEquals(5, server.getAllPasswordEntries(userId).size());
+            assertEquals(1, shards.values().stream()
+                .filter(shard -> shard.listUserIds().contains(userId)).count());
+        }
+        assertTrue(movedEntries.values().stream().allMatch(count -> count == 5));
+
+        server.insertOrUpdatePasswordEntry(entry("u0", "service-novo"));
+        assertEquals(6, rebalancer.getAllPasswordEntries("u0").size());
+    }
+
+    @Test
+    void testNewShardDoesNotHideVaultsWrittenBeforeTheRoutingTable() {
+        Map<String, InMemoryVaultRepository> shards = shards("s0", "s1");
+        ConsistentHashRing oldRing = new ConsistentHashRing(List.of("s0", "s1"), 64);
+        for (int u = 0; u < 100; u++) {
+            shards.get(oldRing.nodeFor("u" + u)).insertOrUpdatePasswordEntry(entry("u" + u, "a"));
+        }
+        InMemoryShardRoutingTable routes = new InMemoryShardRoutingTable();
+        routes.saveRing(List.of("s0", "s1"));
+
+        shards.put("s2", new InMemoryVaultRepository());
+        ShardedVaultRepository repository = new ShardedVaultRepository(shards, 64, routes, 0);
+        for (int u = 0; u < 100; u++) {
+            assertNotNull(repository.findByService("a", "u" + u));
+        }
+
+        int moved = repository.rebalance(10, (userId, from, to, entries) -> { });
+        assertEquals(shards.get("s2").listUserIds().size(), moved);
+        assertTrue(moved > 0);
+        for (int u = 0; u < 100; u++) {
+            assertNotNull(repository.findByService("a", "u" + u));
+        }
+    }
+
+    @Test
+    void testRejectsWritesWhileUserIsMoving() {
+        Map<String, InMemoryVaultRepository> shards = shards("s0", "s1");
+        InMemoryShardRoutingTable routes = new InMemoryShardRoutingTable();
+        ShardedVaultRepository repository = new ShardedVaultRepository(shards, 64, routes, 0);
+        repository.insertOrUpdatePasswordEntry(entry("u1", "a"));
+        String from = repository.shardOf("u1");
+        routes.save("u1", new ShardRoutingTable.Route(from, from.equals("s0") ? "s1" : "s0"));
+
+        assertThrows(IllegalStateException.class, () -> repository.insertOrUpdatePasswordEntry(entry("u1", "b")));
+        assertThrows(IllegalStateException.class, () -> repository.deletePasswordEntry("a", "u1"));
+        assertNotNull(repository.findByService("a", "u1"), "leituras continuam na origem");
+    }
+
+    private static Map<String, InMemoryVaultRepository> shards(String... names) {
+        Map<String, InMemoryVaultRepository> shards = new LinkedHashMap<>();
+        for (String name : names) {
+            shards.put(name, new InMemoryVaultRepository());
+        }
+        return shards;
+    }
+
+    private static PasswordEntry entry(String userId, String service) {
+        return new PasswordEntry(service, "alice", "YQ==", userId);
+    }
+}